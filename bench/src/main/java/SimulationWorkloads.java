@@ -0,0 +1,257 @@
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bench.SimulationBenchmark;
+
+/**
+ * This class creates the workloads timed by the SimulationBenchmark, each 
+ * repeating a single operation of the call center simulation. The 
+ * simulation's classes are in the default package, which the benchmarks, 
+ * kept in a named package as JMH requires, cannot import; the 
+ * SimulationBenchmark instead creates a SimulationWorkloads object by name 
+ * and calls the workloads through the SimulationBenchmark.Workload 
+ * interface. 
+ * 
+ * The workloads cover the Log recording an event, a tick of the clock 
+ * during a shift, the PhoneManager pairing calls on hold with employees, 
+ * and a full shift of the simulation. A workload may keep state between 
+ * operations, so each should be used by a single thread.
+ * 
+ * @author Brett Crawford
+ */
+public class SimulationWorkloads implements SimulationBenchmark.Workloads {
+	
+	/**
+	 * Returns a workload recording an event with a Log, which passes it to 
+	 * an event sink.
+	 * 
+	 * @param ringBuffer
+	 *            true to pass the events to a RingBufferEventSink, false 
+	 *            to pass them to a NullEventSink
+	 * @return SimulationBenchmark.Workload
+	 *            the workload
+	 */
+	public SimulationBenchmark.Workload recordEvent(boolean ringBuffer) {
+		return new RecordEventWorkload(ringBuffer ? new RingBufferEventSink(4096) : new NullEventSink());
+	}
+	
+	/**
+	 * Returns a workload ticking the clock of a call center during its 
+	 * shift.
+	 * 
+	 * @param employees
+	 *            the number of employees
+	 * @param phoneLines
+	 *            the number of phone lines
+	 * @param callProbability
+	 *            the chance of a call on each tick
+	 * @param eventDriven
+	 *            true for an event-driven clock, false to tick every step
+	 * @return SimulationBenchmark.Workload
+	 *            the workload
+	 */
+	public SimulationBenchmark.Workload countTick(int employees, int phoneLines, float callProbability, boolean eventDriven) {
+		return new CountTickWorkload(getParameters(employees, phoneLines, callProbability, eventDriven));
+	}
+	
+	/**
+	 * Returns a workload in which the PhoneManager pairs a call on every 
+	 * phone line an employee can answer with an employee.
+	 * 
+	 * @param employees
+	 *            the number of employees
+	 * @param phoneLines
+	 *            the number of phone lines
+	 * @return SimulationBenchmark.Workload
+	 *            the workload
+	 */
+	public SimulationBenchmark.Workload dispatch(int employees, int phoneLines) {
+		SimulationParameters parameters = new SimulationParameters();
+		parameters.setNumberOfEmployees(employees);
+		parameters.setNumberOfPhoneLines(phoneLines);
+		return new DispatchWorkload(parameters);
+	}
+	
+	/**
+	 * Returns a workload running a full shift of a new simulation.
+	 * 
+	 * @param employees
+	 *            the number of employees
+	 * @param phoneLines
+	 *            the number of phone lines
+	 * @param callProbability
+	 *            the chance of a call on each tick
+	 * @param eventDriven
+	 *            true for an event-driven clock, false to tick every step
+	 * @return SimulationBenchmark.Workload
+	 *            the workload
+	 */
+	public SimulationBenchmark.Workload shift(int employees, int phoneLines, float callProbability, boolean eventDriven) {
+		return new ShiftWorkload(getParameters(employees, phoneLines, callProbability, eventDriven));
+	}
+	
+	/**
+	 * Returns the default parameters with the given staffing, chance of a 
+	 * call and clock mode.
+	 * 
+	 * @param employees
+	 *            the number of employees
+	 * @param phoneLines
+	 *            the number of phone lines
+	 * @param callProbability
+	 *            the chance of a call on each tick
+	 * @param eventDriven
+	 *            true for an event-driven clock, false to tick every step
+	 * @return SimulationParameters
+	 *            the parameters
+	 */
+	private static SimulationParameters getParameters(int employees, int phoneLines, float callProbability, boolean eventDriven) {
+		SimulationParameters parameters = new SimulationParameters();
+		parameters.setNumberOfEmployees(employees);
+		parameters.setNumberOfPhoneLines(phoneLines);
+		parameters.setCallProbability(callProbability);
+		parameters.setEventDriven(eventDriven);
+		return parameters;
+	}
+	
+	/**
+	 * Records an event that is passed to the given sink.
+	 */
+	private static class RecordEventWorkload implements SimulationBenchmark.Workload {
+		
+		private Log log;
+		private int customerID;
+		
+		private RecordEventWorkload(EventSink theEventSink) {
+			log = new Log(new Clock(), theEventSink, 8, 1, 1);
+			customerID = 0;
+		}
+		
+		public long operation() {
+			log.recordEvent(EventType.CALL_INITIATED, ++customerID, 1, 15);
+			return customerID;
+		}
+	}
+	
+	/**
+	 * Ticks the clock of a call center during its shift. The call center 
+	 * is rebuilt once its shift is complete, so the cost of building it is 
+	 * spread across the ticks of a shift.
+	 */
+	private static class CountTickWorkload implements SimulationBenchmark.Workload {
+		
+		private SimulationParameters parameters;
+		private long seed;
+		private Clock clock;
+		private PhoneManager phoneManager;
+		private CustomerGenerator customerGenerator;
+		
+		private CountTickWorkload(SimulationParameters theParameters) {
+			parameters = theParameters;
+			seed = 0;
+			build();
+		}
+		
+		public long operation() {
+			if(phoneManager.isShiftComplete())
+				build();
+			if(!clock.isEventDriven())
+				customerGenerator.attemptCall();
+			clock.countTick();
+			return clock.getTime();
+		}
+		
+		private void build() {
+			RandomStream rand = new RandomStream(++seed);
+			RandomStream arrivalRand = rand.split();
+			RandomStream durationRand = rand.split();
+			RandomStream performanceRand = rand.split();
+			clock = new Clock(parameters.isEventDriven());
+			Log log = new Log(clock, new NullEventSink(), parameters.getShiftLength(),
+					parameters.getNumberOfPhoneLines(), parameters.getNumberOfEmployees());
+			phoneManager = new PhoneManager(log, clock, parameters.getShiftLength());
+			customerGenerator = new CustomerGenerator(clock, phoneManager, arrivalRand, durationRand, parameters.getCallProbability(),
+					parameters.getExpectedDurationMin(), parameters.getExpectedDurationMax());
+			if(clock.isEventDriven())
+				clock.addManagedItem(customerGenerator);
+			clock.addManagedItem(phoneManager);
+			for(int i = 0; i < parameters.getNumberOfPhoneLines(); i++)
+				phoneManager.addPhoneLine(new PhoneLine(i + 1, log, clock));
+			for(int i = 0; i < parameters.getNumberOfEmployees(); i++)
+				phoneManager.addEmployee(new Employee(i + 1, log, clock, performanceRand.nextFloat() + 0.5F));
+		}
+	}
+	
+	/**
+	 * Places a call on hold on every phone line that an employee can 
+	 * answer, lets the PhoneManager pair the calls with employees, and 
+	 * completes the calls, returning the lines and employees for the next 
+	 * operation. The clock is never ticked.
+	 */
+	private static class DispatchWorkload implements SimulationBenchmark.Workload {
+		
+		private Clock clock;
+		private PhoneManager phoneManager;
+		private List<Customer> customers;
+		private List<Employee> employees;
+		private int nextCustomerID;
+		
+		private DispatchWorkload(SimulationParameters parameters) {
+			clock = new Clock();
+			Log log = new Log(clock, new NullEventSink(), parameters.getShiftLength(),
+					parameters.getNumberOfPhoneLines(), parameters.getNumberOfEmployees());
+			phoneManager = new PhoneManager(log, clock, parameters.getShiftLength());
+			int calls = Math.min(parameters.getNumberOfPhoneLines(), parameters.getNumberOfEmployees());
+			customers = new ArrayList<Customer>(calls);
+			employees = new ArrayList<Employee>(parameters.getNumberOfEmployees());
+			for(int i = 0; i < parameters.getNumberOfPhoneLines(); i++)
+				phoneManager.addPhoneLine(new PhoneLine(i + 1, log, clock));
+			for(int i = 0; i < parameters.getNumberOfEmployees(); i++) {
+				Employee employee = new Employee(i + 1, log, clock, 1.0F);
+				phoneManager.addEmployee(employee);
+				employees.add(employee);
+			}
+			for(int i = 0; i < calls; i++)
+				customers.add(new Customer(i + 1, log, clock, phoneManager, parameters.getExpectedDurationMin()));
+			nextCustomerID = 0;
+		}
+		
+		public long operation() {
+			long time = clock.getTime();
+			for(int i = 0; i < customers.size(); i++)
+				phoneManager.directCall(customers.get(i), ++nextCustomerID, 2, 0);
+			phoneManager.clockTicked(time);
+			for(int i = 0; i < employees.size(); i++) {
+				Employee employee = employees.get(i);
+				if(!employee.isAvailable()) {
+					employee.clockTicked(time); // Begins the call
+					employee.clockTicked(time + 3600); // Completes the call
+				}
+			}
+			return nextCustomerID;
+		}
+	}
+	
+	/**
+	 * Runs a full shift of a new simulation, using a new seed each time.
+	 */
+	private static class ShiftWorkload implements SimulationBenchmark.Workload {
+		
+		private SimulationParameters parameters;
+		private long seed;
+		
+		private ShiftWorkload(SimulationParameters theParameters) {
+			parameters = theParameters;
+			seed = 0;
+		}
+		
+		public long operation() {
+			CallCenterSimulation simulation = new CallCenterSimulation(parameters, ++seed);
+			simulation.initializeSim();
+			simulation.run();
+			return simulation.getLog().getTotalCustomers();
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the speed of the core of the call center simulation 
+ * with JMH, which runs each benchmark in a forked JVM, for a number of 
+ * warm-up iterations so that the JIT compiler has settled and then for a 
+ * number of measured iterations, and reports the average time per 
+ * operation with its error. The result of every operation is returned to 
+ * JMH so that the work cannot be removed by the JIT compiler. 
+ * 
+ * The benchmarks cover the Log recording an event passed to a 
+ * NullEventSink or a RingBufferEventSink, a tick of the clock in tick and 
+ * event-driven modes during a shift, the PhoneManager pairing calls on 
+ * hold with employees, and a full shift of the simulation in both modes. 
+ * Every benchmark apart from the Log's is run for each combination of the 
+ * employees, phoneLines and callProbability parameters, which may be 
+ * changed with JMH's -p option, so that changes to the engine can be 
+ * measured across call centers of different sizes and loads. 
+ * 
+ * JMH requires benchmarks to be in a named package, and a named package 
+ * cannot import the simulation's classes from the default package, so the 
+ * operations are Workloads created by the SimulationWorkloads class, 
+ * which is found by name when each trial is set up. 
+ * 
+ * @author Brett Crawford
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class SimulationBenchmark {
+	
+	/** The name of the class in the default package creating the workloads **/
+	private static final String WORKLOADS_CLASS = "SimulationWorkloads";
+	
+	/**
+	 * Records an event with the Log.
+	 * 
+	 * @param state
+	 *            the workload of the event sink
+	 * @return long
+	 *            the ID of the customer of the event
+	 */
+	@Benchmark
+	public long recordEvent(EventLogState state) {
+		return state.recordEvent.operation();
+	}
+	
+	/**
+	 * Ticks the clock of a call center during its shift.
+	 * 
+	 * @param state
+	 *            the workload of the call center
+	 * @return long
+	 *            the time of the clock after the tick
+	 */
+	@Benchmark
+	public long countTick(CallCenterState state) {
+		return state.countTick.operation();
+	}
+	
+	/**
+	 * Pairs a call on every phone line an employee can answer with an 
+	 * employee, and completes the calls.
+	 * 
+	 * @param state
+	 *            the workload of the call center
+	 * @return long
+	 *            the ID of the last customer placed on hold
+	 */
+	@Benchmark
+	public long dispatch(DispatchState state) {
+		return state.dispatch.operation();
+	}
+	
+	/**
+	 * Runs a full shift of a new simulation.
+	 * 
+	 * @param state
+	 *            the workload of the call center
+	 * @return long
+	 *            the number of customers of the shift
+	 */
+	@Benchmark
+	public long shift(CallCenterState state) {
+		return state.shift.operation();
+	}
+	
+	/**
+	 * Returns a new object of the class creating the workloads.
+	 * 
+	 * @return Workloads
+	 *            the object creating the workloads
+	 */
+	private static Workloads getWorkloads() {
+		try {
+			return (Workloads) Class.forName(WORKLOADS_CLASS).getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot create the workloads of " + WORKLOADS_CLASS, e);
+		}
+	}
+	
+	/**
+	 * A single operation of the simulation to be timed, with any state it 
+	 * needs. The method a Workload must implement is the following.
+	 * 
+	 * The operation method runs the operation once and returns a value 
+	 * derived from its result.
+	 */
+	public interface Workload {
+		
+		public long operation();
+	}
+	
+	/**
+	 * Creates the workloads of the benchmarks. The methods a Workloads 
+	 * object must implement are the following.
+	 * 
+	 * The recordEvent method returns a workload recording an event with a 
+	 * Log, passed to a RingBufferEventSink if asked or else to a 
+	 * NullEventSink. The countTick method returns a workload ticking the 
+	 * clock of a call center of the given staffing, chance of a call and 
+	 * clock mode during its shift. The dispatch method returns a workload 
+	 * in which the PhoneManager of a call center of the given staffing 
+	 * pairs calls on hold with employees. The shift method returns a 
+	 * workload running a full shift of a simulation of the given staffing, 
+	 * chance of a call and clock mode.
+	 */
+	public interface Workloads {
+		
+		public Workload recordEvent(boolean ringBuffer);
+		
+		public Workload countTick(int employees, int phoneLines, float callProbability, boolean eventDriven);
+		
+		public Workload dispatch(int employees, int phoneLines);
+		
+		public Workload shift(int employees, int phoneLines, float callProbability, boolean eventDriven);
+	}
+	
+	/**
+	 * The workload recording events, for each event sink.
+	 */
+	@State(Scope.Thread)
+	public static class EventLogState {
+		
+		@Param({"NullEventSink", "RingBufferEventSink"})
+		public String eventSink;
+		
+		private Workload recordEvent;
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			if(!eventSink.equals("NullEventSink") && !eventSink.equals("RingBufferEventSink"))
+				throw new IllegalArgumentException("Unknown event sink " + eventSink);
+			recordEvent = getWorkloads().recordEvent(eventSink.equals("RingBufferEventSink"));
+		}
+	}
+	
+	/**
+	 * The workloads ticking and running a call center, for each staffing, 
+	 * chance of a call and clock mode.
+	 */
+	@State(Scope.Thread)
+	public static class CallCenterState {
+		
+		@Param({"5", "10", "20"})
+		public int employees;
+		
+		@Param({"12"})
+		public int phoneLines;
+		
+		@Param({"0.12"})
+		public float callProbability;
+		
+		@Param({"tick", "event"})
+		public String clock;
+		
+		private Workload countTick;
+		private Workload shift;
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			if(!clock.equals("tick") && !clock.equals("event"))
+				throw new IllegalArgumentException("Unknown clock mode " + clock);
+			Workloads workloads = getWorkloads();
+			countTick = workloads.countTick(employees, phoneLines, callProbability, clock.equals("event"));
+			shift = workloads.shift(employees, phoneLines, callProbability, clock.equals("event"));
+		}
+	}
+	
+	/**
+	 * The workload pairing calls with employees, for each staffing.
+	 */
+	@State(Scope.Thread)
+	public static class DispatchState {
+		
+		@Param({"5", "10", "20"})
+		public int employees;
+		
+		@Param({"12"})
+		public int phoneLines;
+		
+		private Workload dispatch;
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			dispatch = getWorkloads().dispatch(employees, phoneLines);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class represents the rate at which customers call over the course 
+ * of a shift. The required parameters for creating an ArrivalProfile object 
+ * include: an array of integers, the minute of the shift at which each 
+ * period of the profile begins, in increasing order and starting at 0; and 
+ * an array of doubles, the average number of calls per minute during each 
+ * period. The last period continues until the end of the shift. A profile 
+ * of a morning peak followed by a lunch dip could, for example, begin 
+ * periods at minutes 0, 120 and 240. Calls arrive as a Poisson process whose 
+ * rate is that of the current period, so the time between calls follows an 
+ * exponential distribution. The getNextArrival method finds the time of the 
+ * next call from a single exponential draw by spending the draw across as 
+ * many periods as it takes, so a period without calls costs no draws at all. 
+ * An ArrivalProfile is never changed once created, so one may be shared by 
+ * many simulations. A profile can be written to a checkpoint and read back 
+ * exactly.
+ * 
+ * @author Brett Crawford
+ */
+public class ArrivalProfile {
+	
+	private double[] periodStarts;
+	private double[] callsPerSecond;
+	
+	/**
+	 * Creates an ArrivalProfile object with a single period in which calls 
+	 * arrive at the given average rate.
+	 * 
+	 * @param theCallsPerMinute
+	 *            the average number of calls per minute
+	 */
+	public ArrivalProfile(double theCallsPerMinute) {
+		this(new int[] { 0 }, new double[] { theCallsPerMinute });
+	}
+	
+	/**
+	 * Creates an ArrivalProfile object with the specified parameters.
+	 * 
+	 * @param thePeriodStarts
+	 *            the minute of the shift at which each period begins
+	 * @param theCallsPerMinute
+	 *            the average number of calls per minute during each period
+	 */
+	public ArrivalProfile(int[] thePeriodStarts, double[] theCallsPerMinute) {
+		if(thePeriodStarts.length == 0 || thePeriodStarts.length != theCallsPerMinute.length)
+			throw new IllegalArgumentException("Each period needs a start and a rate");
+		if(thePeriodStarts[0] != 0)
+			throw new IllegalArgumentException("The first period must start at minute 0");
+		
+		periodStarts = new double[thePeriodStarts.length];
+		callsPerSecond = new double[theCallsPerMinute.length];
+		for(int i = 0; i < periodStarts.length; i++) {
+			if(i > 0 && thePeriodStarts[i] <= thePeriodStarts[i - 1])
+				throw new IllegalArgumentException("Periods must start in increasing order");
+			if(!(theCallsPerMinute[i] >= 0) || Double.isInfinite(theCallsPerMinute[i]))
+				throw new IllegalArgumentException("Call rates must be finite and not negative");
+			periodStarts[i] = thePeriodStarts[i] * 60.0;
+			callsPerSecond[i] = theCallsPerMinute[i] / 60.0;
+		}
+	}
+	
+	/**
+	 * Creates an ArrivalProfile object from periods already converted to 
+	 * seconds.
+	 * 
+	 * @param thePeriodStarts
+	 *            the second of the shift at which each period begins
+	 * @param theCallsPerSecond
+	 *            the average number of calls per second during each period
+	 */
+	private ArrivalProfile(double[] thePeriodStarts, double[] theCallsPerSecond) {
+		periodStarts = thePeriodStarts;
+		callsPerSecond = theCallsPerSecond;
+	}
+	
+	/**
+	 * Reads an ArrivalProfile written to a checkpoint by writeState.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @return ArrivalProfile
+	 *            the profile read
+	 */
+	public static ArrivalProfile readState(DataInput in) throws IOException {
+		int periods = in.readInt();
+		double[] periodStarts = new double[periods];
+		double[] callsPerSecond = new double[periods];
+		for(int i = 0; i < periods; i++) {
+			periodStarts[i] = in.readDouble();
+			callsPerSecond[i] = in.readDouble();
+		}
+		return new ArrivalProfile(periodStarts, callsPerSecond);
+	}
+	
+	/**
+	 * Writes the periods of the profile to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(periodStarts.length);
+		for(int i = 0; i < periodStarts.length; i++) {
+			out.writeDouble(periodStarts[i]);
+			out.writeDouble(callsPerSecond[i]);
+		}
+	}
+	
+	/**
+	 * Returns the average number of calls per minute at the given minute 
+	 * of the shift.
+	 * 
+	 * @param minute
+	 *            the minute of the shift
+	 * @return double
+	 *            the average number of calls per minute
+	 */
+	public double getCallsPerMinute(double minute) {
+		return callsPerSecond[getPeriod(minute * 60.0)] * 60.0;
+	}
+	
+	/**
+	 * Returns the expected number of calls during the given number of 
+	 * minutes from the start of the shift.
+	 * 
+	 * @param minutes
+	 *            the number of minutes from the start of the shift
+	 * @return double
+	 *            the expected number of calls
+	 */
+	public double getExpectedCalls(double minutes) {
+		double end = minutes * 60.0;
+		double calls = 0;
+		for(int i = 0; i < periodStarts.length && periodStarts[i] < end; i++) {
+			double periodEnd = i + 1 < periodStarts.length ? Math.min(periodStarts[i + 1], end) : end;
+			calls += (periodEnd - periodStarts[i]) * callsPerSecond[i];
+		}
+		return calls;
+	}
+	
+	/**
+	 * Returns the time of the next call after the given time, using an 
+	 * exponentially distributed draw with a mean of 1. The draw is the 
+	 * expected number of calls between the two times, so it is spent at 
+	 * the rate of each period in turn until it is used up.
+	 * 
+	 * @param second
+	 *            the second of the shift after which the call arrives
+	 * @param exponentialDraw
+	 *            an exponentially distributed value with a mean of 1
+	 * @return double
+	 *            the second of the shift at which the call arrives, or 
+	 *            positive infinity if no further calls arrive
+	 */
+	public double getNextArrival(double second, double exponentialDraw) {
+		int period = getPeriod(second);
+		double remaining = exponentialDraw;
+		while(true) {
+			double periodEnd = period + 1 < periodStarts.length ? periodStarts[period + 1] : Double.POSITIVE_INFINITY;
+			double rate = callsPerSecond[period];
+			if(rate > 0) {
+				double arrival = second + remaining / rate;
+				if(arrival <= periodEnd)
+					return arrival;
+				remaining -= (periodEnd - second) * rate;
+			}
+			else if(periodEnd == Double.POSITIVE_INFINITY) {
+				return Double.POSITIVE_INFINITY;
+			}
+			second = periodEnd;
+			period++;
+		}
+	}
+	
+	/**
+	 * Returns the periods of the profile as a comma separated list of 
+	 * minute:rate pairs, the same for any two profiles which are equal.
+	 * 
+	 * @return String
+	 *            the periods of the profile
+	 */
+	public String toString() {
+		String periods = "";
+		for(int i = 0; i < periodStarts.length; i++)
+			periods += (i > 0 ? "," : "") + periodStarts[i] / 60.0 + ":" + callsPerSecond[i] * 60.0;
+		return periods;
+	}
+	
+	/**
+	 * Returns the index of the period containing the given second of the shift.
+	 * 
+	 * @param second
+	 *            the second of the shift
+	 * @return int
+	 *            the index of the period
+	 */
+	private int getPeriod(double second) {
+		int index = Arrays.binarySearch(periodStarts, second);
+		if(index < 0)
+			index = -index - 2; // The period starting before the second
+		return Math.max(index, 0);
+	}
+}
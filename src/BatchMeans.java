@@ -0,0 +1,420 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+/**
+ * This class estimates the steady-state results of a call center which runs 
+ * without closing, using the method of batch means. The required parameters 
+ * for creating a BatchMeans object include: a long, the time at which the 
+ * first batch begins; and an integer, the length (in minutes) of each batch. 
+ * The run is divided into batches of equal length, and for each batch the 
+ * number of calls, hang-ups and busy signals and the total time calls 
+ * remained on hold are counted. The mean of a result over the batches, 
+ * with its 95% confidence interval, estimates its steady-state value. 
+ * 
+ * The batches at the start of a run are biased by the call center starting 
+ * empty, so they are deleted as warm-up. The number of batches deleted is 
+ * chosen by MSER: for each number d up to half of the batches, the squared 
+ * error of the mean of the batches after the first d is found, and the d 
+ * giving the least error is used. This is done for the average hold time, 
+ * the hang-ups per hour and the busy signals per hour, and the largest of 
+ * the three is deleted from each. 
+ * 
+ * The counts are kept in primitive arrays of a fixed number of batches, so 
+ * the memory used does not grow with the length of the run. When the arrays 
+ * are full, each pair of neighboring batches is merged into one of twice the 
+ * length, which also keeps the batches long enough to be nearly independent 
+ * as the run grows. The results may be read at any time during a run, and 
+ * the counts can be written to a checkpoint and read back.
+ * 
+ * @author Brett Crawford
+ */
+public class BatchMeans {
+	
+	private DecimalFormat fmt = new DecimalFormat("0.00");
+	
+	/** The number of batches kept, after which pairs of batches are merged **/
+	private static final int MAX_BATCHES = 64;
+	
+	private long startTime;
+	private int batchSeconds;
+	private int completedBatches;
+	private long currentEnd;
+	private int[] calls;
+	private int[] hangUps;
+	private int[] busySignals;
+	private int[] holdTimeCounts;
+	private long[] holdTimeSums;
+	
+	/**
+	 * Creates a BatchMeans object with the specified parameters.
+	 * 
+	 * @param theStartTime
+	 *            the time, in seconds since the epoch, the first batch begins
+	 * @param theBatchLength
+	 *            the length (in minutes) of each batch
+	 */
+	public BatchMeans(long theStartTime, int theBatchLength) {
+		if(theBatchLength < 1)
+			throw new IllegalArgumentException("Batch length must be at least 1 minute: " + theBatchLength);
+		startTime = theStartTime;
+		batchSeconds = theBatchLength * 60;
+		completedBatches = 0;
+		currentEnd = startTime + batchSeconds;
+		calls = new int[MAX_BATCHES];
+		hangUps = new int[MAX_BATCHES];
+		busySignals = new int[MAX_BATCHES];
+		holdTimeCounts = new int[MAX_BATCHES];
+		holdTimeSums = new long[MAX_BATCHES];
+	}
+	
+	/**
+	 * Records the arrival of a call.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordArrival(long time) {
+		advance(time);
+		calls[completedBatches]++;
+	}
+	
+	/**
+	 * Records a customer hanging up while on hold.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordHangUp(long time) {
+		advance(time);
+		hangUps[completedBatches]++;
+	}
+	
+	/**
+	 * Records a customer receiving a busy signal.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordBusySignal(long time) {
+		advance(time);
+		busySignals[completedBatches]++;
+	}
+	
+	/**
+	 * Records the hold time of a single call.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 * @param holdTime
+	 *            the hold time (in minutes) of the call
+	 */
+	public void recordHoldTime(long time, int holdTime) {
+		advance(time);
+		holdTimeCounts[completedBatches]++;
+		holdTimeSums[completedBatches] += holdTime;
+	}
+	
+	/**
+	 * Completes every batch which ends at or before the given time.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void advance(long time) {
+		while(time >= currentEnd) {
+			completedBatches++;
+			if(completedBatches == MAX_BATCHES)
+				mergeBatches();
+			currentEnd = startTime + (long) (completedBatches + 1) * batchSeconds;
+		}
+	}
+	
+	/**
+	 * Returns the number of completed batches.
+	 * 
+	 * @return int
+	 *            the number of completed batches
+	 */
+	public int getNumberOfBatches() {
+		return completedBatches;
+	}
+	
+	/**
+	 * Returns the current length (in minutes) of each batch.
+	 * 
+	 * @return int
+	 *            the length (in minutes) of each batch
+	 */
+	public int getBatchLength() {
+		return batchSeconds / 60;
+	}
+	
+	/**
+	 * Returns the number of completed batches deleted as warm-up, the 
+	 * largest number chosen by MSER for the average hold time, the hang-ups 
+	 * per hour and the busy signals per hour.
+	 * 
+	 * @return int
+	 *            the number of batches deleted
+	 */
+	public int getWarmUpBatches() {
+		return Math.max(getTruncation(getHoldTimes()), 
+				Math.max(getTruncation(getHangUpRates()), getTruncation(getBusySignalRates())));
+	}
+	
+	/**
+	 * Returns the average hold time (in minutes) of each completed batch 
+	 * after the warm-up.
+	 * 
+	 * @return StatAccumulator
+	 *            the average hold time of each batch
+	 */
+	public StatAccumulator getAverageHoldTime() {
+		return accumulate(getHoldTimes(), getWarmUpBatches());
+	}
+	
+	/**
+	 * Returns the number of hang-ups per hour of each completed batch after 
+	 * the warm-up.
+	 * 
+	 * @return StatAccumulator
+	 *            the hang-ups per hour of each batch
+	 */
+	public StatAccumulator getHangUpsPerHour() {
+		return accumulate(getHangUpRates(), getWarmUpBatches());
+	}
+	
+	/**
+	 * Returns the number of busy signals per hour of each completed batch 
+	 * after the warm-up.
+	 * 
+	 * @return StatAccumulator
+	 *            the busy signals per hour of each batch
+	 */
+	public StatAccumulator getBusySignalsPerHour() {
+		return accumulate(getBusySignalRates(), getWarmUpBatches());
+	}
+	
+	/**
+	 * Returns the number of calls per hour of each completed batch after 
+	 * the warm-up.
+	 * 
+	 * @return StatAccumulator
+	 *            the calls per hour of each batch
+	 */
+	public StatAccumulator getCallsPerHour() {
+		return accumulate(getRates(calls), getWarmUpBatches());
+	}
+	
+	/**
+	 * Returns a string containing the steady-state estimate, with its 95% 
+	 * confidence half-width, of each result of the completed batches.
+	 * 
+	 * @return String
+	 *             a string containing the batch means
+	 */
+	public String printStatistics() {
+		int warmUpBatches = getWarmUpBatches();
+		
+		String stat = "|==========================================================|\n" +
+			          "|                Steady-State Batch Means                  |\n" +
+			          "|==========================================================|\n\n";
+		
+		stat +=       "   Batches: " + (completedBatches - warmUpBatches) + " of " + getBatchLength() + " minutes, after a warm-up of " + 
+		                      warmUpBatches * getBatchLength() + " minutes\n";
+		stat +=       "   (mean +/- 95% confidence half-width)\n";
+		stat +=       "   \n";
+		stat +=       printLine("   Average time a call remained on hold (minutes): ", accumulate(getHoldTimes(), warmUpBatches));
+		stat +=       printLine("   Customer calls per hour: ", accumulate(getRates(calls), warmUpBatches));
+		stat +=       printLine("     Dropped calls (hang-ups) per hour: ", accumulate(getHangUpRates(), warmUpBatches));
+		stat +=       printLine("     Lost calls (busy signals) per hour: ", accumulate(getBusySignalRates(), warmUpBatches));
+		
+		stat += "\n|==========================================================|\n" +
+			      "|==========================================================|\n";
+		
+		return stat;
+	}
+	
+	/**
+	 * Writes the batches to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(startTime);
+		out.writeInt(batchSeconds);
+		out.writeInt(completedBatches);
+		out.writeLong(currentEnd);
+		for(int i = 0; i <= completedBatches; i++) {
+			out.writeInt(calls[i]);
+			out.writeInt(hangUps[i]);
+			out.writeInt(busySignals[i]);
+			out.writeInt(holdTimeCounts[i]);
+			out.writeLong(holdTimeSums[i]);
+		}
+	}
+	
+	/**
+	 * Replaces the batches with those read from a checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		startTime = in.readLong();
+		batchSeconds = in.readInt();
+		completedBatches = in.readInt();
+		currentEnd = in.readLong();
+		for(int i = 0; i < MAX_BATCHES; i++) {
+			boolean written = i <= completedBatches;
+			calls[i] = written ? in.readInt() : 0;
+			hangUps[i] = written ? in.readInt() : 0;
+			busySignals[i] = written ? in.readInt() : 0;
+			holdTimeCounts[i] = written ? in.readInt() : 0;
+			holdTimeSums[i] = written ? in.readLong() : 0;
+		}
+	}
+	
+	/**
+	 * Merges each pair of neighboring completed batches into one batch of 
+	 * twice the length, leaving half as many.
+	 */
+	private void mergeBatches() {
+		for(int i = 0; i < MAX_BATCHES / 2; i++) {
+			calls[i] = calls[2 * i] + calls[2 * i + 1];
+			hangUps[i] = hangUps[2 * i] + hangUps[2 * i + 1];
+			busySignals[i] = busySignals[2 * i] + busySignals[2 * i + 1];
+			holdTimeCounts[i] = holdTimeCounts[2 * i] + holdTimeCounts[2 * i + 1];
+			holdTimeSums[i] = holdTimeSums[2 * i] + holdTimeSums[2 * i + 1];
+		}
+		for(int i = MAX_BATCHES / 2; i < MAX_BATCHES; i++) {
+			calls[i] = 0;
+			hangUps[i] = 0;
+			busySignals[i] = 0;
+			holdTimeCounts[i] = 0;
+			holdTimeSums[i] = 0;
+		}
+		completedBatches = MAX_BATCHES / 2;
+		batchSeconds *= 2;
+	}
+	
+	/**
+	 * Returns the average hold time (in minutes) of each completed batch, 
+	 * or 0 for a batch in which no call left hold.
+	 * 
+	 * @return double[]
+	 *            the average hold time of each batch
+	 */
+	private double[] getHoldTimes() {
+		double[] holdTimes = new double[completedBatches];
+		for(int i = 0; i < completedBatches; i++)
+			holdTimes[i] = holdTimeCounts[i] == 0 ? 0 : (double) holdTimeSums[i] / holdTimeCounts[i];
+		return holdTimes;
+	}
+	
+	/**
+	 * Returns the hang-ups per hour of each completed batch.
+	 * 
+	 * @return double[]
+	 *            the hang-ups per hour of each batch
+	 */
+	private double[] getHangUpRates() {
+		return getRates(hangUps);
+	}
+	
+	/**
+	 * Returns the busy signals per hour of each completed batch.
+	 * 
+	 * @return double[]
+	 *            the busy signals per hour of each batch
+	 */
+	private double[] getBusySignalRates() {
+		return getRates(busySignals);
+	}
+	
+	/**
+	 * Returns the given counts of each completed batch as rates per hour.
+	 * 
+	 * @param counts
+	 *            the count of each batch
+	 * @return double[]
+	 *            the count per hour of each batch
+	 */
+	private double[] getRates(int[] counts) {
+		double[] rates = new double[completedBatches];
+		for(int i = 0; i < completedBatches; i++)
+			rates[i] = counts[i] * 3600.0 / batchSeconds;
+		return rates;
+	}
+	
+	/**
+	 * Returns the number of leading values to delete chosen by MSER, the 
+	 * number d, up to half of the values, for which the sum of squared 
+	 * deviations of the remaining values from their mean, divided by the 
+	 * square of their number, is least.
+	 * 
+	 * @param values
+	 *            the value of each batch, in order
+	 * @return int
+	 *            the number of values to delete
+	 */
+	private static int getTruncation(double[] values) {
+		int n = values.length;
+		double sum = 0;
+		double sumOfSquares = 0;
+		int best = 0;
+		double bestError = Double.POSITIVE_INFINITY;
+		// Work back from the end so that the sums of the remaining values build up
+		for(int d = n - 1; d >= 0; d--) {
+			sum += values[d];
+			sumOfSquares += values[d] * values[d];
+			if(d > n / 2)
+				continue;
+			int remaining = n - d;
+			double error = (sumOfSquares - sum * sum / remaining) / ((double) remaining * remaining);
+			if(error <= bestError) {
+				bestError = error;
+				best = d;
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Returns a StatAccumulator holding the values after the first given 
+	 * number.
+	 * 
+	 * @param values
+	 *            the value of each batch, in order
+	 * @param warmUp
+	 *            the number of values to leave out
+	 * @return StatAccumulator
+	 *            the accumulated values
+	 */
+	private static StatAccumulator accumulate(double[] values, int warmUp) {
+		StatAccumulator accumulator = new StatAccumulator();
+		for(int i = warmUp; i < values.length; i++)
+			accumulator.record(values[i]);
+		return accumulator;
+	}
+	
+	/**
+	 * Returns a line containing a label followed by the mean and 
+	 * confidence half-width of a result.
+	 * 
+	 * @param label
+	 *           the label of the result
+	 * @param result
+	 *           the accumulated result
+	 * @return String
+	 *             the formatted line
+	 */
+	private String printLine(String label, StatAccumulator result) {
+		return label + fmt.format(result.getMean()) + " +/- " + fmt.format(result.getConfidenceHalfWidth()) + "\n";
+	}
+}
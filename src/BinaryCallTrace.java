@@ -0,0 +1,150 @@
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads call records from a binary file. The required parameter 
+ * for creating a BinaryCallTrace object is a string, the name of the file 
+ * to read. The file begins with an 8 byte header, the characters "CCTR" 
+ * followed by the version of the format, and is followed by records of 16 
+ * bytes each: the arrival time (in seconds since the epoch) as a long, then 
+ * the call length (in minutes) and the patience (in seconds) as integers. 
+ * As every record is the same size, the seek method finds the first record 
+ * at or after a time with a binary search instead of reading the records 
+ * before it. The write method converts any CallTrace, such as a large 
+ * CsvCallTrace, into this format.
+ * 
+ * @author Brett Crawford
+ */
+public class BinaryCallTrace extends CallTrace {
+	
+	/** The first four bytes of a binary call trace, "CCTR" **/
+	private static final int MAGIC = 0x43435452;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int RECORD_SIZE = 16;
+	
+	private long records;
+	
+	/**
+	 * Creates a BinaryCallTrace object with the specified parameters.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to read
+	 */
+	public BinaryCallTrace(String theFileName) {
+		super(theFileName);
+		ByteBuffer in = getWindow(HEADER_SIZE);
+		if(in.remaining() < HEADER_SIZE || in.getInt() != MAGIC)
+			throw new IllegalStateException(theFileName + " is not a binary call trace");
+		if(in.getInt() != VERSION)
+			throw new IllegalStateException(theFileName + " is an unsupported version of binary call trace");
+		records = (getFileSize() - HEADER_SIZE) / RECORD_SIZE;
+	}
+	
+	/**
+	 * Returns true if the given file begins with the header of a binary 
+	 * call trace, otherwise returns false.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to check
+	 * @return boolean
+	 *            true if the file is a binary call trace, otherwise false
+	 */
+	public static boolean isBinary(String theFileName) {
+		ByteBuffer header = ByteBuffer.allocate(4);
+		try(FileChannel channel = FileChannel.open(Paths.get(theFileName), StandardOpenOption.READ)) {
+			while(header.hasRemaining() && channel.read(header) >= 0);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to open call trace " + theFileName, e);
+		}
+		return !header.hasRemaining() && header.getInt(0) == MAGIC;
+	}
+	
+	/**
+	 * Writes the remaining records of a call trace to a binary file. Any 
+	 * existing file with the given name is replaced.
+	 * 
+	 * @param trace
+	 *            the call trace to convert
+	 * @param theFileName
+	 *            the name of the file to write
+	 * @return long
+	 *            the number of records written
+	 */
+	public static long write(CallTrace trace, String theFileName) {
+		long written = 0;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+		try(FileChannel channel = FileChannel.open(Paths.get(theFileName), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			buffer.putInt(MAGIC).putInt(VERSION);
+			while(trace.next()) {
+				if(buffer.remaining() < RECORD_SIZE)
+					flush(channel, buffer);
+				buffer.putLong(trace.getArrivalTime()).putInt(trace.getCallLength()).putInt(trace.getPatience());
+				written++;
+			}
+			flush(channel, buffer);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write call trace " + theFileName, e);
+		}
+		return written;
+	}
+	
+	/**
+	 * Moves to the first record arriving at or after the given time, found
+	 * with a binary search.
+	 * 
+	 * @param time
+	 *            the time, in seconds since the epoch, to skip to
+	 */
+	public void seek(long time) {
+		long low = 0;
+		long high = records;
+		while(low < high) {
+			long middle = (low + high) >>> 1;
+			setPosition(HEADER_SIZE + middle * RECORD_SIZE);
+			if(getWindow(RECORD_SIZE).getLong() < time)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		setPosition(HEADER_SIZE + low * RECORD_SIZE);
+		super.seek(time); // Reads the record found
+	}
+	
+	/**
+	 * Reads the next record.
+	 * 
+	 * @return boolean
+	 *            true if a record was read, false at the end of the file
+	 */
+	protected boolean readRecord() {
+		ByteBuffer in = getWindow(RECORD_SIZE);
+		if(in.remaining() < RECORD_SIZE)
+			return false;
+		setRecord(in.getLong(), in.getInt(), in.getInt());
+		return true;
+	}
+	
+	/**
+	 * Writes the contents of a buffer to a file and clears the buffer.
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param buffer
+	 *            the buffer to write
+	 */
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -0,0 +1,39 @@
+
+
+/**
+ * This interface allows an object to answer the calls of the customers 
+ * created by a CustomerGenerator. Any object implementing the CallCenter 
+ * interface must implement the callArrived method, which receives each 
+ * customer as it calls and must have the customer place their call on the 
+ * current tick, after the CallCenter's own tick; the isCallCenterOpen 
+ * method, which returns whether customers may still call; the 
+ * getClosingTime method, which returns the time at which the incoming 
+ * lines are shut down; and the isShiftComplete method, which returns 
+ * whether the run is over. The PhoneManager gives each customer a Customer 
+ * object of its own, while the CompactCallCenter keeps them in arrays.
+ * 
+ * A CallCenter may be given a CallOverflow, to which the calls that find 
+ * every phone line busy are offered before they receive a busy signal. 
+ * The calls sent on from another call center are received by the 
+ * callTransferred method, and are never offered to the CallOverflow again. 
+ * The getAvailablePhoneLines method returns the number of phone lines 
+ * free to take a call.
+ * 
+ * @author Brett Crawford
+ */
+public interface CallCenter extends ClockManaged {
+	
+	public void callArrived(int customerID, int expectedCallLength, int patience, int callType);
+	
+	public void callTransferred(int customerID, int expectedCallLength, int patience, int callType);
+	
+	public void setCallOverflow(CallOverflow callOverflow);
+	
+	public int getAvailablePhoneLines();
+	
+	public boolean isCallCenterOpen();
+	
+	public long getClosingTime();
+	
+	public boolean isShiftComplete();
+}
@@ -1,100 +1,671 @@
-
-
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.List;
 
 /**
- * This class is the main logic loop for the Call Center Simulation. It contains the 
- * simulation specific variables which can be modified to evaluate the performance of 
- * the simulation. This class creates the Clock, PhoneManager, Employee, PhoneLine, 
- * Customer, and Log objects used by the simulation and utilizes the Random class to 
- * produce values for the chance of customer creation, the customer call lengths and 
- * the employee performance factors. Customers have a chance to be created on each 
- * loop through the main logic based upon a given probability factor. The Customer 
- * objects are stored within this class. When the simulation is finished the 
- * statistical results are output to the console.
+ * This class is the main logic loop for the Call Center Simulation. It reads the 
+ * simulation specific variables, which can be modified to evaluate the performance 
+ * of the simulation, from a SimulationParameters object. This class creates the 
+ * Clock, PhoneManager, Employee, PhoneLine, Customer, and Log objects used by the 
+ * simulation and draws its random values from RandomStreams split from the 
+ * simulation's seed, so that a run can be reproduced exactly from its seed. 
+ * Customers have a chance to be created on each loop through the main logic based 
+ * upon a given probability factor. When the simulation is finished the statistical 
+ * results are output to the console. All of the state of a simulation is held by 
+ * its CallCenterSimulation object, so any number of simulations may be run side by 
+ * side, and it can be written to a SimulationCheckpoint from which the simulation 
+ * is restored.
  * 
  * @author Brett Crawford
  */
 public class CallCenterSimulation {
 	
-	/** The length (in hours) of the shift **/
-	static final int shiftLength = 8;
-	
-	/** The number of phoneline the call center should use **/
-	static final int numberOfPhoneLines = 12;
+	/** The kinds of clock managed items written to a checkpoint **/
+	private static final byte ITEM_GENERATOR = 0;
+	private static final byte ITEM_PHONE_MANAGER = 1;
+	private static final byte ITEM_EMPLOYEE = 2;
+	private static final byte ITEM_CUSTOMER = 3;
+	private static final byte ITEM_COMPACT_CALL_CENTER = 4;
 	
-	/** The number of employees the call center should use **/
-	static final int numberOfEmployees = 10;
+	/** The number of minutes of telemetry kept beyond the shift, for the calls finished after closing **/
+	private static final int TELEMETRY_OVERTIME_MINUTES = 24 * 60;
 	
-	/** The minimum length (in minutes) of a call from a customer **/
-	static final int expectedDurationMin = 2;
+	/** The settings of the simulation **/
+	private SimulationParameters parameters;
 	
-	/** The maximum length (in minutes) of a call from a customer **/
-	static final int expectedDurationMax = 30;
-	
-	/** The probabilty (per tick) that a customer will be created and call **/
-	static final float callProbability = 0.12F;
+	/** The seed for the RNG used in the simulation **/
+	private long seed;
 	
 	/** The clock to be used in the simulation **/
-	static final Clock clock = new Clock();
+	private Clock clock;
+	
+	/** The sink for the simulation's events **/
+	private EventSink eventSink;
 	
 	/** The log to be used in the simulation **/
-	static final Log log = new Log(clock, shiftLength, numberOfPhoneLines, numberOfEmployees);
+	private Log log;
+	
+	/** The RNG to be used for call probabilities **/
+	private RandomStream arrivalRand;
+	
+	/** The RNG to be used for expected call durations **/
+	private RandomStream durationRand;
+	
+	/** The RNG to be used for employee performance factors **/
+	private RandomStream performanceRand;
+	
+	/** The RNG to be used for call types **/
+	private RandomStream typeRand;
 	
-	/** The RNG to be used for call probabilities and expected call duration **/
-	static final Random rand = new Random();
+	/** The RNG to be used for the patience of customers **/
+	private RandomStream patienceRand;
 	
-	/** The phone manager to be used in the simulation **/
-	static final PhoneManager phoneManager = new PhoneManager(log, clock, shiftLength);
+	/** The RNG to be used for redials and callbacks **/
+	private RandomStream retrialRand;
 	
-	/** The arraylist to hold the customers in the simulation **/
-	static final ArrayList<Customer> customers = new ArrayList<Customer>();
+	/** The phone manager to be used in the simulation, or null if compact **/
+	private PhoneManager phoneManager;
+	
+	/** The call center kept in arrays to be used in a compact simulation, or null **/
+	private CompactCallCenter compactCallCenter;
+	
+	/** The phone manager or compact call center the customers call **/
+	private CallCenter callCenter;
+	
+	/** The generator used to create the customers in the simulation **/
+	private CustomerGenerator customerGenerator;
+	
+	/** The historical calls replayed by the simulation, or null **/
+	private CallTrace callTrace;
+	
+	/** Whether the run has finished and the event sink been closed **/
+	private boolean finished;
 	
 	public static void main(String args[]) {
 		
-		initializeSim();
+		// The sink for the simulation's events (NullEventSink, RingBufferEventSink or FileEventSink)
+		EventSink eventSink = new NullEventSink();
 
-		run();
+		CallCenterSimulation simulation = new CallCenterSimulation(new SimulationParameters(),
+				System.currentTimeMillis(), eventSink);
 		
-		// System.out.println(log.printEventLog());
+		simulation.initializeSim();
 		
-		System.out.println(log.printStatistics());
+		simulation.run();
+		
+		// System.out.println(simulation.getLog().printEventLog());
+
+		System.out.println(simulation.getLog().printStatistics());
+		if(simulation.getLog().getBatchMeans() != null)
+			System.out.println(simulation.getLog().getBatchMeans().printStatistics());
+	}
+
+	/**
+	 * Creates a CallCenterSimulation object with the specified parameters
+	 * which discards its events.
+	 *
+	 * @param theParameters
+	 *            the settings of the simulation
+	 * @param theSeed
+	 *            the seed for the RNG used in the simulation
+	 */
+	public CallCenterSimulation(SimulationParameters theParameters, long theSeed) {
+		this(theParameters, theSeed, new NullEventSink());
+	}
+
+	/**
+	 * Creates a CallCenterSimulation object with the specified parameters. 
+	 * A RandomStream seeded with the seed is split into a stream for each 
+	 * kind of random value, so that changing one part of the simulation does 
+	 * not disturb the values drawn by the others. When the parameters set a 
+	 * telemetry interval, the log is given a Telemetry which keeps the 
+	 * intervals of the shift, and when they set a batch length, the call 
+	 * center runs without closing and the log is given a BatchMeans to 
+	 * estimate its steady-state results. When the parameters call for a 
+	 * compact simulation, the PhoneManager, PhoneLine, Employee and Customer 
+	 * objects are replaced by a CompactCallCenter, which keeps them in arrays 
+	 * and gives the same results for the same seed; its employees cannot be 
+	 * given skills or sent on breaks, and its customers cannot redial or be 
+	 * called back.
+	 *
+	 * @param theParameters
+	 *            the settings of the simulation
+	 * @param theSeed
+	 *            the seed for the RNG used in the simulation
+	 * @param theEventSink
+	 *            the sink for the simulation's events, closed when the run ends
+	 */
+	public CallCenterSimulation(SimulationParameters theParameters, long theSeed, EventSink theEventSink) {
+		parameters = new SimulationParameters(theParameters);
+		seed = theSeed;
+		clock = new Clock(parameters.isEventDriven());
+		eventSink = theEventSink;
+		log = new Log(clock, eventSink, parameters.getShiftLength(),
+				parameters.getNumberOfPhoneLines(), parameters.getNumberOfEmployees());
+		int telemetryInterval = parameters.getTelemetryInterval();
+		if(telemetryInterval > 0)
+			log.setTelemetry(new Telemetry(clock.getTime(), telemetryInterval, 
+					(parameters.getShiftLength() * 60 + TELEMETRY_OVERTIME_MINUTES + telemetryInterval - 1) / telemetryInterval));
+		RandomStream rand = new RandomStream(seed);
+		arrivalRand = rand.split();
+		durationRand = rand.split();
+		performanceRand = rand.split();
+		typeRand = rand.split();
+		patienceRand = rand.split();
+		retrialRand = rand.split();
+		if(parameters.isCompact()) {
+			if(parameters.getPrimarySkills() != null)
+				throw new IllegalArgumentException("Employees of a compact simulation cannot be given skills");
+			if(parameters.getRedialProbability() > 0 || parameters.getCallbackProbability() > 0)
+				throw new IllegalArgumentException("Customers of a compact simulation cannot redial or be called back");
+			phoneManager = null;
+			compactCallCenter = new CompactCallCenter(log, clock, parameters.getShiftLength(),
+					parameters.getNumberOfPhoneLines(), parameters.getNumberOfEmployees());
+			compactCallCenter.setContinuous(parameters.getBatchLength() > 0);
+			callCenter = compactCallCenter;
+		}
+		else {
+			compactCallCenter = null;
+			phoneManager = new PhoneManager(log, clock, parameters.getShiftLength());
+			phoneManager.setCallRouter(createCallRouter());
+			phoneManager.setContinuous(parameters.getBatchLength() > 0);
+			phoneManager.setRedials(parameters.getRedialProbability(), parameters.getRedialDelay(), retrialRand);
+			phoneManager.setCallbacks(parameters.getCallbackProbability(), retrialRand);
+			callCenter = phoneManager;
+		}
+		if(parameters.getBatchLength() > 0)
+			log.setBatchMeans(new BatchMeans(clock.getTime(), parameters.getBatchLength()));
+		customerGenerator = new CustomerGenerator(clock, callCenter, arrivalRand, durationRand, parameters.getCallProbability(),
+				parameters.getExpectedDurationMin(), parameters.getExpectedDurationMax());
+		customerGenerator.setArrivalProfile(parameters.getArrivalProfile());
+		if(parameters.getCallTypeMix() != null)
+			customerGenerator.setCallTypeMix(parameters.getCallTypeMix(), typeRand);
+		if(parameters.getPatienceDistribution() != null)
+			customerGenerator.setPatienceDistribution(parameters.getPatienceDistribution(), patienceRand);
+		callTrace = null;
+		finished = false;
+	}
+	
+	/**
+	 * Restores a simulation from a checkpoint written by writeState. The 
+	 * simulation is rebuilt from the parameters of the checkpoint, then the 
+	 * state of each part is replaced with that of the checkpoint, so the 
+	 * restored simulation continues exactly as the original would have.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param theEventSink
+	 *            the sink for the restored simulation's events, closed when the run ends
+	 * @return CallCenterSimulation
+	 *            the restored simulation, ready to run
+	 */
+	public static CallCenterSimulation readState(DataInput in, EventSink theEventSink) throws IOException {
+		long seed = in.readLong();
+		SimulationParameters parameters = SimulationParameters.readState(in);
+		CallCenterSimulation simulation = new CallCenterSimulation(parameters, seed);
+		simulation.initializeSim();
+		simulation.eventSink = theEventSink;
+		simulation.log.setEventSink(theEventSink);
+		simulation.restoreState(in);
+		return simulation;
 	}
 	
 	/**
 	 * Adds the phonemanager to the clock's managed item list. Creates and adds
-	 * the phonelines and employees to the phonemanager. 
+	 * the phonelines and employees to the phonemanager. When event-driven, the 
+	 * customer generator is added to the clock first so that customers are 
+	 * created ahead of the phonemanager's tick, as they are in tick mode. 
+	 * The call trace, if any, is opened and moved to its start time. Employees 
+	 * are given the skills of the parameters, if any. A compact simulation 
+	 * adds its call center to the clock instead, which has its phonelines 
+	 * from the start, and adds the employees to the call center.
 	 */
-	public static void initializeSim() {
-		clock.addManagedItem(phoneManager);
+	public void initializeSim() {
+		if(parameters.getCallTraceFile() != null) {
+			callTrace = CallTrace.open(parameters.getCallTraceFile());
+			callTrace.seek(parameters.getTraceStartTime());
+			long traceStartTime = parameters.getTraceStartTime() > 0 ? parameters.getTraceStartTime() : callTrace.getArrivalTime();
+			customerGenerator.setCallTrace(callTrace, traceStartTime);
+		}
 		
-		for(int i = 0; i < numberOfPhoneLines; i++)
-			phoneManager.addPhoneLine(new PhoneLine(log, clock));
+		if(clock.isEventDriven())
+			clock.addManagedItem(customerGenerator);
+		clock.addManagedItem(callCenter);
 		
-		for(int i = 0; i < numberOfEmployees; i++)
-			phoneManager.addEmployee(new Employee(log, rand.nextFloat() + 0.5F));
+		if(compactCallCenter != null) {
+			for(int i = 0; i < parameters.getNumberOfEmployees(); i++)
+				compactCallCenter.addEmployee(performanceRand.nextFloat() + 0.5F);
+			return;
+		}
+		
+		for(int i = 0; i < parameters.getNumberOfPhoneLines(); i++)
+			phoneManager.addPhoneLine(new PhoneLine(i + 1, log, clock));
+		
+		long[] primarySkills = parameters.getPrimarySkills();
+		long[] secondarySkills = parameters.getSecondarySkills();
+		for(int i = 0; i < parameters.getNumberOfEmployees(); i++) {
+			float performanceFactor = performanceRand.nextFloat() + 0.5F;
+			if(primarySkills == null)
+				phoneManager.addEmployee(new Employee(i + 1, log, clock, performanceFactor));
+			else
+				phoneManager.addEmployee(new Employee(i + 1, log, clock, performanceFactor, primarySkills[i % primarySkills.length],
+						secondarySkills == null ? 0L : secondarySkills[i % secondarySkills.length]));
+		}
 	}
 	
 	/**
 	 * The main logic loop of the simulation. The loop continues while the 
-	 * phonemanager has not yet completed the shift. On each loop, a random
-	 * float is generated. If the random float falls within the call probability 
-	 * range, a customer is created using another random integer to represent 
-	 * the expected duration if the call using the given min and max. On each loop,
-	 * the clock accelerates by the given tick value.
+	 * phonemanager has not yet completed the shift. On each loop in tick mode, 
+	 * the customer generator is given a chance to create a customer. On each loop,
+	 * the clock accelerates by the given tick value, or to the next scheduled
+	 * tick when event-driven. The event sink, call record log and call trace are 
+	 * closed, and the telemetry written, once the shift is complete.
 	 */
-	public static void run() {
+	public void run() {
+		runUntil(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Runs the main logic loop until the shift is complete or the clock 
+	 * reaches the given time, whichever comes first, so that a simulation 
+	 * may be run in parts and checkpointed between them. The event sink, call 
+	 * record log and call trace are closed, and the telemetry written, once 
+	 * the shift is complete.
+	 * 
+	 * @param time
+	 *            the time, in seconds since the epoch, at which to stop
+	 * @return boolean
+	 *            true if the shift is complete, otherwise false
+	 */
+	public boolean runUntil(long time) {
 		
-		while(!phoneManager.isShiftComplete()) {
-			if(rand.nextFloat() < callProbability && phoneManager.isCallCenterOpen()) {
-				int expectedDuration = rand.nextInt(expectedDurationMax - expectedDurationMin + 1) + expectedDurationMin;
-				Customer newCustomer = new Customer(log, phoneManager, expectedDuration);
-				customers.add(newCustomer);
-				clock.addManagedItem(newCustomer);
-			}
+		while(!callCenter.isShiftComplete() && clock.getTime() < time) {
+			if(!clock.isEventDriven())
+				customerGenerator.attemptCall();
 			clock.countTick();
 		}
+
+		if(callCenter.isShiftComplete() && !finished) {
+			finished = true;
+			if(log.getBatchMeans() != null)
+				log.getBatchMeans().advance(clock.getTime());
+			if(log.getTelemetry() != null && parameters.getTelemetryFile() != null)
+				writeTelemetry(parameters.getTelemetryFile());
+			eventSink.close();
+			if(log.getCallRecordLog() != null)
+				log.getCallRecordLog().close();
+			if(callTrace != null)
+				callTrace.close();
+		}
+		return callCenter.isShiftComplete();
+	}
+	
+	/**
+	 * Runs the main logic loop until the clock reaches the given time. Unlike 
+	 * runUntil, an event-driven clock stops on the first tick at or after the 
+	 * given time even if nothing else is due then, so that the simulation 
+	 * can be checkpointed as it stands at that time.
+	 * 
+	 * @param time
+	 *            the time, in seconds since the epoch, at which to stop
+	 * @return boolean
+	 *            true if the shift is complete, otherwise false
+	 */
+	public boolean advanceTo(long time) {
+		if(time > clock.getTime())
+			clock.scheduleTick(callCenter, time);
+		return runUntil(time);
+	}
+	
+	/**
+	 * Sets the CallRecordLog the calls of the simulation are written to as 
+	 * they end, closed when the run ends. The log is not part of a 
+	 * checkpoint, so a restored simulation is given its own.
+	 * 
+	 * @param theCallRecordLog
+	 *            the call record log of the simulation, or null for none
+	 */
+	public void setCallRecordLog(CallRecordLog theCallRecordLog) {
+		log.setCallRecordLog(theCallRecordLog);
+	}
+	
+	/**
+	 * Sets the CallOverflow the calls which find every phone line busy are 
+	 * offered to, or null to give them a busy signal. A simulation running 
+	 * as one site of a FleetSimulation is given the fleet's overflow.
+	 * 
+	 * @param theCallOverflow
+	 *            the overflow for calls finding the lines busy, or null
+	 */
+	public void setCallOverflow(CallOverflow theCallOverflow) {
+		callCenter.setCallOverflow(theCallOverflow);
+	}
+	
+	/**
+	 * Transfers a call sent on from another call center, which is placed on 
+	 * the first tick at or after the time it arrives and is not sent on 
+	 * again. Calls must be transferred in order of arrival.
+	 * 
+	 * @param theArrivalTime
+	 *            the time the call arrives, in seconds since the epoch
+	 * @param theCallLength
+	 *            the length (in minutes) of the call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void transferCall(long theArrivalTime, int theCallLength, int thePatience, int theCallType) {
+		customerGenerator.transferCall(theArrivalTime, theCallLength, thePatience, theCallType);
+	}
+	
+	/**
+	 * Sets whether the simulation is live, creating customers only for the 
+	 * calls offered to it with offerCall, so that it follows the calls of a 
+	 * live call center. Must be set before the first tick.
+	 * 
+	 * @param theLive
+	 *            true to create customers only for offered calls
+	 */
+	public void setLive(boolean theLive) {
+		customerGenerator.setLive(theLive);
+	}
+	
+	/**
+	 * Offers the call of a live customer, which is placed on the first tick 
+	 * at or after the time it arrived. Calls must be offered in order of 
+	 * arrival, and the simulation must be live.
+	 * 
+	 * @param theArrivalTime
+	 *            the time the customer called, in seconds since the epoch
+	 * @param theCallLength
+	 *            the length (in minutes) of the call, or 0 to draw it
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold, or 0 
+	 *            for the default
+	 */
+	public void offerCall(long theArrivalTime, int theCallLength, int thePatience) {
+		customerGenerator.offerCall(theArrivalTime, theCallLength, thePatience);
+	}
+	
+	/**
+	 * Forecasts the rest of the shift from the given profile, in place of 
+	 * the live calls, call trace, or other source of calls the simulation 
+	 * had until now. The profile becomes part of the simulation's parameters. 
+	 * A simulation restored from a checkpoint of a live simulation can be 
+	 * forecast to see what would follow from the current state.
+	 * 
+	 * @param theArrivalProfile
+	 *            the rate at which customers are expected to call over the shift
+	 */
+	public void forecast(ArrivalProfile theArrivalProfile) {
+		if(callTrace != null) {
+			callTrace.close();
+			callTrace = null;
+			parameters.setCallTraceFile(null);
+		}
+		parameters.setArrivalProfile(theArrivalProfile);
+		customerGenerator.forecast(theArrivalProfile);
+	}
+	
+	/**
+	 * Sends an employee on a break of the given length, beginning at once if 
+	 * the employee is free, otherwise once their call is completed.
+	 * 
+	 * @param theEmployeeID
+	 *            the ID of the employee
+	 * @param theBreakMinutes
+	 *            the length (in minutes) of the break
+	 */
+	public void startBreak(int theEmployeeID, int theBreakMinutes) {
+		if(theEmployeeID < 1 || theEmployeeID > parameters.getNumberOfEmployees())
+			throw new IllegalArgumentException("No employee " + theEmployeeID);
+		if(phoneManager == null)
+			throw new IllegalStateException("Employees of a compact simulation cannot be sent on breaks");
+		phoneManager.startBreak(phoneManager.getEmployee(theEmployeeID), theBreakMinutes * 60, createCallRouter());
+	}
+	
+	/**
+	 * Sends up to the given number of employees on a break of the given 
+	 * length, those free the longest first.
+	 * 
+	 * @param theNumberOfEmployees
+	 *            the number of employees to send on a break
+	 * @param theBreakMinutes
+	 *            the length (in minutes) of the break
+	 * @return int
+	 *            the number of employees sent on a break
+	 */
+	public int startBreaks(int theNumberOfEmployees, int theBreakMinutes) {
+		if(phoneManager == null)
+			throw new IllegalStateException("Employees of a compact simulation cannot be sent on breaks");
+		return phoneManager.startBreaks(theNumberOfEmployees, theBreakMinutes * 60, createCallRouter());
+	}
+	
+	/**
+	 * Writes the whole state of the simulation to a checkpoint: its seed and 
+	 * parameters, the state of its random streams, and the state of the 
+	 * customer generator, customers, phone manager, employees, phonelines, 
+	 * or of the compact call center in their place, clock and log. The events already passed to the event sink are not 
+	 * part of the checkpoint. The simulation must have been initialized, and 
+	 * must not have finished, as its event sink and call trace are closed.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		List<ClockManaged> items = clock.getManagedItems();
+		if(items.isEmpty())
+			throw new IllegalStateException("Simulation must be initialized before it is checkpointed");
+		if(finished)
+			throw new IllegalStateException("Simulation has finished and cannot be checkpointed");
+		
+		out.writeLong(seed);
+		parameters.writeState(out);
+		arrivalRand.writeState(out);
+		durationRand.writeState(out);
+		performanceRand.writeState(out);
+		typeRand.writeState(out);
+		patienceRand.writeState(out);
+		retrialRand.writeState(out);
+		customerGenerator.writeState(out);
+		
+		out.writeInt(items.size());
+		for(int i = 0; i < items.size(); i++) {
+			ClockManaged item = items.get(i);
+			if(item == customerGenerator) {
+				out.writeByte(ITEM_GENERATOR);
+			}
+			else if(item == phoneManager) {
+				out.writeByte(ITEM_PHONE_MANAGER);
+			}
+			else if(item == compactCallCenter) {
+				out.writeByte(ITEM_COMPACT_CALL_CENTER);
+			}
+			else if(item instanceof Employee) {
+				out.writeByte(ITEM_EMPLOYEE);
+				out.writeInt(((Employee) item).getID());
+			}
+			else if(item instanceof Customer) {
+				out.writeByte(ITEM_CUSTOMER);
+				((Customer) item).writeState(out);
+			}
+			else {
+				throw new IllegalStateException("Unable to checkpoint " + item.getClass().getName());
+			}
+		}
+		
+		if(compactCallCenter != null)
+			compactCallCenter.writeState(out);
+		else
+			phoneManager.writeState(out);
+		clock.writeState(out);
+		log.writeState(out);
+	}
+	
+	/**
+	 * Replaces the state of a newly initialized simulation with that read 
+	 * from a checkpoint, following the seed and parameters.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	private void restoreState(DataInput in) throws IOException {
+		arrivalRand.readState(in);
+		durationRand.readState(in);
+		performanceRand.readState(in);
+		typeRand.readState(in);
+		patienceRand.readState(in);
+		retrialRand.readState(in);
+		customerGenerator.readState(in);
+		
+		int numberOfItems = in.readInt();
+		ArrayList<ClockManaged> items = new ArrayList<ClockManaged>(numberOfItems);
+		HashMap<Integer, Customer> customers = new HashMap<Integer, Customer>();
+		for(int i = 0; i < numberOfItems; i++) {
+			byte kind = in.readByte();
+			if(kind == ITEM_GENERATOR) {
+				items.add(customerGenerator);
+			}
+			else if(kind == ITEM_PHONE_MANAGER) {
+				items.add(phoneManager);
+			}
+			else if(kind == ITEM_COMPACT_CALL_CENTER) {
+				items.add(compactCallCenter);
+			}
+			else if(kind == ITEM_EMPLOYEE) {
+				items.add(phoneManager.getEmployee(in.readInt()));
+			}
+			else if(kind == ITEM_CUSTOMER) {
+				Customer customer = Customer.readState(in, log, clock, phoneManager);
+				customers.put(customer.getID(), customer);
+				items.add(customer);
+			}
+			else {
+				throw new IllegalStateException("Unknown item " + kind + " in checkpoint");
+			}
+		}
+		
+		if(compactCallCenter != null)
+			compactCallCenter.readState(in);
+		else
+			phoneManager.readState(in, customers, createCallRouter());
+		clock.readState(in, items);
+		log.readState(in); // After the customers, which count themselves as they are created
+	}
+	
+	/**
+	 * Gives the random streams of the simulation new states drawn from the 
+	 * given seed, so that simulations restored from one checkpoint can 
+	 * follow different futures. Calls already drawn ahead of the clock 
+	 * are kept.
+	 * 
+	 * @param theSeed
+	 *            the seed for the RNG used from now on
+	 */
+	public void reseed(long theSeed) {
+		seed = theSeed;
+		RandomStream rand = new RandomStream(seed);
+		arrivalRand.setSeed(rand.nextLong());
+		durationRand.setSeed(rand.nextLong());
+		performanceRand.setSeed(rand.nextLong());
+		typeRand.setSeed(rand.nextLong());
+		patienceRand.setSeed(rand.nextLong());
+		retrialRand.setSeed(rand.nextLong());
+	}
+	
+	/**
+	 * Returns the router the parameters call for: a SkillBasedRouter if the 
+	 * employees are given skills, otherwise a FirstAvailableRouter.
+	 * 
+	 * @return CallRouter
+	 *            a new, empty router
+	 */
+	private CallRouter createCallRouter() {
+		if(parameters.getPrimarySkills() != null)
+			return new SkillBasedRouter(parameters.getOverflowSeconds());
+		return new FirstAvailableRouter();
+	}
+	
+	/**
+	 * Writes the telemetry of the simulation at the telemetry interval, as 
+	 * CSV if the file name ends in .csv, otherwise in the binary format of 
+	 * Telemetry.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to write
+	 */
+	private void writeTelemetry(String theFileName) {
+		if(theFileName.endsWith(".csv"))
+			log.getTelemetry().writeCsv(theFileName, parameters.getTelemetryInterval(), clock.getTime());
+		else
+			log.getTelemetry().writeBinary(theFileName, parameters.getTelemetryInterval(), clock.getTime());
+	}
+
+	/**
+	 * Returns the log holding the statistics of the simulation.
+	 *
+	 * @return Log
+	 *            the log of the simulation
+	 */
+	public Log getLog() {
+		return log;
+	}
+
+	/**
+	 * Returns the current time of the simulation's clock.
+	 *
+	 * @return long
+	 *            the current time, in seconds since the epoch
+	 */
+	public long getTime() {
+		return clock.getTime();
+	}
+
+	/**
+	 * Returns the time at which the incoming lines of the call center are 
+	 * shut down.
+	 *
+	 * @return long
+	 *            the closing time, in seconds since the epoch
+	 */
+	public long getClosingTime() {
+		return callCenter.getClosingTime();
+	}
+
+	/**
+	 * Returns true if the shift of the call center is complete, otherwise 
+	 * returns false.
+	 *
+	 * @return boolean
+	 *            true if the shift is complete, otherwise false
+	 */
+	public boolean isShiftComplete() {
+		return callCenter.isShiftComplete();
+	}
+
+	/**
+	 * Returns the number of phonelines of the call center free to take a 
+	 * call.
+	 *
+	 * @return int
+	 *            the number of available phonelines
+	 */
+	public int getAvailablePhoneLines() {
+		return callCenter.getAvailablePhoneLines();
+	}
+
+	/**
+	 * Returns the seed for the RNG used in the simulation.
+	 *
+	 * @return long
+	 *            the seed of the simulation
+	 */
+	public long getSeed() {
+		return seed;
 	}
 	
 	
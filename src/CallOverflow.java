@@ -0,0 +1,17 @@
+
+
+/**
+ * This interface allows the calls which find every phone line of a call 
+ * center busy to be sent on to another call center, rather than receiving 
+ * a busy signal. Any object implementing the CallOverflow interface must 
+ * implement the overflowCall method, which is given the time and details 
+ * of the call and returns whether it was sent on. A call which has already 
+ * been sent on from another call center is not offered again, and receives 
+ * a busy signal if it finds the lines busy once more.
+ * 
+ * @author Brett Crawford
+ */
+public interface CallOverflow {
+	
+	public boolean overflowCall(long time, int customerID, int expectedCallLength, int patience, int callType);
+}
@@ -0,0 +1,259 @@
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes a fixed-size binary record of every call of the 
+ * simulation to a file, so that the calls of a long run can be examined one 
+ * by one. The required parameter for creating a CallRecordLog object is a 
+ * string, the name of the file to write. The file begins with an 8 byte 
+ * header, the characters "CCRL" followed by the version of the format, and 
+ * is followed by records of 32 bytes each, written as each call ends: the 
+ * time the customer called (in seconds since the epoch) as a long; the IDs 
+ * of the customer, the phoneline and the employee as integers, the IDs being 
+ * 0 where there was none; the seconds on hold, until an employee answered or 
+ * the customer hung up, and the seconds talking to the employee as integers; 
+ * the expected length (in minutes) of the call as a short; then the type and 
+ * the outcome of the call as bytes. 
+ * 
+ * The records are copied into a direct buffer, which is written to the 
+ * file's channel whenever it fills. Every block of records is summarized 
+ * in a sparse index, written to a second file of the same name ending in 
+ * ".idx" as each block is completed: the lowest and highest customer IDs 
+ * as integers, then the earliest and latest arrival times as longs. As a 
+ * call ends soon after its customer called, the customers of each block 
+ * fall in a narrow range, and a CallRecordQuery reads only the blocks 
+ * whose summaries match. The close method must be called at the end of the 
+ * simulation to write any buffered records. The records already written 
+ * are not part of a SimulationCheckpoint. 
+ * 
+ * @author Brett Crawford
+ */
+public class CallRecordLog {
+	
+	/** The first four bytes of a call record log, "CCRL" **/
+	public static final int MAGIC = 0x4343524C;
+	/** The first four bytes of a call record index, "CCRI" **/
+	public static final int INDEX_MAGIC = 0x43435249;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The size of a record, and the offset (in bytes) of each field within it:
+	 *
+	 *  0  arrival time (long)      20  hold seconds (int)
+	 *  8  customer ID (int)        24  talk seconds (int)
+	 * 12  phoneline ID (int)       28  expected call length (short)
+	 * 16  employee ID (int)        30  call type (byte)
+	 *                              31  outcome (byte)
+	 **/
+	public static final int RECORD_SIZE = 32;
+	public static final int ARRIVAL_TIME_OFFSET = 0;
+	public static final int CUSTOMER_ID_OFFSET = 8;
+	public static final int PHONE_LINE_ID_OFFSET = 12;
+	public static final int EMPLOYEE_ID_OFFSET = 16;
+	public static final int HOLD_SECONDS_OFFSET = 20;
+	public static final int TALK_SECONDS_OFFSET = 24;
+	public static final int CALL_LENGTH_OFFSET = 28;
+	public static final int CALL_TYPE_OFFSET = 30;
+	public static final int OUTCOME_OFFSET = 31;
+	public static final int INDEX_ENTRY_SIZE = 24;
+	/** The number of records summarized by each entry of the index **/
+	public static final int BLOCK_RECORDS = 4096;
+	
+	/** The outcomes of a call **/
+	public static final byte COMPLETED = 0;
+	public static final byte HUNG_UP = 1;
+	public static final byte BUSY_SIGNAL = 2;
+	public static final byte OVERFLOWED = 3;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private String fileName;
+	private FileChannel channel;
+	private FileChannel indexChannel;
+	private ByteBuffer buffer;
+	private ByteBuffer indexEntry;
+	private long records;
+	private int minCustomerID;
+	private int maxCustomerID;
+	private long minArrivalTime;
+	private long maxArrivalTime;
+	
+	/**
+	 * Creates a CallRecordLog object with the specified parameters. Any 
+	 * existing file with the given name, or its index, is replaced.
+	 * 
+	 * @param theFileName
+	 *            the name of the file the records are written to
+	 */
+	public CallRecordLog(String theFileName) {
+		fileName = theFileName;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, 
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			indexChannel = FileChannel.open(Paths.get(getIndexFileName(fileName)), StandardOpenOption.CREATE, 
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to open call record log " + fileName, e);
+		}
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		indexEntry = ByteBuffer.allocate(Math.max(HEADER_SIZE, INDEX_ENTRY_SIZE));
+		indexEntry.putInt(INDEX_MAGIC);
+		indexEntry.putInt(VERSION);
+		writeIndexEntry();
+		records = 0;
+		startBlock();
+	}
+	
+	/**
+	 * Returns the name of the index of the given call record log.
+	 * 
+	 * @param theFileName
+	 *            the name of the call record log
+	 * @return String
+	 *            the name of its index
+	 */
+	public static String getIndexFileName(String theFileName) {
+		return theFileName + ".idx";
+	}
+	
+	/**
+	 * Adds the record of a call which has ended to the buffer, writing the 
+	 * buffer to the file first if the record does not fit. The expected 
+	 * call length must fit a short and the call type a byte.
+	 * 
+	 * @param theArrivalTime
+	 *            the time the customer called, in seconds since the epoch
+	 * @param theCustomerID
+	 *            the ID of the customer
+	 * @param thePhoneLineID
+	 *            the ID of the phoneline, or 0 for a busy signal
+	 * @param theEmployeeID
+	 *            the ID of the employee, or 0 if no employee answered
+	 * @param theHoldSeconds
+	 *            the seconds the customer spent on hold
+	 * @param theTalkSeconds
+	 *            the seconds the customer spent talking to the employee
+	 * @param theExpectedCallLength
+	 *            the length (in minutes) of the call the customer asked for
+	 * @param theCallType
+	 *            the type of the call
+	 * @param theOutcome
+	 *            COMPLETED, HUNG_UP, BUSY_SIGNAL or OVERFLOWED
+	 */
+	public void record(long theArrivalTime, int theCustomerID, int thePhoneLineID, int theEmployeeID, int theHoldSeconds, 
+			int theTalkSeconds, int theExpectedCallLength, int theCallType, byte theOutcome) {
+		if(theExpectedCallLength < 0 || theExpectedCallLength > Short.MAX_VALUE)
+			throw new IllegalArgumentException("Expected call length " + theExpectedCallLength + " does not fit a call record");
+		if(theCallType < 0 || theCallType > Byte.MAX_VALUE)
+			throw new IllegalArgumentException("Call type " + theCallType + " does not fit a call record");
+		if(buffer.remaining() < RECORD_SIZE)
+			flush();
+		buffer.putLong(theArrivalTime);
+		buffer.putInt(theCustomerID);
+		buffer.putInt(thePhoneLineID);
+		buffer.putInt(theEmployeeID);
+		buffer.putInt(theHoldSeconds);
+		buffer.putInt(theTalkSeconds);
+		buffer.putShort((short) theExpectedCallLength);
+		buffer.put((byte) theCallType);
+		buffer.put(theOutcome);
+		
+		minCustomerID = Math.min(minCustomerID, theCustomerID);
+		maxCustomerID = Math.max(maxCustomerID, theCustomerID);
+		minArrivalTime = Math.min(minArrivalTime, theArrivalTime);
+		maxArrivalTime = Math.max(maxArrivalTime, theArrivalTime);
+		if(++records % BLOCK_RECORDS == 0) {
+			indexBlock();
+			startBlock();
+		}
+	}
+	
+	/**
+	 * Returns the number of records written.
+	 * 
+	 * @return long
+	 *            the number of records
+	 */
+	public long getNumberOfRecords() {
+		return records;
+	}
+	
+	/**
+	 * Writes any buffered records and the summary of the last block, and 
+	 * closes the file and its index.
+	 */
+	public void close() {
+		if(!channel.isOpen())
+			return;
+		flush();
+		if(records % BLOCK_RECORDS != 0)
+			indexBlock();
+		try {
+			channel.close();
+			indexChannel.close();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to close call record log " + fileName, e);
+		}
+	}
+	
+	/**
+	 * Writes the summary of the block just completed to the index.
+	 */
+	private void indexBlock() {
+		indexEntry.clear();
+		indexEntry.putInt(minCustomerID);
+		indexEntry.putInt(maxCustomerID);
+		indexEntry.putLong(minArrivalTime);
+		indexEntry.putLong(maxArrivalTime);
+		writeIndexEntry();
+	}
+	
+	/**
+	 * Begins the summary of a new block.
+	 */
+	private void startBlock() {
+		minCustomerID = Integer.MAX_VALUE;
+		maxCustomerID = Integer.MIN_VALUE;
+		minArrivalTime = Long.MAX_VALUE;
+		maxArrivalTime = Long.MIN_VALUE;
+	}
+	
+	/**
+	 * Writes the contents of the index entry buffer to the index.
+	 */
+	private void writeIndexEntry() {
+		indexEntry.flip();
+		try {
+			while(indexEntry.hasRemaining())
+				indexChannel.write(indexEntry);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write call record index " + getIndexFileName(fileName), e);
+		}
+	}
+	
+	/**
+	 * Writes the contents of the buffer to the file and clears the buffer.
+	 */
+	private void flush() {
+		buffer.flip();
+		try {
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write call record log " + fileName, e);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,489 @@
+
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class finds the records of a CallRecordLog by customer or by arrival 
+ * time without reading the whole file. The required parameter for creating 
+ * a CallRecordQuery object is a string, the name of the call record log to 
+ * read. The sparse index of the log is loaded when the query is created; any 
+ * blocks at the end of the file which the index does not cover, as when the 
+ * run did not close its log, are summarized by reading them once. A query 
+ * is begun with the findCustomers or findArrivals method, and the next 
+ * method then reads the matching records one at a time into the 
+ * CallRecordQuery, from only the blocks whose summaries could hold them. 
+ * The values of the current record are returned by the get methods. The 
+ * close method should be called once the CallRecordQuery is no longer 
+ * needed.
+ * 
+ * @author Brett Crawford
+ */
+public class CallRecordQuery {
+	
+	/** The size of the buffer the records printed by main are written through **/
+	private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+	
+	private String fileName;
+	private FileChannel channel;
+	private long records;
+	private int blocks;
+	private int[] minCustomerIDs;
+	private int[] maxCustomerIDs;
+	private long[] minArrivalTimes;
+	private long[] maxArrivalTimes;
+	private ByteBuffer block;
+	private int currentBlock;
+	private int recordInBlock;
+	private int recordsInBlock;
+	private long blocksRead;
+	private boolean byCustomer;
+	private long from;
+	private long to;
+	private long arrivalTime;
+	private int customerID;
+	private int phoneLineID;
+	private int employeeID;
+	private int holdSeconds;
+	private int talkSeconds;
+	private int expectedCallLength;
+	private int callType;
+	private byte outcome;
+	
+	/**
+	 * Prints the records of a call record log as comma separated values. 
+	 * The arguments are the name of the log, then either "customer" and a 
+	 * customer ID or range of IDs such as 100-200, or "time" and the first 
+	 * and last arrival times in seconds since the epoch. With only the name 
+	 * of the log, its size is printed.
+	 * 
+	 * @param args
+	 *            the name of the log and the query
+	 */
+	public static void main(String args[]) {
+		CallRecordQuery query = new CallRecordQuery(args[0]);
+		try {
+			if(args.length > 2 && args[1].equals("customer")) {
+				int dash = args[2].indexOf('-');
+				if(dash < 0)
+					query.findCustomers(Integer.parseInt(args[2]), Integer.parseInt(args[2]));
+				else
+					query.findCustomers(Integer.parseInt(args[2].substring(0, dash)), Integer.parseInt(args[2].substring(dash + 1)));
+			}
+			else if(args.length > 3 && args[1].equals("time")) {
+				query.findArrivals(Long.parseLong(args[2]), Long.parseLong(args[3]));
+			}
+			else {
+				System.out.println(query.getNumberOfRecords() + " records in " + query.getNumberOfBlocks() + " blocks");
+				return;
+			}
+			
+			// Rows are written as they are found, through a buffer, rather than held until the end
+			PrintStream out = new PrintStream(new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE), false);
+			out.print("arrivalTime,customerID,phoneLineID,employeeID,holdSeconds,talkSeconds,expectedCallLength,callType,outcome\n");
+			long found = 0;
+			while(query.next()) {
+				out.print(query.getArrivalTime() + "," + query.getCustomerID() + "," + query.getPhoneLineID() + "," 
+						+ query.getEmployeeID() + "," + query.getHoldSeconds() + "," + query.getTalkSeconds() + "," 
+						+ query.getExpectedCallLength() + "," + query.getCallType() + "," 
+						+ getOutcomeName(query.getOutcome()) + "\n");
+				found++;
+			}
+			out.flush();
+			System.out.println(found + " records found, " + query.getBlocksRead() + " of " + query.getNumberOfBlocks() + " blocks read");
+		}
+		finally {
+			query.close();
+		}
+	}
+	
+	/**
+	 * Creates a CallRecordQuery object reading the given call record log, 
+	 * and loads its index.
+	 * 
+	 * @param theFileName
+	 *            the name of the call record log to read
+	 */
+	public CallRecordQuery(String theFileName) {
+		fileName = theFileName;
+		block = ByteBuffer.allocateDirect(CallRecordLog.BLOCK_RECORDS * CallRecordLog.RECORD_SIZE);
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			ByteBuffer header = ByteBuffer.allocate(CallRecordLog.HEADER_SIZE);
+			readFully(header, 0);
+			if(header.limit() < CallRecordLog.HEADER_SIZE || header.getInt() != CallRecordLog.MAGIC)
+				throw new IllegalStateException(fileName + " is not a call record log");
+			if(header.getInt() != CallRecordLog.VERSION)
+				throw new IllegalStateException(fileName + " is an unsupported version of call record log");
+			records = (channel.size() - CallRecordLog.HEADER_SIZE) / CallRecordLog.RECORD_SIZE;
+			blocks = (int) ((records + CallRecordLog.BLOCK_RECORDS - 1) / CallRecordLog.BLOCK_RECORDS);
+			minCustomerIDs = new int[blocks];
+			maxCustomerIDs = new int[blocks];
+			minArrivalTimes = new long[blocks];
+			maxArrivalTimes = new long[blocks];
+			
+			for(int b = loadIndex(); b < blocks; b++) // Summarize the blocks the index does not cover
+				summarizeBlock(b);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read call record log " + fileName, e);
+		}
+		findCustomers(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		blocksRead = 0;
+	}
+	
+	/**
+	 * Begins a query for the records of the customers with IDs in the given 
+	 * range, inclusive.
+	 * 
+	 * @param theFirstID
+	 *            the lowest customer ID to find
+	 * @param theLastID
+	 *            the highest customer ID to find
+	 */
+	public void findCustomers(int theFirstID, int theLastID) {
+		startQuery(true, theFirstID, theLastID);
+	}
+	
+	/**
+	 * Begins a query for the records of the customers who called in the 
+	 * given range of times, inclusive.
+	 * 
+	 * @param theFrom
+	 *            the earliest arrival time to find, in seconds since the epoch
+	 * @param theTo
+	 *            the latest arrival time to find, in seconds since the epoch
+	 */
+	public void findArrivals(long theFrom, long theTo) {
+		startQuery(false, theFrom, theTo);
+	}
+	
+	/**
+	 * Reads the next record matching the current query. The values of the 
+	 * record are returned by the get methods.
+	 * 
+	 * @return boolean
+	 *            true if a record was read, false if no records remain
+	 */
+	public boolean next() {
+		while(true) {
+			while(currentBlock >= 0 && recordInBlock < recordsInBlock) {
+				readRecord(recordInBlock++);
+				long key = byCustomer ? customerID : arrivalTime;
+				if(key >= from && key <= to)
+					return true;
+			}
+			
+			int nextBlock = currentBlock + 1;
+			while(nextBlock < blocks && !isCandidate(nextBlock))
+				nextBlock++;
+			if(nextBlock >= blocks) {
+				currentBlock = blocks;
+				recordsInBlock = 0;
+				return false;
+			}
+			loadBlock(nextBlock);
+		}
+	}
+	
+	/**
+	 * Returns the time the customer of the current record called.
+	 * 
+	 * @return long
+	 *            the arrival time, in seconds since the epoch
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+	
+	/**
+	 * Returns the ID of the customer of the current record.
+	 * 
+	 * @return int
+	 *            the ID of the customer
+	 */
+	public int getCustomerID() {
+		return customerID;
+	}
+	
+	/**
+	 * Returns the ID of the phoneline of the current record.
+	 * 
+	 * @return int
+	 *            the ID of the phoneline, or 0 for a busy signal
+	 */
+	public int getPhoneLineID() {
+		return phoneLineID;
+	}
+	
+	/**
+	 * Returns the ID of the employee of the current record.
+	 * 
+	 * @return int
+	 *            the ID of the employee, or 0 if no employee answered
+	 */
+	public int getEmployeeID() {
+		return employeeID;
+	}
+	
+	/**
+	 * Returns the seconds the customer of the current record spent on hold.
+	 * 
+	 * @return int
+	 *            the seconds on hold
+	 */
+	public int getHoldSeconds() {
+		return holdSeconds;
+	}
+	
+	/**
+	 * Returns the seconds the customer of the current record spent talking 
+	 * to the employee.
+	 * 
+	 * @return int
+	 *            the seconds talking
+	 */
+	public int getTalkSeconds() {
+		return talkSeconds;
+	}
+	
+	/**
+	 * Returns the length (in minutes) of the call the customer of the 
+	 * current record asked for.
+	 * 
+	 * @return int
+	 *            the expected length (in minutes) of the call
+	 */
+	public int getExpectedCallLength() {
+		return expectedCallLength;
+	}
+	
+	/**
+	 * Returns the type of the call of the current record.
+	 * 
+	 * @return int
+	 *            the type of the call
+	 */
+	public int getCallType() {
+		return callType;
+	}
+	
+	/**
+	 * Returns the outcome of the call of the current record.
+	 * 
+	 * @return byte
+	 *            CallRecordLog.COMPLETED, HUNG_UP, BUSY_SIGNAL or OVERFLOWED
+	 */
+	public byte getOutcome() {
+		return outcome;
+	}
+	
+	/**
+	 * Returns the number of records in the log.
+	 * 
+	 * @return long
+	 *            the number of records
+	 */
+	public long getNumberOfRecords() {
+		return records;
+	}
+	
+	/**
+	 * Returns the number of blocks of records in the log.
+	 * 
+	 * @return int
+	 *            the number of blocks
+	 */
+	public int getNumberOfBlocks() {
+		return blocks;
+	}
+	
+	/**
+	 * Returns the number of blocks read by queries since the log was opened.
+	 * 
+	 * @return long
+	 *            the number of blocks read
+	 */
+	public long getBlocksRead() {
+		return blocksRead;
+	}
+	
+	/**
+	 * Returns the name of an outcome of a call.
+	 * 
+	 * @param theOutcome
+	 *            the outcome of the call
+	 * @return String
+	 *            the name of the outcome
+	 */
+	public static String getOutcomeName(byte theOutcome) {
+		if(theOutcome == CallRecordLog.COMPLETED)
+			return "COMPLETED";
+		if(theOutcome == CallRecordLog.HUNG_UP)
+			return "HUNG_UP";
+		if(theOutcome == CallRecordLog.BUSY_SIGNAL)
+			return "BUSY_SIGNAL";
+		if(theOutcome == CallRecordLog.OVERFLOWED)
+			return "OVERFLOWED";
+		return "UNKNOWN";
+	}
+	
+	/**
+	 * Closes the file.
+	 */
+	public void close() {
+		try {
+			channel.close();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to close call record log " + fileName, e);
+		}
+	}
+	
+	/**
+	 * Begins a query, positioned before the first block.
+	 * 
+	 * @param theByCustomer
+	 *            true to match customer IDs, false to match arrival times
+	 * @param theFrom
+	 *            the lowest value to match
+	 * @param theTo
+	 *            the highest value to match
+	 */
+	private void startQuery(boolean theByCustomer, long theFrom, long theTo) {
+		byCustomer = theByCustomer;
+		from = theFrom;
+		to = theTo;
+		currentBlock = -1;
+		recordInBlock = 0;
+		recordsInBlock = 0;
+	}
+	
+	/**
+	 * Returns true if the summary of the given block overlaps the range of 
+	 * the current query, otherwise returns false.
+	 * 
+	 * @param b
+	 *            the number of the block
+	 * @return boolean
+	 *            true if the block could hold a matching record
+	 */
+	private boolean isCandidate(int b) {
+		if(byCustomer)
+			return maxCustomerIDs[b] >= from && minCustomerIDs[b] <= to;
+		return maxArrivalTimes[b] >= from && minArrivalTimes[b] <= to;
+	}
+	
+	/**
+	 * Reads the summaries of the blocks from the index, if it exists.
+	 * 
+	 * @return int
+	 *            the number of blocks the index covers
+	 */
+	private int loadIndex() throws IOException {
+		String indexFileName = CallRecordLog.getIndexFileName(fileName);
+		if(!Files.exists(Paths.get(indexFileName)))
+			return 0;
+		
+		ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(Paths.get(indexFileName)));
+		if(index.remaining() < CallRecordLog.HEADER_SIZE || index.getInt() != CallRecordLog.INDEX_MAGIC 
+				|| index.getInt() != CallRecordLog.VERSION)
+			return 0; // Not an index this query can use, so summarize every block instead
+		int indexed = Math.min(blocks, index.remaining() / CallRecordLog.INDEX_ENTRY_SIZE);
+		for(int b = 0; b < indexed; b++) {
+			minCustomerIDs[b] = index.getInt();
+			maxCustomerIDs[b] = index.getInt();
+			minArrivalTimes[b] = index.getLong();
+			maxArrivalTimes[b] = index.getLong();
+		}
+		return indexed;
+	}
+	
+	/**
+	 * Summarizes a block not covered by the index by reading it.
+	 * 
+	 * @param b
+	 *            the number of the block
+	 */
+	private void summarizeBlock(int b) {
+		loadBlock(b);
+		minCustomerIDs[b] = Integer.MAX_VALUE;
+		maxCustomerIDs[b] = Integer.MIN_VALUE;
+		minArrivalTimes[b] = Long.MAX_VALUE;
+		maxArrivalTimes[b] = Long.MIN_VALUE;
+		for(int i = 0; i < recordsInBlock; i++) {
+			readRecord(i);
+			minCustomerIDs[b] = Math.min(minCustomerIDs[b], customerID);
+			maxCustomerIDs[b] = Math.max(maxCustomerIDs[b], customerID);
+			minArrivalTimes[b] = Math.min(minArrivalTimes[b], arrivalTime);
+			maxArrivalTimes[b] = Math.max(maxArrivalTimes[b], arrivalTime);
+		}
+	}
+	
+	/**
+	 * Reads a block of records from the file into the block buffer and 
+	 * makes it the current block.
+	 * 
+	 * @param b
+	 *            the number of the block
+	 */
+	private void loadBlock(int b) {
+		long first = (long) b * CallRecordLog.BLOCK_RECORDS;
+		recordsInBlock = (int) Math.min(CallRecordLog.BLOCK_RECORDS, records - first);
+		block.clear();
+		block.limit(recordsInBlock * CallRecordLog.RECORD_SIZE);
+		try {
+			readFully(block, CallRecordLog.HEADER_SIZE + first * CallRecordLog.RECORD_SIZE);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read call record log " + fileName, e);
+		}
+		currentBlock = b;
+		recordInBlock = 0;
+		blocksRead++;
+	}
+	
+	/**
+	 * Reads a record of the current block into the CallRecordQuery.
+	 * 
+	 * @param i
+	 *            the number of the record within the block
+	 */
+	private void readRecord(int i) {
+		int position = i * CallRecordLog.RECORD_SIZE;
+		arrivalTime = block.getLong(position + CallRecordLog.ARRIVAL_TIME_OFFSET);
+		customerID = block.getInt(position + CallRecordLog.CUSTOMER_ID_OFFSET);
+		phoneLineID = block.getInt(position + CallRecordLog.PHONE_LINE_ID_OFFSET);
+		employeeID = block.getInt(position + CallRecordLog.EMPLOYEE_ID_OFFSET);
+		holdSeconds = block.getInt(position + CallRecordLog.HOLD_SECONDS_OFFSET);
+		talkSeconds = block.getInt(position + CallRecordLog.TALK_SECONDS_OFFSET);
+		expectedCallLength = block.getShort(position + CallRecordLog.CALL_LENGTH_OFFSET);
+		callType = block.get(position + CallRecordLog.CALL_TYPE_OFFSET);
+		outcome = block.get(position + CallRecordLog.OUTCOME_OFFSET);
+	}
+	
+	/**
+	 * Reads from the file at the given position until the buffer is full or 
+	 * the file ends, then flips the buffer.
+	 * 
+	 * @param buffer
+	 *            the buffer to fill
+	 * @param position
+	 *            the position, in bytes from the start of the file
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if(read < 0)
+				break;
+			position += read;
+		}
+		buffer.flip();
+	}
+}
@@ -0,0 +1,44 @@
+
+
+import java.util.List;
+
+/**
+ * This interface allows an object to be used by the PhoneManager to decide 
+ * which employee takes which call. Any object implementing the CallRouter 
+ * interface must implement the employeeAvailable method, which receives 
+ * each employee as it becomes free to take a call; the callWaiting method, 
+ * which receives each phoneline as a customer is placed on hold; the 
+ * lineReleased method, which is told of every phoneline released, so that 
+ * a customer who hangs up while on hold can be forgotten; the dispatch 
+ * method, which pairs waiting calls with available employees; the 
+ * getCallsWaiting method, which returns the number of calls on hold; the 
+ * hasAvailableEmployees method, which returns true if any employee is free 
+ * to take a call, without building a list of them; and 
+ * the getNextOverflowTime method, which returns the next time at which a 
+ * waiting call could be routed differently without any other change, so 
+ * that an event-driven clock knows to tick the PhoneManager then. So that 
+ * the router can be rebuilt from a checkpoint, the getAvailableEmployees 
+ * method returns the available employees in the order they became available; 
+ * giving them to an empty router in that order, along with the lines on 
+ * hold, must leave it routing calls just as before.
+ * 
+ * @author Brett Crawford
+ */
+public interface CallRouter {
+	
+	public void employeeAvailable(Employee employee);
+	
+	public void callWaiting(PhoneLine phoneLine);
+	
+	public void lineReleased(PhoneLine phoneLine, int customerID);
+	
+	public void dispatch(long currentTime);
+	
+	public int getCallsWaiting();
+	
+	public boolean hasAvailableEmployees();
+	
+	public long getNextOverflowTime();
+	
+	public List<Employee> getAvailableEmployees();
+}
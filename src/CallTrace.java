@@ -0,0 +1,292 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents a file of historical call records which is replayed 
+ * in place of randomly generated customers. The required parameter for 
+ * creating a CallTrace object is a string, the name of the file to read. 
+ * Each record holds the time a customer called, in seconds since the epoch; 
+ * the length (in minutes) of the call they asked for; and their patience, 
+ * the number of seconds they will remain on hold. The records must be in 
+ * order of arrival. 
+ * 
+ * The file is never loaded into memory. Instead, a window of the file is 
+ * memory-mapped at a time and the records are parsed straight from the 
+ * mapped bytes, with the window moved along the file as the records are 
+ * read, so files of tens of millions of records can be replayed using the 
+ * same small amount of memory. The next method reads one record at a time 
+ * into the CallTrace, so reading a record allocates nothing. Subclasses 
+ * parse a particular format; the open method chooses the subclass from the 
+ * contents of the file. The close method should be called once the 
+ * CallTrace is no longer needed. The position in the file and the current 
+ * record can be written to a checkpoint, and read back into a CallTrace of 
+ * the same file.
+ * 
+ * @author Brett Crawford
+ */
+public abstract class CallTrace {
+	
+	/** The largest part of the file mapped at one time **/
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+	
+	private String fileName;
+	private FileChannel channel;
+	private long fileSize;
+	private long windowStart;
+	private MappedByteBuffer window;
+	private boolean recordPending;
+	private long arrivalTime;
+	private int callLength;
+	private int patience;
+	
+	/**
+	 * Opens a file of call records, choosing the format from its contents.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to read
+	 * @return CallTrace
+	 *            a BinaryCallTrace if the file begins with the binary 
+	 *            header, otherwise a CsvCallTrace
+	 */
+	public static CallTrace open(String theFileName) {
+		if(BinaryCallTrace.isBinary(theFileName))
+			return new BinaryCallTrace(theFileName);
+		return new CsvCallTrace(theFileName);
+	}
+	
+	/**
+	 * Creates a CallTrace object reading the given file, with the first 
+	 * window of the file mapped.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to read
+	 */
+	protected CallTrace(String theFileName) {
+		fileName = theFileName;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+			fileSize = channel.size();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to open call trace " + fileName, e);
+		}
+		recordPending = false;
+		mapWindow(0);
+	}
+	
+	/**
+	 * Reads the next record of the file. The record's values are returned 
+	 * by the getArrivalTime, getCallLength and getPatience methods.
+	 * 
+	 * @return boolean
+	 *            true if a record was read, false at the end of the file
+	 */
+	public boolean next() {
+		if(recordPending) {
+			recordPending = false;
+			return true;
+		}
+		return readRecord();
+	}
+	
+	/**
+	 * Skips the records which arrive before the given time, so that the 
+	 * next call to the next method reads the first record arriving at or 
+	 * after it. The values of that record are returned by the get methods 
+	 * straight away.
+	 * 
+	 * @param time
+	 *            the time, in seconds since the epoch, to skip to
+	 */
+	public void seek(long time) {
+		while(readRecord()) {
+			if(arrivalTime >= time) {
+				recordPending = true;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the time the customer of the current record called.
+	 * 
+	 * @return long
+	 *            the arrival time, in seconds since the epoch
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+	
+	/**
+	 * Returns the length (in minutes) of the call the customer of the 
+	 * current record asked for.
+	 * 
+	 * @return int
+	 *            the length (in minutes) of the call
+	 */
+	public int getCallLength() {
+		return callLength;
+	}
+	
+	/**
+	 * Returns the number of seconds the customer of the current record 
+	 * will remain on hold.
+	 * 
+	 * @return int
+	 *            the patience of the customer, in seconds
+	 */
+	public int getPatience() {
+		return patience;
+	}
+	
+	/**
+	 * Closes the file.
+	 */
+	public void close() {
+		window = null;
+		try {
+			channel.close();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to close call trace " + fileName, e);
+		}
+	}
+	
+	/**
+	 * Writes the position in the file and the current record to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(getPosition());
+		out.writeBoolean(recordPending);
+		out.writeLong(arrivalTime);
+		out.writeInt(callLength);
+		out.writeInt(patience);
+	}
+	
+	/**
+	 * Moves to the position in the file and restores the current record 
+	 * read from a checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		long position = in.readLong();
+		if(position < 0 || position > fileSize)
+			throw new IllegalStateException("Checkpoint position " + position + " is outside call trace " + fileName);
+		setPosition(position);
+		recordPending = in.readBoolean();
+		setRecord(in.readLong(), in.readInt(), in.readInt());
+	}
+	
+	/**
+	 * Parses the next record from the file and stores it with setRecord.
+	 * 
+	 * @return boolean
+	 *            true if a record was read, false at the end of the file
+	 */
+	protected abstract boolean readRecord();
+	
+	/**
+	 * Stores the values of the record just read.
+	 * 
+	 * @param theArrivalTime
+	 *            the time the customer called, in seconds since the epoch
+	 * @param theCallLength
+	 *            the length (in minutes) of the call
+	 * @param thePatience
+	 *            the patience of the customer, in seconds
+	 */
+	protected void setRecord(long theArrivalTime, int theCallLength, int thePatience) {
+		arrivalTime = theArrivalTime;
+		callLength = theCallLength;
+		patience = thePatience;
+	}
+	
+	/**
+	 * Returns the mapped window positioned at the current position of the 
+	 * file, moving the window along the file first if fewer than the given 
+	 * number of bytes remain in it. Fewer bytes remain only at the end of 
+	 * the file.
+	 * 
+	 * @param bytes
+	 *            the number of bytes about to be read
+	 * @return ByteBuffer
+	 *            the mapped window
+	 */
+	protected ByteBuffer getWindow(int bytes) {
+		if(window.remaining() < bytes && windowStart + window.limit() < fileSize)
+			mapWindow(getPosition());
+		return window;
+	}
+	
+	/**
+	 * Returns the current position in the file.
+	 * 
+	 * @return long
+	 *            the current position, in bytes from the start of the file
+	 */
+	protected long getPosition() {
+		return windowStart + window.position();
+	}
+	
+	/**
+	 * Moves to the given position in the file.
+	 * 
+	 * @param position
+	 *            the position, in bytes from the start of the file
+	 */
+	protected void setPosition(long position) {
+		if(position >= windowStart && position <= windowStart + window.limit())
+			window.position((int) (position - windowStart));
+		else
+			mapWindow(position);
+	}
+	
+	/**
+	 * Returns the size of the file.
+	 * 
+	 * @return long
+	 *            the size of the file, in bytes
+	 */
+	protected long getFileSize() {
+		return fileSize;
+	}
+	
+	/**
+	 * Returns the name of the file.
+	 * 
+	 * @return String
+	 *            the name of the file
+	 */
+	protected String getFileName() {
+		return fileName;
+	}
+	
+	/**
+	 * Maps the window of the file beginning at the given position.
+	 * 
+	 * @param position
+	 *            the position, in bytes from the start of the file
+	 */
+	private void mapWindow(long position) {
+		try {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read call trace " + fileName, e);
+		}
+		windowStart = position;
+	}
+}
@@ -1,5 +1,8 @@
 
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -9,62 +12,365 @@ import java.util.*;
  * addManagedItem method and are updated with the current time on each 
  * call to the countTick method. 
  * 
+ * The clock runs in one of two modes. In tick mode every managed item is
+ * updated on every tick. In event-driven mode managed items request the
+ * ticks they care about using the scheduleTick methods; each call to
+ * countTick then jumps straight to the next scheduled tick and updates
+ * only the items due at that time, in the order they were added. Scheduled
+ * times are rounded up to whole ticks so both modes observe the same times.
+ * Items that no longer need the clock are released with removeManagedItem,
+ * so the cost of a tick depends only on the items still being managed. Time
+ * is kept as a number of seconds since the epoch; a Calendar is only used
+ * to find the starting time and when a time is rendered as text.
+ *
+ * The time, the order of the managed items and the scheduled ticks can be
+ * written to a checkpoint. When read back, each item is identified by its
+ * position in the list returned by getManagedItems, which the owner of the
+ * items uses to recreate the list.
+ *
  * @author Brett Crawford
  */
 public class Clock {
 	
-	private final int SECS_PER_TICK = 10;
-	private Calendar currentTime;
+	/** The number of seconds that pass on each tick, the same for every clock **/
+	public static final int SECS_PER_TICK = 10;
+	
+	private boolean eventDriven;
+	private long startTime;
+	private long nextOrder;
+	private long currentTime;
 	private ArrayList<ClockManaged> managedClocks;
+	private IdentityHashMap<ClockManaged, Long> managedOrder;
+	private PriorityQueue<ScheduledTick> scheduledTicks;
+	private ScheduledTick currentTick;
 	
 	/**
-	 * Creates a Clock object. The time is set to
+	 * Creates a Clock object running in tick mode. The time is set to
 	 * 8:00am.
 	 */
 	public Clock() {
-		currentTime = Calendar.getInstance();
-		currentTime.set(Calendar.HOUR_OF_DAY, 8);
-		currentTime.set(Calendar.MINUTE, 0);
-		currentTime.set(Calendar.SECOND, 0);
-		currentTime.set(Calendar.MILLISECOND, 0);
+		this(false);
+	}
+
+	/**
+	 * Creates a Clock object. The time is set to 8:00am.
+	 *
+	 * @param theEventDriven
+	 *            true to only tick items at their scheduled times, false
+	 *            to tick every item on every tick
+	 */
+	public Clock(boolean theEventDriven) {
+		eventDriven = theEventDriven;
+		Calendar start = Calendar.getInstance();
+		start.set(Calendar.HOUR_OF_DAY, 8);
+		start.set(Calendar.MINUTE, 0);
+		start.set(Calendar.SECOND, 0);
+		start.set(Calendar.MILLISECOND, 0);
+		startTime = start.getTimeInMillis() / 1000;
+		currentTime = startTime;
+		nextOrder = 0;
 		
 		managedClocks = new ArrayList<ClockManaged>();
+		managedOrder = new IdentityHashMap<ClockManaged, Long>();
+		scheduledTicks = new PriorityQueue<ScheduledTick>();
+		currentTick = null;
 	}
 	
 	/**
-	 * Adds a ClockManaged item to the list of items to be clock managed
+	 * Adds a ClockManaged item to the list of items to be clock managed.
+	 * In event-driven mode the item is scheduled for the next tick so that
+	 * it may schedule any further ticks it needs.
 	 * 
 	 * @param newManagedItem
 	 *            the ClockManaged item to be added
 	 */
 	public void addManagedItem(ClockManaged newManagedItem) {
-		managedClocks.add(newManagedItem);
+		managedOrder.put(newManagedItem, nextOrder++);
+		if(eventDriven)
+			scheduleNextTick(newManagedItem);
+		else
+			managedClocks.add(newManagedItem);
+	}
+
+	/**
+	 * Removes a ClockManaged item from the clock. The item is not ticked 
+	 * again, and is dropped from the list of managed items on the next tick.
+	 * 
+	 * @param managedItem
+	 *            the ClockManaged item to be removed
+	 */
+	public void removeManagedItem(ClockManaged managedItem) {
+		managedOrder.remove(managedItem);
+	}
+	
+	/**
+	 * Returns the number of items currently managed by the clock.
+	 * 
+	 * @return int
+	 *            the number of managed items
+	 */
+	public int getNumberOfManagedItems() {
+		return managedOrder.size();
+	}
+
+	/**
+	 * Returns the items currently managed by the clock, in the order they 
+	 * were added.
+	 * 
+	 * @return List
+	 *            the managed items
+	 */
+	public List<ClockManaged> getManagedItems() {
+		ArrayList<ClockManaged> items = new ArrayList<ClockManaged>(managedOrder.keySet());
+		Collections.sort(items, new Comparator<ClockManaged>() {
+			public int compare(ClockManaged a, ClockManaged b) {
+				return managedOrder.get(a).compareTo(managedOrder.get(b));
+			}
+		});
+		return items;
+	}
+	
+	/**
+	 * Returns the number of seconds that pass on each tick.
+	 *
+	 * @return int
+	 *            the seconds per tick
+	 */
+	public int getSecondsPerTick() {
+		return SECS_PER_TICK;
+	}
+
+	/**
+	 * Returns true if the clock only ticks items at their scheduled
+	 * times, otherwise returns false.
+	 *
+	 * @return boolean
+	 *            true if event-driven, otherwise false
+	 */
+	public boolean isEventDriven() {
+		return eventDriven;
+	}
+
+	/**
+	 * Schedules a managed item to be ticked on the first tick at or after
+	 * the given time. Has no effect in tick mode, where every item is
+	 * ticked on every tick.
+	 *
+	 * @param item
+	 *            the managed item to be ticked
+	 * @param time
+	 *            the earliest time, in seconds, at which the item should be ticked
+	 */
+	public void scheduleTick(ClockManaged item, long time) {
+		if(eventDriven)
+			schedule(item, time);
+	}
+
+	/**
+	 * Schedules a managed item to be ticked on the first tick strictly
+	 * after the given time. Has no effect in tick mode.
+	 *
+	 * @param item
+	 *            the managed item to be ticked
+	 * @param time
+	 *            the time, in seconds, the item should be ticked after
+	 */
+	public void scheduleTickAfter(ClockManaged item, long time) {
+		if(eventDriven)
+			schedule(item, time + 1);
+	}
+
+	/**
+	 * Schedules a managed item to be ticked on the next tick. Has no
+	 * effect in tick mode.
+	 *
+	 * @param item
+	 *            the managed item to be ticked
+	 */
+	public void scheduleNextTick(ClockManaged item) {
+		if(eventDriven)
+			schedule(item, currentTime + SECS_PER_TICK);
 	}
 	
 	/**
 	 * Simulates the passage of time by the the amount specified by
-	 * SECS_PER_TICK. 
+	 * SECS_PER_TICK. In event-driven mode, time instead advances directly
+	 * to the next scheduled tick.
 	 */
 	public void countTick() {
-		currentTime.add(Calendar.SECOND, SECS_PER_TICK);
+		if(eventDriven) {
+			countScheduledTick();
+			return;
+		}
+
+		currentTime += SECS_PER_TICK;
 		
+		int liveItems = 0;
 		for(int i = 0; i < managedClocks.size(); i++) {
-			managedClocks.get(i).clockTicked(currentTime);
+			ClockManaged item = managedClocks.get(i);
+			if(!managedOrder.containsKey(item))
+				continue; // Removed, drop from the list
+			item.clockTicked(currentTime);
+			managedClocks.set(liveItems++, item);
 		}
+		managedClocks.subList(liveItems, managedClocks.size()).clear();
 	}
 	
 	/**
-	 * Creates a BinaryTreeNode object with the specified key and
-	 * data. 
+	 * Returns the current time of the clock.
 	 * 
-	 * @return Calendar
-	 * 			the clock objects current time
+	 * @return long
+	 * 			the clock objects current time, in seconds since the epoch
 	 */
-	public Calendar getTime() {
+	public long getTime() {
 		return currentTime;
 	}
 	
+	/**
+	 * Writes the time, the order of each managed item, in the order of 
+	 * getManagedItems, and the scheduled ticks to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(startTime);
+		out.writeLong(currentTime);
+		out.writeLong(nextOrder);
+		List<ClockManaged> items = getManagedItems();
+		out.writeInt(items.size());
+		for(int i = 0; i < items.size(); i++)
+			out.writeLong(managedOrder.get(items.get(i)));
+		out.writeBoolean(currentTick != null);
+		if(currentTick != null) {
+			out.writeLong(currentTick.time);
+			out.writeLong(currentTick.order);
+		}
+		out.writeInt(scheduledTicks.size());
+		for(ScheduledTick tick : scheduledTicks) {
+			out.writeLong(tick.time);
+			out.writeLong(tick.order);
+		}
+	}
+	
+	/**
+	 * Replaces the state of the clock with that read from a checkpoint. The 
+	 * given items take the place of the items returned by getManagedItems 
+	 * when the checkpoint was written, in the same order. Scheduled ticks of 
+	 * items removed before the checkpoint are kept, but tick nothing, so 
+	 * that time advances just as it would have.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param items
+	 *            the managed items, in the order they were written
+	 */
+	public void readState(DataInput in, List<ClockManaged> items) throws IOException {
+		startTime = in.readLong();
+		currentTime = in.readLong();
+		nextOrder = in.readLong();
+		int numberOfItems = in.readInt();
+		if(numberOfItems != items.size())
+			throw new IllegalStateException("Checkpoint has " + numberOfItems + " managed items, " + items.size() + " were given");
+		
+		managedOrder.clear();
+		managedClocks.clear();
+		HashMap<Long, ClockManaged> itemsByOrder = new HashMap<Long, ClockManaged>();
+		for(int i = 0; i < numberOfItems; i++) {
+			long order = in.readLong();
+			managedOrder.put(items.get(i), order);
+			itemsByOrder.put(order, items.get(i));
+			if(!eventDriven)
+				managedClocks.add(items.get(i));
+		}
+		
+		currentTick = null;
+		if(in.readBoolean()) {
+			long time = in.readLong();
+			long order = in.readLong();
+			currentTick = new ScheduledTick(time, order, itemsByOrder.get(order));
+		}
+		scheduledTicks.clear();
+		int numberOfTicks = in.readInt();
+		for(int i = 0; i < numberOfTicks; i++) {
+			long time = in.readLong();
+			long order = in.readLong();
+			scheduledTicks.add(new ScheduledTick(time, order, itemsByOrder.get(order)));
+		}
+	}
+	
+	/**
+	 * Advances the time to the earliest scheduled tick and ticks each item
+	 * due at that time once, in the order the items were added. If nothing
+	 * is scheduled the time advances by a single tick.
+	 */
+	private void countScheduledTick() {
+		if(scheduledTicks.isEmpty()) {
+			currentTime += SECS_PER_TICK;
+			return;
+		}
 	
+		long tickTime = scheduledTicks.peek().time;
+		currentTime = tickTime;
+		while(!scheduledTicks.isEmpty() && scheduledTicks.peek().time == tickTime) {
+			ScheduledTick next = scheduledTicks.poll();
+			if(currentTick != null && currentTick.time == next.time && currentTick.order == next.order)
+				continue; // Already ticked at this time
+			if(!managedOrder.containsKey(next.item))
+				continue; // Removed since being scheduled
+			currentTick = next;
+			next.item.clockTicked(currentTime);
+		}
+	}
 	
+	/**
+	 * Queues a tick for the item at the first tick boundary at or after
+	 * the given time. An item that has already been ticked at the current
+	 * time, or that precedes the item being ticked, is moved to the
+	 * following tick so that ticks always run in the order items were added.
+	 *
+	 * @param item
+	 *            the managed item to be ticked
+	 * @param time
+	 *            the earliest time, in seconds, of the tick
+	 */
+	private void schedule(ClockManaged item, long time) {
+		Long order = managedOrder.get(item);
+		if(order == null)
+			return;
 
+		long ticks = (time - startTime + SECS_PER_TICK - 1) / SECS_PER_TICK;
+		long tickTime = startTime + Math.max(ticks, 0) * SECS_PER_TICK;
+		if(tickTime < currentTime)
+			tickTime = currentTime;
+		if(tickTime == currentTime && currentTick != null && currentTick.time == currentTime && order <= currentTick.order)
+			tickTime = currentTime + SECS_PER_TICK;
+
+		scheduledTicks.add(new ScheduledTick(tickTime, order, item));
+	}
+
+	/**
+	 * A pending tick of a managed item, ordered by time and then by the
+	 * order in which the item was added to the clock.
+	 */
+	private static class ScheduledTick implements Comparable<ScheduledTick> {
+
+		private final long time;
+		private final long order;
+		private final ClockManaged item;
+
+		private ScheduledTick(long theTime, long theOrder, ClockManaged theItem) {
+			time = theTime;
+			order = theOrder;
+			item = theItem;
+		}
+
+		public int compareTo(ScheduledTick other) {
+			if(time != other.time)
+				return time < other.time ? -1 : 1;
+			if(order != other.order)
+				return order < other.order ? -1 : 1;
+			return 0;
+		}
+	}
 }
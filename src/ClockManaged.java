@@ -1,15 +1,14 @@
 
-import java.util.*;
-
 /**
  * This interface allows an object to be used in conjunction with the Clock 
  * class to manage the passage of time. Any object implementing the 
  * ClockManaged interface must implement the clockTicked method which 
  * should contain any code that needs to be run on each tick of the clock.
+ * The current time is passed as a number of seconds since the epoch.
  * 
  * @author Brett Crawford
  */
 public interface ClockManaged {
 	
-	public void clockTicked(Calendar currentTime);
+	public void clockTicked(long currentTime);
 }
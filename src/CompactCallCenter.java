@@ -0,0 +1,1011 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class runs the phone lines, employees and customers of the call 
+ * center simulation without an object for each. The required parameters for 
+ * creating a CompactCallCenter object include: a reference to the Log, to 
+ * keep track of call center statistics; a reference to the Clock, to manage 
+ * time; an integer, the length of the call center shift; an integer, the 
+ * number of phone lines; and an integer, the number of employees that may be 
+ * added. The state of the phone lines and employees is kept in parallel 
+ * arrays of primitives indexed by ID, and a customer is only a few entries 
+ * in the arrays of the phone line they are on, so that a call center of 
+ * millions of lines and employees fits in a few gigabytes and is read from 
+ * memory in order. The available phone lines and employees are kept in 
+ * heaps of IDs, the calls on hold in a queue of IDs, and the calls due to 
+ * be completed and the customers due to run out of patience in heaps 
+ * ordered by their tick and ID. 
+ * 
+ * The CompactCallCenter is added to the Clock as a single item, and takes 
+ * the place of the PhoneManager, PhoneLine, Employee and Customer objects. 
+ * On each of its ticks it does what each of those objects would have done 
+ * on that tick, in the order the Clock would have ticked them: first the 
+ * phone manager's part, pairing calls on hold with employees and closing 
+ * the call center, then each employee due, by ID, beginning and completing 
+ * calls, then each customer due, by ID, hanging up or placing their call. 
+ * A completed call ends for the employee and the customer at once, as when 
+ * the PhoneLine tells each CallParticipant, and every statistic and event 
+ * is recorded with the Log just as the objects record them, so a simulation 
+ * gives the same results for the same seed with either. In event-driven 
+ * mode the CompactCallCenter schedules itself for the next tick on which 
+ * anything is due. Calls are routed first-come, first-served to the 
+ * available employee with the lowest ID; employees have no skills and 
+ * cannot be sent on breaks. As with the PhoneManager, a customer who finds 
+ * every line busy is offered to the CallOverflow, if any, unless their 
+ * call was transferred from another call center. The state of the 
+ * CompactCallCenter can be written to a checkpoint and read back.
+ * 
+ * @author Brett Crawford
+ */
+public class CompactCallCenter implements CallCenter {
+	
+	/** The number of entries the queues and heaps hold before growing **/
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private boolean callCenterOpen;
+	private boolean shiftComplete;
+	private boolean continuous;
+	private int overtime;
+	private long openingTime;
+	private long closingTime;
+	private long scheduledTime;
+	private boolean managerTickDue;
+	private Clock clock;
+	private Log log;
+	
+	/** The phone lines, indexed by ID - 1 **/
+	private int numberOfPhoneLines;
+	private int[] lineCustomerIDs;
+	private int[] lineCallLengths;
+	private int[] lineCallTypes;
+	private int[] linePatience;
+	private int[] lineEmployeeIDs;
+	private long[] linePlacedTimes;
+	private long[] lineConnectTimes;
+	private IdHeap availablePhoneLines;
+	
+	/** The employees, indexed by ID - 1 **/
+	private int numberOfEmployees;
+	private float[] performanceFactors;
+	private int[] employeePhoneLines;
+	private int[] employeeCallLengths;
+	private long[] callCompletionTimes;
+	private int busyEmployees;
+	private IdHeap availableEmployees;
+	private TickHeap callCompletions;
+	private int[] employeesDue;
+	private int employeesDueCount;
+	
+	/** The customers on hold, oldest first, with their phone lines **/
+	private int[] holdCustomerIDs;
+	private int[] holdLineIDs;
+	private int holdHead;
+	private int holdSize;
+	private int callsOnHold;
+	private TickHeap hangUps;
+	
+	/** The customers calling on this tick **/
+	private int[] arrivingCustomerIDs;
+	private int[] arrivingCallLengths;
+	private int[] arrivingPatience;
+	private int[] arrivingCallTypes;
+	private boolean[] arrivingTransferred;
+	private int arrivingCount;
+	
+	/** The overflow offered the calls finding every line busy, or null **/
+	private CallOverflow callOverflow;
+	
+	/**
+	 * Creates a CompactCallCenter object with the specified parameters. 
+	 * Every phone line is available; employees are added by addEmployee.
+	 * 
+	 * @param theLog
+	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param theShiftLength
+	 *            the length of the shift
+	 * @param theNumberOfPhoneLines
+	 *            the number of phone lines
+	 * @param theNumberOfEmployees
+	 *            the number of employees that may be added
+	 */
+	public CompactCallCenter(Log theLog, Clock theClock, int theShiftLength, int theNumberOfPhoneLines, int theNumberOfEmployees) {
+		if(theNumberOfPhoneLines < 0 || theNumberOfEmployees < 0)
+			throw new IllegalArgumentException("Numbers of phone lines and employees must not be negative");
+		callCenterOpen = true;
+		shiftComplete = false;
+		continuous = false;
+		overtime = 0;
+		clock = theClock;
+		log = theLog;
+		openingTime = clock.getTime();
+		closingTime = openingTime + theShiftLength * 60 * 60;
+		scheduledTime = -1;
+		managerTickDue = false;
+		log.recordEvent(EventType.CALL_CENTER_OPENED);
+		
+		numberOfPhoneLines = theNumberOfPhoneLines;
+		lineCustomerIDs = new int[numberOfPhoneLines];
+		lineCallLengths = new int[numberOfPhoneLines];
+		lineCallTypes = new int[numberOfPhoneLines];
+		linePatience = new int[numberOfPhoneLines];
+		lineEmployeeIDs = new int[numberOfPhoneLines];
+		linePlacedTimes = new long[numberOfPhoneLines];
+		lineConnectTimes = new long[numberOfPhoneLines];
+		Arrays.fill(linePlacedTimes, -1);
+		Arrays.fill(lineConnectTimes, -1);
+		availablePhoneLines = new IdHeap(numberOfPhoneLines);
+		for(int i = 0; i < numberOfPhoneLines; i++)
+			availablePhoneLines.add(i + 1);
+		
+		numberOfEmployees = 0;
+		performanceFactors = new float[theNumberOfEmployees];
+		employeePhoneLines = new int[theNumberOfEmployees];
+		employeeCallLengths = new int[theNumberOfEmployees];
+		callCompletionTimes = new long[theNumberOfEmployees];
+		Arrays.fill(callCompletionTimes, -1);
+		busyEmployees = 0;
+		availableEmployees = new IdHeap(theNumberOfEmployees);
+		callCompletions = new TickHeap(INITIAL_CAPACITY);
+		employeesDue = new int[INITIAL_CAPACITY];
+		employeesDueCount = 0;
+		
+		holdCustomerIDs = new int[INITIAL_CAPACITY];
+		holdLineIDs = new int[INITIAL_CAPACITY];
+		holdHead = 0;
+		holdSize = 0;
+		callsOnHold = 0;
+		hangUps = new TickHeap(INITIAL_CAPACITY);
+		
+		arrivingCustomerIDs = new int[INITIAL_CAPACITY];
+		arrivingCallLengths = new int[INITIAL_CAPACITY];
+		arrivingPatience = new int[INITIAL_CAPACITY];
+		arrivingCallTypes = new int[INITIAL_CAPACITY];
+		arrivingTransferred = new boolean[INITIAL_CAPACITY];
+		arrivingCount = 0;
+		callOverflow = null;
+	}
+	
+	/**
+	 * Sets whether the call center runs without closing, so that the run 
+	 * ends once the shift length has passed without the calls in progress 
+	 * being finished.
+	 * 
+	 * @param theContinuous
+	 *            true to run without closing, otherwise false
+	 */
+	public void setContinuous(boolean theContinuous) {
+		continuous = theContinuous;
+	}
+	
+	/**
+	 * Adds an employee, given the next ID, who is available to take calls.
+	 * 
+	 * @param thePerformanceFactor
+	 *            a float representing the effectiveness of the employee
+	 * @return int
+	 *            the ID of the employee
+	 */
+	public int addEmployee(float thePerformanceFactor) {
+		if(numberOfEmployees == performanceFactors.length)
+			throw new IllegalStateException("Only " + performanceFactors.length + " employees may be added");
+		performanceFactors[numberOfEmployees] = thePerformanceFactor;
+		availableEmployees.add(++numberOfEmployees);
+		return numberOfEmployees;
+	}
+	
+	/**
+	 * Called by the customer generator when a customer calls. The customer 
+	 * places the call later on the current tick, once the calls on hold 
+	 * have been dispatched and the employees ticked.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void callArrived(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType) {
+		addArrivingCall(theCustomerID, theExpectedCallLength, thePatience, theCallType, false);
+		log.recordCustomer();
+		scheduleArrivals();
+	}
+	
+	/**
+	 * Called by the customer generator when a call transferred from another 
+	 * call center arrives. The customer calls as by callArrived, but 
+	 * receives a busy signal rather than being sent on again if every phone 
+	 * line is busy.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void callTransferred(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType) {
+		addArrivingCall(theCustomerID, theExpectedCallLength, thePatience, theCallType, true);
+		log.recordCustomer();
+		scheduleArrivals();
+	}
+	
+	/**
+	 * Sets the CallOverflow the calls which find every phone line busy are 
+	 * offered to, or null to give them a busy signal.
+	 * 
+	 * @param theCallOverflow
+	 *            the overflow for calls finding the lines busy, or null
+	 */
+	public void setCallOverflow(CallOverflow theCallOverflow) {
+		callOverflow = theCallOverflow;
+	}
+	
+	/**
+	 * Simulates the passage of time using the time parameter received. The 
+	 * phone manager's part is run first, then that of each employee due and 
+	 * then that of each customer due.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	public void clockTicked(long currentTime) {
+		tickPhoneManager(currentTime);
+		tickEmployees(currentTime);
+		tickCustomers(currentTime);
+		
+		// Schedule the next tick on which anything is due
+		long nextTime = Long.MAX_VALUE;
+		if(managerTickDue)
+			nextTime = currentTime + clock.getSecondsPerTick();
+		if(currentTime <= closingTime)
+			nextTime = Math.min(nextTime, getTickTime(closingTime + 1));
+		if(!callCompletions.isEmpty())
+			nextTime = Math.min(nextTime, callCompletions.peekTime());
+		if(!hangUps.isEmpty())
+			nextTime = Math.min(nextTime, hangUps.peekTime());
+		if(nextTime != Long.MAX_VALUE && nextTime != scheduledTime) {
+			clock.scheduleTick(this, nextTime);
+			scheduledTime = nextTime;
+		}
+	}
+	
+	/**
+	 * Returns the time at which the incoming phone lines are shut down.
+	 * 
+	 * @return long
+	 *            the closing time of the call center, in seconds
+	 */
+	public long getClosingTime() {
+		return closingTime;
+	}
+	
+	/**
+	 * Returns true if the call center is open, otherwise returns false.
+	 * 
+	 * @return boolean
+	 *            true if open, otherwise false         
+	 */
+	public boolean isCallCenterOpen() {
+		return callCenterOpen;
+	}
+	
+	/**
+	 * Returns true if the call center shift is complete, otherwise 
+	 * returns false.
+	 * 
+	 * @return boolean
+	 *            true if shift is complete, otherwise false         
+	 */
+	public boolean isShiftComplete() {
+		return shiftComplete;
+	}
+	
+	/**
+	 * Returns the number of calls on hold.
+	 * 
+	 * @return int
+	 *            the number of calls on hold
+	 */
+	public int getCallsOnHold() {
+		return callsOnHold;
+	}
+	
+	/**
+	 * Returns the number of phone lines free to take a call.
+	 * 
+	 * @return int
+	 *            the number of available phone lines
+	 */
+	public int getAvailablePhoneLines() {
+		return availablePhoneLines.size();
+	}
+	
+	/**
+	 * Writes the state of the call center, its phone lines, employees and 
+	 * customers to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeBoolean(callCenterOpen);
+		out.writeBoolean(shiftComplete);
+		out.writeBoolean(continuous);
+		out.writeInt(overtime);
+		out.writeLong(openingTime);
+		out.writeLong(closingTime);
+		out.writeLong(scheduledTime);
+		out.writeBoolean(managerTickDue);
+		for(int i = 0; i < numberOfPhoneLines; i++) {
+			out.writeInt(lineCustomerIDs[i]);
+			out.writeInt(lineCallLengths[i]);
+			out.writeInt(lineCallTypes[i]);
+			out.writeInt(linePatience[i]);
+			out.writeInt(lineEmployeeIDs[i]);
+			out.writeLong(linePlacedTimes[i]);
+			out.writeLong(lineConnectTimes[i]);
+		}
+		availablePhoneLines.writeState(out);
+		out.writeInt(numberOfEmployees);
+		for(int i = 0; i < numberOfEmployees; i++) {
+			out.writeFloat(performanceFactors[i]);
+			out.writeInt(employeePhoneLines[i]);
+			out.writeInt(employeeCallLengths[i]);
+			out.writeLong(callCompletionTimes[i]);
+		}
+		out.writeInt(busyEmployees);
+		availableEmployees.writeState(out);
+		callCompletions.writeState(out);
+		out.writeInt(holdSize);
+		for(int i = 0; i < holdSize; i++) {
+			out.writeInt(holdCustomerIDs[(holdHead + i) % holdCustomerIDs.length]);
+			out.writeInt(holdLineIDs[(holdHead + i) % holdLineIDs.length]);
+		}
+		out.writeInt(callsOnHold);
+		hangUps.writeState(out);
+		out.writeInt(arrivingCount);
+		for(int i = 0; i < arrivingCount; i++) {
+			out.writeInt(arrivingCustomerIDs[i]);
+			out.writeInt(arrivingCallLengths[i]);
+			out.writeInt(arrivingPatience[i]);
+			out.writeInt(arrivingCallTypes[i]);
+			out.writeBoolean(arrivingTransferred[i]);
+		}
+	}
+	
+	/**
+	 * Replaces the state of the call center, its phone lines, employees and 
+	 * customers with that read from a checkpoint. The call center must have 
+	 * been created with the same numbers of phone lines and employees.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		callCenterOpen = in.readBoolean();
+		shiftComplete = in.readBoolean();
+		continuous = in.readBoolean();
+		overtime = in.readInt();
+		openingTime = in.readLong();
+		closingTime = in.readLong();
+		scheduledTime = in.readLong();
+		managerTickDue = in.readBoolean();
+		for(int i = 0; i < numberOfPhoneLines; i++) {
+			lineCustomerIDs[i] = in.readInt();
+			lineCallLengths[i] = in.readInt();
+			lineCallTypes[i] = in.readInt();
+			linePatience[i] = in.readInt();
+			lineEmployeeIDs[i] = in.readInt();
+			linePlacedTimes[i] = in.readLong();
+			lineConnectTimes[i] = in.readLong();
+		}
+		availablePhoneLines.readState(in);
+		numberOfEmployees = in.readInt();
+		if(numberOfEmployees > performanceFactors.length)
+			throw new IllegalStateException("Checkpoint has " + numberOfEmployees + " employees, at most " + performanceFactors.length + " expected");
+		for(int i = 0; i < numberOfEmployees; i++) {
+			performanceFactors[i] = in.readFloat();
+			employeePhoneLines[i] = in.readInt();
+			employeeCallLengths[i] = in.readInt();
+			callCompletionTimes[i] = in.readLong();
+		}
+		busyEmployees = in.readInt();
+		availableEmployees.readState(in);
+		callCompletions.readState(in);
+		holdHead = 0;
+		holdSize = in.readInt();
+		holdCustomerIDs = new int[Math.max(INITIAL_CAPACITY, holdSize)];
+		holdLineIDs = new int[holdCustomerIDs.length];
+		for(int i = 0; i < holdSize; i++) {
+			holdCustomerIDs[i] = in.readInt();
+			holdLineIDs[i] = in.readInt();
+		}
+		callsOnHold = in.readInt();
+		hangUps.readState(in);
+		arrivingCount = 0;
+		int numberArriving = in.readInt();
+		for(int i = 0; i < numberArriving; i++)
+			addArrivingCall(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readBoolean());
+	}
+	
+	/**
+	 * Runs the phone manager's part of a tick: pairs the calls on hold, 
+	 * oldest first, with the available employees with the lowest IDs, then 
+	 * shuts down the incoming lines once the shift has passed and ends the 
+	 * shift once the lines are clear.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void tickPhoneManager(long currentTime) {
+		managerTickDue = false;
+		
+		log.recordCallsOnHoldMax(callsOnHold);
+		
+		int callsWaiting = callsOnHold;
+		while(!availableEmployees.isEmpty() && callsOnHold > 0)
+			takeCall(availableEmployees.poll(), pollCallOnHold(), currentTime);
+		if(callsOnHold != callsWaiting) {
+			busyEmployees += callsWaiting - callsOnHold;
+			recordLevels();
+		}
+		
+		if(currentTime > closingTime && continuous) {
+			// End the run without closing
+			shiftComplete = true;
+			log.recordEvent(EventType.CALL_CENTER_CLOSED);
+		}
+		else if(currentTime > closingTime) {
+			// Shut down incoming calls
+			if(callCenterOpen) {
+				callCenterOpen = false;
+				log.recordEvent(EventType.LINES_SHUT_DOWN);
+			}
+			if(availablePhoneLines.size() == numberOfPhoneLines) {
+				// Shut down phone manager
+				shiftComplete = true;
+				overtime = (int) ((currentTime - closingTime) / 60);
+				log.recordOvertime(overtime);
+				log.recordEvent(EventType.CALL_CENTER_CLOSED);
+			}
+		}
+	}
+	
+	/**
+	 * Runs the part of each employee due on this tick, by ID: the employees 
+	 * given a call by the phone manager begin it, and the employees whose 
+	 * calls are complete end them.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void tickEmployees(long currentTime) {
+		while(!callCompletions.isEmpty() && callCompletions.peekTime() <= currentTime)
+			addEmployeeDue(callCompletions.poll());
+		Arrays.sort(employeesDue, 0, employeesDueCount);
+		
+		for(int i = 0; i < employeesDueCount; i++) {
+			int employee = employeesDue[i] - 1;
+			int phoneLine = employeePhoneLines[employee] - 1;
+			if(callCompletionTimes[employee] != -1) {
+				endCall(employee, phoneLine, currentTime);
+			}
+			else {
+				int callLength = (int) (lineCallLengths[phoneLine] * performanceFactors[employee]);
+				employeeCallLengths[employee] = callLength;
+				log.recordEvent(EventType.CALL_INITIATED, lineCustomerIDs[phoneLine], employee + 1, callLength);
+				callCompletionTimes[employee] = currentTime + callLength * 60; // Set the completion time
+				callCompletions.add(getTickTime(callCompletionTimes[employee] + 1), employee + 1, employee + 1);
+			}
+		}
+		employeesDueCount = 0;
+	}
+	
+	/**
+	 * Runs the part of each customer due on this tick, by ID: the customers 
+	 * who have run out of patience on hold hang up, then the customers who 
+	 * called on this tick place their calls.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void tickCustomers(long currentTime) {
+		while(!hangUps.isEmpty() && hangUps.peekTime() <= currentTime) {
+			int customerID = hangUps.peekID();
+			int phoneLine = hangUps.poll() - 1;
+			if(lineCustomerIDs[phoneLine] == customerID && lineEmployeeIDs[phoneLine] == 0)
+				hangUp(phoneLine, currentTime);
+		}
+		
+		for(int i = 0; i < arrivingCount; i++)
+			placeCall(arrivingCustomerIDs[i], arrivingCallLengths[i], arrivingPatience[i], arrivingCallTypes[i], 
+					arrivingTransferred[i], currentTime);
+		arrivingCount = 0;
+	}
+	
+	/**
+	 * Places a customer's call on the available phone line with the lowest 
+	 * ID. If there is none or the call center is closed, the call is offered 
+	 * to the CallOverflow, unless it was itself transferred, and otherwise 
+	 * the customer is given a busy signal.
+	 * 
+	 * @param customerID
+	 *            the customer's id
+	 * @param expectedCallLength
+	 *            the expected length of the service call
+	 * @param patience
+	 *            the number of seconds the customer remains on hold
+	 * @param callType
+	 *            the type of the call
+	 * @param transferred
+	 *            true if the call was transferred from another call center
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void placeCall(int customerID, int expectedCallLength, int patience, int callType, boolean transferred, long currentTime) {
+		int phoneLine = -1;
+		if(!availablePhoneLines.isEmpty() && callCenterOpen) {
+			phoneLine = availablePhoneLines.poll() - 1;
+			lineCustomerIDs[phoneLine] = customerID;
+			lineCallLengths[phoneLine] = expectedCallLength;
+			lineCallTypes[phoneLine] = callType;
+			linePatience[phoneLine] = patience;
+			linePlacedTimes[phoneLine] = currentTime;
+			addCallOnHold(customerID, phoneLine + 1);
+			managerTickDue = true;
+			recordLevels();
+		}
+		log.recordArrival();
+		if(phoneLine != -1) {
+			// The customer hangs up once out of patience from the tick after the call is placed
+			hangUps.add(getTickTime(currentTime + clock.getSecondsPerTick() + patience), customerID, phoneLine + 1);
+			log.recordEvent(EventType.CALL_PLACED, customerID, 0, expectedCallLength);
+		}
+		else if(!transferred && callOverflow != null && callCenterOpen 
+				&& callOverflow.overflowCall(currentTime, customerID, expectedCallLength, patience, callType)) {
+			// Call sent on to another call center
+			log.recordOverflow();
+			log.recordCall(currentTime, customerID, 0, 0, 0, 0, expectedCallLength, callType, CallRecordLog.OVERFLOWED);
+			log.recordEvent(EventType.CALL_OVERFLOWED, customerID, 0, 0);
+		}
+		else {
+			// Call not taken, busy signal
+			log.recordBusySignal();
+			log.recordCall(currentTime, customerID, 0, 0, 0, 0, expectedCallLength, callType, CallRecordLog.BUSY_SIGNAL);
+			log.recordEvent(EventType.BUSY_SIGNAL, customerID, 0, 0);
+		}
+	}
+	
+	/**
+	 * Connects an employee to a call on hold. The employee begins the call 
+	 * later on the current tick.
+	 * 
+	 * @param employeeID
+	 *            the ID of the employee
+	 * @param phoneLineID
+	 *            the ID of the phone line on hold
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void takeCall(int employeeID, int phoneLineID, long currentTime) {
+		employeePhoneLines[employeeID - 1] = phoneLineID;
+		lineEmployeeIDs[phoneLineID - 1] = employeeID;
+		lineConnectTimes[phoneLineID - 1] = currentTime;
+		int holdTime = getHoldTime(phoneLineID - 1, currentTime);
+		log.recordHoldTime(holdTime);
+		log.recordPhoneLineActiveTime(phoneLineID, holdTime);
+		addEmployeeDue(employeeID);
+	}
+	
+	/**
+	 * Ends an employee's call. The employee is returned to the available 
+	 * employees, and the phone line to the available phone lines.
+	 * 
+	 * @param employee
+	 *            the index of the employee
+	 * @param phoneLine
+	 *            the index of the employee's phone line
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void endCall(int employee, int phoneLine, long currentTime) {
+		int customerID = lineCustomerIDs[phoneLine];
+		int callLength = employeeCallLengths[employee];
+		log.recordPhoneLineActiveTime(phoneLine + 1, callLength);
+		log.recordCall(linePlacedTimes[phoneLine], customerID, phoneLine + 1, employee + 1, 
+				(int) (lineConnectTimes[phoneLine] - linePlacedTimes[phoneLine]), (int) (currentTime - lineConnectTimes[phoneLine]), 
+				lineCallLengths[phoneLine], lineCallTypes[phoneLine], CallRecordLog.COMPLETED);
+		
+		// The employee's part of the completed call
+		log.recordEvent(EventType.CALL_COMPLETED, customerID, employee + 1, callLength);
+		log.recordSuccessfulCall();
+		log.recordEmployeeActiveTime(employee + 1, callLength);
+		employeePhoneLines[employee] = 0;
+		employeeCallLengths[employee] = 0;
+		callCompletionTimes[employee] = -1;
+		availableEmployees.add(employee + 1);
+		busyEmployees--;
+		recordLevels();
+		
+		lineCustomerIDs[phoneLine] = 0;
+		lineCallLengths[phoneLine] = 0;
+		lineEmployeeIDs[phoneLine] = 0;
+		linePlacedTimes[phoneLine] = -1;
+		lineConnectTimes[phoneLine] = -1;
+		lineReleased(phoneLine);
+	}
+	
+	/**
+	 * Hangs up the customer on hold on a phone line. Total hold time is 
+	 * recorded and logged.
+	 * 
+	 * @param phoneLine
+	 *            the index of the phone line
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 */
+	private void hangUp(int phoneLine, long currentTime) {
+		int customerID = lineCustomerIDs[phoneLine];
+		log.recordCall(linePlacedTimes[phoneLine], customerID, phoneLine + 1, 0, (int) (currentTime - linePlacedTimes[phoneLine]), 0, 
+				lineCallLengths[phoneLine], lineCallTypes[phoneLine], CallRecordLog.HUNG_UP);
+		lineCustomerIDs[phoneLine] = 0;
+		lineCallLengths[phoneLine] = 0;
+		log.recordHangUp();
+		int holdTime = getHoldTime(phoneLine, currentTime);
+		log.recordHoldTime(holdTime);
+		log.recordPhoneLineActiveTime(phoneLine + 1, holdTime);
+		linePlacedTimes[phoneLine] = -1;
+		callsOnHold--;
+		if(callsOnHold == 0) // Drop the calls left in the queue, which have all hung up
+			clearCallsOnHold();
+		lineReleased(phoneLine);
+		log.recordEvent(EventType.HUNG_UP, customerID, 0, linePatience[phoneLine]);
+	}
+	
+	/**
+	 * Returns a phone line to the available phone lines and has the phone 
+	 * manager's part run on the next tick.
+	 * 
+	 * @param phoneLine
+	 *            the index of the phone line
+	 */
+	private void lineReleased(int phoneLine) {
+		availablePhoneLines.add(phoneLine + 1);
+		managerTickDue = true;
+		recordLevels();
+	}
+	
+	/**
+	 * Adds a call to the end of the queue of calls on hold.
+	 * 
+	 * @param customerID
+	 *            the ID of the customer on hold
+	 * @param phoneLineID
+	 *            the ID of the phone line on hold
+	 */
+	private void addCallOnHold(int customerID, int phoneLineID) {
+		if(holdSize == holdCustomerIDs.length) { // Grow, moving the queue to the front
+			int[] customers = new int[holdSize * 2];
+			int[] lines = new int[holdSize * 2];
+			for(int i = 0; i < holdSize; i++) {
+				customers[i] = holdCustomerIDs[(holdHead + i) % holdSize];
+				lines[i] = holdLineIDs[(holdHead + i) % holdSize];
+			}
+			holdCustomerIDs = customers;
+			holdLineIDs = lines;
+			holdHead = 0;
+		}
+		int tail = (holdHead + holdSize) % holdCustomerIDs.length;
+		holdCustomerIDs[tail] = customerID;
+		holdLineIDs[tail] = phoneLineID;
+		holdSize++;
+		callsOnHold++;
+	}
+	
+	/**
+	 * Removes and returns the phone line of the oldest call still on hold, 
+	 * passing over the calls whose customers have hung up. There must be 
+	 * a call on hold.
+	 * 
+	 * @return int
+	 *            the ID of the phone line
+	 */
+	private int pollCallOnHold() {
+		while(true) {
+			int customerID = holdCustomerIDs[holdHead];
+			int phoneLineID = holdLineIDs[holdHead];
+			holdHead = (holdHead + 1) % holdCustomerIDs.length;
+			holdSize--;
+			if(lineCustomerIDs[phoneLineID - 1] == customerID && lineEmployeeIDs[phoneLineID - 1] == 0) {
+				callsOnHold--;
+				if(callsOnHold == 0) // Drop the calls left in the queue, which have all hung up
+					clearCallsOnHold();
+				return phoneLineID;
+			}
+		}
+	}
+	
+	/**
+	 * Empties the queue of calls on hold.
+	 */
+	private void clearCallsOnHold() {
+		holdHead = 0;
+		holdSize = 0;
+	}
+	
+	/**
+	 * Adds an employee to the employees due on this tick.
+	 * 
+	 * @param employeeID
+	 *            the ID of the employee
+	 */
+	private void addEmployeeDue(int employeeID) {
+		if(employeesDueCount == employeesDue.length)
+			employeesDue = Arrays.copyOf(employeesDue, employeesDueCount * 2);
+		employeesDue[employeesDueCount++] = employeeID;
+	}
+	
+	/**
+	 * Adds a call to the customers calling on this tick, without counting 
+	 * the customer, as for a call read from a checkpoint.
+	 * 
+	 * @param customerID
+	 *            the customer's id
+	 * @param expectedCallLength
+	 *            the expected length of the service call
+	 * @param patience
+	 *            the number of seconds the customer remains on hold
+	 * @param callType
+	 *            the type of the call
+	 * @param transferred
+	 *            true if the call was transferred from another call center
+	 */
+	private void addArrivingCall(int customerID, int expectedCallLength, int patience, int callType, boolean transferred) {
+		if(arrivingCount == arrivingCustomerIDs.length) {
+			arrivingCustomerIDs = Arrays.copyOf(arrivingCustomerIDs, arrivingCount * 2);
+			arrivingCallLengths = Arrays.copyOf(arrivingCallLengths, arrivingCount * 2);
+			arrivingPatience = Arrays.copyOf(arrivingPatience, arrivingCount * 2);
+			arrivingCallTypes = Arrays.copyOf(arrivingCallTypes, arrivingCount * 2);
+			arrivingTransferred = Arrays.copyOf(arrivingTransferred, arrivingCount * 2);
+		}
+		arrivingCustomerIDs[arrivingCount] = customerID;
+		arrivingCallLengths[arrivingCount] = expectedCallLength;
+		arrivingPatience[arrivingCount] = patience;
+		arrivingCallTypes[arrivingCount] = callType;
+		arrivingTransferred[arrivingCount] = transferred;
+		arrivingCount++;
+	}
+	
+	/**
+	 * Schedules the call center to be ticked on the current tick, for the 
+	 * customers calling on it to place their calls.
+	 */
+	private void scheduleArrivals() {
+		if(scheduledTime != clock.getTime()) {
+			clock.scheduleTick(this, clock.getTime());
+			scheduledTime = clock.getTime();
+		}
+	}
+	
+	/**
+	 * Returns the number of clock minutes that have begun since the 
+	 * customer on a phone line was placed on hold.
+	 * 
+	 * @param phoneLine
+	 *            the index of the phone line
+	 * @param currentTime
+	 *            the current time within the simulation         
+	 * @return int
+	 *            the hold time in minutes
+	 */
+	private int getHoldTime(int phoneLine, long currentTime) {
+		return (int) (currentTime / 60 - linePlacedTimes[phoneLine] / 60);
+	}
+	
+	/**
+	 * Returns the time of the first tick at or after the given time, as the 
+	 * Clock rounds scheduled ticks, so that the heaps order their entries 
+	 * by tick.
+	 * 
+	 * @param time
+	 *            the time, in seconds since the epoch
+	 * @return long
+	 *            the time of the tick
+	 */
+	private long getTickTime(long time) {
+		int secondsPerTick = clock.getSecondsPerTick();
+		long ticks = (time - openingTime + secondsPerTick - 1) / secondsPerTick;
+		return openingTime + Math.max(ticks, 0) * secondsPerTick;
+	}
+	
+	/**
+	 * Records the number of calls on hold, phonelines in use and employees 
+	 * on a call with the Log.
+	 */
+	private void recordLevels() {
+		log.recordLevels(callsOnHold, numberOfPhoneLines - availablePhoneLines.size(), busyEmployees);
+	}
+	
+	/**
+	 * A queue of IDs, lowest first, kept as a binary heap in an array.
+	 */
+	private static class IdHeap {
+		
+		private int[] ids;
+		private int size;
+		
+		private IdHeap(int capacity) {
+			ids = new int[Math.max(capacity, 1)];
+			size = 0;
+		}
+		
+		private boolean isEmpty() {
+			return size == 0;
+		}
+		
+		private int size() {
+			return size;
+		}
+		
+		private void add(int id) {
+			if(size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			int i = size++;
+			while(i > 0 && ids[(i - 1) >>> 1] > id) {
+				ids[i] = ids[(i - 1) >>> 1];
+				i = (i - 1) >>> 1;
+			}
+			ids[i] = id;
+		}
+		
+		private int poll() {
+			int first = ids[0];
+			int last = ids[--size];
+			int i = 0;
+			while(2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if(child + 1 < size && ids[child + 1] < ids[child])
+					child++;
+				if(last <= ids[child])
+					break;
+				ids[i] = ids[child];
+				i = child;
+			}
+			ids[i] = last;
+			return first;
+		}
+		
+		private void writeState(DataOutput out) throws IOException {
+			out.writeInt(size);
+			for(int i = 0; i < size; i++)
+				out.writeInt(ids[i]);
+		}
+		
+		private void readState(DataInput in) throws IOException {
+			size = in.readInt();
+			if(size > ids.length)
+				ids = new int[size];
+			for(int i = 0; i < size; i++)
+				ids[i] = in.readInt();
+		}
+	}
+	
+	/**
+	 * A queue of entries due on a tick, ordered by the time of the tick and 
+	 * then by ID, each holding a value, kept as a binary heap in parallel 
+	 * arrays.
+	 */
+	private static class TickHeap {
+		
+		private long[] times;
+		private int[] ids;
+		private int[] values;
+		private int size;
+		
+		private TickHeap(int capacity) {
+			times = new long[capacity];
+			ids = new int[capacity];
+			values = new int[capacity];
+			size = 0;
+		}
+		
+		private boolean isEmpty() {
+			return size == 0;
+		}
+		
+		private long peekTime() {
+			return times[0];
+		}
+		
+		private int peekID() {
+			return ids[0];
+		}
+		
+		private void add(long time, int id, int value) {
+			if(size == times.length) {
+				times = Arrays.copyOf(times, size * 2);
+				ids = Arrays.copyOf(ids, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			int i = size++;
+			while(i > 0 && isBefore(time, id, (i - 1) >>> 1)) {
+				move((i - 1) >>> 1, i);
+				i = (i - 1) >>> 1;
+			}
+			times[i] = time;
+			ids[i] = id;
+			values[i] = value;
+		}
+		
+		private int poll() {
+			int first = values[0];
+			size--;
+			long time = times[size];
+			int id = ids[size];
+			int value = values[size];
+			int i = 0;
+			while(2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if(child + 1 < size && isBefore(times[child + 1], ids[child + 1], child))
+					child++;
+				if(!isBefore(times[child], ids[child], time, id))
+					break;
+				move(child, i);
+				i = child;
+			}
+			times[i] = time;
+			ids[i] = id;
+			values[i] = value;
+			return first;
+		}
+		
+		private boolean isBefore(long time, int id, int i) {
+			return isBefore(time, id, times[i], ids[i]);
+		}
+		
+		private boolean isBefore(long time, int id, long otherTime, int otherID) {
+			return time < otherTime || (time == otherTime && id < otherID);
+		}
+		
+		private void move(int from, int to) {
+			times[to] = times[from];
+			ids[to] = ids[from];
+			values[to] = values[from];
+		}
+		
+		private void writeState(DataOutput out) throws IOException {
+			out.writeInt(size);
+			for(int i = 0; i < size; i++) {
+				out.writeLong(times[i]);
+				out.writeInt(ids[i]);
+				out.writeInt(values[i]);
+			}
+		}
+		
+		private void readState(DataInput in) throws IOException {
+			size = in.readInt();
+			if(size > times.length) {
+				times = new long[size];
+				ids = new int[size];
+				values = new int[size];
+			}
+			for(int i = 0; i < size; i++) {
+				times[i] = in.readLong();
+				ids[i] = in.readInt();
+				values[i] = in.readInt();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class reads call records from a text file of comma separated 
+ * values. The required parameter for creating a CsvCallTrace object is a 
+ * string, the name of the file to read. Each line holds the arrival time 
+ * (in seconds since the epoch), the call length (in minutes) and the 
+ * patience (in seconds) of a call, in that order, as whole numbers. Lines 
+ * which do not begin with a digit, such as a header line, are skipped. The 
+ * numbers are parsed directly from the mapped bytes of the file, without 
+ * creating a String for each line.
+ * 
+ * @author Brett Crawford
+ */
+public class CsvCallTrace extends CallTrace {
+	
+	/** The longest line which is guaranteed to be read from a single window **/
+	private static final int MAX_LINE_LENGTH = 1024;
+	
+	/**
+	 * Creates a CsvCallTrace object with the specified parameters.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to read
+	 */
+	public CsvCallTrace(String theFileName) {
+		super(theFileName);
+	}
+	
+	/**
+	 * Parses the next line holding a record.
+	 * 
+	 * @return boolean
+	 *            true if a record was read, false at the end of the file
+	 */
+	protected boolean readRecord() {
+		while(true) {
+			ByteBuffer in = getWindow(MAX_LINE_LENGTH);
+			if(!in.hasRemaining())
+				return false;
+			
+			byte first = in.get(in.position());
+			if(first < '0' || first > '9') { // Header or blank line
+				skipLine(in);
+				continue;
+			}
+			
+			long lineStart = getPosition();
+			long arrivalTime = readNumber(in);
+			long callLength = readNumber(in);
+			long patience = readNumber(in);
+			if(arrivalTime < 0 || callLength < 0 || patience < 0)
+				throw new IllegalStateException("Malformed call record at byte " + lineStart + " of " + getFileName());
+			skipLine(in);
+			setRecord(arrivalTime, (int) callLength, (int) patience);
+			return true;
+		}
+	}
+	
+	/**
+	 * Reads a whole number and the comma following it, if any.
+	 * 
+	 * @param in
+	 *            the buffer positioned at the number
+	 * @return long
+	 *            the number, or -1 if no digits were found
+	 */
+	private static long readNumber(ByteBuffer in) {
+		long value = -1;
+		while(in.hasRemaining()) {
+			byte b = in.get();
+			if(b >= '0' && b <= '9')
+				value = (value < 0 ? 0 : value * 10) + (b - '0');
+			else if(b == ',')
+				break;
+			else if(b != ' ') {
+				in.position(in.position() - 1); // Leave the end of the line
+				break;
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Moves past the end of the current line.
+	 * 
+	 * @param in
+	 *            the buffer positioned within the line
+	 */
+	private void skipLine(ByteBuffer in) {
+		while(true) {
+			while(in.hasRemaining()) {
+				if(in.get() == '\n')
+					return;
+			}
+			in = getWindow(MAX_LINE_LENGTH); // Line continues into the next window
+			if(!in.hasRemaining())
+				return;
+		}
+	}
+}
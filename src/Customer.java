@@ -1,96 +1,275 @@
 
 
-import java.text.DecimalFormat;
-import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * This class represents a customer within the call center simulation. Each 
  * customer is assigned an identification number based on the order in which 
  * it is created. The required parameters for creating a Customer object 
- * include: a reference to the Log, to keep track of customer statistics; 
- * a reference to the PhoneManager, to assign the customer a PhoneManager 
- * to call; and an integer, to represent the length of the customers 
- * specific call. When the Customer is created, it will attempt to call 
- * the PhoneManager on the first call to the interfaced clockTicked method. 
- * The call to the PhoneManager will result in either a busy signal or a 
- * successful connection to a PhoneLine. If a busy signal is received, 
- * the customer will no longer attempt to connect to the PhoneManager. If 
- * the connection is successful, the customer will remain on the line for 
- * up to 10 minutes on hold before hanging up. After hanging up, the 
- * customer will no longer attempt to call the service center. Each 
- * customer records, with the Log object, their creation and any 
- * successfully placed call events, a busy signal received events, or 
- * hang up events.
+ * include: an integer, the customer's identification number; a reference 
+ * to the Log, to keep track of customer statistics; a reference to the 
+ * PhoneManager, to assign the customer a PhoneManager to call; and an 
+ * integer, to represent the length of the customers specific call. When 
+ * the Customer is created, it will attempt to call the PhoneManager on the 
+ * first call to the interfaced clockTicked method. The call to the 
+ * PhoneManager will result in either a busy signal or a successful 
+ * connection to a PhoneLine, where the customer waits on hold until the 
+ * call is taken or their patience runs out. Once the customer is finished 
+ * with the call center, it removes itself from the Clock. Each customer 
+ * records, with the Log object, their creation and any successfully placed 
+ * call events, a busy signal received events, or hang up events. The state 
+ * of a customer can be written to a checkpoint and a customer recreated 
+ * from it.
  * 
  * @author Brett Crawford
  */
 public class Customer implements ClockManaged, CallParticipant{
 	
-	private static int lastID = 0;
-	private static DecimalFormat fmt2 = new DecimalFormat("00");
-	private static DecimalFormat fmt3 = new DecimalFormat("000");
+	/** The number of seconds a customer remains on hold unless told otherwise **/
+	public static final int DEFAULT_PATIENCE = 10 * 60;
 	
 	private int id;
 	private boolean attemptingCall;
 	private int expectedCallLength;
-	private Calendar hangUpTime;
+	private int patience;
+	private int callType;
+	private boolean transferred;
+	private boolean calledBack;
+	private long hangUpTime;
 	private Log log;
+	private Clock clock;
 	private PhoneManager phoneManager;
 	private PhoneLine phoneLine;
 	
 	/**
 	 * Creates a Customer object with the specified parameters.
 	 * 
+	 * @param theID
+	 *            the identification number of the customer
 	 * @param theLog
 	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
 	 * @param thePhoneManager
 	 *            the PhoneManager to be used to make calls
 	 * @param theExpectedCallLength
 	 *            The expected length of the service call to be made by the customer          
 	 */
-	public Customer(Log theLog, PhoneManager thePhoneManager, int theExpectedCallLength) {
-		id = ++lastID;
+	public Customer(int theID, Log theLog, Clock theClock, PhoneManager thePhoneManager, int theExpectedCallLength) {
+		this(theID, theLog, theClock, thePhoneManager, theExpectedCallLength, DEFAULT_PATIENCE, 0);
+	}
+	
+	/**
+	 * Creates a Customer object with the specified parameters, patience 
+	 * and call type.
+	 * 
+	 * @param theID
+	 *            the identification number of the customer
+	 * @param theLog
+	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param thePhoneManager
+	 *            the PhoneManager to be used to make calls
+	 * @param theExpectedCallLength
+	 *            The expected length of the service call to be made by the customer          
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold before 
+	 *            hanging up, by default 10 minutes
+	 * @param theCallType
+	 *            the type of the call to be made by the customer, which 
+	 *            decides the employees who may take it
+	 */
+	public Customer(int theID, Log theLog, Clock theClock, PhoneManager thePhoneManager, int theExpectedCallLength, int thePatience, int theCallType) {
+		this(theID, theLog, theClock, thePhoneManager, theExpectedCallLength, thePatience, theCallType, false);
+	}
+	
+	/**
+	 * Creates a Customer object with the specified parameters, patience 
+	 * and call type, for a customer who may have called before. A customer 
+	 * who calls again, or is called back, is given a new Customer object 
+	 * with the same ID by the PhoneManager, which is not counted again.
+	 * 
+	 * @param theID
+	 *            the identification number of the customer
+	 * @param theLog
+	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param thePhoneManager
+	 *            the PhoneManager to be used to make calls
+	 * @param theExpectedCallLength
+	 *            The expected length of the service call to be made by the customer          
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold before hanging up
+	 * @param theCallType
+	 *            the type of the call to be made by the customer
+	 * @param theRetrial
+	 *            true if the customer has called before, and so is not 
+	 *            counted again, otherwise false
+	 */
+	public Customer(int theID, Log theLog, Clock theClock, PhoneManager thePhoneManager, int theExpectedCallLength, int thePatience, int theCallType, 
+			boolean theRetrial) {
+		id = theID;
 		attemptingCall = true;
 		expectedCallLength = theExpectedCallLength;
-		hangUpTime = null;
+		patience = thePatience;
+		callType = theCallType;
+		transferred = false;
+		calledBack = false;
+		hangUpTime = -1;
 		log = theLog;
+		clock = theClock;
 		phoneManager = thePhoneManager;
 		phoneLine = null;
 		
-		log.recordCustomer();
+		if(!theRetrial)
+			log.recordCustomer();
 	}
 	
 	/**
-	 * Simulates the passage of time using the time parameter received
+	 * Recreates a customer written to a checkpoint by writeState. The 
+	 * customer is not added to the clock.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param theLog
+	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param thePhoneManager
+	 *            the PhoneManager to be used to make calls, and from which 
+	 *            the customer's phoneline is found
+	 * @return Customer
+	 *            the customer read
+	 */
+	public static Customer readState(DataInput in, Log theLog, Clock theClock, PhoneManager thePhoneManager) throws IOException {
+		Customer customer = new Customer(in.readInt(), theLog, theClock, thePhoneManager, in.readInt(), in.readInt(), in.readInt());
+		customer.attemptingCall = in.readBoolean();
+		customer.transferred = in.readBoolean();
+		customer.calledBack = in.readBoolean();
+		customer.hangUpTime = in.readLong();
+		int phoneLineID = in.readInt();
+		customer.phoneLine = phoneLineID == 0 ? null : thePhoneManager.getPhoneLine(phoneLineID);
+		return customer;
+	}
+	
+	/**
+	 * Writes the state of the customer to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(id);
+		out.writeInt(expectedCallLength);
+		out.writeInt(patience);
+		out.writeInt(callType);
+		out.writeBoolean(attemptingCall);
+		out.writeBoolean(transferred);
+		out.writeBoolean(calledBack);
+		out.writeLong(hangUpTime);
+		out.writeInt(phoneLine == null ? 0 : phoneLine.getID());
+	}
+	
+	/**
+	 * Sets whether the customer's call was transferred from another call 
+	 * center, in which case it is not sent on again if the lines are busy.
+	 * 
+	 * @param theTransferred
+	 *            true if the call was transferred, otherwise false
+	 */
+	public void setTransferred(boolean theTransferred) {
+		transferred = theTransferred;
+	}
+	
+	/**
+	 * Called by the PhoneManager when the customer has been called back on 
+	 * the given phoneline, which the customer has already been connected to. 
+	 * A customer who has been called back is not offered a callback again.
+	 * 
+	 * @param thePhoneLine
+	 *            the phoneline the customer was called back on
+	 */
+	public void calledBack(PhoneLine thePhoneLine) {
+		phoneLine = thePhoneLine;
+		calledBack = true;
+	}
+	
+	/**
+	 * Returns the identification number of the customer.
+	 * 
+	 * @return int
+	 *            the ID of the customer
+	 */
+	public int getID() {
+		return id;
+	}
+	
+	/**
+	 * Simulates the passage of time using the time parameter received. On 
+	 * the first tick the customer calls the PhoneManager. If every line is 
+	 * busy, the call is sent on to another call center by the PhoneManager's 
+	 * CallOverflow, unless it was itself transferred, and otherwise the 
+	 * customer receives a busy signal. Once on hold, the customer may ask to 
+	 * be called back, and leave the line, if the PhoneManager's 
+	 * requestCallback method agrees; otherwise they hang up once their 
+	 * patience runs out. Each event is recorded with the Log.
 	 * 
 	 * @param currentTime
 	 *            the current time within the simulation         
 	 */
-	public void clockTicked(Calendar currentTime) {
+	public void clockTicked(long currentTime) {
 		
 		if(attemptingCall) {
 			if(phoneLine == null) { // Get phone line on first clock tick
-				phoneLine = phoneManager.directCall(this, id, expectedCallLength);
+				phoneLine = phoneManager.directCall(this, id, expectedCallLength, callType);
+				log.recordArrival();
 				if(phoneLine != null) {
-					log.recordEvent("Customer ID: " + fmt3.format(id) + " - " + fmt2.format(expectedCallLength) + " minute service call placed.\n");
+					clock.scheduleNextTick(this);
+					log.recordEvent(EventType.CALL_PLACED, id, 0, expectedCallLength);
+				}
+				else if(!transferred && phoneManager.overflowCall(id, expectedCallLength, patience, callType)) {
+					attemptingCall = false;
+					// Call sent on to another call center
+					log.recordOverflow();
+					log.recordCall(currentTime, id, 0, 0, 0, 0, expectedCallLength, callType, CallRecordLog.OVERFLOWED);
+					log.recordEvent(EventType.CALL_OVERFLOWED, id, 0, 0);
+					clock.removeManagedItem(this);
 				}
 				else {
 					attemptingCall = false;
 					// Call not taken, busy signal
 					log.recordBusySignal();
-					log.recordEvent("Customer ID: " + fmt3.format(id) + " - Busy signal when attempting to call. Hung up.\n");
+					log.recordCall(currentTime, id, 0, 0, 0, 0, expectedCallLength, callType, CallRecordLog.BUSY_SIGNAL);
+					log.recordEvent(EventType.BUSY_SIGNAL, id, 0, 0);
+					clock.removeManagedItem(this);
+					redial();
 				}
 			}
 			else {
-				if(hangUpTime == null) { // Determine hang up time once phoneLine has been established
-					hangUpTime = (Calendar) currentTime.clone();
-					hangUpTime.add(Calendar.MINUTE, 10); // Customer hangs up 10 minutes from time of call placed
+				if(hangUpTime == -1) { // Determine hang up time once phoneLine has been established
+					hangUpTime = currentTime + patience; // Customer hangs up once out of patience from time of call placed
+					if(!calledBack && phoneLine.isOnHold() && phoneManager.requestCallback(id, expectedCallLength, patience, callType, transferred)) {
+						// Leave the line to be called back
+						phoneLine.releaseForCallback();
+						attemptingCall = false;
+						log.recordCallback();
+						log.recordEvent(EventType.CALLBACK_REQUESTED, id, 0, 0);
+						clock.removeManagedItem(this);
+					}
+					else
+						clock.scheduleTick(this, hangUpTime);
 				}
 				
-				if(phoneLine.isOnHold() && (currentTime.equals(hangUpTime) || currentTime.after(hangUpTime))) {
+				if(attemptingCall && phoneLine.isOnHold() && currentTime >= hangUpTime) {
 					phoneLine.hangUp();
 					attemptingCall = false;
-					log.recordEvent("Customer ID: " + fmt3.format(id) + " - On hold for more than 10 minutes. Hung up.\n");
+					log.recordEvent(EventType.HUNG_UP, id, 0, patience);
+					clock.removeManagedItem(this);
+					redial();
 				}
 			}
 		}
@@ -100,9 +279,23 @@ public class Customer implements ClockManaged, CallParticipant{
 	 * Called when the service call has completed      
 	 */
 	public void callCompleted() {
+		clock.removeManagedItem(this);
 		attemptingCall = false;
-		hangUpTime = null;
+		hangUpTime = -1;
 		phoneManager = null;
 		phoneLine = null;
 	}
+	
+	/**
+	 * Asks the PhoneManager whether the customer, who received a busy signal 
+	 * or hung up, will call again, and if so records the redial. The 
+	 * PhoneManager creates the customer's new call after the delay it gives.
+	 */
+	private void redial() {
+		int redialDelay = phoneManager.redialCall(id, expectedCallLength, patience, callType, transferred);
+		if(redialDelay >= 0) {
+			log.recordRedial();
+			log.recordEvent(EventType.REDIAL_SCHEDULED, id, 0, redialDelay);
+		}
+	}
 }
@@ -0,0 +1,698 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * This class represents the source of incoming customers within the call
+ * center simulation. The required parameters for creating a CustomerGenerator
+ * object include: a reference to the Clock, to time the customers created; a
+ * reference to the CallCenter, for the customers to call; a Random, to
+ * determine when customers call; a Random, to determine the length of their
+ * calls; a float, the probability per tick that a customer will call; and two
+ * integers, the minimum and maximum expected call lengths. Customers are
+ * numbered in the order they are created, and each is given to the
+ * CallCenter as it calls, which places the call on the same tick.
+ *
+ * In tick mode, attemptCall is used once before every tick of the clock. In
+ * event-driven mode the generator is added to the clock ahead of every other
+ * item and draws the per-tick chances ahead of time, scheduling itself only
+ * for the ticks on which a customer calls. The chances and the call lengths are
+ * drawn from separate streams, each in the same order in both modes, so that a
+ * given seed produces the same customers.
+ *
+ * When given an ArrivalProfile, the generator instead samples the time between
+ * calls directly from the profile, so no random value is drawn on a tick
+ * without a call and any number of customers may call within a single tick.
+ * The times of the upcoming calls are drawn in batches ahead of the clock, and
+ * each customer is created on the first tick at or after its call. In
+ * event-driven mode the generator schedules itself only for those ticks.
+ *
+ * When given a CallTrace, the generator replays the historical calls of the
+ * trace in the same way, reading each record only when the clock reaches it.
+ * Each customer asks for the call length and has the patience of its record,
+ * and no random values are drawn for the customers at all.
+ *
+ * When live, the generator creates no customers of its own. Instead the
+ * calls of a live call center are offered to it as they arrive, with their
+ * call lengths and patience where known, and each is replayed in the same
+ * way as a record of a CallTrace. A live generator may later be switched to
+ * forecast the rest of the shift from an ArrivalProfile, drawing calls from
+ * the current time on.
+ *
+ * Calls sent on from another call center of a fleet are given to the
+ * generator with transferCall, whatever its source of calls. Each is given to
+ * the CallCenter with callTransferred on the first tick at or after it
+ * arrives, ahead of the generator's own customers on that tick, and is
+ * numbered along with them.
+ *
+ * When given a mix of call types, the type of each customer's call is drawn
+ * from the mix using a separate stream, so that the calls themselves are the
+ * same as without the mix. Otherwise every call is of type 0.
+ *
+ * When given a PatienceDistribution, the patience of each generated customer,
+ * and of each live customer whose patience is not known, is drawn from the
+ * distribution using a separate stream. Otherwise such customers have the
+ * default patience.
+ *
+ * The state of the generator, including any calls drawn ahead of the clock,
+ * the live and transferred calls not yet replayed and the position in the
+ * CallTrace, can be written to a checkpoint and read
+ * back. The random streams are checkpointed by their owner.
+ *
+ * @author Brett Crawford
+ */
+public class CustomerGenerator implements ClockManaged {
+
+	/** The number of call times drawn from an ArrivalProfile at once **/
+	private static final int ARRIVAL_BATCH = 64;
+
+	private int lastCustomerID;
+	private float callProbability;
+	private int expectedDurationMin;
+	private int expectedDurationMax;
+	private boolean arrivalPending;
+	private long nextAttemptTime;
+	private long openingTime;
+	private ArrivalProfile arrivalProfile;
+	private double lastArrival;
+	private long[] arrivalTimes;
+	private int nextArrival;
+	private int arrivalCount;
+	private double[] callTypeWeights;
+	private PatienceDistribution patienceDistribution;
+	private CallTrace callTrace;
+	private long traceOffset;
+	private long traceArrival;
+	private boolean traceRecordLoaded;
+	private boolean traceExhausted;
+	private boolean live;
+	private long[] liveTimes;
+	private int[] liveCallLengths;
+	private int[] livePatience;
+	private int nextLiveCall;
+	private int liveCallCount;
+	private long[] transferTimes;
+	private int[] transferCallLengths;
+	private int[] transferPatience;
+	private int[] transferCallTypes;
+	private int nextTransfer;
+	private int transferCount;
+	private Clock clock;
+	private CallCenter callCenter;
+	private Random arrivalRand;
+	private Random durationRand;
+	private Random typeRand;
+	private Random patienceRand;
+
+	/**
+	 * Creates a CustomerGenerator object with the specified parameters.
+	 *
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param theCallCenter
+	 *            the CallCenter the customers will call
+	 * @param theArrivalRand
+	 *            the RNG used for call probabilities
+	 * @param theDurationRand
+	 *            the RNG used for expected call durations
+	 * @param theCallProbability
+	 *            the probability (per tick) that a customer will be created
+	 * @param theExpectedDurationMin
+	 *            the minimum length (in minutes) of a call from a customer
+	 * @param theExpectedDurationMax
+	 *            the maximum length (in minutes) of a call from a customer
+	 */
+	public CustomerGenerator(Clock theClock, CallCenter theCallCenter, Random theArrivalRand, Random theDurationRand,
+			float theCallProbability, int theExpectedDurationMin, int theExpectedDurationMax) {
+		lastCustomerID = 0;
+		callProbability = theCallProbability;
+		expectedDurationMin = theExpectedDurationMin;
+		expectedDurationMax = theExpectedDurationMax;
+		arrivalPending = false;
+		nextAttemptTime = -1;
+		openingTime = theClock.getTime();
+		arrivalProfile = null;
+		lastArrival = 0;
+		arrivalTimes = new long[ARRIVAL_BATCH];
+		nextArrival = 0;
+		arrivalCount = 0;
+		callTypeWeights = null;
+		patienceDistribution = null;
+		callTrace = null;
+		traceOffset = 0;
+		traceArrival = -1;
+		traceRecordLoaded = false;
+		traceExhausted = false;
+		live = false;
+		liveTimes = new long[ARRIVAL_BATCH];
+		liveCallLengths = new int[ARRIVAL_BATCH];
+		livePatience = new int[ARRIVAL_BATCH];
+		nextLiveCall = 0;
+		liveCallCount = 0;
+		transferTimes = new long[ARRIVAL_BATCH];
+		transferCallLengths = new int[ARRIVAL_BATCH];
+		transferPatience = new int[ARRIVAL_BATCH];
+		transferCallTypes = new int[ARRIVAL_BATCH];
+		nextTransfer = 0;
+		transferCount = 0;
+		clock = theClock;
+		callCenter = theCallCenter;
+		arrivalRand = theArrivalRand;
+		durationRand = theDurationRand;
+		typeRand = null;
+		patienceRand = null;
+	}
+
+	/**
+	 * Sets the profile the times of calls are drawn from, replacing the
+	 * per-tick call probability. Must be set before the first tick.
+	 *
+	 * @param theArrivalProfile
+	 *            the rate at which customers call over the shift
+	 */
+	public void setArrivalProfile(ArrivalProfile theArrivalProfile) {
+		arrivalProfile = theArrivalProfile;
+	}
+
+	/**
+	 * Sets the mix of call types the types of calls are drawn from. Must be 
+	 * set before the first tick.
+	 *
+	 * @param theCallTypeMix
+	 *            the relative share of the calls of each type, indexed by type
+	 * @param theTypeRand
+	 *            the RNG used for call types
+	 */
+	public void setCallTypeMix(double[] theCallTypeMix, Random theTypeRand) {
+		double total = 0;
+		callTypeWeights = new double[theCallTypeMix.length];
+		for(int i = 0; i < theCallTypeMix.length; i++) {
+			if(theCallTypeMix[i] < 0)
+				throw new IllegalArgumentException("Share of call type " + i + " is negative");
+			total += theCallTypeMix[i];
+			callTypeWeights[i] = total;
+		}
+		if(total <= 0)
+			throw new IllegalArgumentException("Call type mix has no calls");
+		for(int i = 0; i < callTypeWeights.length; i++)
+			callTypeWeights[i] /= total;
+		typeRand = theTypeRand;
+	}
+
+	/**
+	 * Sets the distribution the patience of customers is drawn from. Must 
+	 * be set before the first tick.
+	 *
+	 * @param thePatienceDistribution
+	 *            the distribution of the patience of customers
+	 * @param thePatienceRand
+	 *            the RNG used for patience
+	 */
+	public void setPatienceDistribution(PatienceDistribution thePatienceDistribution, Random thePatienceRand) {
+		patienceDistribution = thePatienceDistribution;
+		patienceRand = thePatienceRand;
+	}
+
+	/**
+	 * Sets the trace of historical calls to replay, replacing the per-tick
+	 * call probability. Each call is replayed at the same time relative to
+	 * the opening of the call center as it arrived relative to the given
+	 * start time. Must be set before the first tick.
+	 *
+	 * @param theCallTrace
+	 *            the trace positioned at the first call to replay
+	 * @param theTraceStartTime
+	 *            the time in the trace, in seconds since the epoch, replayed
+	 *            as the opening of the call center
+	 */
+	public void setCallTrace(CallTrace theCallTrace, long theTraceStartTime) {
+		callTrace = theCallTrace;
+		traceOffset = openingTime - theTraceStartTime;
+	}
+
+	/**
+	 * Sets whether the generator is live, creating customers only for the
+	 * calls offered to it. Must be set before the first tick.
+	 *
+	 * @param theLive
+	 *            true to create customers only for offered calls
+	 */
+	public void setLive(boolean theLive) {
+		live = theLive;
+	}
+
+	/**
+	 * Offers the call of a live customer, to be replayed on the first tick at
+	 * or after the time it arrived. Calls must be offered in order of arrival.
+	 * A call length or patience which is not known is given as 0, and is
+	 * then drawn as for a generated customer.
+	 *
+	 * @param theArrivalTime
+	 *            the time the customer called, in seconds since the epoch
+	 * @param theCallLength
+	 *            the length (in minutes) of the call, or 0
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold, or 0
+	 */
+	public void offerCall(long theArrivalTime, int theCallLength, int thePatience) {
+		if(!live)
+			throw new IllegalStateException("Calls may only be offered to a live generator");
+		if(theCallLength < 0 || thePatience < 0)
+			throw new IllegalArgumentException("Call length and patience must not be negative");
+		if(liveCallCount > nextLiveCall && theArrivalTime < liveTimes[liveCallCount - 1])
+			throw new IllegalArgumentException("Live calls must be offered in order of arrival");
+
+		if(liveCallCount == liveTimes.length) { // Move the calls not yet replayed to the front, growing if full
+			int pending = liveCallCount - nextLiveCall;
+			int capacity = pending * 2 > liveTimes.length ? liveTimes.length * 2 : liveTimes.length;
+			liveTimes = moveCalls(liveTimes, new long[capacity], nextLiveCall, pending);
+			liveCallLengths = moveCalls(liveCallLengths, new int[capacity], nextLiveCall, pending);
+			livePatience = moveCalls(livePatience, new int[capacity], nextLiveCall, pending);
+			nextLiveCall = 0;
+			liveCallCount = pending;
+		}
+		liveTimes[liveCallCount] = theArrivalTime;
+		liveCallLengths[liveCallCount] = theCallLength;
+		livePatience[liveCallCount] = thePatience;
+		liveCallCount++;
+		clock.scheduleTick(this, theArrivalTime);
+	}
+
+	/**
+	 * Transfers a call sent on from another call center, to be given to the
+	 * CallCenter on the first tick at or after the time it arrives. Calls
+	 * must be transferred in order of arrival.
+	 *
+	 * @param theArrivalTime
+	 *            the time the call arrives, in seconds since the epoch
+	 * @param theCallLength
+	 *            the length (in minutes) of the call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void transferCall(long theArrivalTime, int theCallLength, int thePatience, int theCallType) {
+		if(transferCount > nextTransfer && theArrivalTime < transferTimes[transferCount - 1])
+			throw new IllegalArgumentException("Transferred calls must be given in order of arrival");
+
+		if(transferCount == transferTimes.length) { // Move the calls not yet given to the front, growing if full
+			int pending = transferCount - nextTransfer;
+			int capacity = pending * 2 > transferTimes.length ? transferTimes.length * 2 : transferTimes.length;
+			transferTimes = moveCalls(transferTimes, new long[capacity], nextTransfer, pending);
+			transferCallLengths = moveCalls(transferCallLengths, new int[capacity], nextTransfer, pending);
+			transferPatience = moveCalls(transferPatience, new int[capacity], nextTransfer, pending);
+			transferCallTypes = moveCalls(transferCallTypes, new int[capacity], nextTransfer, pending);
+			nextTransfer = 0;
+			transferCount = pending;
+		}
+		transferTimes[transferCount] = theArrivalTime;
+		transferCallLengths[transferCount] = theCallLength;
+		transferPatience[transferCount] = thePatience;
+		transferCallTypes[transferCount] = theCallType;
+		transferCount++;
+		clock.scheduleTick(this, theArrivalTime);
+	}
+
+	/**
+	 * Forecasts the rest of the shift from the given profile, drawing calls
+	 * from the current time on in place of the generator's current source of
+	 * calls. Any live calls not yet replayed are discarded.
+	 *
+	 * @param theArrivalProfile
+	 *            the rate at which customers are expected to call over the shift
+	 */
+	public void forecast(ArrivalProfile theArrivalProfile) {
+		live = false;
+		nextLiveCall = 0;
+		liveCallCount = 0;
+		callTrace = null;
+		arrivalProfile = theArrivalProfile;
+		lastArrival = clock.getTime() - openingTime;
+		nextArrival = 0;
+		arrivalCount = 0;
+		if(peekArrival() >= 0)
+			clock.scheduleTick(this, peekArrival());
+	}
+
+	/**
+	 * Writes the state of the generator to a checkpoint.
+	 *
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(lastCustomerID);
+		out.writeBoolean(arrivalPending);
+		out.writeLong(nextAttemptTime);
+		out.writeLong(openingTime);
+		out.writeDouble(lastArrival);
+		out.writeInt(arrivalCount - nextArrival);
+		for(int i = nextArrival; i < arrivalCount; i++)
+			out.writeLong(arrivalTimes[i]);
+		out.writeLong(traceOffset);
+		out.writeLong(traceArrival);
+		out.writeBoolean(traceRecordLoaded);
+		out.writeBoolean(traceExhausted);
+		out.writeBoolean(live);
+		out.writeInt(liveCallCount - nextLiveCall);
+		for(int i = nextLiveCall; i < liveCallCount; i++) {
+			out.writeLong(liveTimes[i]);
+			out.writeInt(liveCallLengths[i]);
+			out.writeInt(livePatience[i]);
+		}
+		out.writeInt(transferCount - nextTransfer);
+		for(int i = nextTransfer; i < transferCount; i++) {
+			out.writeLong(transferTimes[i]);
+			out.writeInt(transferCallLengths[i]);
+			out.writeInt(transferPatience[i]);
+			out.writeInt(transferCallTypes[i]);
+		}
+		if(callTrace != null)
+			callTrace.writeState(out);
+	}
+
+	/**
+	 * Replaces the state of the generator with that read from a checkpoint.
+	 * The arrival profile and call trace must be set as they were when the
+	 * checkpoint was written.
+	 *
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		lastCustomerID = in.readInt();
+		arrivalPending = in.readBoolean();
+		nextAttemptTime = in.readLong();
+		openingTime = in.readLong();
+		lastArrival = in.readDouble();
+		nextArrival = 0;
+		arrivalCount = in.readInt();
+		if(arrivalCount > ARRIVAL_BATCH)
+			throw new IllegalStateException("Checkpoint has " + arrivalCount + " calls drawn ahead, at most " + ARRIVAL_BATCH + " expected");
+		for(int i = 0; i < arrivalCount; i++)
+			arrivalTimes[i] = in.readLong();
+		traceOffset = in.readLong();
+		traceArrival = in.readLong();
+		traceRecordLoaded = in.readBoolean();
+		traceExhausted = in.readBoolean();
+		live = in.readBoolean();
+		nextLiveCall = 0;
+		liveCallCount = in.readInt();
+		if(liveCallCount > liveTimes.length) {
+			liveTimes = new long[liveCallCount];
+			liveCallLengths = new int[liveCallCount];
+			livePatience = new int[liveCallCount];
+		}
+		for(int i = 0; i < liveCallCount; i++) {
+			liveTimes[i] = in.readLong();
+			liveCallLengths[i] = in.readInt();
+			livePatience[i] = in.readInt();
+		}
+		nextTransfer = 0;
+		transferCount = in.readInt();
+		if(transferCount > transferTimes.length) {
+			transferTimes = new long[transferCount];
+			transferCallLengths = new int[transferCount];
+			transferPatience = new int[transferCount];
+			transferCallTypes = new int[transferCount];
+		}
+		for(int i = 0; i < transferCount; i++) {
+			transferTimes[i] = in.readLong();
+			transferCallLengths[i] = in.readInt();
+			transferPatience[i] = in.readInt();
+			transferCallTypes[i] = in.readInt();
+		}
+		if(callTrace != null)
+			callTrace.readState(in);
+	}
+
+	/**
+	 * Gives a customer the chance to call before the next tick of the clock.
+	 * If the random float falls within the call probability range and the call
+	 * center is open, a customer is created. With an ArrivalProfile, a
+	 * CallTrace or live calls, every customer whose call falls before the
+	 * next tick is created instead. Any transferred calls which arrive
+	 * before the next tick are given to the CallCenter first.
+	 */
+	public void attemptCall() {
+		createTransfers(clock.getTime() + clock.getSecondsPerTick());
+		if(live || arrivalProfile != null || callTrace != null) {
+			createArrivals(clock.getTime() + clock.getSecondsPerTick());
+			return;
+		}
+
+		if(arrivalRand.nextFloat() < callProbability && callCenter.isCallCenterOpen())
+			createCustomer();
+	}
+
+	/**
+	 * Simulates the passage of time using the time parameter received. Gives
+	 * the CallCenter any transferred calls due on this tick, creates the
+	 * customer due on this tick, if any, then draws the chances of the
+	 * following ticks until a customer calls or the call center will have closed.
+	 *
+	 * @param currentTime
+	 *            the current time within the simulation
+	 */
+	public void clockTicked(long currentTime) {
+		createTransfers(currentTime);
+		
+		if(live || arrivalProfile != null || callTrace != null) {
+			createArrivals(currentTime);
+			if(peekArrival() >= 0)
+				clock.scheduleTick(this, peekArrival());
+			return;
+		}
+
+		if(nextAttemptTime < 0) // First tick, begin drawing chances from this tick
+			nextAttemptTime = currentTime;
+
+		if(arrivalPending) {
+			if(currentTime < nextAttemptTime - clock.getSecondsPerTick())
+				return; // Ticked for a transferred call, ahead of the customer due
+			arrivalPending = false;
+			if(!callCenter.isCallCenterOpen())
+				return;
+			createCustomer();
+		}
+
+		// A customer may call before each tick up to the first tick after closing
+		long lastAttemptTime = callCenter.getClosingTime() + clock.getSecondsPerTick();
+		while(nextAttemptTime <= lastAttemptTime) {
+			long attemptTime = nextAttemptTime;
+			nextAttemptTime += clock.getSecondsPerTick();
+			if(arrivalRand.nextFloat() < callProbability) {
+				if(attemptTime == currentTime) {
+					if(callCenter.isCallCenterOpen())
+						createCustomer();
+				}
+				else {
+					arrivalPending = true;
+					clock.scheduleTick(this, attemptTime);
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Consumes the calls drawn from the ArrivalProfile, read from the
+	 * CallTrace or offered live up to the given time, creating a customer for
+	 * each if the call center is open.
+	 *
+	 * @param time
+	 *            the time up to which calls are consumed
+	 */
+	private void createArrivals(long time) {
+		boolean open = callCenter.isCallCenterOpen();
+		long arrival = peekArrival();
+		while(arrival >= 0 && arrival <= time) {
+			if(open && live)
+				createCustomer(liveCallLengths[nextLiveCall] > 0 ? liveCallLengths[nextLiveCall] : drawCallLength(),
+						livePatience[nextLiveCall] > 0 ? livePatience[nextLiveCall] : drawPatience());
+			else if(open && callTrace != null)
+				createCustomer(callTrace.getCallLength(), callTrace.getPatience());
+			else if(open)
+				createCustomer();
+			if(live)
+				nextLiveCall++;
+			else if(callTrace != null)
+				traceRecordLoaded = false;
+			else
+				nextArrival++;
+			arrival = peekArrival();
+		}
+	}
+
+	/**
+	 * Gives the CallCenter the transferred calls which arrive up to the given
+	 * time, numbering each as a customer of the generator.
+	 *
+	 * @param time
+	 *            the time up to which calls are given
+	 */
+	private void createTransfers(long time) {
+		while(nextTransfer < transferCount && transferTimes[nextTransfer] <= time) {
+			callCenter.callTransferred(++lastCustomerID, transferCallLengths[nextTransfer], 
+					transferPatience[nextTransfer], transferCallTypes[nextTransfer]);
+			nextTransfer++;
+		}
+	}
+
+	/**
+	 * Returns the time of the next call drawn from the ArrivalProfile,
+	 * drawing another batch of calls if needed, read from the CallTrace or
+	 * offered live.
+	 *
+	 * @return long
+	 *            the time of the next call, or -1 if no calls remain
+	 */
+	private long peekArrival() {
+		if(live)
+			return nextLiveCall < liveCallCount ? liveTimes[nextLiveCall] : -1;
+		if(callTrace != null)
+			return peekTraceArrival();
+		if(nextArrival == arrivalCount)
+			drawArrivals();
+		return nextArrival < arrivalCount ? arrivalTimes[nextArrival] : -1;
+	}
+
+	/**
+	 * Draws the times of the next batch of calls from the ArrivalProfile,
+	 * rounded up to whole seconds. No calls are drawn past the first tick
+	 * after closing, the last time at which a customer may call.
+	 */
+	private void drawArrivals() {
+		long lastAttemptTime = callCenter.getClosingTime() + clock.getSecondsPerTick();
+		nextArrival = 0;
+		arrivalCount = 0;
+		while(arrivalCount < ARRIVAL_BATCH && lastArrival != Double.POSITIVE_INFINITY) {
+			lastArrival = arrivalProfile.getNextArrival(lastArrival, -Math.log(1 - arrivalRand.nextDouble()));
+			if(openingTime + Math.ceil(lastArrival) > lastAttemptTime)
+				lastArrival = Double.POSITIVE_INFINITY;
+			else
+				arrivalTimes[arrivalCount++] = openingTime + (long) Math.ceil(lastArrival);
+		}
+	}
+
+	/**
+	 * Returns the replayed time of the next call of the CallTrace, reading
+	 * the next record if the last has been consumed. No records are read past
+	 * the first tick after closing.
+	 *
+	 * @return long
+	 *            the time of the next call, or -1 if no calls remain
+	 */
+	private long peekTraceArrival() {
+		if(!traceRecordLoaded && !traceExhausted) {
+			long lastAttemptTime = callCenter.getClosingTime() + clock.getSecondsPerTick();
+			if(callTrace.next() && callTrace.getArrivalTime() + traceOffset <= lastAttemptTime) {
+				long arrival = callTrace.getArrivalTime() + traceOffset;
+				if(arrival < traceArrival)
+					throw new IllegalStateException("Call trace is not in order of arrival");
+				traceArrival = arrival;
+				traceRecordLoaded = true;
+			}
+			else {
+				traceExhausted = true;
+			}
+		}
+		return traceRecordLoaded ? traceArrival : -1;
+	}
+
+	/**
+	 * Creates a customer using a random integer within the given min and max
+	 * to represent the expected duration of the call, and gives it to the
+	 * call center.
+	 */
+	private void createCustomer() {
+		createCustomer(drawCallLength(), drawPatience());
+	}
+
+	/**
+	 * Returns a random integer within the given min and max to represent the
+	 * expected duration of a call.
+	 *
+	 * @return int
+	 *            the length (in minutes) of the call
+	 */
+	private int drawCallLength() {
+		return durationRand.nextInt(expectedDurationMax - expectedDurationMin + 1) + expectedDurationMin;
+	}
+
+	/**
+	 * Returns the patience of a customer drawn from the distribution, or
+	 * the default patience if there is none.
+	 *
+	 * @return int
+	 *            the number of seconds the customer remains on hold
+	 */
+	private int drawPatience() {
+		if(patienceDistribution == null)
+			return Customer.DEFAULT_PATIENCE;
+		return patienceDistribution.draw(patienceRand);
+	}
+
+	/**
+	 * Copies the live or transferred calls not yet replayed to the front of
+	 * a new array.
+	 *
+	 * @param from
+	 *            the array of the calls
+	 * @param to
+	 *            the new array
+	 * @param first
+	 *            the index of the first call not yet replayed
+	 * @param pending
+	 *            the number of calls not yet replayed
+	 * @return long[]
+	 *            the new array
+	 */
+	private static long[] moveCalls(long[] from, long[] to, int first, int pending) {
+		System.arraycopy(from, first, to, 0, pending);
+		return to;
+	}
+
+	/**
+	 * Copies the live or transferred calls not yet replayed to the front of
+	 * a new array.
+	 *
+	 * @param from
+	 *            the array of the calls
+	 * @param to
+	 *            the new array
+	 * @param first
+	 *            the index of the first call not yet replayed
+	 * @param pending
+	 *            the number of calls not yet replayed
+	 * @return int[]
+	 *            the new array
+	 */
+	private static int[] moveCalls(int[] from, int[] to, int first, int pending) {
+		System.arraycopy(from, first, to, 0, pending);
+		return to;
+	}
+
+	/**
+	 * Creates a customer with the given expected duration and patience, and
+	 * a call type drawn from the mix, and gives it to the call center.
+	 *
+	 * @param expectedDuration
+	 *            the length (in minutes) of the call
+	 * @param patience
+	 *            the number of seconds the customer remains on hold
+	 */
+	private void createCustomer(int expectedDuration, int patience) {
+		int callType = 0;
+		if(callTypeWeights != null) {
+			double draw = typeRand.nextDouble();
+			while(callType < callTypeWeights.length - 1 && draw >= callTypeWeights[callType])
+				callType++;
+		}
+		callCenter.callArrived(++lastCustomerID, expectedDuration, patience, callType);
+	}
+}
@@ -1,13 +1,15 @@
 
 
-import java.text.DecimalFormat;
-import java.util.Calendar;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * This class represents an employee within the call center simulation. Similar 
  * to the Customer class, every employee is assigned an identification number 
  * based on the order in which it is created. The required parameters for 
- * creating an Employee object include: a reference to the Log, to keep track 
+ * creating an Employee object include: an integer, the employee's 
+ * identification number; a reference to the Log, to keep track 
  * of customer statistics, and a float, to assign a performance factor to the 
  * employee. The performance factor determines the efficiency of the employee 
  * at taking customer service calls. A performance factor of 1 represents an 
@@ -22,40 +24,133 @@ import java.util.Calendar;
  * until the call completion time has occurred. The call will then be completed 
  * and the employee will be returned to available. The employee records 
  * individual call lengths with the Log object in addition to the event 
- * occurrences, call initiated and call completed.
+ * occurrences, call initiated and call completed. When a call is completed 
+ * the employee tells its PhoneManager that it is available again. An 
+ * employee may also be created with a bitmask of the call types it is 
+ * skilled in as a primary skill and another of its secondary skills, used 
+ * by a SkillBasedRouter; by default an employee has every primary skill. 
+ * An employee may be sent on a break, which begins at once if the employee 
+ * is free and otherwise as soon as their call is completed; the employee 
+ * tells its PhoneManager when they have returned and can take calls again. 
+ * The state of an employee can be written to a checkpoint and read back.
  * 
  * @author Brett Crawford
  */
-public class Employee implements ClockManaged, CallParticipant{
-	
-	private static int lastID = 0;
-	private static DecimalFormat fmt2 = new DecimalFormat("00");
-	private static DecimalFormat fmt3 = new DecimalFormat("000");
+public class Employee implements ClockManaged, CallParticipant, Comparable<Employee> {
 	
 	private int id;
 	private boolean available;
 	private float performanceFactor;
+	private long primarySkills;
+	private long secondarySkills;
 	private int callLength;
 	private Log log;
-	private Calendar callCompletionTime;
+	private Clock clock;
+	private long callCompletionTime;
+	private int breakLength;
+	private long breakEndTime;
 	private PhoneLine phoneLine;
+	private PhoneManager phoneManager;
 	
 	/**
 	 * Creates an Employee object with the specified parameters.
 	 * 
+	 * @param theID
+	 *            the identification number of the employee
+	 * @param theLog
+	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
+	 * @param thePerformanceFactor
+	 *            a float representing the effectiveness of an employee     
+	 */
+	public Employee(int theID, Log theLog, Clock theClock, float thePerformanceFactor) {
+		this(theID, theLog, theClock, thePerformanceFactor, -1L, 0L);
+	}
+	
+	/**
+	 * Creates an Employee object with the specified parameters and skills.
+	 * 
+	 * @param theID
+	 *            the identification number of the employee
 	 * @param theLog
 	 *            the log object for recording events/statistics
+	 * @param theClock
+	 *            the clock used to manage time
 	 * @param thePerformanceFactor
 	 *            a float representing the effectiveness of an employee     
+	 * @param thePrimarySkills
+	 *            the bitmask of call types the employee takes first
+	 * @param theSecondarySkills
+	 *            the bitmask of call types the employee takes on overflow
 	 */
-	public Employee(Log theLog, float thePerformanceFactor) {
-		id = ++lastID;
+	public Employee(int theID, Log theLog, Clock theClock, float thePerformanceFactor, long thePrimarySkills, long theSecondarySkills) {
+		id = theID;
 		available = true;
 		performanceFactor = thePerformanceFactor;
+		primarySkills = thePrimarySkills;
+		secondarySkills = theSecondarySkills;
 		callLength = 0;
 		log = theLog;
-		callCompletionTime = null;
+		clock = theClock;
+		callCompletionTime = -1;
+		breakLength = 0;
+		breakEndTime = -1;
 		phoneLine = null;
+		phoneManager = null;
+	}
+	
+	/**
+	 * Returns the ID of the employee
+	 * 
+	 * @return int
+	 *            the ID of the employee      
+	 */
+	public int getID() {
+		return id;
+	}
+	
+	/**
+	 * Returns the bitmask of call types the employee takes first
+	 * 
+	 * @return long
+	 *            the primary skills of the employee      
+	 */
+	public long getPrimarySkills() {
+		return primarySkills;
+	}
+	
+	/**
+	 * Returns the bitmask of call types the employee takes once they have 
+	 * overflowed
+	 * 
+	 * @return long
+	 *            the secondary skills of the employee      
+	 */
+	public long getSecondarySkills() {
+		return secondarySkills;
+	}
+	
+	/**
+	 * Compares employees by ID, so that lower IDs take calls first.
+	 * 
+	 * @param other
+	 *            the employee to compare to
+	 * @return int
+	 *            negative, zero, or positive as this ID is lower, equal, or higher
+	 */
+	public int compareTo(Employee other) {
+		return Integer.compare(id, other.id);
+	}
+	
+	/**
+	 * Sets the phone manager to be notified when the employee becomes available.
+	 * 
+	 * @param thePhoneManager
+	 *            the phone manager managing the employee
+	 */
+	public void setPhoneManager(PhoneManager thePhoneManager) {
+		phoneManager = thePhoneManager;
 	}
 	
 	/**
@@ -66,29 +161,113 @@ public class Employee implements ClockManaged, CallParticipant{
 	 *            true if available, otherwise false         
 	 */
 	public boolean isAvailable() {
-		return available;
+		return available && breakEndTime == -1;
+	}
+	
+	/**
+	 * Returns true if the employee is on a break, otherwise returns false. 
+	 * An employee whose break will begin once their call is completed is 
+	 * not yet on a break.
+	 * 
+	 * @return boolean
+	 *            true if on a break, otherwise false         
+	 */
+	public boolean isOnBreak() {
+		return breakEndTime != -1;
+	}
+	
+	/**
+	 * Returns true if the employee is on a break or will go on a break 
+	 * once their call is completed, otherwise returns false.
+	 * 
+	 * @return boolean
+	 *            true if a break is taken or due, otherwise false         
+	 */
+	public boolean isBreakDue() {
+		return breakLength > 0 || breakEndTime != -1;
+	}
+	
+	/**
+	 * Sends the employee on a break of the given length. A free employee 
+	 * begins the break at once and must no longer be offered calls; an 
+	 * employee on a call begins the break once the call is completed.
+	 * 
+	 * @param theBreakLength
+	 *            the length (in seconds) of the break
+	 */
+	public void startBreak(int theBreakLength) {
+		if(theBreakLength <= 0)
+			throw new IllegalArgumentException("Break length must be positive");
+		if(isBreakDue())
+			throw new IllegalStateException("Employee " + id + " is already due a break");
+		breakLength = theBreakLength;
+		if(available)
+			beginBreak(clock.getTime());
 	}
 
+	/**
+	 * Writes the state of the employee to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeBoolean(available);
+		out.writeFloat(performanceFactor);
+		out.writeInt(callLength);
+		out.writeLong(callCompletionTime);
+		out.writeInt(breakLength);
+		out.writeLong(breakEndTime);
+		out.writeInt(phoneLine == null ? 0 : phoneLine.getID());
+	}
+	
+	/**
+	 * Replaces the state of the employee with that read from a checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param thePhoneManager
+	 *            the phone manager from which the employee's phoneline is found
+	 */
+	public void readState(DataInput in, PhoneManager thePhoneManager) throws IOException {
+		available = in.readBoolean();
+		performanceFactor = in.readFloat();
+		callLength = in.readInt();
+		callCompletionTime = in.readLong();
+		breakLength = in.readInt();
+		breakEndTime = in.readLong();
+		int phoneLineID = in.readInt();
+		phoneLine = phoneLineID == 0 ? null : thePhoneManager.getPhoneLine(phoneLineID);
+	}
+	
 	/**
 	 * Simulates the passage of time using the time parameter received
 	 * 
 	 * @param currentTime
 	 *            the current time within the simulation         
 	 */
-	public void clockTicked(Calendar currentTime) { // If the employee has taken a call, but not yet set the completion time
+	public void clockTicked(long currentTime) { // If the employee has taken a call, but not yet set the completion time
 		
-		if(available == false && callCompletionTime != null) {
-			if(currentTime.after(callCompletionTime)) {
+		if(breakEndTime != -1) {
+			if(currentTime >= breakEndTime) {
+				breakEndTime = -1;
+				log.recordEvent(EventType.BREAK_ENDED, 0, id, 0);
+				phoneManager.breakEnded(this);
+			}
+			return;
+		}
+		
+		if(available == false && callCompletionTime != -1) {
+			if(currentTime > callCompletionTime) {
 				phoneLine.endCall(callLength);
 			}
 		}
 		
-		if(available == false && callCompletionTime == null) {
-			callCompletionTime = (Calendar) currentTime.clone(); 
+		if(available == false && callCompletionTime == -1) {
 			callLength = (int) (phoneLine.getExpectedCallLength() * performanceFactor);
-			log.recordEvent("  Employee ID: " + fmt3.format(id) + " - " + fmt2.format(callLength) + 
-					   " minute service call initiated with Customer ID: " + fmt3.format(phoneLine.getCustomerID()) + ".\n");
-			callCompletionTime.add(Calendar.MINUTE, callLength); // Set the completion time
+			log.recordEvent(EventType.CALL_INITIATED, phoneLine.getCustomerID(), id, callLength);
+			callCompletionTime = currentTime + callLength * 60; // Set the completion time
+			clock.scheduleTickAfter(this, callCompletionTime);
 		}
 	}
 	
@@ -102,6 +281,7 @@ public class Employee implements ClockManaged, CallParticipant{
 		available = false;
 		phoneLine = thePhoneLine;
 		phoneLine.connectEmployee(this);
+		clock.scheduleTick(this, clock.getTime()); // Set the completion time on this tick
 	}
 	
 	/**
@@ -112,13 +292,28 @@ public class Employee implements ClockManaged, CallParticipant{
 	 *            the phoneline to be assigned        
 	 */
 	public void callCompleted() {
-		log.recordEvent("    Employee ID: " + fmt3.format(id) + " - " + fmt2.format(callLength) + 
-				   " minute service call completed with Customer ID: " + fmt3.format(phoneLine.getCustomerID()) + ".\n");
+		log.recordEvent(EventType.CALL_COMPLETED, phoneLine.getCustomerID(), id, callLength);
 		log.recordSuccessfulCall();
 		log.recordEmployeeActiveTime(id, callLength);
 		available = true;
 		callLength = 0;
-		callCompletionTime = null;
+		callCompletionTime = -1;
 		phoneLine = null;
+		if(breakLength > 0)
+			beginBreak(clock.getTime());
+		phoneManager.employeeAvailable(this);
+	}
+	
+	/**
+	 * Begins the break due to the employee and schedules its end.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation
+	 */
+	private void beginBreak(long currentTime) {
+		breakEndTime = currentTime + breakLength;
+		log.recordEvent(EventType.BREAK_STARTED, 0, id, breakLength / 60);
+		breakLength = 0;
+		clock.scheduleTick(this, breakEndTime);
 	}
 }
@@ -0,0 +1,341 @@
+
+
+import java.text.DecimalFormat;
+
+/**
+ * This class estimates the results of the call center simulation with the 
+ * Erlang A queueing model, so that a call center can be judged in 
+ * microseconds rather than by running a simulation. The required 
+ * parameters for creating an ErlangEstimator object include: an integer, 
+ * the number of employees; an integer, the number of phone lines; a double, 
+ * the average number of calls per minute; a double, the mean length (in 
+ * minutes) of a call; and a double, the mean patience (in minutes) of a 
+ * customer on hold. An ErlangEstimator may also be created from a 
+ * SimulationParameters object, from which the rate of calls is found in the 
+ * same way as by the StaffingOptimizer, the mean call length is the middle 
+ * of the call lengths, since the mean employee performance factor is 1, 
+ * and the patience is the mean of the PatienceDistribution of the 
+ * parameters, or that of a Customer if none is set. Redials and callbacks 
+ * are not part of the model and are ignored. 
+ * 
+ * The call center is modelled as a birth-death process over the number of 
+ * calls on the phone lines. Calls arrive at the given rate and receive a 
+ * busy signal when every line is in use, are served by the employees at 
+ * the rate of one over the mean call length, and, while on hold, hang up 
+ * at the rate of one over the patience. The long run probabilities of this 
+ * Erlang A model give the probability that a call receives a busy signal 
+ * or waits on hold, and the utilization of the employees. The simulation's 
+ * customers have a fixed patience by default rather than the exponential 
+ * patience of the model, which would hang up far more often, so a 
+ * connected call is taken to hang up when the calls ahead of it, as found 
+ * on arrival, take longer than the patience to be answered by employees 
+ * finishing calls at their full rate; its time on hold is the lesser of 
+ * the two. As a drawn patience is taken as its mean, and the simulation's 
+ * shifts also begin with an empty call center, the estimates are 
+ * approximate. The printComparison method reports how far the 
+ * estimates are from the results of simulated shifts, and the meets method 
+ * compares the estimates with a set of ServiceLevelTargets so that many 
+ * staffings can be screened before any is simulated. 
+ * 
+ * @author Brett Crawford
+ */
+public class ErlangEstimator {
+	
+	private DecimalFormat fmt = new DecimalFormat("0.0000");
+	
+	/** The size at which the unnormalized probabilities are scaled down **/
+	private static final double RESCALE_LIMIT = 1e250;
+	
+	private int numberOfEmployees;
+	private int numberOfPhoneLines;
+	private double callsPerMinute;
+	private double meanCallLength;
+	private double patience;
+	private double busySignalProbability;
+	private double waitProbability;
+	private double hangUpProbability;
+	private double averageHoldTime;
+	private double utilization;
+	
+	/**
+	 * Creates an ErlangEstimator object for the call center described by 
+	 * the given parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of the call center
+	 */
+	public ErlangEstimator(SimulationParameters theParameters) {
+		this(theParameters.getNumberOfEmployees(), theParameters.getNumberOfPhoneLines(), getCallsPerMinute(theParameters),
+				(theParameters.getExpectedDurationMin() + theParameters.getExpectedDurationMax()) / 2.0,
+				getMeanPatience(theParameters) / 60.0);
+	}
+	
+	/**
+	 * Creates an ErlangEstimator object with the specified parameters.
+	 * 
+	 * @param theNumberOfEmployees
+	 *            the number of employees
+	 * @param theNumberOfPhoneLines
+	 *            the number of phone lines
+	 * @param theCallsPerMinute
+	 *            the average number of calls per minute
+	 * @param theMeanCallLength
+	 *            the mean length (in minutes) of a call
+	 * @param thePatience
+	 *            the mean time (in minutes) a customer waits on hold before hanging up
+	 */
+	public ErlangEstimator(int theNumberOfEmployees, int theNumberOfPhoneLines, double theCallsPerMinute,
+			double theMeanCallLength, double thePatience) {
+		if(theNumberOfPhoneLines < 1)
+			throw new IllegalArgumentException("At least one phone line is required: " + theNumberOfPhoneLines);
+		if(theCallsPerMinute < 0 || theMeanCallLength <= 0 || thePatience <= 0)
+			throw new IllegalArgumentException("Rates and lengths must be positive");
+		numberOfEmployees = theNumberOfEmployees;
+		numberOfPhoneLines = theNumberOfPhoneLines;
+		callsPerMinute = theCallsPerMinute;
+		meanCallLength = theMeanCallLength;
+		patience = thePatience;
+		estimate();
+	}
+	
+	/**
+	 * Returns the average number of calls per minute over the shift of the 
+	 * given parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of the call center
+	 * @return double
+	 *            the average number of calls per minute
+	 */
+	public static double getCallsPerMinute(SimulationParameters theParameters) {
+		if(theParameters.getArrivalProfile() != null) // Averaged over the shift
+			return theParameters.getArrivalProfile().getExpectedCalls(theParameters.getShiftLength() * 60) / (theParameters.getShiftLength() * 60);
+		return theParameters.getCallProbability() * 60.0 / Clock.SECS_PER_TICK;
+	}
+	
+	/**
+	 * Returns the mean patience of the customers of the given parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of the call center
+	 * @return double
+	 *            the mean patience, in seconds
+	 */
+	public static double getMeanPatience(SimulationParameters theParameters) {
+		if(theParameters.getPatienceDistribution() != null)
+			return theParameters.getPatienceDistribution().getMean();
+		return Customer.DEFAULT_PATIENCE;
+	}
+	
+	/**
+	 * Returns the probability that a call receives a busy signal.
+	 * 
+	 * @return double
+	 *            the busy signal probability
+	 */
+	public double getBusySignalProbability() {
+		return busySignalProbability;
+	}
+	
+	/**
+	 * Returns the probability that a connected call waits on hold.
+	 * 
+	 * @return double
+	 *            the probability of waiting
+	 */
+	public double getWaitProbability() {
+		return waitProbability;
+	}
+	
+	/**
+	 * Returns the probability that a connected call hangs up while on hold.
+	 * 
+	 * @return double
+	 *            the hang up probability
+	 */
+	public double getHangUpProbability() {
+		return hangUpProbability;
+	}
+	
+	/**
+	 * Returns the average time (in minutes) a connected call remains on 
+	 * hold, whether it is answered or hangs up.
+	 * 
+	 * @return double
+	 *            the average hold time (in minutes)
+	 */
+	public double getAverageHoldTime() {
+		return averageHoldTime;
+	}
+	
+	/**
+	 * Returns the fraction of the time the employees spend on calls.
+	 * 
+	 * @return double
+	 *            the utilization of the employees
+	 */
+	public double getUtilization() {
+		return utilization;
+	}
+	
+	/**
+	 * Returns the expected number of hang-ups during a shift of the given 
+	 * length.
+	 * 
+	 * @param theShiftLength
+	 *            the length (in hours) of the shift
+	 * @return double
+	 *            the expected number of hang-ups
+	 */
+	public double getHangUps(int theShiftLength) {
+		return callsPerMinute * theShiftLength * 60 * (1 - busySignalProbability) * hangUpProbability;
+	}
+	
+	/**
+	 * Returns true if the estimates meet every target, each loosened by the 
+	 * given fraction of itself, otherwise returns false. A margin allows for 
+	 * the error of the model when screening staffings.
+	 * 
+	 * @param targets
+	 *            the service levels to meet
+	 * @param theShiftLength
+	 *            the length (in hours) of the shift
+	 * @param margin
+	 *            the fraction by which each target is loosened
+	 * @return boolean
+	 *            true if every target is met, otherwise false
+	 */
+	public boolean meets(ServiceLevelTargets targets, int theShiftLength, double margin) {
+		return averageHoldTime <= targets.getMaxAverageHoldTime() * (1 + margin)
+				&& busySignalProbability <= targets.getMaxBusySignalRate() * (1 + margin)
+				&& getHangUps(theShiftLength) <= targets.getMaxHangUps() * (1 + margin);
+	}
+	
+	/**
+	 * Returns a string comparing the estimates with the results of a 
+	 * single simulated shift.
+	 * 
+	 * @param log
+	 *            the log of a completed simulation
+	 * @return String
+	 *            a string containing the estimates, results and differences
+	 */
+	public String printComparison(Log log) {
+		ReplicationSummary summary = new ReplicationSummary();
+		summary.addReplication(log);
+		return printComparison(summary);
+	}
+	
+	/**
+	 * Returns a string comparing the estimates with the mean results of a 
+	 * set of simulated shifts. Each difference is the estimate less the 
+	 * simulated result.
+	 * 
+	 * @param summary
+	 *            the merged results of a set of replications
+	 * @return String
+	 *            a string containing the estimates, results and differences
+	 */
+	public String printComparison(ReplicationSummary summary) {
+		double customers = summary.getTotalCustomers().getSum();
+		double connected = customers - summary.getBusySignals().getSum();
+		double simulatedHangUpRate = connected == 0 ? 0 : summary.getHangUps().getSum() / connected;
+		
+		String stat = "|==========================================================|\n" +
+			          "|                  Erlang A Comparison                     |\n" +
+			          "|==========================================================|\n\n";
+		
+		stat +=       "   " + numberOfEmployees + " employees, " + numberOfPhoneLines + " phone lines, " + 
+		                      fmt.format(callsPerMinute) + " calls per minute, " + summary.getReplications() + " shifts\n";
+		stat +=       "   \n";
+		stat += String.format("   %-38s %6s %10s %11s\n", "", "Model", "Simulated", "Difference");
+		stat += printRow("Fraction of calls lost to busy signals", busySignalProbability, ServiceLevelTargets.getBusySignalRate(summary));
+		stat += printRow("Fraction of connected calls hung up", hangUpProbability, simulatedHangUpRate);
+		stat += printRow("Average hold time (minutes)", averageHoldTime, summary.getAverageHoldTime().getMean());
+		
+		stat += "\n|==========================================================|\n" +
+			      "|==========================================================|\n";
+		
+		return stat;
+	}
+	
+	/**
+	 * Returns a row of the comparison.
+	 * 
+	 * @param name
+	 *            the name of the result
+	 * @param model
+	 *            the estimate of the model
+	 * @param simulated
+	 *            the simulated result
+	 * @return String
+	 *            a row of the comparison
+	 */
+	private String printRow(String name, double model, double simulated) {
+		return String.format("   %-38s %6s %10s %11s\n", name, fmt.format(model), fmt.format(simulated), fmt.format(model - simulated));
+	}
+	
+	/**
+	 * Finds the long run probabilities of the number of calls on the phone 
+	 * lines and computes the estimates from them. The probabilities are 
+	 * found in one pass, each from the one before, and scaled down whenever 
+	 * they grow too large to be held in a double. Along the way, the chance 
+	 * that the calls ahead of a call arriving on hold are not all answered 
+	 * within the patience is kept as a sum of Poisson probabilities, held as 
+	 * logarithms so that large call centers do not underflow.
+	 */
+	private void estimate() {
+		int employees = Math.min(numberOfEmployees, numberOfPhoneLines); // Employees beyond the lines never take a call
+		double serviceRate = 1 / meanCallLength;
+		double hangUpRate = 1 / patience;
+		double answerRate = employees * serviceRate; // The rate calls on hold are answered when every employee is busy
+		double answersInPatience = answerRate * patience;
+		
+		double probability = 1;
+		double total = 0;
+		double waiting = 0;
+		double hangUps = 0;
+		double holdTime = 0;
+		double callsInService = 0;
+		double logPoisson = -answersInPatience;
+		double tooSlow = 0; // The chance fewer calls than those ahead are answered within the patience
+		double holdTimeIfWaiting = 0;
+		for(int n = 0; n <= numberOfPhoneLines; n++) {
+			if(n > 0)
+				probability *= callsPerMinute / (Math.min(n, employees) * serviceRate + Math.max(n - employees, 0) * hangUpRate);
+			total += probability;
+			callsInService += Math.min(n, employees) * probability;
+			if(n >= employees && n < numberOfPhoneLines) { // The arriving call waits for n - employees + 1 answers
+				int ahead = n - employees;
+				if(answerRate == 0) {
+					tooSlow = 1;
+					holdTimeIfWaiting = patience;
+				}
+				else {
+					if(ahead > 0)
+						logPoisson += Math.log(answersInPatience / ahead);
+					tooSlow += Math.exp(logPoisson);
+					holdTimeIfWaiting += (1 - Math.min(tooSlow, 1)) / answerRate;
+				}
+				waiting += probability;
+				hangUps += Math.min(tooSlow, 1) * probability;
+				holdTime += holdTimeIfWaiting * probability;
+			}
+			if(probability > RESCALE_LIMIT) {
+				probability /= RESCALE_LIMIT;
+				total /= RESCALE_LIMIT;
+				waiting /= RESCALE_LIMIT;
+				hangUps /= RESCALE_LIMIT;
+				holdTime /= RESCALE_LIMIT;
+				callsInService /= RESCALE_LIMIT;
+			}
+		}
+		
+		busySignalProbability = probability / total;
+		double connectedFraction = 1 - busySignalProbability;
+		waitProbability = connectedFraction == 0 ? 0 : waiting / total / connectedFraction;
+		hangUpProbability = connectedFraction == 0 ? 0 : hangUps / total / connectedFraction;
+		averageHoldTime = connectedFraction == 0 ? 0 : holdTime / total / connectedFraction;
+		utilization = employees == 0 ? 0 : Math.min(callsInService / total / employees, 1);
+	}
+}
@@ -0,0 +1,164 @@
+
+
+import java.util.Calendar;
+
+/**
+ * This class turns the events recorded during the call center simulation 
+ * into the lines of text shown in the event log. Each line begins with the 
+ * hour and minute of the event, followed by a description of the event 
+ * built from its type, IDs, and call length. An EventFormatter keeps its 
+ * own Calendar for rendering times and should only be used by one sink.
+ * 
+ * @author Brett Crawford
+ */
+public class EventFormatter {
+	
+	private Calendar calendar;
+	
+	/**
+	 * Creates an EventFormatter object.
+	 */
+	public EventFormatter() {
+		calendar = Calendar.getInstance();
+	}
+	
+	/**
+	 * Appends the line of text describing an event to the given builder.
+	 * 
+	 * @param out
+	 *            the builder the text is appended to
+	 * @param time
+	 *            the time of the event, in seconds since the epoch
+	 * @param type
+	 *            the type of the event
+	 * @param customerID
+	 *            the ID of the customer involved, or 0
+	 * @param employeeID
+	 *            the ID of the employee involved, or 0
+	 * @param callLength
+	 *            the length of the call involved, the patience (in seconds) 
+	 *            of a customer who hung up, the delay (in seconds) before 
+	 *            a customer calls again, or 0
+	 */
+	public void format(StringBuilder out, long time, EventType type, int customerID, int employeeID, int callLength) {
+		calendar.setTimeInMillis(time * 1000);
+		appendPadded(out, calendar.get(Calendar.HOUR), 2);
+		out.append(':');
+		appendPadded(out, calendar.get(Calendar.MINUTE), 2);
+		out.append(" - ");
+		
+		switch(type) {
+			case CALL_CENTER_OPENED:
+				out.append("Call center opened.\n");
+				break;
+			case CALL_PLACED:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - ");
+				appendPadded(out, callLength, 2);
+				out.append(" minute service call placed.\n");
+				break;
+			case BUSY_SIGNAL:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - Busy signal when attempting to call. Hung up.\n");
+				break;
+			case CALL_OVERFLOWED:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - Busy signal when attempting to call. Sent to another call center.\n");
+				break;
+			case HUNG_UP:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - On hold for more than ");
+				if(callLength % 60 == 0) { // The customer's patience, in seconds
+					appendPadded(out, callLength / 60, 2);
+					out.append(" minutes. Hung up.\n");
+				}
+				else {
+					out.append(callLength);
+					out.append(" seconds. Hung up.\n");
+				}
+				break;
+			case REDIAL_SCHEDULED:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - Will call again in ");
+				if(callLength % 60 == 0) { // The delay, in seconds
+					appendPadded(out, callLength / 60, 2);
+					out.append(" minutes.\n");
+				}
+				else {
+					out.append(callLength);
+					out.append(" seconds.\n");
+				}
+				break;
+			case CALLBACK_REQUESTED:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - Hung up to be called back.\n");
+				break;
+			case CALLED_BACK:
+				out.append("Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(" - Called back by the call center.\n");
+				break;
+			case CALL_INITIATED:
+				out.append("  Employee ID: ");
+				appendPadded(out, employeeID, 3);
+				out.append(" - ");
+				appendPadded(out, callLength, 2);
+				out.append(" minute service call initiated with Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(".\n");
+				break;
+			case CALL_COMPLETED:
+				out.append("    Employee ID: ");
+				appendPadded(out, employeeID, 3);
+				out.append(" - ");
+				appendPadded(out, callLength, 2);
+				out.append(" minute service call completed with Customer ID: ");
+				appendPadded(out, customerID, 3);
+				out.append(".\n");
+				break;
+			case LINES_SHUT_DOWN:
+				out.append("Incoming phone lines shut down.\n");
+				break;
+			case CALL_CENTER_CLOSED:
+				out.append("Call center closed.\n");
+				break;
+			case BREAK_STARTED:
+				out.append("  Employee ID: ");
+				appendPadded(out, employeeID, 3);
+				out.append(" - ");
+				appendPadded(out, callLength, 2);
+				out.append(" minute break started.\n");
+				break;
+			case BREAK_ENDED:
+				out.append("  Employee ID: ");
+				appendPadded(out, employeeID, 3);
+				out.append(" - Returned from break.\n");
+				break;
+		}
+	}
+	
+	/**
+	 * Appends a non-negative number padded with leading zeros to at least 
+	 * the given number of digits.
+	 * 
+	 * @param out
+	 *            the builder the number is appended to
+	 * @param value
+	 *            the number to append
+	 * @param digits
+	 *            the minimum number of digits
+	 */
+	private static void appendPadded(StringBuilder out, int value, int digits) {
+		for(int limit = 10; digits > 1; digits--, limit *= 10) {
+			if(value < limit)
+				out.append('0');
+		}
+		out.append(value);
+	}
+}
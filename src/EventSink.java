@@ -0,0 +1,21 @@
+
+
+/**
+ * This interface allows an object to be used in conjunction with the Log 
+ * class to consume the events of the simulation. Any object implementing 
+ * the EventSink interface must implement the eventRecorded method, which 
+ * receives each event as primitive values so that nothing is formatted 
+ * unless the sink needs the text; the printEvents method, which returns 
+ * any events the sink has kept; and the close method, which releases any 
+ * resources held by the sink at the end of the simulation.
+ * 
+ * @author Brett Crawford
+ */
+public interface EventSink {
+	
+	public void eventRecorded(long time, EventType type, int customerID, int employeeID, int callLength);
+	
+	public String printEvents();
+	
+	public void close();
+}
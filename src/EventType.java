@@ -0,0 +1,54 @@
+
+
+/**
+ * This enum lists the kinds of events recorded with the Log during the call 
+ * center simulation. Events are recorded as their type along with the IDs 
+ * and call length they refer to, and are only turned into text by an 
+ * EventFormatter when an EventSink consumes them.
+ * 
+ * @author Brett Crawford
+ */
+public enum EventType {
+	
+	/** The call center has opened **/
+	CALL_CENTER_OPENED,
+	
+	/** A customer has placed a call on a phone line **/
+	CALL_PLACED,
+	
+	/** A customer received a busy signal and hung up **/
+	BUSY_SIGNAL,
+	
+	/** A customer found every line busy and was sent on to another call center **/
+	CALL_OVERFLOWED,
+	
+	/** A customer waited on hold too long and hung up **/
+	HUNG_UP,
+	
+	/** A customer who was not served will call again later **/
+	REDIAL_SCHEDULED,
+	
+	/** A customer on hold hung up to be called back **/
+	CALLBACK_REQUESTED,
+	
+	/** A customer waiting to be called back has been called on a phone line **/
+	CALLED_BACK,
+	
+	/** An employee has started a call with a customer **/
+	CALL_INITIATED,
+	
+	/** An employee has completed a call with a customer **/
+	CALL_COMPLETED,
+	
+	/** The incoming phone lines have been shut down **/
+	LINES_SHUT_DOWN,
+	
+	/** The call center has closed **/
+	CALL_CENTER_CLOSED,
+	
+	/** An employee has gone on a break **/
+	BREAK_STARTED,
+	
+	/** An employee has returned from a break **/
+	BREAK_ENDED
+}
@@ -0,0 +1,114 @@
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class represents an event sink that streams the events of the 
+ * simulation to a text file. The required parameter for creating a 
+ * FileEventSink object is a string, the name of the file to write. Each 
+ * event is formatted as it is received and copied into a direct buffer, 
+ * which is written to the file's channel whenever it fills, so the event 
+ * log never has to be held in memory. The close method must be called at 
+ * the end of the simulation to write any buffered events.
+ * 
+ * @author Brett Crawford
+ */
+public class FileEventSink implements EventSink {
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private String fileName;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private StringBuilder line;
+	private EventFormatter formatter;
+	
+	/**
+	 * Creates a FileEventSink object with the specified parameters. Any 
+	 * existing file with the given name is replaced.
+	 * 
+	 * @param theFileName
+	 *            the name of the file the events are written to
+	 */
+	public FileEventSink(String theFileName) {
+		fileName = theFileName;
+		try {
+			channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, 
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to open event log " + fileName, e);
+		}
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		line = new StringBuilder(128);
+		formatter = new EventFormatter();
+	}
+	
+	/**
+	 * Formats the event and adds it to the buffer, writing the buffer to 
+	 * the file first if the event does not fit.
+	 * 
+	 * @param time
+	 *            the time of the event, in seconds since the epoch
+	 * @param type
+	 *            the type of the event
+	 * @param customerID
+	 *            the ID of the customer involved, or 0
+	 * @param employeeID
+	 *            the ID of the employee involved, or 0
+	 * @param callLength
+	 *            the length of the call involved, or 0
+	 */
+	public void eventRecorded(long time, EventType type, int customerID, int employeeID, int callLength) {
+		line.setLength(0);
+		formatter.format(line, time, type, customerID, employeeID, callLength);
+		if(buffer.remaining() < line.length())
+			flush();
+		for(int i = 0; i < line.length(); i++)
+			buffer.put((byte) line.charAt(i));
+	}
+	
+	/**
+	 * Returns a string naming the file the events were written to.
+	 * 
+	 * @return String
+	 *             a string naming the event log file
+	 */
+	public String printEvents() {
+		return "Event log written to " + fileName + "\n";
+	}
+	
+	/**
+	 * Writes any buffered events and closes the file.
+	 */
+	public void close() {
+		if(!channel.isOpen())
+			return;
+		flush();
+		try {
+			channel.close();
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to close event log " + fileName, e);
+		}
+	}
+	
+	/**
+	 * Writes the contents of the buffer to the file and clears the buffer.
+	 */
+	private void flush() {
+		buffer.flip();
+		try {
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write event log " + fileName, e);
+		}
+		buffer.clear();
+	}
+}
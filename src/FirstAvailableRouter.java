@@ -0,0 +1,118 @@
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * This class routes calls the way the call center always has: calls are 
+ * taken on a first-come, first-served basis, each by the available 
+ * employee with the lowest ID, and any employee may take any call. The 
+ * available employees are kept in a queue ordered by ID, and the lines on 
+ * hold in a map ordered by hold sequence number, which is the order in 
+ * which they were placed on hold, so neither has to be searched.
+ * 
+ * @author Brett Crawford
+ */
+public class FirstAvailableRouter implements CallRouter {
+	
+	private PriorityQueue<Employee> availableEmployees;
+	private TreeMap<Long, PhoneLine> linesOnHold;
+	
+	/**
+	 * Creates a FirstAvailableRouter object with no employees or calls.
+	 */
+	public FirstAvailableRouter() {
+		availableEmployees = new PriorityQueue<Employee>();
+		linesOnHold = new TreeMap<Long, PhoneLine>();
+	}
+	
+	/**
+	 * Adds an employee to the available employees.
+	 * 
+	 * @param employee
+	 *            the employee that is available
+	 */
+	public void employeeAvailable(Employee employee) {
+		availableEmployees.add(employee);
+	}
+	
+	/**
+	 * Adds a phoneline to the lines on hold.
+	 * 
+	 * @param phoneLine
+	 *            the phoneline the customer is waiting on
+	 */
+	public void callWaiting(PhoneLine phoneLine) {
+		linesOnHold.put(phoneLine.getHoldSequence(), phoneLine);
+	}
+	
+	/**
+	 * Removes the customer's call from the lines on hold, if it is there.
+	 * 
+	 * @param phoneLine
+	 *            the phoneline that was released
+	 * @param customerID
+	 *            the ID of the customer that was on the phoneline
+	 */
+	public void lineReleased(PhoneLine phoneLine, int customerID) {
+		linesOnHold.remove(phoneLine.getHoldSequence());
+	}
+	
+	/**
+	 * Pairs the calls on hold, oldest first, with the available employees 
+	 * with the lowest IDs, until either runs out.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation
+	 */
+	public void dispatch(long currentTime) {
+		while(!availableEmployees.isEmpty() && !linesOnHold.isEmpty()) {
+			Map.Entry<Long, PhoneLine> nextOnHold = linesOnHold.pollFirstEntry();
+			availableEmployees.poll().takeCall(nextOnHold.getValue());
+		}
+	}
+	
+	/**
+	 * Returns the number of calls on hold.
+	 * 
+	 * @return int
+	 *            the number of calls on hold
+	 */
+	public int getCallsWaiting() {
+		return linesOnHold.size();
+	}
+	
+	/**
+	 * Returns true if any employee is available, otherwise returns false.
+	 * 
+	 * @return boolean
+	 *            true if an employee is available, otherwise false
+	 */
+	public boolean hasAvailableEmployees() {
+		return !availableEmployees.isEmpty();
+	}
+	
+	/**
+	 * Returns -1, as calls are never routed differently by waiting.
+	 * 
+	 * @return long
+	 *            -1
+	 */
+	public long getNextOverflowTime() {
+		return -1;
+	}
+	
+	/**
+	 * Returns the available employees. As they are taken by lowest ID, the 
+	 * order in which they became available does not matter.
+	 * 
+	 * @return List
+	 *            the available employees
+	 */
+	public List<Employee> getAvailableEmployees() {
+		return new ArrayList<Employee>(availableEmployees);
+	}
+}
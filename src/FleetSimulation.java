@@ -0,0 +1,403 @@
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs a fleet of call centers, or sites, which send the calls 
+ * that find every phone line busy on to one another. The required parameters 
+ * for creating a FleetSimulation object include: an array of 
+ * SimulationParameters, the settings of each site; a long, the seed the 
+ * seeds of the sites are derived from; and an integer, the number of seconds 
+ * a call takes to be transferred from one site to another. Each site is a 
+ * separate CallCenterSimulation, a shard of the fleet with its own clock, 
+ * log and seed, derived from the fleet's seed and the site's number as for 
+ * a replication. 
+ * 
+ * The sites are run on a thread each, in windows of time no longer than the 
+ * transfer time. Every site runs to the end of a window and then waits for 
+ * the others. As a call sent on during a window arrives at least a transfer 
+ * time later, after the end of the window, no site need wait on another 
+ * within a window and no call arrives in a site's past. The calls sent on 
+ * during a window are put on a lock-free queue for the site taking them, 
+ * and given to that site, in order of arrival, sending site and customer, 
+ * once every site has reached the end of the window. The results therefore 
+ * depend only on the seed, and not on the number of cores or the order in 
+ * which the threads run. 
+ * 
+ * A call which finds every line of its site busy is sent on to the other 
+ * site with the most phone lines available at the end of the last window, 
+ * less the calls already sent there since, the lowest numbered first, so 
+ * long as it arrives before that site shuts down its lines. Otherwise the 
+ * customer receives a busy signal. A call is only sent on once. Once every 
+ * site has completed its shift, the Log of each site holds the statistics 
+ * of that site, and the Log of the fleet those of the whole fleet. The 
+ * FleetSimulation should be shut down once it is no longer needed.
+ * 
+ * @author Brett Crawford
+ */
+public class FleetSimulation {
+	
+	/** The settings of each site **/
+	private SimulationParameters[] parameters;
+	
+	/** The simulation of each site **/
+	private CallCenterSimulation[] sites;
+	
+	/** The calls sent on to each site during the current window **/
+	private List<ConcurrentLinkedQueue<Transfer>> transfers;
+	
+	/** The overflow of each site, with its count of the lines available at each other site **/
+	private SiteOverflow[] overflows;
+	
+	/** The number of seconds a call takes to reach another site **/
+	private int transferSeconds;
+	
+	/** The number of seconds of each window, a whole number of ticks **/
+	private int windowSeconds;
+	
+	/** The time at which the current window ends **/
+	private long windowEnd;
+	
+	/** Whether every site has completed its shift **/
+	private boolean complete;
+	
+	/** The statistics of the whole fleet, or null until the run has finished **/
+	private Log log;
+	
+	/** The threads the sites are run on, one per site **/
+	private ForkJoinPool pool;
+	
+	/**
+	 * Runs a fleet of sites with the default settings and outputs the 
+	 * statistics of each site and of the fleet to the console. The number 
+	 * of sites, the seed and the transfer time in seconds may be given as 
+	 * arguments.
+	 * 
+	 * @param args
+	 *            the number of sites, the seed and the transfer time, all optional
+	 */
+	public static void main(String args[]) {
+		int numberOfSites = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.currentTimeMillis();
+		int transferSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+		
+		SimulationParameters[] parameters = new SimulationParameters[numberOfSites];
+		for(int i = 0; i < numberOfSites; i++)
+			parameters[i] = new SimulationParameters();
+		FleetSimulation fleet = new FleetSimulation(parameters, seed, transferSeconds);
+		try {
+			fleet.run();
+		}
+		finally {
+			fleet.shutdown();
+		}
+		for(int i = 0; i < numberOfSites; i++) {
+			Log siteLog = fleet.getSite(i).getLog();
+			System.out.println("Site " + (i + 1) + ": " + siteLog.getTotalCustomers() + " customers, " 
+					+ siteLog.getSuccessfulCalls() + " completed, " + siteLog.getHangUps() + " hang-ups, " 
+					+ siteLog.getBusySignals() + " busy signals, " + siteLog.getOverflows() + " sent to another site");
+		}
+		System.out.println(fleet.getLog().printStatistics());
+	}
+	
+	/**
+	 * Creates a FleetSimulation object with the specified parameters whose 
+	 * sites discard their events.
+	 * 
+	 * @param theParameters
+	 *            the settings of each site
+	 * @param theSeed
+	 *            the seed the seeds of the sites are derived from
+	 * @param theTransferSeconds
+	 *            the number of seconds a call takes to reach another site
+	 */
+	public FleetSimulation(SimulationParameters[] theParameters, long theSeed, int theTransferSeconds) {
+		this(theParameters, theSeed, theTransferSeconds, null);
+	}
+	
+	/**
+	 * Creates a FleetSimulation object with the specified parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of each site
+	 * @param theSeed
+	 *            the seed the seeds of the sites are derived from
+	 * @param theTransferSeconds
+	 *            the number of seconds a call takes to reach another site, 
+	 *            at least one tick
+	 * @param theEventSinks
+	 *            the sink for the events of each site, or null to discard them
+	 */
+	public FleetSimulation(SimulationParameters[] theParameters, long theSeed, int theTransferSeconds, EventSink[] theEventSinks) {
+		if(theParameters.length < 2)
+			throw new IllegalArgumentException("A fleet must have at least 2 sites: " + theParameters.length);
+		if(theEventSinks != null && theEventSinks.length != theParameters.length)
+			throw new IllegalArgumentException("Fleet has " + theParameters.length + " sites but " + theEventSinks.length + " event sinks");
+		
+		parameters = new SimulationParameters[theParameters.length];
+		sites = new CallCenterSimulation[theParameters.length];
+		transfers = new ArrayList<ConcurrentLinkedQueue<Transfer>>(theParameters.length);
+		overflows = new SiteOverflow[theParameters.length];
+		for(int i = 0; i < theParameters.length; i++) {
+			parameters[i] = new SimulationParameters(theParameters[i]);
+			EventSink eventSink = theEventSinks == null ? new NullEventSink() : theEventSinks[i];
+			sites[i] = new CallCenterSimulation(parameters[i], ReplicationRunner.getReplicationSeed(theSeed, i), eventSink);
+			if(sites[i].getTime() != sites[0].getTime())
+				throw new IllegalStateException("Sites of a fleet must open at the same time");
+			transfers.add(new ConcurrentLinkedQueue<Transfer>());
+			overflows[i] = new SiteOverflow(i);
+			sites[i].setCallOverflow(overflows[i]);
+		}
+		
+		int secondsPerTick = Clock.SECS_PER_TICK;
+		if(theTransferSeconds < secondsPerTick)
+			throw new IllegalArgumentException("Transfer time must be at least " + secondsPerTick + " seconds: " + theTransferSeconds);
+		transferSeconds = theTransferSeconds;
+		windowSeconds = transferSeconds / secondsPerTick * secondsPerTick;
+		windowEnd = sites[0].getTime();
+		complete = false;
+		log = null;
+		pool = new ForkJoinPool(sites.length);
+	}
+	
+	/**
+	 * Runs every site until each has completed its shift, then adds the 
+	 * statistics of the sites to the log of the fleet.
+	 */
+	public void run() {
+		if(log != null)
+			throw new IllegalStateException("Fleet has already been run");
+		
+		for(int i = 0; i < sites.length; i++)
+			sites[i].initializeSim();
+		updateOverflows();
+		windowEnd += windowSeconds;
+		
+		CyclicBarrier barrier = new CyclicBarrier(sites.length, new WindowSync());
+		List<Callable<Log>> shards = new ArrayList<Callable<Log>>(sites.length);
+		for(int i = 0; i < sites.length; i++)
+			shards.add(new Shard(i, barrier));
+		
+		Throwable failure = null;
+		try {
+			for(Future<Log> result : pool.invokeAll(shards)) {
+				try {
+					result.get();
+				}
+				catch(ExecutionException e) {
+					if(failure == null || failure instanceof BrokenBarrierException)
+						failure = e.getCause(); // Report the first failure, not the sites stopped by it
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running fleet", e);
+		}
+		if(failure != null)
+			throw new IllegalStateException("Site failed", failure);
+		
+		int shiftLength = 0;
+		int phoneLines = 0;
+		int employees = 0;
+		for(int i = 0; i < sites.length; i++) {
+			shiftLength = Math.max(shiftLength, parameters[i].getShiftLength());
+			phoneLines += parameters[i].getNumberOfPhoneLines();
+			employees += parameters[i].getNumberOfEmployees();
+		}
+		Log fleetLog = new Log(new Clock(), new NullEventSink(), shiftLength, phoneLines, employees);
+		phoneLines = 0;
+		employees = 0;
+		for(int i = 0; i < sites.length; i++) {
+			fleetLog.addSite(sites[i].getLog(), phoneLines, employees);
+			phoneLines += parameters[i].getNumberOfPhoneLines();
+			employees += parameters[i].getNumberOfEmployees();
+		}
+		log = fleetLog;
+	}
+	
+	/**
+	 * Stops the threads used to run the sites.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Returns the simulation of a site.
+	 * 
+	 * @param theSite
+	 *            the number of the site, from 0
+	 * @return CallCenterSimulation
+	 *            the simulation of the site
+	 */
+	public CallCenterSimulation getSite(int theSite) {
+		return sites[theSite];
+	}
+	
+	/**
+	 * Returns the number of sites in the fleet.
+	 * 
+	 * @return int
+	 *            the number of sites
+	 */
+	public int getNumberOfSites() {
+		return sites.length;
+	}
+	
+	/**
+	 * Returns the log holding the statistics of the whole fleet.
+	 * 
+	 * @return Log
+	 *            the log of the fleet
+	 */
+	public Log getLog() {
+		if(log == null)
+			throw new IllegalStateException("Fleet has not been run");
+		return log;
+	}
+	
+	/**
+	 * Gives each site the number of phone lines available at every site.
+	 */
+	private void updateOverflows() {
+		int[] availablePhoneLines = new int[sites.length];
+		for(int i = 0; i < sites.length; i++)
+			availablePhoneLines[i] = sites[i].getAvailablePhoneLines();
+		for(int i = 0; i < sites.length; i++)
+			System.arraycopy(availablePhoneLines, 0, overflows[i].availablePhoneLines, 0, sites.length);
+	}
+	
+	/**
+	 * The part of the fleet run on the thread of one site, which runs the 
+	 * site a window at a time until every site has completed its shift.
+	 */
+	private class Shard implements Callable<Log> {
+		
+		private final int site;
+		private final CyclicBarrier barrier;
+		
+		private Shard(int theSite, CyclicBarrier theBarrier) {
+			site = theSite;
+			barrier = theBarrier;
+		}
+		
+		public Log call() throws InterruptedException, BrokenBarrierException {
+			try {
+				while(!complete) {
+					sites[site].advanceTo(windowEnd);
+					barrier.await();
+				}
+			}
+			catch(RuntimeException e) {
+				barrier.reset(); // Release the other sites
+				throw e;
+			}
+			return sites[site].getLog();
+		}
+	}
+	
+	/**
+	 * The action run once every site has reached the end of a window, on 
+	 * the thread of the last to arrive. The calls sent on during the 
+	 * window are given to the sites taking them, the available lines of 
+	 * each site are passed to the others, and the next window begins.
+	 */
+	private class WindowSync implements Runnable {
+		
+		private final ArrayList<Transfer> arrivals = new ArrayList<Transfer>();
+		
+		public void run() {
+			boolean allComplete = true;
+			for(int i = 0; i < sites.length; i++) {
+				arrivals.clear();
+				Transfer transfer;
+				while((transfer = transfers.get(i).poll()) != null)
+					arrivals.add(transfer);
+				Collections.sort(arrivals);
+				for(int j = 0; j < arrivals.size(); j++) {
+					transfer = arrivals.get(j);
+					sites[i].transferCall(transfer.arrivalTime, transfer.callLength, transfer.patience, transfer.callType);
+				}
+				allComplete &= sites[i].isShiftComplete() && arrivals.isEmpty();
+			}
+			updateOverflows();
+			complete = allComplete;
+			windowEnd += windowSeconds;
+		}
+	}
+	
+	/**
+	 * The overflow of one site, which sends the calls finding its lines 
+	 * busy to the other site with the most lines available.
+	 */
+	private class SiteOverflow implements CallOverflow {
+		
+		private final int site;
+		
+		/** The lines available at each site at the end of the last window, less the calls sent there since **/
+		private final int[] availablePhoneLines;
+		
+		private SiteOverflow(int theSite) {
+			site = theSite;
+			availablePhoneLines = new int[sites.length];
+		}
+		
+		public boolean overflowCall(long time, int customerID, int expectedCallLength, int patience, int callType) {
+			long arrivalTime = time + transferSeconds;
+			int target = -1;
+			for(int i = 0; i < sites.length; i++) {
+				if(i != site && availablePhoneLines[i] > 0 && arrivalTime <= sites[i].getClosingTime()
+						&& (target == -1 || availablePhoneLines[i] > availablePhoneLines[target]))
+					target = i;
+			}
+			if(target == -1)
+				return false;
+			availablePhoneLines[target]--;
+			transfers.get(target).add(new Transfer(arrivalTime, site, customerID, expectedCallLength, patience, callType));
+			return true;
+		}
+	}
+	
+	/**
+	 * A call sent on from one site to another, ordered by the time it 
+	 * arrives, then by the site and customer who sent it.
+	 */
+	private static class Transfer implements Comparable<Transfer> {
+		
+		private final long arrivalTime;
+		private final int site;
+		private final int customerID;
+		private final int callLength;
+		private final int patience;
+		private final int callType;
+		
+		private Transfer(long theArrivalTime, int theSite, int theCustomerID, int theCallLength, int thePatience, int theCallType) {
+			arrivalTime = theArrivalTime;
+			site = theSite;
+			customerID = theCustomerID;
+			callLength = theCallLength;
+			patience = thePatience;
+			callType = theCallType;
+		}
+		
+		public int compareTo(Transfer other) {
+			if(arrivalTime != other.arrivalTime)
+				return arrivalTime < other.arrivalTime ? -1 : 1;
+			if(site != other.site)
+				return site < other.site ? -1 : 1;
+			if(customerID != other.customerID)
+				return customerID < other.customerID ? -1 : 1;
+			return 0;
+		}
+	}
+}
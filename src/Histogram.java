@@ -0,0 +1,146 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class counts how often each whole-number value occurs in a stream 
+ * of values using a fixed number of bins. The required parameter for 
+ * creating a Histogram object is an integer, the number of bins. Values 
+ * from 0 up to one less than the number of bins are counted in their own 
+ * bin; larger values are counted in the last bin and negative values in 
+ * the first. The memory used is fixed when the histogram is created. The 
+ * counts can be written to and read back from a checkpoint, and the counts 
+ * of another histogram of the same number of bins added with merge.
+ * 
+ * @author Brett Crawford
+ */
+public class Histogram {
+	
+	private long count;
+	private long[] bins;
+	
+	/**
+	 * Creates a Histogram object with the specified parameters.
+	 * 
+	 * @param theNumberOfBins
+	 *            the number of bins, the last of which counts all larger values
+	 */
+	public Histogram(int theNumberOfBins) {
+		if(theNumberOfBins < 1)
+			throw new IllegalArgumentException("Number of bins must be at least 1: " + theNumberOfBins);
+		count = 0;
+		bins = new long[theNumberOfBins];
+	}
+	
+	/**
+	 * Records a single value.
+	 * 
+	 * @param value
+	 *           the value to record
+	 */
+	public void record(int value) {
+		if(value < 0)
+			value = 0;
+		else if(value >= bins.length)
+			value = bins.length - 1;
+		bins[value]++;
+		count++;
+	}
+	
+	/**
+	 * Adds the counts of another histogram with the same number of bins.
+	 * 
+	 * @param other
+	 *           the histogram whose counts are added
+	 */
+	public void merge(Histogram other) {
+		if(other.bins.length != bins.length)
+			throw new IllegalArgumentException("Histogram has " + other.bins.length + " bins, " + bins.length + " expected");
+		for(int i = 0; i < bins.length; i++)
+			bins[i] += other.bins[i];
+		count += other.count;
+	}
+	
+	/**
+	 * Returns the number of bins.
+	 * 
+	 * @return int
+	 *             the number of bins
+	 */
+	public int getNumberOfBins() {
+		return bins.length;
+	}
+	
+	/**
+	 * Returns the number of values counted in a bin.
+	 * 
+	 * @param bin
+	 *           the bin, which is also the value it counts
+	 * @return long
+	 *             the number of values in the bin
+	 */
+	public long getCount(int bin) {
+		return bins[bin];
+	}
+	
+	/**
+	 * Returns the total number of values recorded.
+	 * 
+	 * @return long
+	 *             the number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the smallest value at or below which the given fraction of 
+	 * the recorded values fall, or 0 if no values were recorded.
+	 * 
+	 * @param fraction
+	 *           the fraction of values, from 0 to 1
+	 * @return int
+	 *             the value at the given percentile
+	 */
+	public int getPercentile(double fraction) {
+		long target = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for(int i = 0; i < bins.length; i++) {
+			seen += bins[i];
+			if(seen >= target && seen > 0)
+				return i;
+		}
+		return 0;
+	}
+	
+	/**
+	 * Writes the counts of the bins to a checkpoint.
+	 * 
+	 * @param out
+	 *           the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(bins.length);
+		out.writeLong(count);
+		for(int i = 0; i < bins.length; i++)
+			out.writeLong(bins[i]);
+	}
+	
+	/**
+	 * Replaces the counts of the bins with those read from a checkpoint. 
+	 * The checkpoint must have the same number of bins.
+	 * 
+	 * @param in
+	 *           the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		int numberOfBins = in.readInt();
+		if(numberOfBins != bins.length)
+			throw new IllegalStateException("Checkpoint has " + numberOfBins + " bins, histogram has " + bins.length);
+		count = in.readLong();
+		for(int i = 0; i < bins.length; i++)
+			bins[i] = in.readLong();
+	}
+}
@@ -1,8 +1,9 @@
 
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
 
 /**
  * This class represents the log to be used for recording all statistical 
@@ -13,35 +14,62 @@ import java.util.Calendar;
  * employees to be used in the simulation. Upon completion of the 
  * simulation, the printStatistics method will return a formatted string 
  * containing statistics and information concerning hold times, customer 
- * calls, and employee/phone line idle times. The printEventLog method 
- * will return a formatted string containing each event in the simulation 
- * and its time of occurrences (careful, this string will likely be very 
- * long). 
+ * calls, and employee/phone line idle times. Events are passed, unformatted, 
+ * to the EventSink given to the Log, which decides whether to discard, keep, 
+ * or write them. The printEventLog method will return a formatted string 
+ * containing the events kept by the sink and their time of occurrences. 
+ * Hold times are kept in a StatAccumulator and a Histogram, and active 
+ * times in primitive arrays, so the memory used by the log does not grow 
+ * with the number of calls. The statistics can be written to a checkpoint 
+ * and read back, and the sink may be replaced when a checkpoint is restored. 
+ * A Telemetry may be given to the Log to also record arrivals of calls, 
+ * hang-ups, busy signals and the levels of the call center per interval 
+ * of time, and a BatchMeans to estimate the steady-state results of a 
+ * call center which runs without closing. A CallRecordLog may be given to 
+ * the Log to write a record of every call as it ends. The calls sent on to 
+ * another call center of a fleet are counted as overflows, and the logs of 
+ * the call centers of a fleet can be added to a Log of the whole fleet. 
+ * Customers who call again after a busy signal or a hang-up are counted 
+ * once as customers, along with the number of redials, and customers who 
+ * hang up to be called back are counted as callbacks. 
  * 
  * @author Brett Crawford
  */
 public class Log {
 
-	private static DecimalFormat fmt2 = new DecimalFormat("00");
-	private static DecimalFormat fmt3 = new DecimalFormat("000");
+	private DecimalFormat fmt2 = new DecimalFormat("00");
+	private DecimalFormat fmt3 = new DecimalFormat("000");
+	private DecimalFormat fmt0_0 = new DecimalFormat("0.0");
+	
+	/** The number of histogram bins for hold times, one per minute **/
+	private static final int HOLD_TIME_BINS = 61;
 
 	private int totalCustomers;
 	private int callsOnHoldMax;
 	private int hangUps;
 	private int busySignals;
+	private int overflows;
+	private int redials;
+	private int callbacks;
 	private int successfulCalls;
 	private int shiftLength;
-	private String eventLog;
 	private Clock clock;
-	private ArrayList<Integer> holdTimes;
-	private ArrayList<Integer> phoneLineActiveTimes;
-	private ArrayList<Integer> employeeActiveTimes;
+	private EventSink eventSink;
+	private Telemetry telemetry;
+	private BatchMeans batchMeans;
+	private CallRecordLog callRecordLog;
+	private StatAccumulator holdTimes;
+	private Histogram holdTimeHistogram;
+	private int[] phoneLineActiveTimes;
+	private int[] employeeActiveTimes;
 	
 	/**
 	 * Creates a Log object with the specified parameters.
 	 * 
 	 * @param theClock
 	 *            the clock used to manage time 
+	 * @param theEventSink
+	 *            the sink the events of the simulation are passed to
 	 * @param theShiftLength
 	 *            the length of the shift in hours used in the simulation  
 	 * @param theNumberOfEmployees
@@ -49,26 +77,24 @@ public class Log {
 	 * @param theNumberOfPhoneLines
 	 *            the number of phonelines used in the simulation  
 	 */
-	public Log(Clock theClock, int theShiftLength, int numberOfPhoneLines, int numberOfEmployees) {
+	public Log(Clock theClock, EventSink theEventSink, int theShiftLength, int numberOfPhoneLines, int numberOfEmployees) {
 		totalCustomers = 0;
 		callsOnHoldMax = 0;
 		hangUps = 0;
 		busySignals = 0;
+		overflows = 0;
+		redials = 0;
+		callbacks = 0;
 		successfulCalls = 0;
 		shiftLength = theShiftLength * 60;
-		eventLog = "";
 		clock = theClock;
-		holdTimes = new ArrayList<Integer>();
-		phoneLineActiveTimes = new ArrayList<Integer>(numberOfPhoneLines);
-		employeeActiveTimes = new ArrayList<Integer>(numberOfEmployees);
-		
-		for(int i = 0; i < numberOfPhoneLines; i++) {
-			phoneLineActiveTimes.add(0);
-		}
-
-		for(int i = 0; i < numberOfEmployees; i++) {
-			employeeActiveTimes.add(0);
-		}
+		eventSink = theEventSink;
+		telemetry = null;
+		batchMeans = null;
+		holdTimes = new StatAccumulator();
+		holdTimeHistogram = new Histogram(HOLD_TIME_BINS);
+		phoneLineActiveTimes = new int[numberOfPhoneLines];
+		employeeActiveTimes = new int[numberOfEmployees];
 	}
 	
 	/**
@@ -79,14 +105,43 @@ public class Log {
 	}
 	
 	/**
-	 * Records the time and the received event string.
+	 * Records the arrival of a call at the call center, whether or not it 
+	 * is connected. Has no effect unless the Log has a Telemetry or 
+	 * BatchMeans.
+	 */
+	public void recordArrival() {
+		if(telemetry != null)
+			telemetry.recordArrival(clock.getTime());
+		if(batchMeans != null)
+			batchMeans.recordArrival(clock.getTime());
+	}
+	
+	/**
+	 * Records the time and type of an event that involves no customer 
+	 * or employee.
 	 * 
-	 * @param event
-	 *           a string containing a description of the event
+	 * @param type
+	 *           the type of the event
 	 */
-	public void recordEvent(String event) {
-		eventLog = eventLog + fmt2.format(clock.getTime().get(Calendar.HOUR)) + ":" + 
-	               fmt2.format(clock.getTime().get(Calendar.MINUTE)) + " - " + event;
+	public void recordEvent(EventType type) {
+		recordEvent(type, 0, 0, 0);
+	}
+	
+	/**
+	 * Records the time, type, and details of an event. The event is 
+	 * passed to the event sink without being formatted.
+	 * 
+	 * @param type
+	 *           the type of the event
+	 * @param customerID
+	 *           the ID of the customer involved, or 0
+	 * @param employeeID
+	 *           the ID of the employee involved, or 0
+	 * @param callLength
+	 *           the length of the call involved, or 0
+	 */
+	public void recordEvent(EventType type, int customerID, int employeeID, int callLength) {
+		eventSink.eventRecorded(clock.getTime(), type, customerID, employeeID, callLength);
 	}
 	
 	/**
@@ -96,7 +151,10 @@ public class Log {
 	 *           the hold time of the call
 	 */
 	public void recordHoldTime(int holdTime) {
-		holdTimes.add(holdTime);
+		holdTimes.record(holdTime);
+		holdTimeHistogram.record(holdTime);
+		if(batchMeans != null)
+			batchMeans.recordHoldTime(clock.getTime(), holdTime);
 	}
 	
 	/**
@@ -116,6 +174,10 @@ public class Log {
 	 */
 	public void recordHangUp() {
 		hangUps++;
+		if(telemetry != null)
+			telemetry.recordAbandon(clock.getTime());
+		if(batchMeans != null)
+			batchMeans.recordHangUp(clock.getTime());
 	}
 	
 	/**
@@ -123,6 +185,77 @@ public class Log {
 	 */
 	public void recordBusySignal() {
 		busySignals++;
+		if(telemetry != null)
+			telemetry.recordBusySignal(clock.getTime());
+		if(batchMeans != null)
+			batchMeans.recordBusySignal(clock.getTime());
+	}
+	
+	/**
+	 * Records a single call sent on to another call center.
+	 */
+	public void recordOverflow() {
+		overflows++;
+	}
+	
+	/**
+	 * Records a single customer who will call again.
+	 */
+	public void recordRedial() {
+		redials++;
+	}
+	
+	/**
+	 * Records a single customer who hung up to be called back.
+	 */
+	public void recordCallback() {
+		callbacks++;
+	}
+	
+	/**
+	 * Records a call which has ended. Has no effect unless the Log has a 
+	 * CallRecordLog.
+	 * 
+	 * @param arrivalTime
+	 *           the time the customer called, in seconds since the epoch
+	 * @param customerID
+	 *           the ID of the customer
+	 * @param phoneLineID
+	 *           the ID of the phoneline, or 0 for a busy signal
+	 * @param employeeID
+	 *           the ID of the employee, or 0 if no employee answered
+	 * @param holdSeconds
+	 *           the seconds the customer spent on hold
+	 * @param talkSeconds
+	 *           the seconds the customer spent talking to the employee
+	 * @param expectedCallLength
+	 *           the length (in minutes) of the call the customer asked for
+	 * @param callType
+	 *           the type of the call
+	 * @param outcome
+	 *           CallRecordLog.COMPLETED, HUNG_UP, BUSY_SIGNAL or OVERFLOWED
+	 */
+	public void recordCall(long arrivalTime, int customerID, int phoneLineID, int employeeID, int holdSeconds, 
+			int talkSeconds, int expectedCallLength, int callType, byte outcome) {
+		if(callRecordLog != null)
+			callRecordLog.record(arrivalTime, customerID, phoneLineID, employeeID, holdSeconds, talkSeconds, 
+					expectedCallLength, callType, outcome);
+	}
+	
+	/**
+	 * Records the levels of the call center, which hold until they are next 
+	 * recorded. Has no effect unless the Log has a Telemetry.
+	 * 
+	 * @param callsOnHold
+	 *           the number of calls on hold
+	 * @param busyPhoneLines
+	 *           the number of phonelines in use
+	 * @param busyEmployees
+	 *           the number of employees on a call
+	 */
+	public void recordLevels(int callsOnHold, int busyPhoneLines, int busyEmployees) {
+		if(telemetry != null)
+			telemetry.recordLevels(clock.getTime(), callsOnHold, busyPhoneLines, busyEmployees);
 	}
 	
 	/**
@@ -141,8 +274,7 @@ public class Log {
 	 *           the amount of active time to record
 	 */
 	public void recordPhoneLineActiveTime(int id, int activeTime) {
-		int newTime = phoneLineActiveTimes.get(id - 1) + activeTime;
-		phoneLineActiveTimes.set(id - 1, newTime);
+		phoneLineActiveTimes[id - 1] += activeTime;
 	}
 	
 	/**
@@ -154,8 +286,7 @@ public class Log {
 	 *           the amount of active time to record
 	 */
 	public void recordEmployeeActiveTime(int id, int activeTime) {
-		int newTime = employeeActiveTimes.get(id - 1) + activeTime;
-		employeeActiveTimes.set(id - 1, newTime);
+		employeeActiveTimes[id - 1] += activeTime;
 	}
 	
 	/**
@@ -168,6 +299,123 @@ public class Log {
 		shiftLength += overtime;
 	}
 	
+	/**
+	 * Returns the number of customers in the simulation.
+	 * 
+	 * @return int
+	 *             the total number of customers
+	 */
+	public int getTotalCustomers() {
+		return totalCustomers;
+	}
+	
+	/**
+	 * Returns the number of customers who hung up while on hold.
+	 * 
+	 * @return int
+	 *             the number of hang ups
+	 */
+	public int getHangUps() {
+		return hangUps;
+	}
+	
+	/**
+	 * Returns the number of customers who received a busy signal.
+	 * 
+	 * @return int
+	 *             the number of busy signals
+	 */
+	public int getBusySignals() {
+		return busySignals;
+	}
+	
+	/**
+	 * Returns the number of customers sent on to another call center.
+	 * 
+	 * @return int
+	 *             the number of overflows
+	 */
+	public int getOverflows() {
+		return overflows;
+	}
+	
+	/**
+	 * Returns the number of times a customer who was not served called 
+	 * again.
+	 * 
+	 * @return int
+	 *             the number of redials
+	 */
+	public int getRedials() {
+		return redials;
+	}
+	
+	/**
+	 * Returns the number of customers who hung up to be called back.
+	 * 
+	 * @return int
+	 *             the number of callbacks
+	 */
+	public int getCallbacks() {
+		return callbacks;
+	}
+	
+	/**
+	 * Returns the number of successfully completed calls.
+	 * 
+	 * @return int
+	 *             the number of successful calls
+	 */
+	public int getSuccessfulCalls() {
+		return successfulCalls;
+	}
+	
+	/**
+	 * Returns the maximum number of calls on hold at one time.
+	 * 
+	 * @return int
+	 *             the maximum number of calls on hold
+	 */
+	public int getCallsOnHoldMax() {
+		return callsOnHoldMax;
+	}
+	
+	/**
+	 * Returns the accumulated hold times of the simulation's calls.
+	 * 
+	 * @return StatAccumulator
+	 *             the hold time statistics
+	 */
+	public StatAccumulator getHoldTimes() {
+		return holdTimes;
+	}
+	
+	/**
+	 * Returns the length of the shift in minutes, including overtime.
+	 * 
+	 * @return int
+	 *             the shift length in minutes
+	 */
+	public int getShiftLength() {
+		return shiftLength;
+	}
+	
+	/**
+	 * Returns the average idle time of the employees in minutes, 
+	 * including overtime.
+	 * 
+	 * @return double
+	 *             the average employee idle time in minutes
+	 */
+	public double getAverageEmployeeIdleTime() {
+		if(employeeActiveTimes.length == 0)
+			return 0;
+		long activeTotal = 0;
+		for(int i = 0; i < employeeActiveTimes.length; i++)
+			activeTotal += employeeActiveTimes[i];
+		return shiftLength - (double) activeTotal / employeeActiveTimes.length;
+	}
+	
 	/**
 	 * Returns a string containing the statistical information of the simulation.
 	 * 
@@ -176,21 +424,10 @@ public class Log {
 	 */
 	public String printStatistics() {
 		
-		int minHold = -1;
-		int avHoldTotal = 0;
-		int maxHold = -1;
-		for(Integer hold : holdTimes) {
-			if(minHold == -1) 
-				minHold = hold;
-			if(maxHold == -1)
-				maxHold = hold;
-			avHoldTotal = avHoldTotal + hold;
-			if(hold < minHold)
-				minHold = hold;
-			if(hold > maxHold)
-				maxHold = hold;
-		}
-		int avHold = avHoldTotal / holdTimes.size(); 
+		int minHold = (int) holdTimes.getMin();
+		int avHold = holdTimes.getCount() == 0 ? 0 : (int) (holdTimes.getSum() / holdTimes.getCount()); 
+		int maxHold = (int) holdTimes.getMax();
+		int holdPercentile90 = holdTimeHistogram.getPercentile(0.9);
 		
 		String stat = "|==========================================================|\n" +
 				      "|                    Simulation Results                    |\n" +
@@ -200,26 +437,35 @@ public class Log {
 		stat +=       "     Minimum amount of time a call remained on hold: " + fmt2.format(minHold) + (minHold == 1 ? " minute" : " minutes" ) + "\n";
 		stat +=       "     Average amount of time a call remained on hold: " + fmt2.format(avHold) + (avHold == 1 ? " minute" : " minutes" ) + "\n";
 		stat +=       "     Maximum amount of time a call remained on hold: " + fmt2.format(maxHold) + (maxHold == 1 ? " minute" : " minutes" ) + "\n";
+		stat +=       "     Standard deviation of time on hold: " + fmt0_0.format(holdTimes.getStandardDeviation()) + " minutes\n";
+		stat +=       "     90% of calls remained on hold at most: " + fmt2.format(holdPercentile90) + (holdPercentile90 == 1 ? " minute" : " minutes" ) + 
+				       (holdPercentile90 == HOLD_TIME_BINS - 1 ? " or more" : "") + "\n";
 		stat +=       "     Maximum number of calls on hold at one time: " + callsOnHoldMax + "\n";
 		stat +=       "   \n";
 		stat +=       "   Total customer calls: " + totalCustomers + "\n";
 		stat +=       "     Number of dropped calls (hang-ups): " + hangUps + "\n";
 		stat +=       "     Number of lost calls (busy signals): " + busySignals + "\n";
+		if(overflows > 0)
+			stat +=       "     Number of calls sent to another call center (overflows): " + overflows + "\n";
+		if(redials > 0)
+			stat +=       "     Number of calls made again after a busy signal or hang-up (redials): " + redials + "\n";
+		if(callbacks > 0)
+			stat +=       "     Number of customers called back rather than kept on hold (callbacks): " + callbacks + "\n";
 		stat +=       "     Number of successfully completed calls: " + successfulCalls + "\n";
 		stat +=       "   \n";
 		stat +=       "   Total shift length (including overtime): " + (shiftLength / 60) + ((shiftLength / 60) == 1 ? " hour " : " hours " ) +
 				       (shiftLength % 60) + ((shiftLength % 60) == 1 ? " minute" : " minutes" ) + "\n";
 		stat +=       "   \n";
 		stat +=       "   Phoneline Idle Times (including overtime)\n";
-		for(int i = 0; i < phoneLineActiveTimes.size(); i++) {
-			stat +=       "     Phoneline " + fmt2.format(i + 1) + ": " + fmt3.format(shiftLength - phoneLineActiveTimes.get(i)) + 
-					       ((shiftLength - phoneLineActiveTimes.get(i)) == 1 ? " minute" : " minutes" ) + "\n";
+		for(int i = 0; i < phoneLineActiveTimes.length; i++) {
+			stat +=       "     Phoneline " + fmt2.format(i + 1) + ": " + fmt3.format(shiftLength - phoneLineActiveTimes[i]) + 
+					       ((shiftLength - phoneLineActiveTimes[i]) == 1 ? " minute" : " minutes" ) + "\n";
 		}
 		stat +=       "   \n";
 		stat +=       "   Employee Idle Times (including overtime)\n";
-		for(int i = 0; i < employeeActiveTimes.size(); i++) {
-			stat +=       "     Employee " + fmt2.format(i + 1) + ": " + fmt3.format(shiftLength - employeeActiveTimes.get(i)) + 
-				           ((shiftLength - employeeActiveTimes.get(i)) == 1 ? " minute" : " minutes" ) + "\n";
+		for(int i = 0; i < employeeActiveTimes.length; i++) {
+			stat +=       "     Employee " + fmt2.format(i + 1) + ": " + fmt3.format(shiftLength - employeeActiveTimes[i]) + 
+				           ((shiftLength - employeeActiveTimes[i]) == 1 ? " minute" : " minutes" ) + "\n";
 		}
 		
 		stat += "\n|==========================================================|\n" +
@@ -229,12 +475,189 @@ public class Log {
 	}
 	
 	/**
-	 * Returns a string containing the event log from the simulation.
+	 * Adds the statistics of the log of one call center of a fleet to those 
+	 * of the fleet. The hold times, hang-ups, busy signals, overflows, 
+	 * redials, callbacks and completed calls are added, and the active times of the phonelines and 
+	 * employees are placed after those of the call centers before it. The 
+	 * customers are added less the overflows, as each call sent on is 
+	 * counted again by the call center taking it. The maximum number of 
+	 * calls on hold and the shift length are the largest of any one call 
+	 * center.
+	 * 
+	 * @param siteLog
+	 *           the log of the call center
+	 * @param phoneLineOffset
+	 *           the number of phonelines of the call centers before it
+	 * @param employeeOffset
+	 *           the number of employees of the call centers before it
+	 */
+	public void addSite(Log siteLog, int phoneLineOffset, int employeeOffset) {
+		totalCustomers += siteLog.totalCustomers - siteLog.overflows;
+		callsOnHoldMax = Math.max(callsOnHoldMax, siteLog.callsOnHoldMax);
+		hangUps += siteLog.hangUps;
+		busySignals += siteLog.busySignals;
+		overflows += siteLog.overflows;
+		redials += siteLog.redials;
+		callbacks += siteLog.callbacks;
+		successfulCalls += siteLog.successfulCalls;
+		shiftLength = Math.max(shiftLength, siteLog.shiftLength);
+		holdTimes.merge(siteLog.holdTimes);
+		holdTimeHistogram.merge(siteLog.holdTimeHistogram);
+		System.arraycopy(siteLog.phoneLineActiveTimes, 0, phoneLineActiveTimes, phoneLineOffset, siteLog.phoneLineActiveTimes.length);
+		System.arraycopy(siteLog.employeeActiveTimes, 0, employeeActiveTimes, employeeOffset, siteLog.employeeActiveTimes.length);
+	}
+	
+	/**
+	 * Replaces the sink the events of the simulation are passed to.
+	 * 
+	 * @param theEventSink
+	 *           the sink the events of the simulation are passed to
+	 */
+	public void setEventSink(EventSink theEventSink) {
+		eventSink = theEventSink;
+	}
+	
+	/**
+	 * Sets the Telemetry used to record the simulation per interval of time, 
+	 * or null to record none.
+	 * 
+	 * @param theTelemetry
+	 *           the telemetry of the simulation
+	 */
+	public void setTelemetry(Telemetry theTelemetry) {
+		telemetry = theTelemetry;
+	}
+	
+	/**
+	 * Returns the Telemetry used to record the simulation per interval of 
+	 * time, or null if there is none.
+	 * 
+	 * @return Telemetry
+	 *             the telemetry of the simulation
+	 */
+	public Telemetry getTelemetry() {
+		return telemetry;
+	}
+	
+	/**
+	 * Sets the BatchMeans used to estimate the steady-state results of the 
+	 * simulation, or null to keep none.
+	 * 
+	 * @param theBatchMeans
+	 *           the batch means of the simulation
+	 */
+	public void setBatchMeans(BatchMeans theBatchMeans) {
+		batchMeans = theBatchMeans;
+	}
+	
+	/**
+	 * Returns the BatchMeans used to estimate the steady-state results of 
+	 * the simulation, or null if there is none.
+	 * 
+	 * @return BatchMeans
+	 *             the batch means of the simulation
+	 */
+	public BatchMeans getBatchMeans() {
+		return batchMeans;
+	}
+	
+	/**
+	 * Sets the CallRecordLog the calls of the simulation are written to as 
+	 * they end, or null to write none.
+	 * 
+	 * @param theCallRecordLog
+	 *           the call record log of the simulation
+	 */
+	public void setCallRecordLog(CallRecordLog theCallRecordLog) {
+		callRecordLog = theCallRecordLog;
+	}
+	
+	/**
+	 * Returns the CallRecordLog the calls of the simulation are written to, 
+	 * or null if there is none.
+	 * 
+	 * @return CallRecordLog
+	 *             the call record log of the simulation
+	 */
+	public CallRecordLog getCallRecordLog() {
+		return callRecordLog;
+	}
+	
+	/**
+	 * Writes the statistics of the simulation to a checkpoint.
+	 * 
+	 * @param out
+	 *           the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(totalCustomers);
+		out.writeInt(callsOnHoldMax);
+		out.writeInt(hangUps);
+		out.writeInt(busySignals);
+		out.writeInt(overflows);
+		out.writeInt(redials);
+		out.writeInt(callbacks);
+		out.writeInt(successfulCalls);
+		out.writeInt(shiftLength);
+		holdTimes.writeState(out);
+		holdTimeHistogram.writeState(out);
+		for(int i = 0; i < phoneLineActiveTimes.length; i++)
+			out.writeInt(phoneLineActiveTimes[i]);
+		for(int i = 0; i < employeeActiveTimes.length; i++)
+			out.writeInt(employeeActiveTimes[i]);
+		out.writeBoolean(telemetry != null);
+		if(telemetry != null)
+			telemetry.writeState(out);
+		out.writeBoolean(batchMeans != null);
+		if(batchMeans != null)
+			batchMeans.writeState(out);
+	}
+	
+	/**
+	 * Replaces the statistics of the simulation with those read from a 
+	 * checkpoint of a simulation with the same number of phonelines and 
+	 * employees. If the checkpoint holds telemetry, the Log must have a 
+	 * Telemetry of the same capacity, and if it holds batch means, the Log 
+	 * must have a BatchMeans.
+	 * 
+	 * @param in
+	 *           the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		totalCustomers = in.readInt();
+		callsOnHoldMax = in.readInt();
+		hangUps = in.readInt();
+		busySignals = in.readInt();
+		overflows = in.readInt();
+		redials = in.readInt();
+		callbacks = in.readInt();
+		successfulCalls = in.readInt();
+		shiftLength = in.readInt();
+		holdTimes.readState(in);
+		holdTimeHistogram.readState(in);
+		for(int i = 0; i < phoneLineActiveTimes.length; i++)
+			phoneLineActiveTimes[i] = in.readInt();
+		for(int i = 0; i < employeeActiveTimes.length; i++)
+			employeeActiveTimes[i] = in.readInt();
+		if(in.readBoolean()) {
+			if(telemetry == null)
+				throw new IllegalStateException("Checkpoint has telemetry but the log has none");
+			telemetry.readState(in);
+		}
+		if(in.readBoolean()) {
+			if(batchMeans == null)
+				throw new IllegalStateException("Checkpoint has batch means but the log has none");
+			batchMeans.readState(in);
+		}
+	}
+	
+	/**
+	 * Returns a string containing the event log kept by the event sink.
 	 * 
 	 * @return String
 	 *             a string containing the event log of the simulation
 	 */
 	public String printEventLog() {
-		return eventLog;
+		return eventSink.printEvents();
 	}
 }
@@ -0,0 +1,174 @@
+
+
+import java.text.DecimalFormat;
+
+/**
+ * This class merges the forecasts of many forward runs of the call center 
+ * from one live state under a single intervention. The required parameters 
+ * for creating a Nowcast object include: an integer, the number of employees 
+ * sent on a break by the intervention; and an integer, the length (in 
+ * minutes) of the break. Each forward run's results over the forecast, 
+ * rather than over the whole shift, are added with the addReplication method 
+ * and recorded in StatAccumulator objects, so that the mean of each result 
+ * and the half-width of its 95% confidence interval can be reported.
+ * 
+ * @author Brett Crawford
+ */
+public class Nowcast {
+	
+	private DecimalFormat fmt = new DecimalFormat("0.00");
+	
+	private int employeesOnBreak;
+	private int breakMinutes;
+	private StatAccumulator calls;
+	private StatAccumulator busySignals;
+	private StatAccumulator hangUps;
+	private StatAccumulator successfulCalls;
+	private StatAccumulator averageHoldTime;
+	
+	/**
+	 * Creates an empty Nowcast object with the specified parameters.
+	 * 
+	 * @param theEmployeesOnBreak
+	 *            the number of employees sent on a break
+	 * @param theBreakMinutes
+	 *            the length (in minutes) of the break
+	 */
+	public Nowcast(int theEmployeesOnBreak, int theBreakMinutes) {
+		employeesOnBreak = theEmployeesOnBreak;
+		breakMinutes = theBreakMinutes;
+		calls = new StatAccumulator();
+		busySignals = new StatAccumulator();
+		hangUps = new StatAccumulator();
+		successfulCalls = new StatAccumulator();
+		averageHoldTime = new StatAccumulator();
+	}
+	
+	/**
+	 * Adds the results of a single forward run to the nowcast.
+	 * 
+	 * @param theCalls
+	 *            the number of customers who called during the run
+	 * @param theBusySignals
+	 *            the number of busy signals during the run
+	 * @param theHangUps
+	 *            the number of hang ups during the run
+	 * @param theSuccessfulCalls
+	 *            the number of calls completed during the run
+	 * @param theAverageHoldTime
+	 *            the average hold time (in minutes) of the calls which 
+	 *            left hold during the run
+	 */
+	public void addReplication(int theCalls, int theBusySignals, int theHangUps, int theSuccessfulCalls, double theAverageHoldTime) {
+		calls.record(theCalls);
+		busySignals.record(theBusySignals);
+		hangUps.record(theHangUps);
+		successfulCalls.record(theSuccessfulCalls);
+		averageHoldTime.record(theAverageHoldTime);
+	}
+	
+	/**
+	 * Returns the number of employees sent on a break.
+	 * 
+	 * @return int
+	 *            the number of employees on a break
+	 */
+	public int getEmployeesOnBreak() {
+		return employeesOnBreak;
+	}
+	
+	/**
+	 * Returns the length of the break.
+	 * 
+	 * @return int
+	 *            the length (in minutes) of the break
+	 */
+	public int getBreakMinutes() {
+		return breakMinutes;
+	}
+	
+	/**
+	 * Returns the number of forward runs added.
+	 * 
+	 * @return long
+	 *            the number of forward runs
+	 */
+	public long getReplications() {
+		return calls.getCount();
+	}
+	
+	/**
+	 * Returns the number of customers who called over the forward runs.
+	 * 
+	 * @return StatAccumulator
+	 *            the accumulated calls
+	 */
+	public StatAccumulator getCalls() {
+		return calls;
+	}
+	
+	/**
+	 * Returns the number of busy signals over the forward runs.
+	 * 
+	 * @return StatAccumulator
+	 *            the accumulated busy signals
+	 */
+	public StatAccumulator getBusySignals() {
+		return busySignals;
+	}
+	
+	/**
+	 * Returns the number of hang ups over the forward runs.
+	 * 
+	 * @return StatAccumulator
+	 *            the accumulated hang ups
+	 */
+	public StatAccumulator getHangUps() {
+		return hangUps;
+	}
+	
+	/**
+	 * Returns the number of completed calls over the forward runs.
+	 * 
+	 * @return StatAccumulator
+	 *            the accumulated completed calls
+	 */
+	public StatAccumulator getSuccessfulCalls() {
+		return successfulCalls;
+	}
+	
+	/**
+	 * Returns the average hold time (in minutes) over the forward runs.
+	 * 
+	 * @return StatAccumulator
+	 *            the accumulated average hold times
+	 */
+	public StatAccumulator getAverageHoldTime() {
+		return averageHoldTime;
+	}
+	
+	/**
+	 * Returns a line containing the intervention followed by the mean and 
+	 * confidence half-width of each result.
+	 * 
+	 * @return String
+	 *            the formatted line
+	 */
+	public String printLine() {
+		String intervention = employeesOnBreak == 0 ? "No change" : employeesOnBreak + " on " + breakMinutes + " min break";
+		return String.format("   %-20s%18s%18s%18s%18s%n", intervention, printResult(averageHoldTime), printResult(hangUps), 
+				printResult(busySignals), printResult(successfulCalls));
+	}
+	
+	/**
+	 * Returns the mean and confidence half-width of a result.
+	 * 
+	 * @param result
+	 *           the accumulated result
+	 * @return String
+	 *             the formatted result
+	 */
+	private String printResult(StatAccumulator result) {
+		return fmt.format(result.getMean()) + " +/- " + fmt.format(result.getConfidenceHalfWidth());
+	}
+}
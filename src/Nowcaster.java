@@ -0,0 +1,357 @@
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class follows a live call center as it runs and forecasts what would 
+ * follow from its current state under several interventions, such as sending 
+ * employees on a break. The required parameters for creating a Nowcaster 
+ * object include: the SimulationParameters describing the call center; a 
+ * long, the seed for the RNG; a long, the time the call center opened, in 
+ * seconds since the epoch; and an integer, the number of threads to run 
+ * forecasts on. 
+ * 
+ * The Nowcaster keeps a live CallCenterSimulation, whose phone manager, 
+ * phonelines and employees follow a feed of the call center's events rather 
+ * than customers of its own. Each line of the feed is either 
+ * "time,CALL,callLength,patience", a customer calling, whose call length (in 
+ * minutes) and patience (in seconds) may be 0 if not known; or 
+ * "time,BREAK,employeeID,minutes", an employee going on a break. Times are in 
+ * seconds since the epoch, and the events must be in order of time. Lines 
+ * which do not begin with a digit, such as a header line, are skipped. The 
+ * feed may be read from a file or a socket, and from another thread while 
+ * forecasts are made. 
+ * 
+ * To forecast, the live simulation is brought up to the current time and 
+ * captured in a SimulationCheckpoint, whose size depends only on the calls 
+ * in progress and not on how long the call center has been open. Every 
+ * forward run is restored from the one checkpoint, so the morning is never 
+ * simulated again and no forward run shares any state with another. Each 
+ * forward run draws its calls from the expected ArrivalProfile of the 
+ * parameters, or the average rate of their call probability, applies its 
+ * intervention and runs for the forecast horizon. The forward runs of 
+ * different interventions use the same seeds, so that the differences 
+ * between the interventions are not hidden by chance. The Nowcaster should 
+ * be shut down once it is no longer needed.
+ * 
+ * @author Brett Crawford
+ */
+public class Nowcaster {
+	
+	private SimulationParameters parameters;
+	private long seed;
+	private long timeOffset;
+	private long lastEventTime;
+	private ArrivalProfile forecastProfile;
+	private CallCenterSimulation simulation;
+	private ForkJoinPool pool;
+	
+	/**
+	 * Follows the feed of a live call center, read from a file or from a 
+	 * socket given as host:port, until the feed ends, then forecasts the 
+	 * next hour with up to four employees sent on a break and outputs the 
+	 * forecasts to the console. The call center is described by the default 
+	 * parameters.
+	 * 
+	 * @param args
+	 *            the file or host:port of the feed and the time the call 
+	 *            center opened, then optionally the length (in minutes) of 
+	 *            the breaks, the number of forward runs of each 
+	 *            intervention and the seed
+	 */
+	public static void main(String args[]) {
+		String feed = args[0];
+		long openingTime = Long.parseLong(args[1]);
+		int breakMinutes = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+		int replications = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.currentTimeMillis();
+		
+		Nowcaster nowcaster = new Nowcaster(new SimulationParameters(), seed, openingTime, 
+				Runtime.getRuntime().availableProcessors());
+		try {
+			int colon = feed.lastIndexOf(':');
+			if(colon > 0 && !Files.exists(Paths.get(feed))) {
+				try(Socket socket = new Socket(feed.substring(0, colon), Integer.parseInt(feed.substring(colon + 1)))) {
+					nowcaster.readFeed(socket.getInputStream());
+				}
+			}
+			else {
+				try(InputStream in = Files.newInputStream(Paths.get(feed))) {
+					nowcaster.readFeed(in);
+				}
+			}
+			
+			long startTime = System.nanoTime();
+			List<Nowcast> nowcasts = nowcaster.forecast(nowcaster.getLastEventTime(), new int[] { 0, 1, 2, 3, 4 }, 
+					breakMinutes, 60, replications);
+			long elapsed = (System.nanoTime() - startTime) / 1000000;
+			System.out.println(printForecast(nowcasts, 60));
+			System.out.println("Forecast in " + elapsed + " ms");
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read live feed " + feed, e);
+		}
+		finally {
+			nowcaster.shutdown();
+		}
+	}
+	
+	/**
+	 * Creates a Nowcaster object with the specified parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of the call center
+	 * @param theSeed
+	 *            the seed for the RNG
+	 * @param theOpeningTime
+	 *            the time the call center opened, in seconds since the epoch
+	 * @param theNumberOfThreads
+	 *            the number of threads to run forecasts on
+	 */
+	public Nowcaster(SimulationParameters theParameters, long theSeed, long theOpeningTime, int theNumberOfThreads) {
+		parameters = new SimulationParameters(theParameters);
+		parameters.setCallTraceFile(null);
+		seed = theSeed;
+		forecastProfile = parameters.getArrivalProfile() != null ? parameters.getArrivalProfile() 
+				: new ArrivalProfile(ErlangEstimator.getCallsPerMinute(parameters));
+		
+		simulation = new CallCenterSimulation(parameters, seed);
+		simulation.setLive(true);
+		simulation.initializeSim();
+		timeOffset = simulation.getTime() - theOpeningTime;
+		lastEventTime = theOpeningTime;
+		pool = new ForkJoinPool(theNumberOfThreads);
+	}
+	
+	/**
+	 * Reads the events of a feed until it ends, applying each to the live 
+	 * simulation as it is read.
+	 * 
+	 * @param in
+	 *            the feed of events
+	 * @return int
+	 *            the number of events read
+	 */
+	public int readFeed(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		int events = 0;
+		String line;
+		while((line = reader.readLine()) != null) {
+			if(line.isEmpty() || !Character.isDigit(line.charAt(0)))
+				continue;
+			applyEvent(line);
+			events++;
+		}
+		return events;
+	}
+	
+	/**
+	 * Applies a single line of a feed to the live simulation.
+	 * 
+	 * @param theLine
+	 *            the line of the feed
+	 */
+	public synchronized void applyEvent(String theLine) {
+		String[] fields = theLine.split(",");
+		try {
+			long time = Long.parseLong(fields[0].trim());
+			String kind = fields.length > 1 ? fields[1].trim() : "";
+			if(time < lastEventTime)
+				throw new IllegalArgumentException("Event is earlier than the event before it");
+			if(kind.equals("CALL")) {
+				simulation.offerCall(time + timeOffset, fields.length > 2 ? Integer.parseInt(fields[2].trim()) : 0, 
+						fields.length > 3 ? Integer.parseInt(fields[3].trim()) : 0);
+			}
+			else if(kind.equals("BREAK") && fields.length > 3) {
+				simulation.advanceTo(time + timeOffset);
+				simulation.startBreak(Integer.parseInt(fields[2].trim()), Integer.parseInt(fields[3].trim()));
+			}
+			else {
+				throw new IllegalArgumentException("Unknown event");
+			}
+			lastEventTime = time;
+		}
+		catch(IllegalArgumentException e) { // Includes badly formed numbers
+			throw new IllegalArgumentException("Unable to apply feed line \"" + theLine + "\": " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Forecasts the call center from the given time, which must not be 
+	 * before the last event of the feed, under each intervention. Each 
+	 * intervention sends a number of employees on a break at once, those 
+	 * free the longest first, and is run forward the given number of times.
+	 * 
+	 * @param theTime
+	 *            the current time, in seconds since the epoch
+	 * @param theEmployeesOnBreak
+	 *            the number of employees sent on a break by each intervention
+	 * @param theBreakMinutes
+	 *            the length (in minutes) of the breaks
+	 * @param theHorizonMinutes
+	 *            the number of minutes to forecast
+	 * @param theReplications
+	 *            the number of forward runs of each intervention
+	 * @return List
+	 *            the forecast of each intervention, in the order given
+	 */
+	public List<Nowcast> forecast(long theTime, int[] theEmployeesOnBreak, final int theBreakMinutes, int theHorizonMinutes, 
+			int theReplications) {
+		if(theHorizonMinutes <= 0 || theReplications <= 0 || theBreakMinutes <= 0)
+			throw new IllegalArgumentException("Horizon, replications and break length must be positive");
+		
+		final SimulationCheckpoint checkpoint;
+		final long endTime;
+		synchronized(this) {
+			if(theTime < lastEventTime)
+				throw new IllegalArgumentException("Cannot forecast from before the last event of the feed");
+			if(simulation.advanceTo(theTime + timeOffset))
+				throw new IllegalStateException("The shift is complete");
+			checkpoint = new SimulationCheckpoint(simulation);
+			endTime = simulation.getTime() + theHorizonMinutes * 60L;
+		}
+		
+		List<Callable<int[]>> runs = new ArrayList<Callable<int[]>>(theEmployeesOnBreak.length * theReplications);
+		for(int i = 0; i < theEmployeesOnBreak.length; i++) {
+			final int employeesOnBreak = theEmployeesOnBreak[i];
+			if(employeesOnBreak < 0)
+				throw new IllegalArgumentException("Number of employees on a break must not be negative");
+			for(int j = 0; j < theReplications; j++) {
+				final long runSeed = ReplicationRunner.getReplicationSeed(seed, j);
+				runs.add(new Callable<int[]>() {
+					public int[] call() {
+						return runForward(checkpoint, runSeed, employeesOnBreak, theBreakMinutes, endTime);
+					}
+				});
+			}
+		}
+		
+		List<Nowcast> nowcasts = new ArrayList<Nowcast>(theEmployeesOnBreak.length);
+		try {
+			List<Future<int[]>> results = pool.invokeAll(runs);
+			for(int i = 0; i < theEmployeesOnBreak.length; i++) {
+				Nowcast nowcast = new Nowcast(theEmployeesOnBreak[i], theBreakMinutes);
+				for(int j = 0; j < theReplications; j++) {
+					int[] result = results.get(i * theReplications + j).get();
+					nowcast.addReplication(result[0], result[1], result[2], result[3], 
+							result[5] == 0 ? 0 : (double) result[4] / result[5]);
+				}
+				nowcasts.add(nowcast);
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while forecasting", e);
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException("Forecast failed", e.getCause());
+		}
+		return nowcasts;
+	}
+	
+	/**
+	 * Returns the time of the last event of the feed.
+	 * 
+	 * @return long
+	 *            the time of the last event, in seconds since the epoch
+	 */
+	public synchronized long getLastEventTime() {
+		return lastEventTime;
+	}
+	
+	/**
+	 * Returns the log of the live simulation. The log must not be used 
+	 * while events are being applied.
+	 * 
+	 * @return Log
+	 *            the log of the live simulation
+	 */
+	public Log getLog() {
+		return simulation.getLog();
+	}
+	
+	/**
+	 * Stops the threads used to run forecasts.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Returns a string containing the forecast of each intervention.
+	 * 
+	 * @param theNowcasts
+	 *            the forecasts of the interventions
+	 * @param theHorizonMinutes
+	 *            the number of minutes forecast
+	 * @return String
+	 *            a string containing the forecasts
+	 */
+	public static String printForecast(List<Nowcast> theNowcasts, int theHorizonMinutes) {
+		String stat = "|==========================================================|\n" +
+			          "|                    Nowcast Forecasts                     |\n" +
+			          "|==========================================================|\n\n";
+		
+		stat +=       "   Next " + theHorizonMinutes + " minutes, " + (theNowcasts.isEmpty() ? 0 : theNowcasts.get(0).getReplications()) + 
+				      " runs each (mean +/- 95% confidence half-width)\n";
+		stat +=       "   \n";
+		stat +=       String.format("   %-20s%18s%18s%18s%18s%n", "Intervention", "Avg hold (min)", "Hang-ups", "Busy signals", "Completed");
+		for(int i = 0; i < theNowcasts.size(); i++)
+			stat +=   theNowcasts.get(i).printLine();
+		
+		stat += "\n|==========================================================|\n" +
+			      "|==========================================================|\n";
+		
+		return stat;
+	}
+	
+	/**
+	 * Restores a forward run from the checkpoint, applies its intervention 
+	 * and runs it to the given time.
+	 * 
+	 * @param checkpoint
+	 *            the checkpoint of the live simulation
+	 * @param runSeed
+	 *            the seed for the RNG of the forward run
+	 * @param employeesOnBreak
+	 *            the number of employees to send on a break
+	 * @param breakMinutes
+	 *            the length (in minutes) of the break
+	 * @param endTime
+	 *            the time, in seconds since the epoch, at which the run ends
+	 * @return int[]
+	 *            the calls, busy signals, hang ups, completed calls, total 
+	 *            hold time and number of hold times of the run
+	 */
+	private int[] runForward(SimulationCheckpoint checkpoint, long runSeed, int employeesOnBreak, int breakMinutes, long endTime) {
+		CallCenterSimulation forward = checkpoint.restore(new NullEventSink(), runSeed);
+		forward.forecast(forecastProfile);
+		if(employeesOnBreak > 0)
+			forward.startBreaks(employeesOnBreak, breakMinutes);
+		
+		Log log = forward.getLog();
+		int calls = log.getTotalCustomers();
+		int busySignals = log.getBusySignals();
+		int hangUps = log.getHangUps();
+		int successfulCalls = log.getSuccessfulCalls();
+		double holdTime = log.getHoldTimes().getSum();
+		long holds = log.getHoldTimes().getCount();
+		forward.advanceTo(endTime);
+		return new int[] { log.getTotalCustomers() - calls, log.getBusySignals() - busySignals, log.getHangUps() - hangUps, 
+				log.getSuccessfulCalls() - successfulCalls, (int) (log.getHoldTimes().getSum() - holdTime), 
+				(int) (log.getHoldTimes().getCount() - holds) };
+	}
+}
@@ -0,0 +1,44 @@
+
+
+/**
+ * This class represents an event sink that discards every event. It is 
+ * used when the simulation's event log is not needed, so that recording 
+ * an event costs nothing more than a method call.
+ * 
+ * @author Brett Crawford
+ */
+public class NullEventSink implements EventSink {
+	
+	/**
+	 * Discards the event.
+	 * 
+	 * @param time
+	 *            the time of the event, in seconds since the epoch
+	 * @param type
+	 *            the type of the event
+	 * @param customerID
+	 *            the ID of the customer involved, or 0
+	 * @param employeeID
+	 *            the ID of the employee involved, or 0
+	 * @param callLength
+	 *            the length of the call involved, or 0
+	 */
+	public void eventRecorded(long time, EventType type, int customerID, int employeeID, int callLength) {
+	}
+	
+	/**
+	 * Returns an empty string, as no events are kept.
+	 * 
+	 * @return String
+	 *             an empty string
+	 */
+	public String printEvents() {
+		return "";
+	}
+	
+	/**
+	 * Does nothing, as no resources are held.
+	 */
+	public void close() {
+	}
+}
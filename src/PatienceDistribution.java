@@ -0,0 +1,170 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * This class represents the distribution of the patience of customers, the 
+ * number of seconds a customer remains on hold before hanging up. A 
+ * PatienceDistribution is created with one of the fixed, uniform or 
+ * exponential methods: a fixed distribution gives every customer the same 
+ * patience; a uniform distribution draws it evenly between a minimum and 
+ * a maximum; and an exponential distribution draws it around a mean, so 
+ * that most customers hang up early while a few wait far longer. A fixed 
+ * distribution draws no random values at all, so customers given the 
+ * default patience through one are the same as without it. A 
+ * PatienceDistribution is never changed once created, so one may be shared 
+ * by many simulations. A distribution can be written to a checkpoint and 
+ * read back exactly.
+ * 
+ * @author Brett Crawford
+ */
+public class PatienceDistribution {
+	
+	/** The kind of a distribution giving every customer the same patience **/
+	private static final int FIXED = 0;
+	
+	/** The kind of a distribution drawing patience evenly between two values **/
+	private static final int UNIFORM = 1;
+	
+	/** The kind of a distribution drawing patience around a mean **/
+	private static final int EXPONENTIAL = 2;
+	
+	private int kind;
+	private int minimum;
+	private int maximum;
+	
+	/**
+	 * Creates a PatienceDistribution object with the specified parameters.
+	 * 
+	 * @param theKind
+	 *            the kind of the distribution
+	 * @param theMinimum
+	 *            the fixed patience, the least patience drawn or the mean 
+	 *            patience, in seconds
+	 * @param theMaximum
+	 *            the greatest patience drawn, in seconds
+	 */
+	private PatienceDistribution(int theKind, int theMinimum, int theMaximum) {
+		if(theMinimum < 1 || theMaximum < theMinimum)
+			throw new IllegalArgumentException("Patience must be at least 1 second and the maximum no less than the minimum");
+		kind = theKind;
+		minimum = theMinimum;
+		maximum = theMaximum;
+	}
+	
+	/**
+	 * Returns a distribution giving every customer the given patience.
+	 * 
+	 * @param thePatience
+	 *            the patience of every customer, in seconds
+	 * @return PatienceDistribution
+	 *            the distribution
+	 */
+	public static PatienceDistribution fixed(int thePatience) {
+		return new PatienceDistribution(FIXED, thePatience, thePatience);
+	}
+	
+	/**
+	 * Returns a distribution drawing patience evenly between the given 
+	 * minimum and maximum, inclusive.
+	 * 
+	 * @param theMinimum
+	 *            the least patience drawn, in seconds
+	 * @param theMaximum
+	 *            the greatest patience drawn, in seconds
+	 * @return PatienceDistribution
+	 *            the distribution
+	 */
+	public static PatienceDistribution uniform(int theMinimum, int theMaximum) {
+		return new PatienceDistribution(UNIFORM, theMinimum, theMaximum);
+	}
+	
+	/**
+	 * Returns a distribution drawing patience from an exponential 
+	 * distribution with the given mean. Patience is drawn as at least 1 
+	 * second.
+	 * 
+	 * @param theMean
+	 *            the mean patience, in seconds
+	 * @return PatienceDistribution
+	 *            the distribution
+	 */
+	public static PatienceDistribution exponential(int theMean) {
+		return new PatienceDistribution(EXPONENTIAL, theMean, theMean);
+	}
+	
+	/**
+	 * Reads a PatienceDistribution written to a checkpoint by writeState.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @return PatienceDistribution
+	 *            the distribution read
+	 */
+	public static PatienceDistribution readState(DataInput in) throws IOException {
+		int kind = in.readInt();
+		if(kind < FIXED || kind > EXPONENTIAL)
+			throw new IllegalStateException("Unknown patience distribution " + kind + " in checkpoint");
+		return new PatienceDistribution(kind, in.readInt(), in.readInt());
+	}
+	
+	/**
+	 * Writes the distribution to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(kind);
+		out.writeInt(minimum);
+		out.writeInt(maximum);
+	}
+	
+	/**
+	 * Returns the patience of a customer drawn from the distribution.
+	 * 
+	 * @param rand
+	 *            the RNG used for patience
+	 * @return int
+	 *            the patience of the customer, in seconds
+	 */
+	public int draw(Random rand) {
+		if(kind == UNIFORM)
+			return minimum + rand.nextInt(maximum - minimum + 1);
+		if(kind == EXPONENTIAL)
+			return (int) Math.max(1, Math.round(-minimum * Math.log(1 - rand.nextDouble())));
+		return minimum;
+	}
+	
+	/**
+	 * Returns the mean patience of the distribution: the fixed patience, 
+	 * the middle of the uniform range, or the exponential mean.
+	 * 
+	 * @return double
+	 *            the mean patience, in seconds
+	 */
+	public double getMean() {
+		if(kind == UNIFORM)
+			return (minimum + maximum) / 2.0;
+		return minimum;
+	}
+	
+	/**
+	 * Returns the kind of the distribution followed by its values in 
+	 * seconds, separated by colons, such as exponential:300, the same for 
+	 * any two distributions which are equal.
+	 * 
+	 * @return String
+	 *            the kind and values of the distribution
+	 */
+	public String toString() {
+		if(kind == UNIFORM)
+			return "uniform:" + minimum + ":" + maximum;
+		if(kind == EXPONENTIAL)
+			return "exponential:" + minimum;
+		return "fixed:" + minimum;
+	}
+}
@@ -1,52 +1,107 @@
 
 
-import java.util.Calendar;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import java.util.Map;
 
 /**
  * This class represents a phone line with the call center simulation. 
  * Each phone line is assigned an identification number based on the 
  * order in which it is created. The required parameters for creating 
- * a PhoneLine object include: a reference to the Log, to keep track 
+ * a PhoneLine object include: an integer, the phone line's identification 
+ * number; a reference to the Log, to keep track 
  * of customer statistics, and a clock, used for calculating and 
  * recording hold times and active times. The PhoneLine object is 
  * used by the PhoneManager to connect customers to employees. A 
  * customer is placed on the phone line to await connection to an 
  * employee designated by the phone management system. The PhoneLine 
  * records general hold times and phone line specific active times 
- * with the Log object.
+ * with the Log object. When a customer hangs up or a call ends, the 
+ * PhoneLine tells its PhoneManager that it is available again, and the 
+ * call is recorded with the Log as it ends. A customer who asks to be 
+ * called back leaves the phone line without it being counted as a hang-up, 
+ * and their hold is recorded once they are called back. Each call placed 
+ * on hold is given a hold sequence number by the PhoneManager, which 
+ * orders the calls on hold by the time their hold began. The state 
+ * of a phone line, including who it connects, can be written to a 
+ * checkpoint and read back.
  * 
  * @author Brett Crawford
  */
-public class PhoneLine {
-	
-	private static int lastID = 0;
+public class PhoneLine implements Comparable<PhoneLine> {
 	
 	private int id;
 	private int customerID;
 	private int expectedCallLength;
-	private Calendar holdTimeStart;
+	private int callType;
+	private long holdTimeStart;
+	private long holdSequence;
+	private long placedTime;
+	private long connectTime;
 	private CallParticipant customer;
 	private CallParticipant employee;
 	private Clock clock;
 	private Log log;
+	private PhoneManager phoneManager;
 	
 	/**
 	 * Creates a PhoneLine object with the specified parameters.
 	 * 
+	 * @param theID
+	 *            the identification number of the phoneline
 	 * @param theLog
 	 *            the log object for recording events/statistics
 	 * @param theClock
 	 *            the clock used to manage time 
 	 */
-	public PhoneLine(Log theLog, Clock theClock) {
-		id = ++lastID;
+	public PhoneLine(int theID, Log theLog, Clock theClock) {
+		id = theID;
 		customerID = 0;
 		customer = null;
 		expectedCallLength = 0;
-		holdTimeStart = null;
+		callType = 0;
+		holdTimeStart = -1;
+		holdSequence = -1;
+		placedTime = -1;
+		connectTime = -1;
 		employee = null;
 		clock = theClock;
 		log = theLog;
+		phoneManager = null;
+	}
+	
+	/**
+	 * Returns the ID of the phoneline
+	 * 
+	 * @return int
+	 *            the ID of the phoneline      
+	 */
+	public int getID() {
+		return id;
+	}
+	
+	/**
+	 * Compares phonelines by ID, so that lower IDs are used first.
+	 * 
+	 * @param other
+	 *            the phoneline to compare to
+	 * @return int
+	 *            negative, zero, or positive as this ID is lower, equal, or higher
+	 */
+	public int compareTo(PhoneLine other) {
+		return Integer.compare(id, other.id);
+	}
+	
+	/**
+	 * Sets the phone manager to be notified when the phoneline is released.
+	 * 
+	 * @param thePhoneManager
+	 *            the phone manager managing the phoneline
+	 */
+	public void setPhoneManager(PhoneManager thePhoneManager) {
+		phoneManager = thePhoneManager;
 	}
 	
 	/**
@@ -95,6 +150,39 @@ public class PhoneLine {
 		return expectedCallLength;
 	}
 	
+	/**
+	 * Returns the type of the call on the phoneline
+	 * 
+	 * @return int
+	 *            the type of the call on the phoneline        
+	 */
+	public int getCallType() {
+		return callType;
+	}
+	
+	/**
+	 * Returns the time at which the call on the phoneline was placed on 
+	 * hold, or -1 if the phoneline is not on hold
+	 * 
+	 * @return long
+	 *            the time the hold began, in seconds        
+	 */
+	public long getHoldStartTime() {
+		return holdTimeStart;
+	}
+	
+	/**
+	 * Returns the hold sequence number of the call last placed on hold on 
+	 * the phoneline. It is kept once the call leaves the phoneline, so that 
+	 * the router can find the call by it when the phoneline is released.
+	 * 
+	 * @return long
+	 *            the hold sequence number of the call
+	 */
+	public long getHoldSequence() {
+		return holdSequence;
+	}
+	
 	/**
 	 * Connects the customer and their information to the phoneline. Begins 
 	 * recording the total time on hold.
@@ -105,12 +193,21 @@ public class PhoneLine {
 	 *            the ID of the customer
 	 * @param theExpectedCallLength
 	 *            the expected length of the call        
+	 * @param theCallType
+	 *            the type of the call        
+	 * @param theHoldSequence
+	 *            the hold sequence number of the call, greater than that 
+	 *            of every call placed on hold before it
 	 */
-	public void connectCustomer(CallParticipant theCustomer, int theCustomerID, int theExpectedCallLength) {
+	public void connectCustomer(CallParticipant theCustomer, int theCustomerID, int theExpectedCallLength, int theCallType, 
+			long theHoldSequence) {
 		customerID = theCustomerID;
 		customer = theCustomer;
 		expectedCallLength = theExpectedCallLength;
-		holdTimeStart = (Calendar) clock.getTime().clone();
+		callType = theCallType;
+		holdTimeStart = clock.getTime();
+		holdSequence = theHoldSequence;
+		placedTime = holdTimeStart;
 	}
 	
 	/**
@@ -118,16 +215,35 @@ public class PhoneLine {
 	 * Total hold time is recorded and logged.
 	 */
 	public void hangUp() {
+		int hungUpCustomerID = customerID;
+		log.recordCall(placedTime, customerID, id, 0, (int) (clock.getTime() - placedTime), 0, 
+				expectedCallLength, callType, CallRecordLog.HUNG_UP);
 		customerID = 0;
 		customer = null;
 		expectedCallLength = 0;
 		log.recordHangUp();
-		int holdTime = clock.getTime().get(Calendar.MINUTE) - holdTimeStart.get(Calendar.MINUTE);
-		if(holdTime < 0)
-			holdTime = holdTime + 60;
+		int holdTime = getHoldTime();
 		log.recordHoldTime(holdTime);
 		log.recordPhoneLineActiveTime(id, holdTime);
-		holdTimeStart = null;
+		holdTimeStart = -1;
+		placedTime = -1;
+		phoneManager.lineReleased(this, hungUpCustomerID);
+	}
+	
+	/**
+	 * Allows the customer to leave the phoneline while waiting on hold, to 
+	 * be called back. The time the phoneline was in use is logged, but no 
+	 * hang-up or call is recorded.
+	 */
+	public void releaseForCallback() {
+		int releasedCustomerID = customerID;
+		customerID = 0;
+		customer = null;
+		expectedCallLength = 0;
+		log.recordPhoneLineActiveTime(id, getHoldTime());
+		holdTimeStart = -1;
+		placedTime = -1;
+		phoneManager.lineReleased(this, releasedCustomerID);
 	}
 	
 	/**
@@ -139,12 +255,11 @@ public class PhoneLine {
 	 */
 	public void connectEmployee(CallParticipant theEmployee) {
 		employee = theEmployee;
-		int holdTime = clock.getTime().get(Calendar.MINUTE) - holdTimeStart.get(Calendar.MINUTE);
-		if(holdTime < 0)
-			holdTime = holdTime + 60;
+		connectTime = clock.getTime();
+		int holdTime = getHoldTime();
 		log.recordHoldTime(holdTime);
 		log.recordPhoneLineActiveTime(id, holdTime);
-		holdTimeStart = null;
+		holdTimeStart = -1;
 	}
 	
 	/**
@@ -154,13 +269,73 @@ public class PhoneLine {
 	 *            the actual length of the call       
 	 */
 	public void endCall(int theActualCallLength) {
+		int endedCustomerID = customerID;
 		log.recordPhoneLineActiveTime(id, theActualCallLength);
+		log.recordCall(placedTime, customerID, id, ((Employee) employee).getID(), (int) (connectTime - placedTime), 
+				(int) (clock.getTime() - connectTime), expectedCallLength, callType, CallRecordLog.COMPLETED);
 		employee.callCompleted();
 		customer.callCompleted();
 		customerID = 0;
 		customer = null;
 		expectedCallLength = 0;
 		employee = null;
+		placedTime = -1;
+		connectTime = -1;
+		phoneManager.lineReleased(this, endedCustomerID);
+	}
+
+	/**
+	 * Writes the state of the phoneline to a checkpoint. The customer and 
+	 * employee are written as their IDs.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(customerID);
+		out.writeInt(expectedCallLength);
+		out.writeInt(callType);
+		out.writeLong(holdTimeStart);
+		out.writeLong(holdSequence);
+		out.writeLong(placedTime);
+		out.writeLong(connectTime);
+		out.writeInt(employee == null ? 0 : ((Employee) employee).getID());
+	}
+	
+	/**
+	 * Replaces the state of the phoneline with that read from a checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param theCustomers
+	 *            the customers of the simulation, by ID
+	 * @param thePhoneManager
+	 *            the phone manager from which the employee is found
+	 */
+	public void readState(DataInput in, Map<Integer, Customer> theCustomers, PhoneManager thePhoneManager) throws IOException {
+		customerID = in.readInt();
+		expectedCallLength = in.readInt();
+		callType = in.readInt();
+		holdTimeStart = in.readLong();
+		holdSequence = in.readLong();
+		placedTime = in.readLong();
+		connectTime = in.readLong();
+		int employeeID = in.readInt();
+		customer = customerID == 0 ? null : theCustomers.get(customerID);
+		employee = employeeID == 0 ? null : thePhoneManager.getEmployee(employeeID);
+		if(customerID != 0 && customer == null)
+			throw new IllegalStateException("Checkpoint has no customer " + customerID + " for phoneline " + id);
+	}
+	
+	/**
+	 * Returns the number of clock minutes that have begun since the 
+	 * customer was placed on hold.
+	 * 
+	 * @return int
+	 *            the hold time in minutes
+	 */
+	private int getHoldTime() {
+		return (int) (clock.getTime() / 60 - holdTimeStart / 60);
 	}
 
 }
@@ -1,5 +1,8 @@
 
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -14,26 +17,85 @@ import java.util.*;
  * PhoneManager determines if employees are available to take calls and if 
  * incoming calls are on hold. If so, employees will be paired with incoming 
  * calls until no more employees are available to take calls at that moment. 
- * Calls are taken on a first-come, first-served basis. When the allotted 
+ * Which employee takes which call is decided by a CallRouter. By default 
+ * calls are taken on a first-come, first-served basis by the available 
+ * employee with the lowest ID; a SkillBasedRouter may be set instead to 
+ * route calls by type and skill. Rather than searching every phone line, 
+ * the PhoneManager keeps the available phone lines in a queue ordered by 
+ * ID, and the router keeps the available employees and lines on hold, 
+ * which phone lines and employees update as their calls begin and end. 
+ * When the allotted 
  * shift length has passed, the incoming lines are shut down, but calls that 
  * are currently in progress and calls that are waiting on hold are continued 
  * to be processed. When all calls have finished, the PhoneManager will shut 
  * down. The PhoneManager records opening and closing events of the call 
  * center and the overtime from the closing process using the Log object.
+ * A PhoneManager may instead be made continuous, for a call center which 
+ * never closes: once the shift length has passed, the run simply ends, 
+ * without shutting down the lines or finishing the calls in progress.
+ * Employees may be sent on breaks during the shift; as the router has no 
+ * way to forget an available employee, the router is then replaced by an 
+ * empty one given the employees still available and the lines on hold, just 
+ * as when the router is rebuilt from a checkpoint. An employee on a break 
+ * is not offered calls until they return.
+ * The state of the PhoneManager, along with that of its phone lines and 
+ * employees, can be written to a checkpoint and read back. Whenever the 
+ * number of calls on hold, phone lines in use or employees on a call 
+ * changes, the new levels are recorded with the Log. Each customer of the 
+ * CustomerGenerator is given a Customer object of its own, which places 
+ * its call through the directCall method. When given a CallOverflow, a 
+ * customer who finds every phone line busy while the call center is open 
+ * is offered to it through the overflowCall method, unless the customer's 
+ * call was itself transferred from another call center.
+ * When given a redial probability, a customer who receives a busy signal 
+ * or hangs up calls again with that chance through the redialCall method, 
+ * after a delay drawn from an exponential distribution. When given a 
+ * callback probability, a customer placed on hold asks with that chance 
+ * through the requestCallback method to be called back, and leaves its 
+ * phone line. Customers waiting to call again or to be called back are 
+ * kept by the PhoneManager in queues ordered by time, rather than being 
+ * ticked by the clock: the customers due to call again are given a new 
+ * Customer object when the PhoneManager is ticked at their time, and once 
+ * the calls on hold have been taken, the customers waiting for a callback 
+ * are called back, oldest request first, on a free phone line while an 
+ * employee is left free to take the call. Callbacks thus never take an 
+ * employee from a call on hold: a customer called back is placed on hold 
+ * only when no other call is, whatever its customer ID. Each call placed 
+ * on hold is given the next hold sequence number, by which the router 
+ * orders the calls on hold, so a customer calling again waits behind the 
+ * calls already on hold. Once the lines are shut down 
+ * the customers waiting to call again do so at once, and find the lines 
+ * shut, but the customers waiting for a callback are still called back 
+ * before the call center closes.
  * 
  * @author Brett Crawford
  */
-public class PhoneManager implements ClockManaged {
+public class PhoneManager implements CallCenter {
 	
 	private boolean callCenterOpen;
 	private boolean shiftComplete;
+	private boolean closingScheduled;
 	private int shiftLength;
 	private int overtime;
 	private Clock clock;
-	private Calendar closingTime;
+	private long closingTime;
 	private Log log;
 	private ArrayList<Employee> managedEmployees;
 	private ArrayList<PhoneLine> managedPhoneLines;
+	private PriorityQueue<PhoneLine> availablePhoneLines;
+	private CallRouter callRouter;
+	private long scheduledOverflowTime;
+	private int busyEmployees;
+	private boolean continuous;
+	private CallOverflow callOverflow;
+	private float redialProbability;
+	private int redialDelay;
+	private float callbackProbability;
+	private Random retrialRand;
+	private PriorityQueue<PendingCall> redials;
+	private PriorityQueue<PendingCall> callbacks;
+	private long nextPendingOrder;
+	private long nextHoldSequence;
 	
 	/**
 	 * Creates a PhoneManager object with the specified parameters.
@@ -48,15 +110,95 @@ public class PhoneManager implements ClockManaged {
 	public PhoneManager(Log theLog, Clock theClock, int theShiftLength) {
 		callCenterOpen = true;
 		shiftComplete = false;
+		closingScheduled = false;
 		shiftLength = theShiftLength;
 		overtime = 0;
 		clock = theClock;
-		closingTime = (Calendar) clock.getTime().clone();
-		closingTime.add(Calendar.HOUR, shiftLength);
+		closingTime = clock.getTime() + shiftLength * 60 * 60;
 		log = theLog;
-		log.recordEvent("Call center opened.\n");
+		log.recordEvent(EventType.CALL_CENTER_OPENED);
 		managedEmployees = new ArrayList<Employee>();
 		managedPhoneLines = new ArrayList<PhoneLine>();
+		availablePhoneLines = new PriorityQueue<PhoneLine>();
+		callRouter = new FirstAvailableRouter();
+		scheduledOverflowTime = -1;
+		busyEmployees = 0;
+		continuous = false;
+		callOverflow = null;
+		redialProbability = 0;
+		redialDelay = 0;
+		callbackProbability = 0;
+		retrialRand = null;
+		redials = new PriorityQueue<PendingCall>();
+		callbacks = new PriorityQueue<PendingCall>();
+		nextPendingOrder = 0;
+		nextHoldSequence = 0;
+	}
+	
+	/**
+	 * Sets whether the call center runs without closing, so that the run 
+	 * ends once the shift length has passed without the calls in progress 
+	 * being finished.
+	 * 
+	 * @param theContinuous
+	 *            true to run without closing, otherwise false
+	 */
+	public void setContinuous(boolean theContinuous) {
+		continuous = theContinuous;
+	}
+	
+	/**
+	 * Sets the CallOverflow the calls which find every phone line busy are 
+	 * offered to, or null to give them a busy signal.
+	 * 
+	 * @param theCallOverflow
+	 *            the overflow for calls finding the lines busy, or null
+	 */
+	public void setCallOverflow(CallOverflow theCallOverflow) {
+		callOverflow = theCallOverflow;
+	}
+	
+	/**
+	 * Sets the chance that a customer who receives a busy signal or hangs 
+	 * up calls again, and the average delay before they do.
+	 * 
+	 * @param theRedialProbability
+	 *            the probability of a redial, or 0 for none
+	 * @param theRedialDelay
+	 *            the average delay (in seconds) of a redial
+	 * @param theRetrialRand
+	 *            the RNG used for redials and callbacks
+	 */
+	public void setRedials(float theRedialProbability, int theRedialDelay, Random theRetrialRand) {
+		if(theRedialProbability > 0 && theRedialDelay < 1)
+			throw new IllegalArgumentException("Redial delay must be at least 1 second");
+		redialProbability = theRedialProbability;
+		redialDelay = theRedialDelay;
+		retrialRand = theRetrialRand;
+	}
+	
+	/**
+	 * Sets the chance that a customer placed on hold asks to be called back.
+	 * 
+	 * @param theCallbackProbability
+	 *            the probability of a callback, or 0 for none
+	 * @param theRetrialRand
+	 *            the RNG used for redials and callbacks
+	 */
+	public void setCallbacks(float theCallbackProbability, Random theRetrialRand) {
+		callbackProbability = theCallbackProbability;
+		retrialRand = theRetrialRand;
+	}
+	
+	/**
+	 * Sets the router deciding which employee takes which call. Must be 
+	 * set before any employees are added.
+	 * 
+	 * @param theCallRouter
+	 *            the router to be used
+	 */
+	public void setCallRouter(CallRouter theCallRouter) {
+		callRouter = theCallRouter;
 	}
 	
 	/**
@@ -67,7 +209,12 @@ public class PhoneManager implements ClockManaged {
 	 */
 	public void addEmployee(Employee employee) {
 		clock.addManagedItem(employee);
+		employee.setPhoneManager(this);
 		managedEmployees.add(employee);
+		if(employee.isAvailable())
+			callRouter.employeeAvailable(employee);
+		else
+			busyEmployees++;
 	}
 	
 	/**
@@ -77,7 +224,51 @@ public class PhoneManager implements ClockManaged {
 	 *            the phoneline to be added to the phone manager    
 	 */
 	public void addPhoneLine(PhoneLine phoneLine) {
+		phoneLine.setPhoneManager(this);
 		managedPhoneLines.add(phoneLine);
+		if(phoneLine.isAvailable())
+			availablePhoneLines.add(phoneLine);
+	}
+	
+	/**
+	 * Called by the customer generator when a customer calls. A Customer is 
+	 * created and added to the clock, to place the call on the current tick.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void callArrived(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType) {
+		Customer newCustomer = new Customer(theCustomerID, log, clock, this, theExpectedCallLength, thePatience, theCallType);
+		clock.addManagedItem(newCustomer);
+		clock.scheduleTick(newCustomer, clock.getTime());
+	}
+	
+	/**
+	 * Called by the customer generator when a call transferred from another 
+	 * call center arrives. The customer is created as by callArrived, but 
+	 * receives a busy signal rather than being sent on again if every phone 
+	 * line is busy.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 */
+	public void callTransferred(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType) {
+		Customer newCustomer = new Customer(theCustomerID, log, clock, this, theExpectedCallLength, thePatience, theCallType);
+		newCustomer.setTransferred(true);
+		clock.addManagedItem(newCustomer);
+		clock.scheduleTick(newCustomer, clock.getTime());
 	}
 	
 	/**
@@ -91,49 +282,371 @@ public class PhoneManager implements ClockManaged {
 	 *            the customer's id
 	 * @param theExpectedCallLength
 	 *            the exppected length of the service call
+	 * @param theCallType
+	 *            the type of the call, used to route it to a skilled employee
 	 * @return PhoneLine
 	 *            an open phone is a line is available, otherwise null
 	 */
-	public PhoneLine directCall(Customer theCustomer, int theCustomerID, int theExpectedCallLength) {
+	public PhoneLine directCall(Customer theCustomer, int theCustomerID, int theExpectedCallLength, int theCallType) {
 		PhoneLine openPhoneLine = null;
 		if(!areLinesFull() && callCenterOpen) {
 			openPhoneLine = getNextAvailablePhoneLine();
-			openPhoneLine.connectCustomer(theCustomer, theCustomerID, theExpectedCallLength);
+			openPhoneLine.connectCustomer(theCustomer, theCustomerID, theExpectedCallLength, theCallType, nextHoldSequence++);
+			callRouter.callWaiting(openPhoneLine);
+			clock.scheduleNextTick(this);
+			recordLevels();
 		}
 		return openPhoneLine;
 	}
 	
+	/**
+	 * Offers a call which found every phone line busy to the CallOverflow. 
+	 * Returns true if the call was sent on to another call center, or false 
+	 * if there is no CallOverflow, the call center is closed or the call 
+	 * was not taken, in which case the customer receives a busy signal.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 * @return boolean
+	 *            true if the call was sent on, otherwise false
+	 */
+	public boolean overflowCall(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType) {
+		return callOverflow != null && callCenterOpen 
+				&& callOverflow.overflowCall(clock.getTime(), theCustomerID, theExpectedCallLength, thePatience, theCallType);
+	}
+	
+	/**
+	 * Decides whether a customer who received a busy signal or hung up 
+	 * will call again. Returns the delay (in seconds) before the customer 
+	 * calls again, or -1 if the customer will not, as always once the call 
+	 * center is closed. The customer is given a new Customer object, with 
+	 * the same ID, once the delay has passed.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 * @param theTransferred
+	 *            true if the call was transferred from another call center
+	 * @return int
+	 *            the delay (in seconds) of the redial, or -1
+	 */
+	public int redialCall(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType, boolean theTransferred) {
+		if(redialProbability <= 0 || !callCenterOpen || retrialRand.nextFloat() >= redialProbability)
+			return -1;
+		int delay = (int) Math.max(1, Math.round(-redialDelay * Math.log(1 - retrialRand.nextDouble())));
+		long redialTime = clock.getTime() + delay;
+		redials.add(new PendingCall(redialTime, nextPendingOrder++, theCustomerID, theExpectedCallLength, thePatience, 
+				theCallType, theTransferred));
+		clock.scheduleTick(this, redialTime);
+		return delay;
+	}
+	
+	/**
+	 * Decides whether a customer placed on hold asks to be called back. 
+	 * Returns true if the customer is to be called back, in which case the 
+	 * customer leaves its phoneline, otherwise false.
+	 * 
+	 * @param theCustomerID
+	 *            the customer's id
+	 * @param theExpectedCallLength
+	 *            the expected length of the service call
+	 * @param thePatience
+	 *            the number of seconds the customer remains on hold
+	 * @param theCallType
+	 *            the type of the call
+	 * @param theTransferred
+	 *            true if the call was transferred from another call center
+	 * @return boolean
+	 *            true if the customer is to be called back, otherwise false
+	 */
+	public boolean requestCallback(int theCustomerID, int theExpectedCallLength, int thePatience, int theCallType, boolean theTransferred) {
+		if(callbackProbability <= 0 || retrialRand.nextFloat() >= callbackProbability)
+			return false;
+		callbacks.add(new PendingCall(clock.getTime(), nextPendingOrder++, theCustomerID, theExpectedCallLength, thePatience, 
+				theCallType, theTransferred));
+		return true;
+	}
+	
 	/**
 	 * Simulates the passage of time using the time parameter received
 	 * 
 	 * @param currentTime
 	 *            the current time within the simulation         
 	 */
-	public void clockTicked(Calendar currentTime) {
+	public void clockTicked(long currentTime) {
+		if(!closingScheduled) {
+			clock.scheduleTickAfter(this, closingTime);
+			closingScheduled = true;
+		}
+		
+		// Customers due to call again, or all of them once the lines are to be shut down
+		while(!redials.isEmpty() && (redials.peek().time <= currentTime || currentTime > closingTime))
+			callAgain(redials.poll());
+		
 		log.recordCallsOnHoldMax(getNumberOfLinesOnHold());
 		
-		while(isEmployeeAvailable() && areLinesOnHold()) {
-				PhoneLine lineOnHold = getNextOnHoldPhoneLine();
-				Employee availableEmployee = getNextAvailableEmployee();
-				availableEmployee.takeCall(lineOnHold);
+		int callsWaiting = getNumberOfLinesOnHold();
+		callRouter.dispatch(currentTime);
+		int callsTaken = callsWaiting - getNumberOfLinesOnHold();
+		
+		// Call back the customers waiting for a callback while an employee is left free and no call is on hold
+		while(!callbacks.isEmpty() && !areLinesFull() && getNumberOfLinesOnHold() == 0 
+				&& callRouter.hasAvailableEmployees()) {
+			callBack(callbacks.poll());
+			callRouter.dispatch(currentTime);
+			callsTaken += 1 - getNumberOfLinesOnHold();
+		}
+		if(callsTaken != 0) {
+			busyEmployees += callsTaken;
+			recordLevels();
+		}
+		
+		// Check again when a call on hold could next overflow to other employees
+		long overflowTime = callRouter.getNextOverflowTime();
+		if(overflowTime > currentTime && overflowTime != scheduledOverflowTime) {
+			clock.scheduleTick(this, overflowTime);
+			scheduledOverflowTime = overflowTime;
 		}
 		
-		if(currentTime.after(closingTime)) {
+		if(currentTime > closingTime && continuous) {
+			// End the run without closing
+			shiftComplete = true;
+			log.recordEvent(EventType.CALL_CENTER_CLOSED);
+		}
+		else if(currentTime > closingTime) {
 			// Shut down incoming calls
 			if(callCenterOpen) {
 				callCenterOpen = false;
-				log.recordEvent("Incoming phone lines shut down.\n");
+				log.recordEvent(EventType.LINES_SHUT_DOWN);
 			}
-			if(areLinesClear()) {
+			if(areLinesClear() && callbacks.isEmpty()) {
 				// Shut down phone manager
 				shiftComplete = true;
-				overtime = currentTime.get(Calendar.MINUTE);
+				overtime = (int) ((currentTime - closingTime) / 60);
 				log.recordOvertime(overtime);
-				log.recordEvent("Call center closed.\n");
+				log.recordEvent(EventType.CALL_CENTER_CLOSED);
 			}
 		}
 	}
 	
+	/**
+	 * Called by a phoneline when its customer hangs up or its call ends. 
+	 * The phoneline is returned to the available phonelines and the phone 
+	 * manager is scheduled to check the phonelines on the next tick.
+	 * 
+	 * @param thePhoneLine
+	 *            the phoneline that was released
+	 * @param theCustomerID
+	 *            the ID of the customer that was on the phoneline
+	 */
+	public void lineReleased(PhoneLine thePhoneLine, int theCustomerID) {
+		callRouter.lineReleased(thePhoneLine, theCustomerID);
+		availablePhoneLines.add(thePhoneLine);
+		clock.scheduleNextTick(this);
+		recordLevels();
+	}
+	
+	/**
+	 * Called by an employee when it has completed a call. The employee 
+	 * is returned to the router's available employees.
+	 * 
+	 * @param theEmployee
+	 *            the employee that is available
+	 */
+	public void employeeAvailable(Employee theEmployee) {
+		if(!theEmployee.isOnBreak())
+			callRouter.employeeAvailable(theEmployee);
+		busyEmployees--;
+		recordLevels();
+	}
+	
+	/**
+	 * Called by an employee when it has returned from a break. The employee 
+	 * is returned to the router's available employees and the phone manager 
+	 * is scheduled to dispatch the calls on hold on the next tick.
+	 * 
+	 * @param theEmployee
+	 *            the employee that has returned
+	 */
+	public void breakEnded(Employee theEmployee) {
+		callRouter.employeeAvailable(theEmployee);
+		clock.scheduleNextTick(this);
+	}
+	
+	/**
+	 * Sends an employee on a break of the given length, beginning at once 
+	 * if the employee is free, otherwise once their call is completed. The 
+	 * given router, which must be empty, replaces the current router.
+	 * 
+	 * @param theEmployee
+	 *            the employee to send on a break
+	 * @param theBreakLength
+	 *            the length (in seconds) of the break
+	 * @param theCallRouter
+	 *            the router to be used
+	 */
+	public void startBreak(Employee theEmployee, int theBreakLength, CallRouter theCallRouter) {
+		theEmployee.startBreak(theBreakLength);
+		replaceCallRouter(theCallRouter);
+	}
+	
+	/**
+	 * Sends up to the given number of employees on a break of the given 
+	 * length. The employees who have been free the longest go first, then 
+	 * employees on a call, by ID, who begin their break once the call is 
+	 * completed. Employees already due a break are passed over. The given 
+	 * router, which must be empty, replaces the current router.
+	 * 
+	 * @param theNumberOfEmployees
+	 *            the number of employees to send on a break
+	 * @param theBreakLength
+	 *            the length (in seconds) of the break
+	 * @param theCallRouter
+	 *            the router to be used
+	 * @return int
+	 *            the number of employees sent on a break
+	 */
+	public int startBreaks(int theNumberOfEmployees, int theBreakLength, CallRouter theCallRouter) {
+		int started = 0;
+		List<Employee> availableEmployees = callRouter.getAvailableEmployees();
+		for(int i = 0; i < availableEmployees.size() && started < theNumberOfEmployees; i++) {
+			availableEmployees.get(i).startBreak(theBreakLength);
+			started++;
+		}
+		for(int i = 0; i < managedEmployees.size() && started < theNumberOfEmployees; i++) {
+			Employee employee = managedEmployees.get(i);
+			if(!employee.isAvailable() && !employee.isBreakDue()) {
+				employee.startBreak(theBreakLength);
+				started++;
+			}
+		}
+		replaceCallRouter(theCallRouter);
+		return started;
+	}
+	
+	/**
+	 * Returns the employee with the given ID.
+	 * 
+	 * @param theID
+	 *            the ID of the employee
+	 * @return Employee
+	 *            the employee with the ID
+	 */
+	public Employee getEmployee(int theID) {
+		return managedEmployees.get(theID - 1);
+	}
+	
+	/**
+	 * Returns the phoneline with the given ID.
+	 * 
+	 * @param theID
+	 *            the ID of the phoneline
+	 * @return PhoneLine
+	 *            the phoneline with the ID
+	 */
+	public PhoneLine getPhoneLine(int theID) {
+		return managedPhoneLines.get(theID - 1);
+	}
+	
+	/**
+	 * Writes the state of the phone manager, its employees, its phonelines, 
+	 * the router's available employees and the customers waiting to call 
+	 * again or to be called back to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeBoolean(callCenterOpen);
+		out.writeBoolean(shiftComplete);
+		out.writeBoolean(closingScheduled);
+		out.writeInt(overtime);
+		out.writeLong(closingTime);
+		out.writeLong(scheduledOverflowTime);
+		for(int i = 0; i < managedEmployees.size(); i++)
+			managedEmployees.get(i).writeState(out);
+		for(int i = 0; i < managedPhoneLines.size(); i++)
+			managedPhoneLines.get(i).writeState(out);
+		List<Employee> availableEmployees = callRouter.getAvailableEmployees();
+		out.writeInt(availableEmployees.size());
+		for(int i = 0; i < availableEmployees.size(); i++)
+			out.writeInt(availableEmployees.get(i).getID());
+		out.writeLong(nextPendingOrder);
+		out.writeLong(nextHoldSequence);
+		writePendingCalls(out, redials);
+		writePendingCalls(out, callbacks);
+	}
+	
+	/**
+	 * Replaces the state of the phone manager, its employees, its 
+	 * phonelines and the customers waiting to call again or to be called 
+	 * back with that read from a checkpoint. The given router, which 
+	 * must be empty, replaces the current router and is given the available 
+	 * employees, in the order they became available, and the lines on hold.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @param theCustomers
+	 *            the customers of the simulation, by ID
+	 * @param theCallRouter
+	 *            the router to be used
+	 */
+	public void readState(DataInput in, Map<Integer, Customer> theCustomers, CallRouter theCallRouter) throws IOException {
+		callCenterOpen = in.readBoolean();
+		shiftComplete = in.readBoolean();
+		closingScheduled = in.readBoolean();
+		overtime = in.readInt();
+		closingTime = in.readLong();
+		scheduledOverflowTime = in.readLong();
+		for(int i = 0; i < managedEmployees.size(); i++)
+			managedEmployees.get(i).readState(in, this);
+		for(int i = 0; i < managedPhoneLines.size(); i++)
+			managedPhoneLines.get(i).readState(in, theCustomers, this);
+		
+		callRouter = theCallRouter;
+		int numberOfAvailable = in.readInt();
+		for(int i = 0; i < numberOfAvailable; i++)
+			callRouter.employeeAvailable(getEmployee(in.readInt()));
+		busyEmployees = 0;
+		for(int i = 0; i < managedEmployees.size(); i++) {
+			if(!managedEmployees.get(i).isAvailable() && !managedEmployees.get(i).isOnBreak())
+				busyEmployees++;
+		}
+		availablePhoneLines.clear();
+		for(int i = 0; i < managedPhoneLines.size(); i++) {
+			PhoneLine phoneLine = managedPhoneLines.get(i);
+			if(phoneLine.isAvailable())
+				availablePhoneLines.add(phoneLine);
+			else if(phoneLine.isOnHold())
+				callRouter.callWaiting(phoneLine);
+		}
+		nextPendingOrder = in.readLong();
+		nextHoldSequence = in.readLong();
+		readPendingCalls(in, redials);
+		readPendingCalls(in, callbacks);
+	}
+	
+	/**
+	 * Returns the time at which the incoming phone lines are shut down.
+	 * 
+	 * @return long
+	 *            the closing time of the call center, in seconds
+	 */
+	public long getClosingTime() {
+		return closingTime;
+	}
+	
 	/**
 	 * Returns true if the call center is open, otherwise returns false.
 	 * 
@@ -156,35 +669,13 @@ public class PhoneManager implements ClockManaged {
 	}
 	
 	/**
-	 * Returns true if an employee in the pool of employees is available
-	 * to take a call, otherwise returns false.
+	 * Returns the number of phonelines free to take a call.
 	 * 
-	 * @return boolean
-	 *            true if an employee is available, otherwise false         
-	 */
-	private boolean isEmployeeAvailable() {
-		boolean flag = false;
-		for(Employee csr : managedEmployees) {
-			if(csr.isAvailable())
-				flag = true;
-		}
-		return flag;
-	}
-	
-	/**
-	 * Returns true if the pool of phonelines contains a line on hold, 
-	 * otherwise returns false.
-	 * 
-	 * @return boolean
-	 *            true if a line is waiting on hold, otherwise false         
+	 * @return int
+	 *            the number of available phonelines
 	 */
-	private boolean areLinesOnHold() {
-		boolean flag = false;
-		for(PhoneLine line : managedPhoneLines) {
-			if(line.isOnHold())
-				flag = true;
-		}
-		return flag;
+	public int getAvailablePhoneLines() {
+		return availablePhoneLines.size();
 	}
 	
 	/**
@@ -195,12 +686,7 @@ public class PhoneManager implements ClockManaged {
 	 *            true if phonelines are full, otherwise false         
 	 */
 	private boolean areLinesFull() {
-		boolean flag = true;
-		for(PhoneLine line : managedPhoneLines) {
-			if(line.isAvailable())
-				flag = false;
-		}
-		return flag;
+		return availablePhoneLines.isEmpty();
 	}
 	
 	/**
@@ -211,89 +697,167 @@ public class PhoneManager implements ClockManaged {
 	 *            true if line are clear, otherwise false         
 	 */
 	private boolean areLinesClear() {
-		boolean flag = true;
-		for(PhoneLine line : managedPhoneLines) {
-			if(!line.isAvailable())
-				flag = false;
-		}
-		return flag;
+		return availablePhoneLines.size() == managedPhoneLines.size();
 	}
 	
 	/**
-	 * Returns the first available employee based on their position in the
-	 * arraylist and their availability. Returns a null employee if no
-	 * employee is found.
+	 * Removes and returns the available phoneline with the lowest ID. 
+	 * Returns a null phoneline if no phoneline is available.
 	 * 
-	 * @return Employee
-	 *            the next available employee        
-	 */
-	private Employee getNextAvailableEmployee() {
-		Employee availableEmployee = null;
-		for(Employee csr : managedEmployees) {
-			if(csr.isAvailable()) {
-				availableEmployee = csr;
-				break;
-			}
-		}
-		return availableEmployee;
+	 * @return PhoneLine
+	 *            the next available phoneline        
+	 */
+	private PhoneLine getNextAvailablePhoneLine() {
+		return availablePhoneLines.poll();
 	}
 	
 	/**
-	 * Returns the first available phoneline based on its position in the
-	 * arraylist and their availability. Returns a null phoneline if no
-	 * phoneline is found.
+	 * Returns the number of phonelines with customers currently waiting 
+	 * on hold.
 	 * 
-	 * @return PhoneLine
-	 *            the next available phoneline        
+	 * @return int
+	 *            the number of phoneslines with customers on hold        
 	 */
-	private PhoneLine getNextAvailablePhoneLine() {
-		PhoneLine availablePhoneLine = null;
-		for(PhoneLine line : managedPhoneLines) {
-			if(line.isAvailable()) {
-				availablePhoneLine = line;
-				break;
-			}
+	private int getNumberOfLinesOnHold() {
+		return callRouter.getCallsWaiting();
+	}
+	
+	/**
+	 * Replaces the router with the given empty router, giving it the 
+	 * available employees not on a break, in the order they became 
+	 * available, and the lines on hold.
+	 * 
+	 * @param theCallRouter
+	 *            the router to be used
+	 */
+	private void replaceCallRouter(CallRouter theCallRouter) {
+		List<Employee> availableEmployees = callRouter.getAvailableEmployees();
+		callRouter = theCallRouter;
+		for(int i = 0; i < availableEmployees.size(); i++) {
+			if(!availableEmployees.get(i).isOnBreak())
+				callRouter.employeeAvailable(availableEmployees.get(i));
+		}
+		for(int i = 0; i < managedPhoneLines.size(); i++) {
+			if(managedPhoneLines.get(i).isOnHold())
+				callRouter.callWaiting(managedPhoneLines.get(i));
 		}
-		return availablePhoneLine;
 	}
 	
 	/**
-	 * Returns the next phoneline with a call on hold based on the order 
-	 * in which the calls were received. Returns a null phoneline is no
-	 * phoneline is found.
+	 * Records the number of calls on hold, phonelines in use and employees 
+	 * on a call with the Log.
+	 */
+	private void recordLevels() {
+		log.recordLevels(getNumberOfLinesOnHold(), managedPhoneLines.size() - availablePhoneLines.size(), busyEmployees);
+	}
+	
+	/**
+	 * Gives a customer due to call again a new Customer object, which is 
+	 * added to the clock to place the call on the current tick.
 	 * 
-	 * @return PhoneLine
-	 *            the next on hold phoneline        
-	 */
-	private PhoneLine getNextOnHoldPhoneLine() {
-		PhoneLine nextOnHoldPhoneLine = null;
-		int lowestInQueue = -1;
-		for(PhoneLine line : managedPhoneLines) {
-			if(lowestInQueue == -1 && line.isOnHold()) {
-				lowestInQueue = line.getCustomerID();
-				nextOnHoldPhoneLine = line;
-				
-			}
-			else if(line.getCustomerID() != 0 && line.getCustomerID() < lowestInQueue && line.isOnHold()) {
-				lowestInQueue = line.getCustomerID();
-				nextOnHoldPhoneLine = line;
-			}
+	 * @param redial
+	 *            the customer calling again
+	 */
+	private void callAgain(PendingCall redial) {
+		Customer customer = new Customer(redial.customerID, log, clock, this, redial.expectedCallLength, redial.patience, 
+				redial.callType, true);
+		customer.setTransferred(redial.transferred);
+		clock.addManagedItem(customer);
+		clock.scheduleTick(customer, clock.getTime());
+	}
+	
+	/**
+	 * Calls back a customer waiting for a callback on the available 
+	 * phoneline with the lowest ID. The customer is given a new Customer 
+	 * object, which is added to the clock, and its call is placed on hold 
+	 * for the router.
+	 * 
+	 * @param callback
+	 *            the customer called back
+	 */
+	private void callBack(PendingCall callback) {
+		Customer customer = new Customer(callback.customerID, log, clock, this, callback.expectedCallLength, callback.patience, 
+				callback.callType, true);
+		customer.setTransferred(callback.transferred);
+		PhoneLine phoneLine = getNextAvailablePhoneLine();
+		phoneLine.connectCustomer(customer, callback.customerID, callback.expectedCallLength, callback.callType, nextHoldSequence++);
+		customer.calledBack(phoneLine);
+		clock.addManagedItem(customer);
+		clock.scheduleTick(customer, clock.getTime());
+		callRouter.callWaiting(phoneLine);
+		log.recordEvent(EventType.CALLED_BACK, callback.customerID, 0, 0);
+		recordLevels();
+	}
+	
+	/**
+	 * Writes the customers waiting to call again or to be called back to 
+	 * a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 * @param pendingCalls
+	 *            the customers waiting
+	 */
+	private static void writePendingCalls(DataOutput out, PriorityQueue<PendingCall> pendingCalls) throws IOException {
+		out.writeInt(pendingCalls.size());
+		for(PendingCall pendingCall : pendingCalls) {
+			out.writeLong(pendingCall.time);
+			out.writeLong(pendingCall.order);
+			out.writeInt(pendingCall.customerID);
+			out.writeInt(pendingCall.expectedCallLength);
+			out.writeInt(pendingCall.patience);
+			out.writeInt(pendingCall.callType);
+			out.writeBoolean(pendingCall.transferred);
 		}
-		return nextOnHoldPhoneLine;
 	}
 	
 	/**
-	 * Returns the number of phonelines with customers currently waiting 
-	 * on hold.
+	 * Replaces the customers waiting to call again or to be called back 
+	 * with those read from a checkpoint.
 	 * 
-	 * @return int
-	 *            the number of phoneslines with customers on hold        
+	 * @param in
+	 *            the checkpoint being read
+	 * @param pendingCalls
+	 *            the customers waiting
 	 */
-	private int getNumberOfLinesOnHold() {
-		int linesOnHold = 0;
-		for(PhoneLine line : managedPhoneLines) 
-			if(line.isOnHold())
-				linesOnHold++;
-		return linesOnHold;
+	private static void readPendingCalls(DataInput in, PriorityQueue<PendingCall> pendingCalls) throws IOException {
+		pendingCalls.clear();
+		int numberOfCalls = in.readInt();
+		for(int i = 0; i < numberOfCalls; i++)
+			pendingCalls.add(new PendingCall(in.readLong(), in.readLong(), in.readInt(), in.readInt(), in.readInt(), 
+					in.readInt(), in.readBoolean()));
+	}
+	
+	/**
+	 * A customer waiting to call again or to be called back, ordered by the 
+	 * time they are due to call again or asked to be called back, and then 
+	 * by the order in which they began waiting.
+	 */
+	private static class PendingCall implements Comparable<PendingCall> {
+		
+		private final long time;
+		private final long order;
+		private final int customerID;
+		private final int expectedCallLength;
+		private final int patience;
+		private final int callType;
+		private final boolean transferred;
+		
+		private PendingCall(long theTime, long theOrder, int theCustomerID, int theExpectedCallLength, int thePatience, 
+				int theCallType, boolean theTransferred) {
+			time = theTime;
+			order = theOrder;
+			customerID = theCustomerID;
+			expectedCallLength = theExpectedCallLength;
+			patience = thePatience;
+			callType = theCallType;
+			transferred = theTransferred;
+		}
+		
+		public int compareTo(PendingCall other) {
+			if(time != other.time)
+				return Long.compare(time, other.time);
+			return Long.compare(order, other.order);
+		}
 	}
 }
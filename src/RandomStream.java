@@ -0,0 +1,171 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * This class is a random number generator which can be split into any 
+ * number of independent streams. The required parameter for creating a 
+ * RandomStream object is a long, the seed of the stream. The generator 
+ * follows the SplitMix64 algorithm: its state is advanced by a fixed odd 
+ * increment, the gamma, and each value is a mix of the new state. Calling 
+ * the split method draws the seed and gamma of a new stream from this one, 
+ * so a whole tree of streams is determined by a single seed, and the values 
+ * of one stream are unaffected by how many values are drawn from another. 
+ * The longs and splits of a stream are those of a SplittableRandom with the 
+ * same seed; the other values are made from them by the methods of Random. 
+ * Unlike a SplittableRandom, the state of a stream can be saved and restored. 
+ * As a subclass of Random, a RandomStream can be used wherever a Random is 
+ * expected, but unlike Random it keeps its state in plain fields, so it 
+ * must not be shared between threads; each thread should be given a 
+ * stream of its own. The state of a stream can be written to a checkpoint 
+ * and read back, after which it continues with the same values.
+ * 
+ * @author Brett Crawford
+ */
+public class RandomStream extends Random {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** The gamma of a stream created from a seed, derived from the golden ratio **/
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
+	private long state;
+	private long gamma;
+	
+	/**
+	 * Creates a RandomStream object with the specified seed.
+	 * 
+	 * @param theSeed
+	 *            the seed of the stream
+	 */
+	public RandomStream(long theSeed) {
+		this(theSeed, GOLDEN_GAMMA);
+	}
+	
+	/**
+	 * Creates a RandomStream object with the given state and gamma.
+	 * 
+	 * @param theState
+	 *            the initial state of the stream
+	 * @param theGamma
+	 *            the odd amount the state is advanced by for each value
+	 */
+	private RandomStream(long theState, long theGamma) {
+		super(0);
+		state = theState;
+		gamma = theGamma;
+	}
+	
+	/**
+	 * Returns a new stream whose values are independent of this stream's. 
+	 * This stream is advanced twice.
+	 * 
+	 * @return RandomStream
+	 *            the new stream
+	 */
+	public RandomStream split() {
+		return new RandomStream(nextLong(), mixGamma(nextState()));
+	}
+	
+	/**
+	 * Restarts the stream from the given seed.
+	 * 
+	 * @param seed
+	 *            the seed of the stream
+	 */
+	public void setSeed(long seed) {
+		state = seed;
+		gamma = GOLDEN_GAMMA;
+	}
+	
+	/**
+	 * Returns the next random long.
+	 * 
+	 * @return long
+	 *            the next random long
+	 */
+	public long nextLong() {
+		return mix64(nextState());
+	}
+	
+	/**
+	 * Writes the state and gamma of the stream to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(state);
+		out.writeLong(gamma);
+	}
+	
+	/**
+	 * Replaces the state and gamma of the stream with those read from a 
+	 * checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		state = in.readLong();
+		gamma = in.readLong();
+	}
+	
+	/**
+	 * Returns the given number of random bits, from which the other 
+	 * methods of Random produce their values.
+	 * 
+	 * @param bits
+	 *            the number of random bits, from 1 to 32
+	 * @return int
+	 *            the random bits, in the low bits of the integer
+	 */
+	protected int next(int bits) {
+		return (int) (mix64(nextState()) >>> (64 - bits));
+	}
+	
+	/**
+	 * Advances the state by the gamma and returns the new state.
+	 * 
+	 * @return long
+	 *            the new state
+	 */
+	private long nextState() {
+		return state += gamma;
+	}
+	
+	/**
+	 * Returns a thoroughly mixed form of the given value, using Stafford's 
+	 * variant 13 of the MurmurHash3 finalizer.
+	 * 
+	 * @param z
+	 *            the value to mix
+	 * @return long
+	 *            the mixed value
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Returns a gamma derived from the given value with the MurmurHash3 
+	 * finalizer. The gamma is odd and has enough changing bits to produce 
+	 * a well mixed sequence of states.
+	 * 
+	 * @param z
+	 *            the value to derive the gamma from
+	 * @return long
+	 *            the gamma
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+}
@@ -0,0 +1,248 @@
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class runs many independent replications of the call center 
+ * simulation in parallel and merges their results. The required parameters 
+ * for creating a ReplicationRunner object include: the SimulationParameters 
+ * shared by every replication, and an integer, the number of threads to 
+ * run replications on. Each replication is a separate CallCenterSimulation 
+ * with its own seed, derived from a base seed and the replication's number, 
+ * so the results of a batch depend only on the base seed and not on the 
+ * number of threads or the order in which replications finish. 
+ * 
+ * Rather than a fixed number of replications, the runToPrecision method 
+ * runs replications until the 95% confidence half-widths of the average 
+ * hold time, the hang-ups and the busy signals are each within a given 
+ * precision. Replications are run in waves of one per thread, after a 
+ * first wave of at least the minimum number of replications, and their 
+ * results are added in order of replication number, checking the 
+ * precision after each, so the number of replications needed also depends 
+ * only on the base seed. The ReplicationRunner should be shut down once it 
+ * is no longer needed.
+ * 
+ * @author Brett Crawford
+ */
+public class ReplicationRunner {
+	
+	/** The fewest replications whose confidence intervals are trusted **/
+	private static final int MIN_REPLICATIONS = 10;
+	
+	private SimulationParameters parameters;
+	private ForkJoinPool pool;
+	
+	/**
+	 * Runs a number of replications of the default simulation and outputs 
+	 * the merged results to the console. The number of replications and 
+	 * the base seed may be given as arguments. If the precisions of the 
+	 * average hold time, hang-ups and busy signals are also given, 
+	 * replications are run until they are met, up to the number of 
+	 * replications.
+	 * 
+	 * @param args
+	 *            the number of replications, the base seed and the three 
+	 *            precisions, all optional
+	 */
+	public static void main(String args[]) {
+		int replications = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		long baseSeed = args.length > 1 ? Long.parseLong(args[1]) : System.currentTimeMillis();
+		
+		ReplicationRunner runner = new ReplicationRunner(new SimulationParameters(), 
+				Runtime.getRuntime().availableProcessors());
+		try {
+			if(args.length > 4)
+				System.out.println(runner.runToPrecision(Double.parseDouble(args[2]), Double.parseDouble(args[3]), 
+						Double.parseDouble(args[4]), replications, baseSeed).printSummary());
+			else
+				System.out.println(runner.run(replications, baseSeed).printSummary());
+		}
+		finally {
+			runner.shutdown();
+		}
+	}
+	
+	/**
+	 * Creates a ReplicationRunner object with the specified parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings shared by every replication
+	 * @param theNumberOfThreads
+	 *            the number of threads to run replications on
+	 */
+	public ReplicationRunner(SimulationParameters theParameters, int theNumberOfThreads) {
+		parameters = new SimulationParameters(theParameters);
+		pool = new ForkJoinPool(theNumberOfThreads);
+	}
+	
+	/**
+	 * Runs the given number of replications and returns their merged results.
+	 * 
+	 * @param theReplications
+	 *            the number of replications to run
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @return ReplicationSummary
+	 *            the merged results of the replications
+	 */
+	public ReplicationSummary run(int theReplications, long theBaseSeed) {
+		ReplicationSummary summary = new ReplicationSummary();
+		runReplications(summary, 0, theReplications, theBaseSeed);
+		return summary;
+	}
+	
+	/**
+	 * Runs a range of replications in parallel and adds their results to 
+	 * the given summary in order of replication number.
+	 * 
+	 * @param summary
+	 *            the summary the results are added to
+	 * @param theFirstReplication
+	 *            the number of the first replication to run
+	 * @param theReplications
+	 *            the number of replications to run
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 */
+	public void runReplications(ReplicationSummary summary, int theFirstReplication, int theReplications, long theBaseSeed) {
+		for(Log log : simulate(theFirstReplication, theReplications, theBaseSeed))
+			summary.addReplication(log);
+	}
+	
+	/**
+	 * Runs replications until the 95% confidence half-widths of the average 
+	 * hold time, the number of hang-ups and the number of busy signals are 
+	 * all within the given precisions, or the maximum number of replications 
+	 * has been run, and returns their merged results. The number of 
+	 * replications needed is given by the summary's getReplications method, 
+	 * and whether the precisions were met by isPreciseEnough.
+	 * 
+	 * @param theHoldTimePrecision
+	 *            the largest half-width of the average hold time (in minutes)
+	 * @param theHangUpPrecision
+	 *            the largest half-width of the number of hang-ups
+	 * @param theBusySignalPrecision
+	 *            the largest half-width of the number of busy signals
+	 * @param theMaxReplications
+	 *            the largest number of replications to run
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @return ReplicationSummary
+	 *            the merged results of the replications
+	 */
+	public ReplicationSummary runToPrecision(double theHoldTimePrecision, double theHangUpPrecision, 
+			double theBusySignalPrecision, int theMaxReplications, long theBaseSeed) {
+		ReplicationSummary summary = new ReplicationSummary();
+		int waveSize = Math.max(pool.getParallelism(), MIN_REPLICATIONS);
+		int replications = 0;
+		while(replications < theMaxReplications) {
+			List<Log> wave = simulate(replications, Math.min(waveSize, theMaxReplications - replications), theBaseSeed);
+			for(Log log : wave) {
+				summary.addReplication(log);
+				replications++;
+				if(isPreciseEnough(summary, theHoldTimePrecision, theHangUpPrecision, theBusySignalPrecision))
+					return summary;
+			}
+			waveSize = pool.getParallelism();
+		}
+		return summary;
+	}
+	
+	/**
+	 * Returns true if at least the minimum number of replications have been 
+	 * merged and the 95% confidence half-widths of the average hold time, 
+	 * the number of hang-ups and the number of busy signals are all within 
+	 * the given precisions, otherwise returns false.
+	 * 
+	 * @param summary
+	 *            the merged results of a set of replications
+	 * @param theHoldTimePrecision
+	 *            the largest half-width of the average hold time (in minutes)
+	 * @param theHangUpPrecision
+	 *            the largest half-width of the number of hang-ups
+	 * @param theBusySignalPrecision
+	 *            the largest half-width of the number of busy signals
+	 * @return boolean
+	 *            true if every half-width is within its precision, otherwise false
+	 */
+	public static boolean isPreciseEnough(ReplicationSummary summary, double theHoldTimePrecision, 
+			double theHangUpPrecision, double theBusySignalPrecision) {
+		return summary.getReplications() >= MIN_REPLICATIONS
+				&& summary.getAverageHoldTime().getConfidenceHalfWidth() <= theHoldTimePrecision
+				&& summary.getHangUps().getConfidenceHalfWidth() <= theHangUpPrecision
+				&& summary.getBusySignals().getConfidenceHalfWidth() <= theBusySignalPrecision;
+	}
+	
+	/**
+	 * Runs a range of replications in parallel and returns their logs in 
+	 * order of replication number.
+	 * 
+	 * @param theFirstReplication
+	 *            the number of the first replication to run
+	 * @param theReplications
+	 *            the number of replications to run
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @return List
+	 *            the logs of the replications
+	 */
+	private List<Log> simulate(int theFirstReplication, int theReplications, long theBaseSeed) {
+		List<Callable<Log>> replications = new ArrayList<Callable<Log>>(theReplications);
+		for(int i = 0; i < theReplications; i++) {
+			final long seed = getReplicationSeed(theBaseSeed, theFirstReplication + i);
+			replications.add(new Callable<Log>() {
+				public Log call() {
+					CallCenterSimulation simulation = new CallCenterSimulation(parameters, seed);
+					simulation.initializeSim();
+					simulation.run();
+					return simulation.getLog();
+				}
+			});
+		}
+		
+		List<Log> logs = new ArrayList<Log>(theReplications);
+		try {
+			for(Future<Log> result : pool.invokeAll(replications))
+				logs.add(result.get());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running replications", e);
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException("Replication failed", e.getCause());
+		}
+		return logs;
+	}
+	
+	/**
+	 * Stops the threads used to run replications.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Returns the seed of a replication, found by mixing the base seed 
+	 * with the replication's number so that neighboring replications 
+	 * receive unrelated seeds.
+	 * 
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @param theReplication
+	 *            the number of the replication
+	 * @return long
+	 *            the seed of the replication
+	 */
+	public static long getReplicationSeed(long theBaseSeed, int theReplication) {
+		long z = theBaseSeed + (theReplication + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
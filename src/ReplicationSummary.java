@@ -0,0 +1,210 @@
+
+
+import java.text.DecimalFormat;
+
+/**
+ * This class merges the statistics of many independent replications of 
+ * the call center simulation. Each replication's Log is added with the 
+ * addReplication method, which records its key results (average hold time, 
+ * hang ups, busy signals, completed calls, and so on) in StatAccumulator 
+ * objects. The printSummary method returns a formatted string containing 
+ * the mean of each result across the replications along with the 
+ * half-width of its 95% confidence interval.
+ * 
+ * @author Brett Crawford
+ */
+public class ReplicationSummary {
+	
+	private DecimalFormat fmt = new DecimalFormat("0.00");
+	
+	private StatAccumulator averageHoldTime;
+	private StatAccumulator maximumHoldTime;
+	private StatAccumulator callsOnHoldMax;
+	private StatAccumulator totalCustomers;
+	private StatAccumulator hangUps;
+	private StatAccumulator busySignals;
+	private StatAccumulator successfulCalls;
+	private StatAccumulator shiftLength;
+	private StatAccumulator employeeIdleTime;
+	
+	/**
+	 * Creates an empty ReplicationSummary object.
+	 */
+	public ReplicationSummary() {
+		averageHoldTime = new StatAccumulator();
+		maximumHoldTime = new StatAccumulator();
+		callsOnHoldMax = new StatAccumulator();
+		totalCustomers = new StatAccumulator();
+		hangUps = new StatAccumulator();
+		busySignals = new StatAccumulator();
+		successfulCalls = new StatAccumulator();
+		shiftLength = new StatAccumulator();
+		employeeIdleTime = new StatAccumulator();
+	}
+	
+	/**
+	 * Adds the results of a single replication to the summary.
+	 * 
+	 * @param log
+	 *           the log of a completed replication
+	 */
+	public void addReplication(Log log) {
+		averageHoldTime.record(log.getHoldTimes().getMean());
+		maximumHoldTime.record(log.getHoldTimes().getMax());
+		callsOnHoldMax.record(log.getCallsOnHoldMax());
+		totalCustomers.record(log.getTotalCustomers());
+		hangUps.record(log.getHangUps());
+		busySignals.record(log.getBusySignals());
+		successfulCalls.record(log.getSuccessfulCalls());
+		shiftLength.record(log.getShiftLength());
+		employeeIdleTime.record(log.getAverageEmployeeIdleTime());
+	}
+	
+	/**
+	 * Returns the number of replications added to the summary.
+	 * 
+	 * @return long
+	 *             the number of replications
+	 */
+	public long getReplications() {
+		return averageHoldTime.getCount();
+	}
+	
+	/**
+	 * Returns the accumulated average hold time (in minutes) of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the average hold time (in minutes) of each replication
+	 */
+	public StatAccumulator getAverageHoldTime() {
+		return averageHoldTime;
+	}
+	
+	/**
+	 * Returns the accumulated maximum hold time (in minutes) of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the maximum hold time (in minutes) of each replication
+	 */
+	public StatAccumulator getMaximumHoldTime() {
+		return maximumHoldTime;
+	}
+	
+	/**
+	 * Returns the accumulated maximum number of calls on hold of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the maximum number of calls on hold of each replication
+	 */
+	public StatAccumulator getCallsOnHoldMax() {
+		return callsOnHoldMax;
+	}
+	
+	/**
+	 * Returns the accumulated number of customers of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the number of customers of each replication
+	 */
+	public StatAccumulator getTotalCustomers() {
+		return totalCustomers;
+	}
+	
+	/**
+	 * Returns the accumulated number of hang ups of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the number of hang ups of each replication
+	 */
+	public StatAccumulator getHangUps() {
+		return hangUps;
+	}
+	
+	/**
+	 * Returns the accumulated number of busy signals of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the number of busy signals of each replication
+	 */
+	public StatAccumulator getBusySignals() {
+		return busySignals;
+	}
+	
+	/**
+	 * Returns the accumulated number of successful calls of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the number of successful calls of each replication
+	 */
+	public StatAccumulator getSuccessfulCalls() {
+		return successfulCalls;
+	}
+	
+	/**
+	 * Returns the accumulated shift length (in minutes) of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the shift length (in minutes) of each replication
+	 */
+	public StatAccumulator getShiftLength() {
+		return shiftLength;
+	}
+	
+	/**
+	 * Returns the accumulated average employee idle time (in minutes) of each replication.
+	 * 
+	 * @return StatAccumulator
+	 *             the average employee idle time (in minutes) of each replication
+	 */
+	public StatAccumulator getEmployeeIdleTime() {
+		return employeeIdleTime;
+	}
+	
+	/**
+	 * Returns a string containing the mean and 95% confidence interval 
+	 * of each result across the replications.
+	 * 
+	 * @return String
+	 *             a string containing the summary of the replications
+	 */
+	public String printSummary() {
+		String stat = "|==========================================================|\n" +
+			          "|                   Replication Results                    |\n" +
+			          "|==========================================================|\n\n";
+		
+		stat +=       "   Replications: " + getReplications() + " (mean +/- 95% confidence half-width)\n";
+		stat +=       "   \n";
+		stat +=       "   Hold Time Stats\n";
+		stat +=       printLine("     Average time a call remained on hold (minutes): ", averageHoldTime);
+		stat +=       printLine("     Maximum time a call remained on hold (minutes): ", maximumHoldTime);
+		stat +=       printLine("     Maximum number of calls on hold at one time: ", callsOnHoldMax);
+		stat +=       "   \n";
+		stat +=       printLine("   Total customer calls: ", totalCustomers);
+		stat +=       printLine("     Number of dropped calls (hang-ups): ", hangUps);
+		stat +=       printLine("     Number of lost calls (busy signals): ", busySignals);
+		stat +=       printLine("     Number of successfully completed calls: ", successfulCalls);
+		stat +=       "   \n";
+		stat +=       printLine("   Total shift length (minutes, including overtime): ", shiftLength);
+		stat +=       printLine("   Average employee idle time (minutes): ", employeeIdleTime);
+		
+		stat += "\n|==========================================================|\n" +
+			      "|==========================================================|\n";
+		
+		return stat;
+	}
+	
+	/**
+	 * Returns a line containing a label followed by the mean and 
+	 * confidence half-width of a result.
+	 * 
+	 * @param label
+	 *           the label of the result
+	 * @param result
+	 *           the accumulated result
+	 * @return String
+	 *             the formatted line
+	 */
+	private String printLine(String label, StatAccumulator result) {
+		return label + fmt.format(result.getMean()) + " +/- " + fmt.format(result.getConfidenceHalfWidth()) + "\n";
+	}
+}
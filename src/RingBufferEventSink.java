@@ -0,0 +1,104 @@
+
+
+/**
+ * This class represents an event sink that keeps the most recent events of 
+ * the simulation in memory. The required parameter for creating a 
+ * RingBufferEventSink object is an integer, the number of events to keep. 
+ * Events are stored as primitive values in preallocated arrays, so recording 
+ * an event allocates nothing; once the buffer is full, each new event 
+ * replaces the oldest one. The kept events are only formatted when the 
+ * printEvents method is called.
+ * 
+ * @author Brett Crawford
+ */
+public class RingBufferEventSink implements EventSink {
+	
+	private int next;
+	private int size;
+	private long droppedEvents;
+	private long[] times;
+	private EventType[] types;
+	private int[] customerIDs;
+	private int[] employeeIDs;
+	private int[] callLengths;
+	
+	/**
+	 * Creates a RingBufferEventSink object with the specified parameters.
+	 * 
+	 * @param theCapacity
+	 *            the number of most recent events to keep
+	 */
+	public RingBufferEventSink(int theCapacity) {
+		if(theCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1: " + theCapacity);
+		next = 0;
+		size = 0;
+		droppedEvents = 0;
+		times = new long[theCapacity];
+		types = new EventType[theCapacity];
+		customerIDs = new int[theCapacity];
+		employeeIDs = new int[theCapacity];
+		callLengths = new int[theCapacity];
+	}
+	
+	/**
+	 * Stores the event, replacing the oldest event if the buffer is full.
+	 * 
+	 * @param time
+	 *            the time of the event, in seconds since the epoch
+	 * @param type
+	 *            the type of the event
+	 * @param customerID
+	 *            the ID of the customer involved, or 0
+	 * @param employeeID
+	 *            the ID of the employee involved, or 0
+	 * @param callLength
+	 *            the length of the call involved, or 0
+	 */
+	public void eventRecorded(long time, EventType type, int customerID, int employeeID, int callLength) {
+		times[next] = time;
+		types[next] = type;
+		customerIDs[next] = customerID;
+		employeeIDs[next] = employeeID;
+		callLengths[next] = callLength;
+		
+		next = (next + 1) % times.length;
+		if(size < times.length)
+			size++;
+		else
+			droppedEvents++;
+	}
+	
+	/**
+	 * Returns the number of events that have been replaced by newer events.
+	 * 
+	 * @return long
+	 *             the number of events no longer kept
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents;
+	}
+	
+	/**
+	 * Returns a string containing the kept events, oldest first.
+	 * 
+	 * @return String
+	 *             a string containing the kept events
+	 */
+	public String printEvents() {
+		EventFormatter formatter = new EventFormatter();
+		StringBuilder out = new StringBuilder(size * 64);
+		int first = (next - size + times.length) % times.length;
+		for(int i = 0; i < size; i++) {
+			int index = (first + i) % times.length;
+			formatter.format(out, times[index], types[index], customerIDs[index], employeeIDs[index], callLengths[index]);
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * Does nothing, as the events are kept until the sink is discarded.
+	 */
+	public void close() {
+	}
+}
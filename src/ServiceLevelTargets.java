@@ -0,0 +1,99 @@
+
+
+/**
+ * This class holds the service levels a call center is required to meet. 
+ * The required parameters for creating a ServiceLevelTargets object include: 
+ * a double, the maximum average time (in minutes) a call may remain on hold; 
+ * a double, the maximum fraction of customer calls which may receive a busy 
+ * signal; and a double, the maximum number of hang-ups per shift. The targets 
+ * are compared against the mean results of a set of replications, so that a 
+ * staffing is judged by its typical shift rather than by a single run.
+ * 
+ * @author Brett Crawford
+ */
+public class ServiceLevelTargets {
+	
+	/** The maximum average time (in minutes) a call may remain on hold **/
+	private double maxAverageHoldTime;
+	
+	/** The maximum fraction of customer calls which may receive a busy signal **/
+	private double maxBusySignalRate;
+	
+	/** The maximum number of hang-ups per shift **/
+	private double maxHangUps;
+	
+	/**
+	 * Creates a ServiceLevelTargets object with the specified parameters.
+	 * 
+	 * @param theMaxAverageHoldTime
+	 *            the maximum average time (in minutes) a call may remain on hold
+	 * @param theMaxBusySignalRate
+	 *            the maximum fraction of customer calls which may receive a busy signal
+	 * @param theMaxHangUps
+	 *            the maximum number of hang-ups per shift
+	 */
+	public ServiceLevelTargets(double theMaxAverageHoldTime, double theMaxBusySignalRate, double theMaxHangUps) {
+		maxAverageHoldTime = theMaxAverageHoldTime;
+		maxBusySignalRate = theMaxBusySignalRate;
+		maxHangUps = theMaxHangUps;
+	}
+	
+	/**
+	 * Returns the maximum average time (in minutes) a call may remain on hold.
+	 * 
+	 * @return double
+	 *            the maximum average hold time (in minutes)
+	 */
+	public double getMaxAverageHoldTime() {
+		return maxAverageHoldTime;
+	}
+	
+	/**
+	 * Returns the maximum fraction of customer calls which may receive a busy signal.
+	 * 
+	 * @return double
+	 *            the maximum busy signal rate
+	 */
+	public double getMaxBusySignalRate() {
+		return maxBusySignalRate;
+	}
+	
+	/**
+	 * Returns the maximum number of hang-ups per shift.
+	 * 
+	 * @return double
+	 *            the maximum number of hang-ups
+	 */
+	public double getMaxHangUps() {
+		return maxHangUps;
+	}
+	
+	/**
+	 * Returns the mean fraction of customer calls which received a busy 
+	 * signal across the replications of a summary.
+	 * 
+	 * @param summary
+	 *            the merged results of a set of replications
+	 * @return double
+	 *            the busy signal rate, or 0 if no customers called
+	 */
+	public static double getBusySignalRate(ReplicationSummary summary) {
+		double customers = summary.getTotalCustomers().getSum();
+		return customers == 0 ? 0 : summary.getBusySignals().getSum() / customers;
+	}
+	
+	/**
+	 * Returns true if the mean results of the replications meet every 
+	 * target, otherwise returns false.
+	 * 
+	 * @param summary
+	 *            the merged results of a set of replications
+	 * @return boolean
+	 *            true if every target is met, otherwise false
+	 */
+	public boolean isMetBy(ReplicationSummary summary) {
+		return summary.getAverageHoldTime().getMean() <= maxAverageHoldTime
+				&& getBusySignalRate(summary) <= maxBusySignalRate
+				&& summary.getHangUps().getMean() <= maxHangUps;
+	}
+}
@@ -0,0 +1,157 @@
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * This class holds a snapshot of the whole state of a call center 
+ * simulation, from which the simulation can be restored and run on. The 
+ * required parameter for creating a SimulationCheckpoint object is the 
+ * CallCenterSimulation to capture, which must have been initialized, must 
+ * not have finished its run and must not be in the middle of a tick. The snapshot is kept as a compact 
+ * array of bytes: an 8 byte header, the characters "CCCP" followed by the 
+ * version of the format, then the state written by the writeState method of 
+ * CallCenterSimulation. Its size depends on the number of employees, 
+ * phonelines and customers in the call center at the time, not on how long 
+ * the simulation has run. 
+ * 
+ * A checkpoint is never changed once created, so any number of simulations 
+ * may be restored from it, each with its own event sink. Restoring with a 
+ * branch seed gives the restored simulation new random streams, so that 
+ * many what-if branches can be run on from a shared mid-shift state without 
+ * simulating the morning each time. The save and load methods keep a 
+ * checkpoint in a file, so that long runs can be resumed later. A checkpoint 
+ * of a simulation replaying a call trace refers to the trace by its file 
+ * name, and the file must be unchanged when the checkpoint is restored.
+ * 
+ * @author Brett Crawford
+ */
+public class SimulationCheckpoint {
+	
+	/** The first four bytes of a checkpoint, "CCCP" **/
+	private static final int MAGIC = 0x43434350;
+	private static final int VERSION = 9;
+	private static final int HEADER_SIZE = 8;
+	
+	private byte[] state;
+	
+	/**
+	 * Creates a SimulationCheckpoint object holding the current state of 
+	 * the given simulation.
+	 * 
+	 * @param theSimulation
+	 *            the simulation to capture
+	 */
+	public SimulationCheckpoint(CallCenterSimulation theSimulation) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			theSimulation.writeState(out);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write checkpoint", e);
+		}
+		state = bytes.toByteArray();
+	}
+	
+	/**
+	 * Creates a SimulationCheckpoint object holding the given bytes, after 
+	 * checking their header.
+	 * 
+	 * @param theState
+	 *            the bytes of the checkpoint
+	 */
+	private SimulationCheckpoint(byte[] theState) {
+		ByteBuffer header = ByteBuffer.wrap(theState);
+		if(theState.length < HEADER_SIZE || header.getInt() != MAGIC)
+			throw new IllegalStateException("Not a simulation checkpoint");
+		if(header.getInt() != VERSION)
+			throw new IllegalStateException("Unsupported version of simulation checkpoint");
+		state = theState;
+	}
+	
+	/**
+	 * Reads a checkpoint from a file written by the save method.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to read
+	 * @return SimulationCheckpoint
+	 *            the checkpoint read
+	 */
+	public static SimulationCheckpoint load(String theFileName) {
+		try {
+			return new SimulationCheckpoint(Files.readAllBytes(Paths.get(theFileName)));
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read checkpoint " + theFileName, e);
+		}
+	}
+	
+	/**
+	 * Writes the checkpoint to a file. Any existing file with the given 
+	 * name is replaced.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to write
+	 */
+	public void save(String theFileName) {
+		try {
+			Files.write(Paths.get(theFileName), state);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write checkpoint " + theFileName, e);
+		}
+	}
+	
+	/**
+	 * Restores a simulation from the checkpoint. The restored simulation 
+	 * continues exactly as the captured simulation would have.
+	 * 
+	 * @param theEventSink
+	 *            the sink for the restored simulation's events
+	 * @return CallCenterSimulation
+	 *            the restored simulation, ready to run
+	 */
+	public CallCenterSimulation restore(EventSink theEventSink) {
+		try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(state, HEADER_SIZE, state.length - HEADER_SIZE))) {
+			return CallCenterSimulation.readState(in, theEventSink);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to read checkpoint", e);
+		}
+	}
+	
+	/**
+	 * Restores a simulation from the checkpoint with random streams drawn 
+	 * from the given seed, so that it follows a future of its own.
+	 * 
+	 * @param theEventSink
+	 *            the sink for the restored simulation's events
+	 * @param theBranchSeed
+	 *            the seed for the RNG used by the restored simulation
+	 * @return CallCenterSimulation
+	 *            the restored simulation, ready to run
+	 */
+	public CallCenterSimulation restore(EventSink theEventSink, long theBranchSeed) {
+		CallCenterSimulation simulation = restore(theEventSink);
+		simulation.reseed(theBranchSeed);
+		return simulation;
+	}
+	
+	/**
+	 * Returns the size of the checkpoint.
+	 * 
+	 * @return int
+	 *            the size of the checkpoint, in bytes
+	 */
+	public int getSize() {
+		return state.length;
+	}
+}
@@ -0,0 +1,769 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class holds the settings of a single call center simulation which
+ * can be modified to evaluate the performance of the call center. A newly
+ * created SimulationParameters object holds the default settings: an 8
+ * hour shift, 12 phone lines, 10 employees, calls of 2 to 30 minutes, a
+ * 12% chance of a call on each tick, and an event-driven clock. When an
+ * ArrivalProfile is set, the times of calls are drawn from the profile and
+ * the chance of a call on each tick is not used. When a call trace file is
+ * set, the calls of the file are replayed instead, from the trace start time
+ * or, if it is 0, from the first call in the file. When primary skills are
+ * set, calls are routed by type with a SkillBasedRouter: the types of calls
+ * are drawn from the call type mix, employee i is given the skills at i modulo
+ * the number of skills given, and a call overflows to employees with a
+ * secondary skill in its type after the overflow seconds. When a telemetry
+ * interval is set, the simulation records a Telemetry series of that
+ * interval, written to the telemetry file when the run finishes; by default
+ * none is recorded. When a batch length is set, the call center runs
+ * without closing for the length of the shift, which may be many days, and
+ * its steady-state results are estimated by BatchMeans of that length.
+ * When compact is set, the phone
+ * lines, employees and customers are kept by a CompactCallCenter in arrays
+ * rather than as objects of their own, which gives the same results for the
+ * same seed in far less memory; employees cannot then be given skills. When
+ * a PatienceDistribution is set, the patience of each customer is drawn from
+ * it; by default every customer waits 10 minutes on hold. When a redial
+ * probability is set, a customer who receives a busy signal or hangs up
+ * calls again with that chance, after a delay drawn around the redial delay.
+ * When a callback probability is set, a customer placed on hold asks with
+ * that chance to be called back rather than waiting on the line. Customers
+ * cannot redial or be called back in a compact simulation. The
+ * parameters are only read when a CallCenterSimulation is created, so one
+ * SimulationParameters object may be shared by many simulations. The
+ * parameters are written to each checkpoint of a simulation, so that the
+ * simulation can be rebuilt when the checkpoint is restored.
+ *
+ * @author Brett Crawford
+ */
+public class SimulationParameters {
+
+	/** The length (in hours) of the shift **/
+	private int shiftLength;
+
+	/** The number of phoneline the call center should use **/
+	private int numberOfPhoneLines;
+
+	/** The number of employees the call center should use **/
+	private int numberOfEmployees;
+
+	/** The minimum length (in minutes) of a call from a customer **/
+	private int expectedDurationMin;
+
+	/** The maximum length (in minutes) of a call from a customer **/
+	private int expectedDurationMax;
+
+	/** The probabilty (per tick) that a customer will be created and call **/
+	private float callProbability;
+
+	/** Whether the clock should only tick items when they are due **/
+	private boolean eventDriven;
+
+	/** The rate at which customers call over the shift, or null to use the call probability **/
+	private ArrivalProfile arrivalProfile;
+
+	/** The file of historical calls to replay, or null to generate calls **/
+	private String callTraceFile;
+
+	/** The time in the call trace, in seconds since the epoch, replayed as the opening **/
+	private long traceStartTime;
+
+	/** The relative share of calls of each type, or null for calls of type 0 only **/
+	private double[] callTypeMix;
+
+	/** The bitmasks of the primary skills of the employees, or null to route calls first-come, first-served **/
+	private long[] primarySkills;
+
+	/** The bitmasks of the secondary skills of the employees, or null for none **/
+	private long[] secondarySkills;
+
+	/** The number of seconds a call waits before it overflows, or -1 for never **/
+	private int overflowSeconds;
+
+	/** The length (in minutes) of each telemetry interval, or 0 to record no telemetry **/
+	private int telemetryInterval;
+
+	/** The name of the file the telemetry is written to when a run finishes, or null for none **/
+	private String telemetryFile;
+
+	/** The length (in minutes) of each batch of a steady-state run, or 0 for a single shift **/
+	private int batchLength;
+
+	/** Whether the phone lines, employees and customers should be kept in arrays **/
+	private boolean compact;
+
+	/** The distribution the patience of customers is drawn from, or null for the default patience **/
+	private PatienceDistribution patienceDistribution;
+
+	/** The probability that a customer who is not served calls again **/
+	private float redialProbability;
+
+	/** The average number of seconds before a customer calls again **/
+	private int redialDelay;
+
+	/** The probability that a customer placed on hold asks to be called back **/
+	private float callbackProbability;
+
+	/**
+	 * Creates a SimulationParameters object holding the default settings.
+	 */
+	public SimulationParameters() {
+		shiftLength = 8;
+		numberOfPhoneLines = 12;
+		numberOfEmployees = 10;
+		expectedDurationMin = 2;
+		expectedDurationMax = 30;
+		callProbability = 0.12F;
+		eventDriven = true;
+		arrivalProfile = null;
+		callTraceFile = null;
+		traceStartTime = 0;
+		callTypeMix = null;
+		primarySkills = null;
+		secondarySkills = null;
+		overflowSeconds = 60;
+		telemetryInterval = 0;
+		telemetryFile = null;
+		batchLength = 0;
+		compact = false;
+		patienceDistribution = null;
+		redialProbability = 0;
+		redialDelay = 5 * 60;
+		callbackProbability = 0;
+	}
+
+	/**
+	 * Creates a SimulationParameters object holding the same settings as
+	 * the given parameters.
+	 *
+	 * @param other
+	 *            the parameters to copy
+	 */
+	public SimulationParameters(SimulationParameters other) {
+		shiftLength = other.shiftLength;
+		numberOfPhoneLines = other.numberOfPhoneLines;
+		numberOfEmployees = other.numberOfEmployees;
+		expectedDurationMin = other.expectedDurationMin;
+		expectedDurationMax = other.expectedDurationMax;
+		callProbability = other.callProbability;
+		eventDriven = other.eventDriven;
+		arrivalProfile = other.arrivalProfile;
+		callTraceFile = other.callTraceFile;
+		traceStartTime = other.traceStartTime;
+		callTypeMix = other.callTypeMix;
+		primarySkills = other.primarySkills;
+		secondarySkills = other.secondarySkills;
+		overflowSeconds = other.overflowSeconds;
+		telemetryInterval = other.telemetryInterval;
+		telemetryFile = other.telemetryFile;
+		batchLength = other.batchLength;
+		compact = other.compact;
+		patienceDistribution = other.patienceDistribution;
+		redialProbability = other.redialProbability;
+		redialDelay = other.redialDelay;
+		callbackProbability = other.callbackProbability;
+	}
+
+	/**
+	 * Returns the length (in hours) of the shift.
+	 * 
+	 * @return int
+	 *            the length (in hours) of the shift
+	 */
+	public int getShiftLength() {
+		return shiftLength;
+	}
+
+	/**
+	 * Sets the length (in hours) of the shift.
+	 * 
+	 * @param theShiftLength
+	 *            the length (in hours) of the shift
+	 */
+	public void setShiftLength(int theShiftLength) {
+		shiftLength = theShiftLength;
+	}
+
+	/**
+	 * Returns the number of phonelines the call center should use.
+	 * 
+	 * @return int
+	 *            the number of phonelines the call center should use
+	 */
+	public int getNumberOfPhoneLines() {
+		return numberOfPhoneLines;
+	}
+
+	/**
+	 * Sets the number of phonelines the call center should use.
+	 * 
+	 * @param theNumberOfPhoneLines
+	 *            the number of phonelines the call center should use
+	 */
+	public void setNumberOfPhoneLines(int theNumberOfPhoneLines) {
+		numberOfPhoneLines = theNumberOfPhoneLines;
+	}
+
+	/**
+	 * Returns the number of employees the call center should use.
+	 * 
+	 * @return int
+	 *            the number of employees the call center should use
+	 */
+	public int getNumberOfEmployees() {
+		return numberOfEmployees;
+	}
+
+	/**
+	 * Sets the number of employees the call center should use.
+	 * 
+	 * @param theNumberOfEmployees
+	 *            the number of employees the call center should use
+	 */
+	public void setNumberOfEmployees(int theNumberOfEmployees) {
+		numberOfEmployees = theNumberOfEmployees;
+	}
+
+	/**
+	 * Returns the minimum length (in minutes) of a call from a customer.
+	 * 
+	 * @return int
+	 *            the minimum length (in minutes) of a call from a customer
+	 */
+	public int getExpectedDurationMin() {
+		return expectedDurationMin;
+	}
+
+	/**
+	 * Sets the minimum length (in minutes) of a call from a customer.
+	 * 
+	 * @param theExpectedDurationMin
+	 *            the minimum length (in minutes) of a call from a customer
+	 */
+	public void setExpectedDurationMin(int theExpectedDurationMin) {
+		expectedDurationMin = theExpectedDurationMin;
+	}
+
+	/**
+	 * Returns the maximum length (in minutes) of a call from a customer.
+	 * 
+	 * @return int
+	 *            the maximum length (in minutes) of a call from a customer
+	 */
+	public int getExpectedDurationMax() {
+		return expectedDurationMax;
+	}
+
+	/**
+	 * Sets the maximum length (in minutes) of a call from a customer.
+	 * 
+	 * @param theExpectedDurationMax
+	 *            the maximum length (in minutes) of a call from a customer
+	 */
+	public void setExpectedDurationMax(int theExpectedDurationMax) {
+		expectedDurationMax = theExpectedDurationMax;
+	}
+
+	/**
+	 * Returns the probability (per tick) that a customer will be created and call.
+	 * 
+	 * @return float
+	 *            the probability (per tick) that a customer will be created and call
+	 */
+	public float getCallProbability() {
+		return callProbability;
+	}
+
+	/**
+	 * Sets the probability (per tick) that a customer will be created and call.
+	 * 
+	 * @param theCallProbability
+	 *            the probability (per tick) that a customer will be created and call
+	 */
+	public void setCallProbability(float theCallProbability) {
+		callProbability = theCallProbability;
+	}
+
+	/**
+	 * Returns whether the clock should only tick items when they are due.
+	 * 
+	 * @return boolean
+	 *            whether the clock should only tick items when they are due
+	 */
+	public boolean isEventDriven() {
+		return eventDriven;
+	}
+
+	/**
+	 * Sets whether the clock should only tick items when they are due.
+	 * 
+	 * @param theEventDriven
+	 *            whether the clock should only tick items when they are due
+	 */
+	public void setEventDriven(boolean theEventDriven) {
+		eventDriven = theEventDriven;
+	}
+
+	/**
+	 * Returns the rate at which customers call over the shift, or null if
+	 * the call probability is used.
+	 * 
+	 * @return ArrivalProfile
+	 *            the rate at which customers call over the shift
+	 */
+	public ArrivalProfile getArrivalProfile() {
+		return arrivalProfile;
+	}
+
+	/**
+	 * Sets the rate at which customers call over the shift, or null to use
+	 * the call probability.
+	 * 
+	 * @param theArrivalProfile
+	 *            the rate at which customers call over the shift
+	 */
+	public void setArrivalProfile(ArrivalProfile theArrivalProfile) {
+		arrivalProfile = theArrivalProfile;
+	}
+
+	/**
+	 * Returns the name of the file of historical calls to replay, or null
+	 * if calls are generated.
+	 * 
+	 * @return String
+	 *            the name of the call trace file
+	 */
+	public String getCallTraceFile() {
+		return callTraceFile;
+	}
+
+	/**
+	 * Sets the name of the file of historical calls to replay, in either the
+	 * CSV or binary format of CallTrace, or null to generate calls.
+	 * 
+	 * @param theCallTraceFile
+	 *            the name of the call trace file
+	 */
+	public void setCallTraceFile(String theCallTraceFile) {
+		callTraceFile = theCallTraceFile;
+	}
+
+	/**
+	 * Returns the time in the call trace replayed as the opening of the call
+	 * center, or 0 to replay from the first call.
+	 * 
+	 * @return long
+	 *            the trace start time, in seconds since the epoch
+	 */
+	public long getTraceStartTime() {
+		return traceStartTime;
+	}
+
+	/**
+	 * Sets the time in the call trace replayed as the opening of the call
+	 * center, or 0 to replay from the first call.
+	 * 
+	 * @param theTraceStartTime
+	 *            the trace start time, in seconds since the epoch
+	 */
+	public void setTraceStartTime(long theTraceStartTime) {
+		traceStartTime = theTraceStartTime;
+	}
+
+	/**
+	 * Returns the relative share of calls of each type, or null if every
+	 * call is of type 0.
+	 * 
+	 * @return double[]
+	 *            the share of calls of each type, indexed by type
+	 */
+	public double[] getCallTypeMix() {
+		return callTypeMix;
+	}
+
+	/**
+	 * Sets the relative share of calls of each type, or null for every call
+	 * to be of type 0.
+	 * 
+	 * @param theCallTypeMix
+	 *            the share of calls of each type, indexed by type
+	 */
+	public void setCallTypeMix(double[] theCallTypeMix) {
+		callTypeMix = theCallTypeMix;
+	}
+
+	/**
+	 * Returns the bitmasks of the call types the employees take first, or
+	 * null if calls are routed first-come, first-served.
+	 * 
+	 * @return long[]
+	 *            the primary skills of the employees
+	 */
+	public long[] getPrimarySkills() {
+		return primarySkills;
+	}
+
+	/**
+	 * Sets the bitmasks of the call types the employees take first, or null
+	 * to route calls first-come, first-served. Employee i is given the skills
+	 * at i modulo the number of bitmasks.
+	 * 
+	 * @param thePrimarySkills
+	 *            the primary skills of the employees
+	 */
+	public void setPrimarySkills(long[] thePrimarySkills) {
+		primarySkills = thePrimarySkills;
+	}
+
+	/**
+	 * Returns the bitmasks of the call types the employees take once they
+	 * have overflowed, or null for none.
+	 * 
+	 * @return long[]
+	 *            the secondary skills of the employees
+	 */
+	public long[] getSecondarySkills() {
+		return secondarySkills;
+	}
+
+	/**
+	 * Sets the bitmasks of the call types the employees take once they have
+	 * overflowed, or null for none. Employee i is given the skills at i
+	 * modulo the number of bitmasks.
+	 * 
+	 * @param theSecondarySkills
+	 *            the secondary skills of the employees
+	 */
+	public void setSecondarySkills(long[] theSecondarySkills) {
+		secondarySkills = theSecondarySkills;
+	}
+
+	/**
+	 * Returns the number of seconds a call waits before it overflows to
+	 * employees with a secondary skill in its type, or -1 for never.
+	 * 
+	 * @return int
+	 *            the overflow time, in seconds
+	 */
+	public int getOverflowSeconds() {
+		return overflowSeconds;
+	}
+
+	/**
+	 * Sets the number of seconds a call waits before it overflows to
+	 * employees with a secondary skill in its type, or -1 for never.
+	 * 
+	 * @param theOverflowSeconds
+	 *            the overflow time, in seconds
+	 */
+	public void setOverflowSeconds(int theOverflowSeconds) {
+		overflowSeconds = theOverflowSeconds;
+	}
+
+	/**
+	 * Returns the length (in minutes) of each telemetry interval, or 0 if
+	 * no telemetry is recorded.
+	 * 
+	 * @return int
+	 *            the length (in minutes) of each telemetry interval
+	 */
+	public int getTelemetryInterval() {
+		return telemetryInterval;
+	}
+
+	/**
+	 * Sets the length (in minutes) of each telemetry interval, or 0 to
+	 * record no telemetry. The telemetry may be written at any multiple of
+	 * the interval.
+	 * 
+	 * @param theTelemetryInterval
+	 *            the length (in minutes) of each telemetry interval
+	 */
+	public void setTelemetryInterval(int theTelemetryInterval) {
+		telemetryInterval = theTelemetryInterval;
+	}
+
+	/**
+	 * Returns the name of the file the telemetry is written to when a run
+	 * finishes, or null if it is not written.
+	 * 
+	 * @return String
+	 *            the name of the telemetry file
+	 */
+	public String getTelemetryFile() {
+		return telemetryFile;
+	}
+
+	/**
+	 * Sets the name of the file the telemetry is written to, at the
+	 * telemetry interval, when a run finishes, or null to not write it. A
+	 * name ending in .csv is written as CSV, and any other name as the
+	 * columnar binary format of Telemetry. Nothing is written unless a
+	 * telemetry interval is also set.
+	 * 
+	 * @param theTelemetryFile
+	 *            the name of the telemetry file
+	 */
+	public void setTelemetryFile(String theTelemetryFile) {
+		telemetryFile = theTelemetryFile;
+	}
+
+	/**
+	 * Returns the length (in minutes) of each batch of a steady-state run,
+	 * or 0 if the simulation runs a single shift.
+	 * 
+	 * @return int
+	 *            the length (in minutes) of each batch
+	 */
+	public int getBatchLength() {
+		return batchLength;
+	}
+
+	/**
+	 * Sets the length (in minutes) of each batch of a steady-state run, or
+	 * 0 to run a single shift which closes and finishes its calls. In a
+	 * steady-state run, the call center runs without closing for the
+	 * length of the shift, and the batches grow longer as the run goes on.
+	 * 
+	 * @param theBatchLength
+	 *            the length (in minutes) of each batch
+	 */
+	public void setBatchLength(int theBatchLength) {
+		batchLength = theBatchLength;
+	}
+
+	/**
+	 * Returns whether the phone lines, employees and customers should be 
+	 * kept in arrays by a CompactCallCenter.
+	 * 
+	 * @return boolean
+	 *            whether the simulation should be compact
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Sets whether the phone lines, employees and customers should be kept 
+	 * in arrays by a CompactCallCenter, rather than as objects of their own.
+	 * 
+	 * @param theCompact
+	 *            whether the simulation should be compact
+	 */
+	public void setCompact(boolean theCompact) {
+		compact = theCompact;
+	}
+
+	/**
+	 * Returns the distribution the patience of customers is drawn from, or
+	 * null if every customer has the default patience.
+	 * 
+	 * @return PatienceDistribution
+	 *            the distribution of the patience of customers
+	 */
+	public PatienceDistribution getPatienceDistribution() {
+		return patienceDistribution;
+	}
+
+	/**
+	 * Sets the distribution the patience of customers is drawn from, or
+	 * null to give every customer the default patience. The patience of
+	 * the calls of a call trace is that of its records.
+	 * 
+	 * @param thePatienceDistribution
+	 *            the distribution of the patience of customers
+	 */
+	public void setPatienceDistribution(PatienceDistribution thePatienceDistribution) {
+		patienceDistribution = thePatienceDistribution;
+	}
+
+	/**
+	 * Returns the probability that a customer who receives a busy signal
+	 * or hangs up calls again.
+	 * 
+	 * @return float
+	 *            the probability of a redial
+	 */
+	public float getRedialProbability() {
+		return redialProbability;
+	}
+
+	/**
+	 * Sets the probability that a customer who receives a busy signal or
+	 * hangs up calls again, or 0 for customers who never call again.
+	 * 
+	 * @param theRedialProbability
+	 *            the probability of a redial
+	 */
+	public void setRedialProbability(float theRedialProbability) {
+		redialProbability = theRedialProbability;
+	}
+
+	/**
+	 * Returns the average number of seconds before a customer calls again.
+	 * 
+	 * @return int
+	 *            the average delay (in seconds) of a redial
+	 */
+	public int getRedialDelay() {
+		return redialDelay;
+	}
+
+	/**
+	 * Sets the average number of seconds before a customer calls again.
+	 * The delay of each redial is drawn from an exponential distribution
+	 * with this mean.
+	 * 
+	 * @param theRedialDelay
+	 *            the average delay (in seconds) of a redial
+	 */
+	public void setRedialDelay(int theRedialDelay) {
+		redialDelay = theRedialDelay;
+	}
+
+	/**
+	 * Returns the probability that a customer placed on hold asks to be
+	 * called back.
+	 * 
+	 * @return float
+	 *            the probability of a callback
+	 */
+	public float getCallbackProbability() {
+		return callbackProbability;
+	}
+
+	/**
+	 * Sets the probability that a customer placed on hold asks to be called
+	 * back, or 0 for customers who always wait on the line. A customer
+	 * called back is called in turn as employees become free, on a free
+	 * phone line.
+	 * 
+	 * @param theCallbackProbability
+	 *            the probability of a callback
+	 */
+	public void setCallbackProbability(float theCallbackProbability) {
+		callbackProbability = theCallbackProbability;
+	}
+
+	/**
+	 * Reads the parameters written to a checkpoint by writeState.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @return SimulationParameters
+	 *            the parameters read
+	 */
+	public static SimulationParameters readState(DataInput in) throws IOException {
+		SimulationParameters parameters = new SimulationParameters();
+		parameters.shiftLength = in.readInt();
+		parameters.numberOfPhoneLines = in.readInt();
+		parameters.numberOfEmployees = in.readInt();
+		parameters.expectedDurationMin = in.readInt();
+		parameters.expectedDurationMax = in.readInt();
+		parameters.callProbability = in.readFloat();
+		parameters.eventDriven = in.readBoolean();
+		parameters.arrivalProfile = in.readBoolean() ? ArrivalProfile.readState(in) : null;
+		parameters.callTraceFile = in.readBoolean() ? in.readUTF() : null;
+		parameters.traceStartTime = in.readLong();
+		if(in.readBoolean()) {
+			parameters.callTypeMix = new double[in.readInt()];
+			for(int i = 0; i < parameters.callTypeMix.length; i++)
+				parameters.callTypeMix[i] = in.readDouble();
+		}
+		parameters.primarySkills = readSkills(in);
+		parameters.secondarySkills = readSkills(in);
+		parameters.overflowSeconds = in.readInt();
+		parameters.telemetryInterval = in.readInt();
+		parameters.telemetryFile = in.readBoolean() ? in.readUTF() : null;
+		parameters.batchLength = in.readInt();
+		parameters.compact = in.readBoolean();
+		parameters.patienceDistribution = in.readBoolean() ? PatienceDistribution.readState(in) : null;
+		parameters.redialProbability = in.readFloat();
+		parameters.redialDelay = in.readInt();
+		parameters.callbackProbability = in.readFloat();
+		return parameters;
+	}
+
+	/**
+	 * Writes the parameters to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(shiftLength);
+		out.writeInt(numberOfPhoneLines);
+		out.writeInt(numberOfEmployees);
+		out.writeInt(expectedDurationMin);
+		out.writeInt(expectedDurationMax);
+		out.writeFloat(callProbability);
+		out.writeBoolean(eventDriven);
+		out.writeBoolean(arrivalProfile != null);
+		if(arrivalProfile != null)
+			arrivalProfile.writeState(out);
+		out.writeBoolean(callTraceFile != null);
+		if(callTraceFile != null)
+			out.writeUTF(callTraceFile);
+		out.writeLong(traceStartTime);
+		out.writeBoolean(callTypeMix != null);
+		if(callTypeMix != null) {
+			out.writeInt(callTypeMix.length);
+			for(int i = 0; i < callTypeMix.length; i++)
+				out.writeDouble(callTypeMix[i]);
+		}
+		writeSkills(out, primarySkills);
+		writeSkills(out, secondarySkills);
+		out.writeInt(overflowSeconds);
+		out.writeInt(telemetryInterval);
+		out.writeBoolean(telemetryFile != null);
+		if(telemetryFile != null)
+			out.writeUTF(telemetryFile);
+		out.writeInt(batchLength);
+		out.writeBoolean(compact);
+		out.writeBoolean(patienceDistribution != null);
+		if(patienceDistribution != null)
+			patienceDistribution.writeState(out);
+		out.writeFloat(redialProbability);
+		out.writeInt(redialDelay);
+		out.writeFloat(callbackProbability);
+	}
+
+	/**
+	 * Reads an array of skill bitmasks, or null, from a checkpoint.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 * @return long[]
+	 *            the skill bitmasks, or null
+	 */
+	private static long[] readSkills(DataInput in) throws IOException {
+		if(!in.readBoolean())
+			return null;
+		long[] skills = new long[in.readInt()];
+		for(int i = 0; i < skills.length; i++)
+			skills[i] = in.readLong();
+		return skills;
+	}
+
+	/**
+	 * Writes an array of skill bitmasks, or null, to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 * @param skills
+	 *            the skill bitmasks, or null
+	 */
+	private static void writeSkills(DataOutput out, long[] skills) throws IOException {
+		out.writeBoolean(skills != null);
+		if(skills != null) {
+			out.writeInt(skills.length);
+			for(int i = 0; i < skills.length; i++)
+				out.writeLong(skills[i]);
+		}
+	}
+}
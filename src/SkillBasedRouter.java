@@ -0,0 +1,408 @@
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * This class routes each call to an employee skilled in its type. Calls 
+ * have a type from 0 to 63, and each employee has a set of primary skills 
+ * and a set of secondary skills, each kept as a bitmask of call types. The 
+ * required parameter for creating a SkillBasedRouter object is an integer, 
+ * the number of seconds a call waits before it overflows to employees with 
+ * a secondary skill in its type, or -1 if calls never overflow. 
+ * 
+ * Calls are matched by skill priority: a waiting call is given to an 
+ * employee with a primary skill in its type whenever one is available, 
+ * and only once no such match remains are overflowed calls given to 
+ * employees with a secondary skill. Among the calls that can be matched, 
+ * the oldest is taken first, and among the employees who can take it, the 
+ * one who has been available the longest takes it. 
+ * 
+ * Rather than scanning every employee for each call, available employees 
+ * are kept in idle groups keyed by their pair of skill bitmasks, each a 
+ * queue in the order its employees became available. Each call type knows 
+ * the groups skilled in it, and a bitmask of the call types with an 
+ * available employee is kept up to date, so a match is found by combining 
+ * that bitmask with the bitmask of the call types with waiting calls and 
+ * comparing the heads of a few groups. The cost of routing a call depends 
+ * on the number of call types and distinct skill sets, not on the number 
+ * of employees.
+ * 
+ * @author Brett Crawford
+ */
+public class SkillBasedRouter implements CallRouter {
+	
+	/** The number of call types, one for each bit of a skill bitmask **/
+	public static final int CALL_TYPES = 64;
+	
+	private int overflowSeconds;
+	private int callsWaiting;
+	private long waitingTypes;
+	private long primaryIdleTypes;
+	private long secondaryIdleTypes;
+	private long nextSequence;
+	private ArrayList<TreeMap<Long, PhoneLine>> waitingCalls;
+	private ArrayList<IdleGroup> idleGroups;
+	private ArrayList<ArrayList<IdleGroup>> primaryGroups;
+	private ArrayList<ArrayList<IdleGroup>> secondaryGroups;
+	private IdentityHashMap<Employee, IdleGroup> employeeGroups;
+	private int[] primaryIdle;
+	private int[] secondaryIdle;
+	
+	/**
+	 * Creates a SkillBasedRouter object with the specified parameters.
+	 * 
+	 * @param theOverflowSeconds
+	 *            the number of seconds a call waits before employees with a 
+	 *            secondary skill in its type may take it, or -1 for never
+	 */
+	public SkillBasedRouter(int theOverflowSeconds) {
+		overflowSeconds = theOverflowSeconds;
+		callsWaiting = 0;
+		waitingTypes = 0;
+		primaryIdleTypes = 0;
+		secondaryIdleTypes = 0;
+		nextSequence = 0;
+		waitingCalls = new ArrayList<TreeMap<Long, PhoneLine>>(CALL_TYPES);
+		primaryGroups = new ArrayList<ArrayList<IdleGroup>>(CALL_TYPES);
+		secondaryGroups = new ArrayList<ArrayList<IdleGroup>>(CALL_TYPES);
+		for(int i = 0; i < CALL_TYPES; i++) {
+			waitingCalls.add(new TreeMap<Long, PhoneLine>());
+			primaryGroups.add(new ArrayList<IdleGroup>());
+			secondaryGroups.add(new ArrayList<IdleGroup>());
+		}
+		idleGroups = new ArrayList<IdleGroup>();
+		employeeGroups = new IdentityHashMap<Employee, IdleGroup>();
+		primaryIdle = new int[CALL_TYPES];
+		secondaryIdle = new int[CALL_TYPES];
+	}
+	
+	/**
+	 * Adds an employee to the back of the idle group of its skills, 
+	 * creating the group the first time its skills are seen.
+	 * 
+	 * @param employee
+	 *            the employee that is available
+	 */
+	public void employeeAvailable(Employee employee) {
+		IdleGroup group = employeeGroups.get(employee);
+		if(group == null) {
+			group = getIdleGroup(employee.getPrimarySkills(), employee.getSecondarySkills());
+			group.addMember();
+			employeeGroups.put(employee, group);
+		}
+		group.add(employee, nextSequence++);
+		
+		for(long bits = group.primarySkills; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(primaryIdle[type]++ == 0)
+				primaryIdleTypes |= 1L << type;
+		}
+		for(long bits = group.secondarySkills; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(secondaryIdle[type]++ == 0)
+				secondaryIdleTypes |= 1L << type;
+		}
+	}
+	
+	/**
+	 * Adds a phoneline to the calls waiting for its call type, ordered by 
+	 * hold sequence number.
+	 * 
+	 * @param phoneLine
+	 *            the phoneline the customer is waiting on
+	 */
+	public void callWaiting(PhoneLine phoneLine) {
+		int type = phoneLine.getCallType();
+		if(type < 0 || type >= CALL_TYPES)
+			throw new IllegalArgumentException("Call type " + type + " is not between 0 and " + (CALL_TYPES - 1));
+		waitingCalls.get(type).put(phoneLine.getHoldSequence(), phoneLine);
+		waitingTypes |= 1L << type;
+		callsWaiting++;
+	}
+	
+	/**
+	 * Removes the customer's call from the calls waiting, if it is there.
+	 * 
+	 * @param phoneLine
+	 *            the phoneline that was released
+	 * @param customerID
+	 *            the ID of the customer that was on the phoneline
+	 */
+	public void lineReleased(PhoneLine phoneLine, int customerID) {
+		for(long bits = waitingTypes; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(waitingCalls.get(type).remove(phoneLine.getHoldSequence()) != null) {
+				callStoppedWaiting(type);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Pairs waiting calls with available employees until no further match 
+	 * can be made, matching primary skills before overflowed calls.
+	 * 
+	 * @param currentTime
+	 *            the current time within the simulation
+	 */
+	public void dispatch(long currentTime) {
+		while(true) {
+			int type = getOldestCallType(waitingTypes & primaryIdleTypes, currentTime, false);
+			ArrayList<ArrayList<IdleGroup>> groups = primaryGroups;
+			if(type < 0 && overflowSeconds >= 0) {
+				type = getOldestCallType(waitingTypes & secondaryIdleTypes, currentTime, true);
+				groups = secondaryGroups;
+			}
+			if(type < 0)
+				return;
+			
+			PhoneLine phoneLine = waitingCalls.get(type).pollFirstEntry().getValue();
+			callStoppedWaiting(type);
+			takeLongestIdle(groups.get(type)).takeCall(phoneLine);
+		}
+	}
+	
+	/**
+	 * Returns the number of calls waiting.
+	 * 
+	 * @return int
+	 *            the number of calls waiting
+	 */
+	public int getCallsWaiting() {
+		return callsWaiting;
+	}
+	
+	/**
+	 * Returns true if any employee is idle, otherwise returns false.
+	 * 
+	 * @return boolean
+	 *            true if an employee is idle, otherwise false
+	 */
+	public boolean hasAvailableEmployees() {
+		for(int i = 0; i < idleGroups.size(); i++) {
+			if(idleGroups.get(i).size > 0)
+				return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the earliest time at which the oldest waiting call of a type 
+	 * overflows to employees with a secondary skill in that type. As the 
+	 * calls of a type are ordered by hold sequence number, the first has 
+	 * been on hold the longest.
+	 * 
+	 * @return long
+	 *            the next overflow time, or -1 if no call will overflow
+	 */
+	public long getNextOverflowTime() {
+		if(overflowSeconds < 0)
+			return -1;
+		long next = -1;
+		for(long bits = waitingTypes; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(secondaryGroups.get(type).isEmpty())
+				continue; // No employee could take it on overflow
+			long overflowTime = waitingCalls.get(type).firstEntry().getValue().getHoldStartTime() + overflowSeconds;
+			if(next < 0 || overflowTime < next)
+				next = overflowTime;
+		}
+		return next;
+	}
+	
+	/**
+	 * Returns the available employees in the order they became available.
+	 * 
+	 * @return List
+	 *            the available employees
+	 */
+	public List<Employee> getAvailableEmployees() {
+		final IdentityHashMap<Employee, Long> sequences = new IdentityHashMap<Employee, Long>();
+		for(int i = 0; i < idleGroups.size(); i++) {
+			IdleGroup group = idleGroups.get(i);
+			for(int j = 0; j < group.size; j++) {
+				int index = (group.head + j) % group.employees.length;
+				sequences.put(group.employees[index], group.sequences[index]);
+			}
+		}
+		ArrayList<Employee> employees = new ArrayList<Employee>(sequences.keySet());
+		Collections.sort(employees, new Comparator<Employee>() {
+			public int compare(Employee a, Employee b) {
+				return sequences.get(a).compareTo(sequences.get(b));
+			}
+		});
+		return employees;
+	}
+	
+	/**
+	 * Updates the count and bitmask of waiting calls after a call of the 
+	 * given type has stopped waiting.
+	 * 
+	 * @param type
+	 *            the type of the call
+	 */
+	private void callStoppedWaiting(int type) {
+		callsWaiting--;
+		if(waitingCalls.get(type).isEmpty())
+			waitingTypes &= ~(1L << type);
+	}
+	
+	/**
+	 * Returns the type of the oldest call at the head of the queues of the 
+	 * given types, considering only overflowed calls if asked.
+	 * 
+	 * @param types
+	 *            a bitmask of the call types to consider
+	 * @param currentTime
+	 *            the current time within the simulation
+	 * @param overflowedOnly
+	 *            true to only consider calls which have overflowed
+	 * @return int
+	 *            the type of the oldest call, or -1 if there is none
+	 */
+	private int getOldestCallType(long types, long currentTime, boolean overflowedOnly) {
+		int oldestType = -1;
+		long oldestSequence = 0;
+		for(long bits = types; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			PhoneLine head = waitingCalls.get(type).firstEntry().getValue();
+			if(overflowedOnly && currentTime - head.getHoldStartTime() < overflowSeconds)
+				continue;
+			if(oldestType < 0 || head.getHoldSequence() < oldestSequence) {
+				oldestType = type;
+				oldestSequence = head.getHoldSequence();
+			}
+		}
+		return oldestType;
+	}
+	
+	/**
+	 * Removes and returns the employee who has been available the longest 
+	 * from the given idle groups.
+	 * 
+	 * @param groups
+	 *            the idle groups skilled in a call type
+	 * @return Employee
+	 *            the employee who has been available the longest
+	 */
+	private Employee takeLongestIdle(ArrayList<IdleGroup> groups) {
+		IdleGroup longest = null;
+		for(int i = 0; i < groups.size(); i++) {
+			IdleGroup group = groups.get(i);
+			if(!group.isEmpty() && (longest == null || group.peekSequence() < longest.peekSequence()))
+				longest = group;
+		}
+		
+		for(long bits = longest.primarySkills; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(--primaryIdle[type] == 0)
+				primaryIdleTypes &= ~(1L << type);
+		}
+		for(long bits = longest.secondarySkills; bits != 0; bits &= bits - 1) {
+			int type = Long.numberOfTrailingZeros(bits);
+			if(--secondaryIdle[type] == 0)
+				secondaryIdleTypes &= ~(1L << type);
+		}
+		return longest.poll();
+	}
+	
+	/**
+	 * Returns the idle group of the given skills, creating it and adding it 
+	 * to the groups of each of its call types if it does not yet exist.
+	 * 
+	 * @param primarySkills
+	 *            the bitmask of primary skills
+	 * @param secondarySkills
+	 *            the bitmask of secondary skills
+	 * @return IdleGroup
+	 *            the idle group of the skills
+	 */
+	private IdleGroup getIdleGroup(long primarySkills, long secondarySkills) {
+		secondarySkills &= ~primarySkills; // A primary skill is never also secondary
+		for(int i = 0; i < idleGroups.size(); i++) {
+			IdleGroup group = idleGroups.get(i);
+			if(group.primarySkills == primarySkills && group.secondarySkills == secondarySkills)
+				return group;
+		}
+		
+		IdleGroup group = new IdleGroup(primarySkills, secondarySkills);
+		idleGroups.add(group);
+		for(long bits = group.primarySkills; bits != 0; bits &= bits - 1)
+			primaryGroups.get(Long.numberOfTrailingZeros(bits)).add(group);
+		for(long bits = group.secondarySkills; bits != 0; bits &= bits - 1)
+			secondaryGroups.get(Long.numberOfTrailingZeros(bits)).add(group);
+		return group;
+	}
+	
+	/**
+	 * The available employees sharing a pair of skill bitmasks, in the order 
+	 * they became available. The queue is a ring of arrays whose capacity 
+	 * is doubled whenever the employees in the group outgrow it, so adding 
+	 * and removing allocate nothing once every employee has joined.
+	 */
+	private static class IdleGroup {
+		
+		/** The number of employees a new group has room for **/
+		private static final int INITIAL_CAPACITY = 4;
+		
+		private final long primarySkills;
+		private final long secondarySkills;
+		private Employee[] employees;
+		private long[] sequences;
+		private int head;
+		private int size;
+		private int members;
+		
+		private IdleGroup(long thePrimarySkills, long theSecondarySkills) {
+			primarySkills = thePrimarySkills;
+			secondarySkills = theSecondarySkills;
+			employees = new Employee[INITIAL_CAPACITY];
+			sequences = new long[INITIAL_CAPACITY];
+			head = 0;
+			size = 0;
+			members = 0;
+		}
+		
+		private void addMember() {
+			if(++members <= employees.length)
+				return;
+			Employee[] newEmployees = new Employee[employees.length * 2];
+			long[] newSequences = new long[sequences.length * 2];
+			for(int i = 0; i < size; i++) {
+				newEmployees[i] = employees[(head + i) % employees.length];
+				newSequences[i] = sequences[(head + i) % sequences.length];
+			}
+			employees = newEmployees;
+			sequences = newSequences;
+			head = 0;
+		}
+		
+		private boolean isEmpty() {
+			return size == 0;
+		}
+		
+		private long peekSequence() {
+			return sequences[head];
+		}
+		
+		private void add(Employee employee, long sequence) {
+			int tail = (head + size) % employees.length;
+			employees[tail] = employee;
+			sequences[tail] = sequence;
+			size++;
+		}
+		
+		private Employee poll() {
+			Employee employee = employees[head];
+			employees[head] = null;
+			head = (head + 1) % employees.length;
+			size--;
+			return employee;
+		}
+	}
+}
@@ -0,0 +1,471 @@
+
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class searches for the cheapest number of employees and phone lines 
+ * which meets a set of service level targets. The required parameters for 
+ * creating a StaffingOptimizer object include: the SimulationParameters 
+ * describing the rest of the call center; the ServiceLevelTargets to meet; 
+ * two doubles, the cost of an employee and the cost of a phone line; an 
+ * integer, the number of replications to run for each staffing; and an 
+ * integer, the number of threads to run replications on. 
+ * 
+ * The optimize method lists every staffing up to the given maximums in 
+ * order of cost. Staffings which are far from meeting the targets are 
+ * pruned without being simulated, using two cheap queueing heuristics: the 
+ * Erlang B blocking probability of the phone lines, with each line held 
+ * for the lesser of the mean patience and the mean call length of the 
+ * fastest employee, and the fraction of the offered load that employees 
+ * all working at their fastest would be unable to serve, which is lost as 
+ * busy signals or hang-ups. Neither is a rigorous bound, as the shifts 
+ * begin with an empty call center and the patience and performance of 
+ * each customer and employee vary, so a staffing is only pruned when it 
+ * misses a target by twice its value; a target of zero leaves no margin, 
+ * so it is never used to prune. Staffings with more employees than 
+ * phone lines are also skipped, as the extra employees can never take a 
+ * call. When a screening margin is set, staffings whose ErlangEstimator 
+ * estimates miss the targets by more than the margin are skipped as well; 
+ * a margin which is too small may skip the cheapest staffing. The 
+ * remaining staffings are simulated in waves of one staffing per thread, 
+ * with every staffing using the same replication seeds so that they are 
+ * compared under the same customers. The search ends with the first wave 
+ * in which a staffing meets the targets, as every staffing in the later 
+ * waves costs at least as much. In case the heuristics pruned a cheaper 
+ * staffing which meets the targets, the pruned staffings cheaper than the 
+ * best are then simulated in the same way, in waves in order of cost, and 
+ * the first of them which meets the targets is taken instead. The 
+ * StaffingOptimizer should be shut down once it is no longer needed.
+ * 
+ * @author Brett Crawford
+ */
+public class StaffingOptimizer {
+	
+	private DecimalFormat fmt = new DecimalFormat("0.00");
+	
+	/** The least performance factor of an employee, who then finishes calls the fastest **/
+	private static final double MIN_PERFORMANCE_FACTOR = 0.5;
+	
+	/** The factor by which a staffing must miss a target by the heuristics to be pruned **/
+	private static final double PRUNING_MARGIN = 2.0;
+	
+	private SimulationParameters parameters;
+	private ServiceLevelTargets targets;
+	private double employeeCost;
+	private double phoneLineCost;
+	private int replications;
+	private double callsPerMinute;
+	private double lineHoldingTime;
+	private double offeredLoad;
+	private double callsPerShift;
+	private ForkJoinPool pool;
+	private SimulationParameters bestParameters;
+	private ReplicationSummary bestSummary;
+	private double screeningMargin;
+	private int staffingsPruned;
+	private int staffingsScreened;
+	private int staffingsSimulated;
+	private int staffingsRechecked;
+	
+	/**
+	 * Searches for the cheapest staffing of the default simulation and 
+	 * outputs the result to the console. The maximum average hold time, 
+	 * maximum busy signal rate and maximum number of hang-ups may be given 
+	 * as arguments.
+	 * 
+	 * @param args
+	 *            the maximum average hold time (in minutes), the maximum busy 
+	 *            signal rate and the maximum number of hang-ups, all optional
+	 */
+	public static void main(String args[]) {
+		double maxAverageHoldTime = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+		double maxBusySignalRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.02;
+		double maxHangUps = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+		
+		StaffingOptimizer optimizer = new StaffingOptimizer(new SimulationParameters(),
+				new ServiceLevelTargets(maxAverageHoldTime, maxBusySignalRate, maxHangUps),
+				1.0, 0.1, 100, Runtime.getRuntime().availableProcessors());
+		try {
+			optimizer.optimize(30, 40, System.currentTimeMillis());
+			System.out.println(optimizer.printResults());
+		}
+		finally {
+			optimizer.shutdown();
+		}
+	}
+	
+	/**
+	 * Creates a StaffingOptimizer object with the specified parameters.
+	 * 
+	 * @param theParameters
+	 *            the settings of the call center, apart from its staffing
+	 * @param theTargets
+	 *            the service levels the staffing must meet
+	 * @param theEmployeeCost
+	 *            the cost of a single employee
+	 * @param thePhoneLineCost
+	 *            the cost of a single phone line
+	 * @param theReplications
+	 *            the number of replications to run for each staffing
+	 * @param theNumberOfThreads
+	 *            the number of threads to run replications on
+	 */
+	public StaffingOptimizer(SimulationParameters theParameters, ServiceLevelTargets theTargets,
+			double theEmployeeCost, double thePhoneLineCost, int theReplications, int theNumberOfThreads) {
+		parameters = new SimulationParameters(theParameters);
+		targets = theTargets;
+		employeeCost = theEmployeeCost;
+		phoneLineCost = thePhoneLineCost;
+		replications = theReplications;
+		
+		// The offered load is the arrival rate of calls multiplied by the mean
+		// call length, since the mean employee performance factor is 1
+		callsPerMinute = ErlangEstimator.getCallsPerMinute(parameters);
+		offeredLoad = callsPerMinute * (parameters.getExpectedDurationMin() + parameters.getExpectedDurationMax()) / 2.0;
+		callsPerShift = callsPerMinute * parameters.getShiftLength() * 60;
+		lineHoldingTime = Math.min(ErlangEstimator.getMeanPatience(parameters) / 60.0, 
+				MIN_PERFORMANCE_FACTOR * (parameters.getExpectedDurationMin() + parameters.getExpectedDurationMax()) / 2.0);
+		pool = new ForkJoinPool(theNumberOfThreads);
+		bestParameters = null;
+		bestSummary = null;
+		screeningMargin = -1;
+		staffingsPruned = 0;
+		staffingsScreened = 0;
+		staffingsSimulated = 0;
+		staffingsRechecked = 0;
+	}
+	
+	/**
+	 * Sets the fraction by which the ErlangEstimator estimates of a staffing 
+	 * may miss each target before the staffing is skipped without being 
+	 * simulated, or a negative margin to simulate every staffing the bounds 
+	 * do not prune.
+	 * 
+	 * @param theScreeningMargin
+	 *            the fraction by which each target is loosened, or negative
+	 */
+	public void setScreeningMargin(double theScreeningMargin) {
+		screeningMargin = theScreeningMargin;
+	}
+	
+	/**
+	 * Searches the staffings of up to the given number of employees and 
+	 * phone lines for the cheapest one which meets the targets.
+	 * 
+	 * @param maxEmployees
+	 *            the largest number of employees to consider
+	 * @param maxPhoneLines
+	 *            the largest number of phone lines to consider
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @return SimulationParameters
+	 *            the parameters of the cheapest staffing, or null if no 
+	 *            staffing within the maximums meets the targets
+	 */
+	public SimulationParameters optimize(int maxEmployees, int maxPhoneLines, long theBaseSeed) {
+		bestParameters = null;
+		bestSummary = null;
+		staffingsPruned = 0;
+		staffingsScreened = 0;
+		staffingsSimulated = 0;
+		staffingsRechecked = 0;
+		
+		List<SimulationParameters> staffings = new ArrayList<SimulationParameters>();
+		List<SimulationParameters> prunedStaffings = new ArrayList<SimulationParameters>();
+		for(int employees = 1; employees <= maxEmployees; employees++) {
+			for(int phoneLines = employees; phoneLines <= maxPhoneLines; phoneLines++) {
+				SimulationParameters staffing = new SimulationParameters(parameters);
+				staffing.setNumberOfEmployees(employees);
+				staffing.setNumberOfPhoneLines(phoneLines);
+				if(cannotMeetTargets(employees, phoneLines)) {
+					staffingsPruned++;
+					prunedStaffings.add(staffing);
+					continue;
+				}
+				if(screeningMargin >= 0 && !new ErlangEstimator(staffing).meets(targets, staffing.getShiftLength(), screeningMargin)) {
+					staffingsScreened++;
+					continue;
+				}
+				staffings.add(staffing);
+			}
+		}
+		
+		CostComparator byCost = new CostComparator();
+		Collections.sort(staffings, byCost);
+		
+		int waveSize = pool.getParallelism();
+		for(int first = 0; first < staffings.size() && bestParameters == null; first += waveSize) {
+			List<SimulationParameters> wave = staffings.subList(first, Math.min(first + waveSize, staffings.size()));
+			List<ReplicationSummary> summaries = simulate(wave, theBaseSeed);
+			staffingsSimulated += wave.size();
+			for(int i = 0; i < wave.size() && bestParameters == null; i++) {
+				if(targets.isMetBy(summaries.get(i))) {
+					bestParameters = wave.get(i);
+					bestSummary = summaries.get(i);
+				}
+			}
+		}
+		
+		// Simulate the pruned staffings cheaper than the best in order of cost, in case one meets the targets
+		List<SimulationParameters> recheck = new ArrayList<SimulationParameters>();
+		for(int i = 0; i < prunedStaffings.size(); i++) {
+			if(bestParameters == null || byCost.compare(prunedStaffings.get(i), bestParameters) < 0)
+				recheck.add(prunedStaffings.get(i));
+		}
+		Collections.sort(recheck, byCost);
+		
+		boolean recheckMet = false;
+		for(int first = 0; first < recheck.size() && !recheckMet; first += waveSize) {
+			List<SimulationParameters> wave = recheck.subList(first, Math.min(first + waveSize, recheck.size()));
+			List<ReplicationSummary> summaries = simulate(wave, theBaseSeed);
+			staffingsRechecked += wave.size();
+			for(int i = 0; i < wave.size() && !recheckMet; i++) {
+				if(targets.isMetBy(summaries.get(i))) {
+					bestParameters = wave.get(i);
+					bestSummary = summaries.get(i);
+					recheckMet = true;
+				}
+			}
+		}
+		
+		return bestParameters;
+	}
+	
+	/**
+	 * Returns the cost of the staffing of the given parameters.
+	 * 
+	 * @param staffing
+	 *            the parameters of a staffing
+	 * @return double
+	 *            the cost of the employees and phone lines
+	 */
+	public double getCost(SimulationParameters staffing) {
+		return staffing.getNumberOfEmployees() * employeeCost + staffing.getNumberOfPhoneLines() * phoneLineCost;
+	}
+	
+	/**
+	 * Returns the parameters of the cheapest staffing found by the last 
+	 * search, or null if none met the targets.
+	 * 
+	 * @return SimulationParameters
+	 *            the parameters of the cheapest staffing
+	 */
+	public SimulationParameters getBestParameters() {
+		return bestParameters;
+	}
+	
+	/**
+	 * Returns the merged results of the cheapest staffing found by the 
+	 * last search, or null if none met the targets.
+	 * 
+	 * @return ReplicationSummary
+	 *            the results of the cheapest staffing
+	 */
+	public ReplicationSummary getBestSummary() {
+		return bestSummary;
+	}
+	
+	/**
+	 * Returns the number of staffings the last search pruned without simulating.
+	 * 
+	 * @return int
+	 *            the number of staffings pruned
+	 */
+	public int getStaffingsPruned() {
+		return staffingsPruned;
+	}
+	
+	/**
+	 * Returns the number of staffings the last search skipped because of 
+	 * their ErlangEstimator estimates.
+	 * 
+	 * @return int
+	 *            the number of staffings screened out
+	 */
+	public int getStaffingsScreened() {
+		return staffingsScreened;
+	}
+	
+	/**
+	 * Returns the number of staffings the last search simulated.
+	 * 
+	 * @return int
+	 *            the number of staffings simulated
+	 */
+	public int getStaffingsSimulated() {
+		return staffingsSimulated;
+	}
+	
+	/**
+	 * Returns the number of pruned staffings the last search simulated to 
+	 * check the heuristics.
+	 * 
+	 * @return int
+	 *            the number of pruned staffings simulated
+	 */
+	public int getStaffingsRechecked() {
+		return staffingsRechecked;
+	}
+	
+	/**
+	 * Stops the threads used to run replications.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+	
+	/**
+	 * Returns a string containing the result of the last search.
+	 * 
+	 * @return String
+	 *            a string containing the cheapest staffing and its results
+	 */
+	public String printResults() {
+		String stat = "|==========================================================|\n" +
+			          "|                    Staffing Results                      |\n" +
+			          "|==========================================================|\n\n";
+		
+		stat +=       "   Targets\n";
+		stat +=       "     Maximum average time a call remained on hold (minutes): " + fmt.format(targets.getMaxAverageHoldTime()) + "\n";
+		stat +=       "     Maximum fraction of calls lost to busy signals: " + fmt.format(targets.getMaxBusySignalRate()) + "\n";
+		stat +=       "     Maximum number of dropped calls (hang-ups): " + fmt.format(targets.getMaxHangUps()) + "\n";
+		stat +=       "   \n";
+		stat +=       "   Staffings pruned by queueing heuristics: " + staffingsPruned + "\n";
+		stat +=       "   Pruned staffings rechecked by simulation: " + staffingsRechecked + "\n";
+		if(screeningMargin >= 0)
+			stat +=   "   Staffings screened out by Erlang A estimates: " + staffingsScreened + "\n";
+		stat +=       "   Staffings simulated: " + staffingsSimulated + "\n";
+		stat +=       "   \n";
+		
+		if(bestParameters == null) {
+			stat +=   "   No staffing within the search limits met the targets.\n";
+		}
+		else {
+			stat +=   "   Cheapest staffing: " + bestParameters.getNumberOfEmployees() + " employees, " + 
+			                 bestParameters.getNumberOfPhoneLines() + " phone lines (cost " + fmt.format(getCost(bestParameters)) + ")\n";
+			stat +=   "     Average time a call remained on hold (minutes): " + fmt.format(bestSummary.getAverageHoldTime().getMean()) + "\n";
+			stat +=   "     Fraction of calls lost to busy signals: " + fmt.format(ServiceLevelTargets.getBusySignalRate(bestSummary)) + "\n";
+			stat +=   "     Number of dropped calls (hang-ups): " + fmt.format(bestSummary.getHangUps().getMean()) + "\n";
+		}
+		
+		stat += "\n|==========================================================|\n" +
+			      "|==========================================================|\n";
+		
+		return stat;
+	}
+	
+	/**
+	 * Returns true if the queueing heuristics show that the given staffing 
+	 * misses a target by more than the pruning margin, otherwise returns false. 
+	 * A target of zero is only checked by simulation, as any staffing with 
+	 * some chance of missing it would otherwise be pruned.
+	 * 
+	 * @param employees
+	 *            the number of employees
+	 * @param phoneLines
+	 *            the number of phone lines
+	 * @return boolean
+	 *            true if the staffing cannot meet the targets, otherwise false
+	 */
+	private boolean cannotMeetTargets(int employees, int phoneLines) {
+		double maxBusySignalRate = targets.getMaxBusySignalRate();
+		if(maxBusySignalRate > 0 && getErlangB(callsPerMinute * lineHoldingTime, phoneLines) > PRUNING_MARGIN * maxBusySignalRate)
+			return true;
+		
+		double maxLostCalls = maxBusySignalRate * callsPerShift + targets.getMaxHangUps();
+		if(maxLostCalls <= 0)
+			return false;
+		
+		// Calls beyond the capacity of the employees at their fastest are lost, less those still on hold at closing
+		double capacity = employees / MIN_PERFORMANCE_FACTOR;
+		double lostCalls = Math.max(0, 1 - capacity / offeredLoad) * callsPerShift - phoneLines;
+		return lostCalls > PRUNING_MARGIN * maxLostCalls;
+	}
+	
+	/**
+	 * Returns the Erlang B blocking probability of the given number of 
+	 * servers under the given offered load.
+	 * 
+	 * @param offeredLoad
+	 *            the offered load, in Erlangs
+	 * @param servers
+	 *            the number of servers
+	 * @return double
+	 *            the probability that an arriving call finds every server busy
+	 */
+	private static double getErlangB(double offeredLoad, int servers) {
+		double blocking = 1;
+		for(int i = 1; i <= servers; i++)
+			blocking = offeredLoad * blocking / (i + offeredLoad * blocking);
+		return blocking;
+	}
+	
+	/**
+	 * Runs the replications of a wave of staffings in parallel and returns 
+	 * the merged results of each staffing, in the order of the wave.
+	 * 
+	 * @param wave
+	 *            the parameters of the staffings to simulate
+	 * @param theBaseSeed
+	 *            the seed the replications' seeds are derived from
+	 * @return List
+	 *            the merged results of each staffing
+	 */
+	private List<ReplicationSummary> simulate(List<SimulationParameters> wave, long theBaseSeed) {
+		List<Callable<Log>> tasks = new ArrayList<Callable<Log>>(wave.size() * replications);
+		for(final SimulationParameters staffing : wave) {
+			for(int i = 0; i < replications; i++) {
+				final long seed = ReplicationRunner.getReplicationSeed(theBaseSeed, i);
+				tasks.add(new Callable<Log>() {
+					public Log call() {
+						CallCenterSimulation simulation = new CallCenterSimulation(staffing, seed);
+						simulation.initializeSim();
+						simulation.run();
+						return simulation.getLog();
+					}
+				});
+			}
+		}
+		
+		List<ReplicationSummary> summaries = new ArrayList<ReplicationSummary>(wave.size());
+		try {
+			List<Future<Log>> results = pool.invokeAll(tasks);
+			for(int s = 0; s < wave.size(); s++) {
+				ReplicationSummary summary = new ReplicationSummary();
+				for(int i = 0; i < replications; i++)
+					summary.addReplication(results.get(s * replications + i).get());
+				summaries.add(summary);
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running replications", e);
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException("Replication failed", e.getCause());
+		}
+		return summaries;
+	}
+	
+	/**
+	 * Orders staffings by cost, and staffings of equal cost by their number 
+	 * of employees.
+	 */
+	private class CostComparator implements Comparator<SimulationParameters> {
+		
+		public int compare(SimulationParameters a, SimulationParameters b) {
+			int result = Double.compare(getCost(a), getCost(b));
+			if(result == 0)
+				result = Integer.compare(a.getNumberOfEmployees(), b.getNumberOfEmployees());
+			return result;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class accumulates summary statistics over a stream of values without 
+ * keeping the values themselves. Each recorded value updates the count, sum, 
+ * minimum, and maximum, along with a running mean and sum of squared 
+ * differences (Welford's method) from which the variance is found. The 
+ * memory used is the same no matter how many values are recorded, and 
+ * recording a value allocates nothing. The half-width of a confidence 
+ * interval for the mean can be found once two or more values are recorded.
+ * The values of another StatAccumulator can be added with the merge method, 
+ * as if they had been recorded by this one.
+ * The accumulated values can be written to and read back from a checkpoint.
+ * 
+ * @author Brett Crawford
+ */
+public class StatAccumulator {
+	
+	/** Two-sided 95% critical values of Student's t for 1 to 30 degrees of freedom **/
+	private static final double[] T_CRITICAL_95 = {
+		12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+		2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+		2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+	};
+	
+	private long count;
+	private double sum;
+	private double min;
+	private double max;
+	private double mean;
+	private double sumSquaredDiffs;
+	
+	/**
+	 * Creates an empty StatAccumulator object.
+	 */
+	public StatAccumulator() {
+		count = 0;
+		sum = 0;
+		min = 0;
+		max = 0;
+		mean = 0;
+		sumSquaredDiffs = 0;
+	}
+	
+	/**
+	 * Records a single value.
+	 * 
+	 * @param value
+	 *           the value to record
+	 */
+	public void record(double value) {
+		if(count == 0 || value < min)
+			min = value;
+		if(count == 0 || value > max)
+			max = value;
+		count++;
+		sum += value;
+		double diff = value - mean;
+		mean += diff / count;
+		sumSquaredDiffs += diff * (value - mean);
+	}
+	
+	/**
+	 * Adds the values recorded by another StatAccumulator, combining the 
+	 * running means and sums of squared differences of the two.
+	 * 
+	 * @param other
+	 *           the accumulator whose values are added
+	 */
+	public void merge(StatAccumulator other) {
+		if(other.count == 0)
+			return;
+		if(count == 0 || other.min < min)
+			min = other.min;
+		if(count == 0 || other.max > max)
+			max = other.max;
+		long total = count + other.count;
+		double diff = other.mean - mean;
+		sumSquaredDiffs += other.sumSquaredDiffs + diff * diff * count * other.count / total;
+		mean += diff * other.count / total;
+		sum += other.sum;
+		count = total;
+	}
+	
+	/**
+	 * Returns the number of values recorded.
+	 * 
+	 * @return long
+	 *             the number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the sum of the values recorded.
+	 * 
+	 * @return double
+	 *             the sum of the values
+	 */
+	public double getSum() {
+		return sum;
+	}
+	
+	/**
+	 * Returns the smallest value recorded, or 0 if no values were recorded.
+	 * 
+	 * @return double
+	 *             the minimum value
+	 */
+	public double getMin() {
+		return min;
+	}
+	
+	/**
+	 * Returns the largest value recorded, or 0 if no values were recorded.
+	 * 
+	 * @return double
+	 *             the maximum value
+	 */
+	public double getMax() {
+		return max;
+	}
+	
+	/**
+	 * Returns the mean of the values recorded, or 0 if no values were recorded.
+	 * 
+	 * @return double
+	 *             the mean of the values
+	 */
+	public double getMean() {
+		return mean;
+	}
+	
+	/**
+	 * Returns the sample variance of the values recorded, or 0 if fewer 
+	 * than two values were recorded.
+	 * 
+	 * @return double
+	 *             the variance of the values
+	 */
+	public double getVariance() {
+		return count < 2 ? 0 : sumSquaredDiffs / (count - 1);
+	}
+	
+	/**
+	 * Returns the sample standard deviation of the values recorded.
+	 * 
+	 * @return double
+	 *             the standard deviation of the values
+	 */
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+	
+	/**
+	 * Returns the half-width of the 95% confidence interval for the mean 
+	 * of the values recorded, using Student's t distribution, or 0 if fewer 
+	 * than two values were recorded.
+	 * 
+	 * @return double
+	 *             the half-width of the confidence interval
+	 */
+	public double getConfidenceHalfWidth() {
+		if(count < 2)
+			return 0;
+		return getTCritical95(count - 1) * getStandardDeviation() / Math.sqrt(count);
+	}
+	
+	/**
+	 * Writes the accumulated values to a checkpoint.
+	 * 
+	 * @param out
+	 *           the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeDouble(sum);
+		out.writeDouble(min);
+		out.writeDouble(max);
+		out.writeDouble(mean);
+		out.writeDouble(sumSquaredDiffs);
+	}
+	
+	/**
+	 * Replaces the accumulated values with those read from a checkpoint.
+	 * 
+	 * @param in
+	 *           the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		count = in.readLong();
+		sum = in.readDouble();
+		min = in.readDouble();
+		max = in.readDouble();
+		mean = in.readDouble();
+		sumSquaredDiffs = in.readDouble();
+	}
+	
+	/**
+	 * Returns the two-sided 95% critical value of Student's t distribution 
+	 * for the given degrees of freedom.
+	 * 
+	 * @param degreesOfFreedom
+	 *           the degrees of freedom, at least 1
+	 * @return double
+	 *             the critical value
+	 */
+	public static double getTCritical95(long degreesOfFreedom) {
+		if(degreesOfFreedom <= T_CRITICAL_95.length)
+			return T_CRITICAL_95[(int) degreesOfFreedom - 1];
+		return 1.96 + 2.4 / degreesOfFreedom; // Approaches the normal value
+	}
+}
@@ -0,0 +1,481 @@
+
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class records the state of the call center over time as a series of 
+ * fixed intervals. The required parameters for creating a Telemetry object 
+ * include: a long, the time at which the first interval begins; an integer, 
+ * the length (in minutes) of each interval; and an integer, the number of 
+ * intervals kept. For each interval the number of arrivals, hang-ups 
+ * (abandons) and busy signals are counted, and the number of calls on hold, 
+ * busy phone lines and busy employees are each kept as their average over 
+ * the interval, weighted by time, and their maximum. 
+ * 
+ * The levels are given whenever they change, so the series is the same 
+ * whether or not the clock is event-driven. Each series is a preallocated 
+ * primitive array used as a ring buffer: once more intervals have begun 
+ * than are kept, the oldest are overwritten, so the memory used is fixed 
+ * when the Telemetry is created and recording allocates nothing. At the end 
+ * of a run, the series can be written as a CSV file or as a columnar binary 
+ * file, either at the recorded interval or at any multiple of it, so a 
+ * series recorded every 5 minutes can be written every 15 or 30 minutes. 
+ * The binary file begins with an 8 byte header, the characters "CCTS" 
+ * followed by the version of the format, then the length (in seconds) and 
+ * number of the intervals, followed by each column in turn: the start times 
+ * as longs, the counts and maximums as integers, and the averages as doubles.
+ * 
+ * @author Brett Crawford
+ */
+public class Telemetry {
+	
+	/** The first four bytes of a binary telemetry file, "CCTS" **/
+	private static final int MAGIC = 0x43435453;
+	private static final int VERSION = 1;
+	
+	private int intervalSeconds;
+	private long firstIntervalStart;
+	private long intervalsBegun;
+	private int current;
+	private long currentEnd;
+	private long lastTime;
+	private int callsOnHold;
+	private int busyLines;
+	private int busyEmployees;
+	private int[] arrivals;
+	private int[] abandons;
+	private int[] busySignals;
+	private long[] onHoldSeconds;
+	private long[] busyLineSeconds;
+	private long[] busyEmployeeSeconds;
+	private int[] onHoldMax;
+	private int[] busyLinesMax;
+	private int[] busyEmployeesMax;
+	
+	/**
+	 * Creates a Telemetry object with the specified parameters.
+	 * 
+	 * @param theStartTime
+	 *            the time, in seconds since the epoch, the first interval begins
+	 * @param theIntervalMinutes
+	 *            the length (in minutes) of each interval
+	 * @param theCapacity
+	 *            the number of intervals kept
+	 */
+	public Telemetry(long theStartTime, int theIntervalMinutes, int theCapacity) {
+		if(theIntervalMinutes < 1)
+			throw new IllegalArgumentException("Interval must be at least 1 minute: " + theIntervalMinutes);
+		if(theCapacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1: " + theCapacity);
+		intervalSeconds = theIntervalMinutes * 60;
+		firstIntervalStart = theStartTime;
+		intervalsBegun = 1;
+		current = 0;
+		currentEnd = theStartTime + intervalSeconds;
+		lastTime = theStartTime;
+		callsOnHold = 0;
+		busyLines = 0;
+		busyEmployees = 0;
+		arrivals = new int[theCapacity];
+		abandons = new int[theCapacity];
+		busySignals = new int[theCapacity];
+		onHoldSeconds = new long[theCapacity];
+		busyLineSeconds = new long[theCapacity];
+		busyEmployeeSeconds = new long[theCapacity];
+		onHoldMax = new int[theCapacity];
+		busyLinesMax = new int[theCapacity];
+		busyEmployeesMax = new int[theCapacity];
+	}
+	
+	/**
+	 * Records the arrival of a call.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordArrival(long time) {
+		advance(time);
+		arrivals[current]++;
+	}
+	
+	/**
+	 * Records a customer hanging up while on hold.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordAbandon(long time) {
+		advance(time);
+		abandons[current]++;
+	}
+	
+	/**
+	 * Records a customer receiving a busy signal.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void recordBusySignal(long time) {
+		advance(time);
+		busySignals[current]++;
+	}
+	
+	/**
+	 * Records the levels of the call center from the given time on.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 * @param theCallsOnHold
+	 *            the number of calls on hold
+	 * @param theBusyLines
+	 *            the number of phone lines in use
+	 * @param theBusyEmployees
+	 *            the number of employees on a call
+	 */
+	public void recordLevels(long time, int theCallsOnHold, int theBusyLines, int theBusyEmployees) {
+		advance(time);
+		callsOnHold = theCallsOnHold;
+		busyLines = theBusyLines;
+		busyEmployees = theBusyEmployees;
+		updateMaximums();
+	}
+	
+	/**
+	 * Returns the number of intervals kept, which is the number begun up to 
+	 * the capacity.
+	 * 
+	 * @return int
+	 *            the number of intervals kept
+	 */
+	public int getNumberOfIntervals() {
+		return (int) Math.min(intervalsBegun, arrivals.length);
+	}
+	
+	/**
+	 * Returns the number of intervals which have been overwritten.
+	 * 
+	 * @return long
+	 *            the number of intervals dropped
+	 */
+	public long getDroppedIntervals() {
+		return intervalsBegun - getNumberOfIntervals();
+	}
+	
+	/**
+	 * Writes the series to a CSV file with a header row, one row per 
+	 * interval. The levels are accounted up to the given time first. Any 
+	 * existing file with the given name is replaced.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to write
+	 * @param theIntervalMinutes
+	 *            the length (in minutes) of each row, a multiple of the 
+	 *            recorded interval
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void writeCsv(String theFileName, int theIntervalMinutes, long time) {
+		advance(time);
+		int factor = getFactor(theIntervalMinutes);
+		int rows = getNumberOfRows(factor);
+		StringBuilder csv = new StringBuilder(128 * (rows + 1));
+		csv.append("interval_start,minutes,arrivals,abandons,busy_signals,avg_on_hold,max_on_hold,")
+		   .append("avg_busy_lines,max_busy_lines,avg_busy_employees,max_busy_employees\n");
+		Row row = new Row();
+		for(int i = 0; i < rows; i++) {
+			fillRow(row, i, factor);
+			csv.append(row.start).append(',').append(row.seconds / 60.0).append(',')
+			   .append(row.arrivals).append(',').append(row.abandons).append(',').append(row.busySignals).append(',')
+			   .append(row.getAverage(row.onHoldSeconds)).append(',').append(row.onHoldMax).append(',')
+			   .append(row.getAverage(row.busyLineSeconds)).append(',').append(row.busyLinesMax).append(',')
+			   .append(row.getAverage(row.busyEmployeeSeconds)).append(',').append(row.busyEmployeesMax).append('\n');
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(csv.length());
+		for(int i = 0; i < csv.length(); i++)
+			buffer.put((byte) csv.charAt(i));
+		write(theFileName, buffer);
+	}
+	
+	/**
+	 * Writes the series to a columnar binary file. The levels are accounted 
+	 * up to the given time first. Any existing file with the given name is 
+	 * replaced.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to write
+	 * @param theIntervalMinutes
+	 *            the length (in minutes) of each interval written, a multiple 
+	 *            of the recorded interval
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	public void writeBinary(String theFileName, int theIntervalMinutes, long time) {
+		advance(time);
+		int factor = getFactor(theIntervalMinutes);
+		int rows = getNumberOfRows(factor);
+		Row[] table = new Row[rows];
+		for(int i = 0; i < rows; i++) {
+			table[i] = new Row();
+			fillRow(table[i], i, factor);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(16 + rows * (8 + 6 * 4 + 3 * 8));
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(intervalSeconds * factor).putInt(rows);
+		for(int i = 0; i < rows; i++)
+			buffer.putLong(table[i].start);
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].arrivals);
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].abandons);
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].busySignals);
+		for(int i = 0; i < rows; i++)
+			buffer.putDouble(table[i].getAverage(table[i].onHoldSeconds));
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].onHoldMax);
+		for(int i = 0; i < rows; i++)
+			buffer.putDouble(table[i].getAverage(table[i].busyLineSeconds));
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].busyLinesMax);
+		for(int i = 0; i < rows; i++)
+			buffer.putDouble(table[i].getAverage(table[i].busyEmployeeSeconds));
+		for(int i = 0; i < rows; i++)
+			buffer.putInt(table[i].busyEmployeesMax);
+		write(theFileName, buffer);
+	}
+	
+	/**
+	 * Writes the series and the current levels to a checkpoint.
+	 * 
+	 * @param out
+	 *            the checkpoint being written
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(arrivals.length);
+		out.writeLong(intervalsBegun);
+		out.writeInt(current);
+		out.writeLong(currentEnd);
+		out.writeLong(lastTime);
+		out.writeInt(callsOnHold);
+		out.writeInt(busyLines);
+		out.writeInt(busyEmployees);
+		for(int i = 0; i < arrivals.length; i++) {
+			out.writeInt(arrivals[i]);
+			out.writeInt(abandons[i]);
+			out.writeInt(busySignals[i]);
+			out.writeLong(onHoldSeconds[i]);
+			out.writeLong(busyLineSeconds[i]);
+			out.writeLong(busyEmployeeSeconds[i]);
+			out.writeInt(onHoldMax[i]);
+			out.writeInt(busyLinesMax[i]);
+			out.writeInt(busyEmployeesMax[i]);
+		}
+	}
+	
+	/**
+	 * Replaces the series and the current levels with those read from a 
+	 * checkpoint of a Telemetry with the same capacity.
+	 * 
+	 * @param in
+	 *            the checkpoint being read
+	 */
+	public void readState(DataInput in) throws IOException {
+		int capacity = in.readInt();
+		if(capacity != arrivals.length)
+			throw new IllegalStateException("Checkpoint has " + capacity + " intervals, telemetry has " + arrivals.length);
+		intervalsBegun = in.readLong();
+		current = in.readInt();
+		currentEnd = in.readLong();
+		lastTime = in.readLong();
+		callsOnHold = in.readInt();
+		busyLines = in.readInt();
+		busyEmployees = in.readInt();
+		for(int i = 0; i < arrivals.length; i++) {
+			arrivals[i] = in.readInt();
+			abandons[i] = in.readInt();
+			busySignals[i] = in.readInt();
+			onHoldSeconds[i] = in.readLong();
+			busyLineSeconds[i] = in.readLong();
+			busyEmployeeSeconds[i] = in.readLong();
+			onHoldMax[i] = in.readInt();
+			busyLinesMax[i] = in.readInt();
+			busyEmployeesMax[i] = in.readInt();
+		}
+	}
+	
+	/**
+	 * Accounts the current levels up to the given time, beginning each 
+	 * interval passed along the way.
+	 * 
+	 * @param time
+	 *            the current time, in seconds since the epoch
+	 */
+	private void advance(long time) {
+		while(time >= currentEnd) {
+			accountLevels(currentEnd - lastTime);
+			lastTime = currentEnd;
+			currentEnd += intervalSeconds;
+			intervalsBegun++;
+			current = (current + 1) % arrivals.length;
+			arrivals[current] = 0;
+			abandons[current] = 0;
+			busySignals[current] = 0;
+			onHoldSeconds[current] = 0;
+			busyLineSeconds[current] = 0;
+			busyEmployeeSeconds[current] = 0;
+			onHoldMax[current] = 0;
+			busyLinesMax[current] = 0;
+			busyEmployeesMax[current] = 0;
+			updateMaximums(); // The levels carry over into the new interval
+		}
+		if(time > lastTime) {
+			accountLevels(time - lastTime);
+			lastTime = time;
+		}
+	}
+	
+	/**
+	 * Adds the current levels, held for the given number of seconds, to the 
+	 * current interval.
+	 * 
+	 * @param seconds
+	 *            the number of seconds the levels were held
+	 */
+	private void accountLevels(long seconds) {
+		onHoldSeconds[current] += callsOnHold * seconds;
+		busyLineSeconds[current] += busyLines * seconds;
+		busyEmployeeSeconds[current] += busyEmployees * seconds;
+	}
+	
+	/**
+	 * Raises the maximums of the current interval to the current levels.
+	 */
+	private void updateMaximums() {
+		onHoldMax[current] = Math.max(onHoldMax[current], callsOnHold);
+		busyLinesMax[current] = Math.max(busyLinesMax[current], busyLines);
+		busyEmployeesMax[current] = Math.max(busyEmployeesMax[current], busyEmployees);
+	}
+	
+	/**
+	 * Returns the number of recorded intervals combined into each interval 
+	 * of the given length.
+	 * 
+	 * @param theIntervalMinutes
+	 *            the length (in minutes) of the intervals to be written
+	 * @return int
+	 *            the number of recorded intervals in each
+	 */
+	private int getFactor(int theIntervalMinutes) {
+		if(theIntervalMinutes < 1 || (theIntervalMinutes * 60) % intervalSeconds != 0)
+			throw new IllegalArgumentException(theIntervalMinutes + " minutes is not a multiple of the " + (intervalSeconds / 60) + " minute interval");
+		return theIntervalMinutes * 60 / intervalSeconds;
+	}
+	
+	/**
+	 * Returns the number of intervals of the given number of recorded 
+	 * intervals each, aligned to the start of the run, which hold any 
+	 * recorded interval that is kept.
+	 * 
+	 * @param factor
+	 *            the number of recorded intervals in each
+	 * @return int
+	 *            the number of intervals to be written
+	 */
+	private int getNumberOfRows(int factor) {
+		long first = getDroppedIntervals() / factor;
+		long last = (intervalsBegun - 1) / factor;
+		return (int) (last - first + 1);
+	}
+	
+	/**
+	 * Fills a row with the combined values of the recorded intervals it 
+	 * holds. Intervals which were dropped or have not yet begun are left out.
+	 * 
+	 * @param row
+	 *            the row to be filled
+	 * @param index
+	 *            the index of the row among those to be written
+	 * @param factor
+	 *            the number of recorded intervals in each row
+	 */
+	private void fillRow(Row row, int index, int factor) {
+		long firstInterval = (getDroppedIntervals() / factor + index) * factor;
+		row.start = firstIntervalStart + firstInterval * intervalSeconds;
+		row.seconds = 0;
+		row.arrivals = 0;
+		row.abandons = 0;
+		row.busySignals = 0;
+		row.onHoldSeconds = 0;
+		row.busyLineSeconds = 0;
+		row.busyEmployeeSeconds = 0;
+		row.onHoldMax = 0;
+		row.busyLinesMax = 0;
+		row.busyEmployeesMax = 0;
+		for(long interval = firstInterval; interval < firstInterval + factor; interval++) {
+			if(interval < getDroppedIntervals() || interval >= intervalsBegun)
+				continue;
+			int slot = (int) ((current - (intervalsBegun - 1 - interval)) % arrivals.length + arrivals.length) % arrivals.length;
+			long intervalStart = firstIntervalStart + interval * intervalSeconds;
+			row.seconds += interval == intervalsBegun - 1 ? lastTime - intervalStart : intervalSeconds;
+			row.arrivals += arrivals[slot];
+			row.abandons += abandons[slot];
+			row.busySignals += busySignals[slot];
+			row.onHoldSeconds += onHoldSeconds[slot];
+			row.busyLineSeconds += busyLineSeconds[slot];
+			row.busyEmployeeSeconds += busyEmployeeSeconds[slot];
+			row.onHoldMax = Math.max(row.onHoldMax, onHoldMax[slot]);
+			row.busyLinesMax = Math.max(row.busyLinesMax, busyLinesMax[slot]);
+			row.busyEmployeesMax = Math.max(row.busyEmployeesMax, busyEmployeesMax[slot]);
+		}
+	}
+	
+	/**
+	 * Writes the contents of the buffer to a file, replacing any existing 
+	 * file with the given name.
+	 * 
+	 * @param theFileName
+	 *            the name of the file to write
+	 * @param buffer
+	 *            the buffer to write
+	 */
+	private static void write(String theFileName, ByteBuffer buffer) {
+		buffer.flip();
+		try(FileChannel channel = FileChannel.open(Paths.get(theFileName), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to write telemetry " + theFileName, e);
+		}
+	}
+	
+	/**
+	 * The combined values of one or more recorded intervals, as written to 
+	 * a file.
+	 */
+	private static class Row {
+		
+		private long start;
+		private long seconds;
+		private int arrivals;
+		private int abandons;
+		private int busySignals;
+		private long onHoldSeconds;
+		private long busyLineSeconds;
+		private long busyEmployeeSeconds;
+		private int onHoldMax;
+		private int busyLinesMax;
+		private int busyEmployeesMax;
+		
+		private double getAverage(long levelSeconds) {
+			return seconds == 0 ? 0 : (double) levelSeconds / seconds;
+		}
+	}
+}
@@ -0,0 +1,552 @@
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class answers what-if questions about the call center over HTTP, so 
+ * that a planner can try many scenarios against one long-lived JVM rather 
+ * than starting a new one for each. The required parameters for creating a 
+ * WhatIfServer object include: an integer, the port to listen on; an 
+ * integer, the number of results to cache; and an integer, the number of 
+ * threads to answer requests on. The server listens only on the loopback 
+ * address, so it answers requests from the same machine. 
+ * 
+ * A GET request to /simulate runs one shift and returns the statistics of 
+ * its Log as JSON, and a GET request to /estimate returns the ErlangEstimator 
+ * estimates of the scenario without simulating it. The scenario is given in 
+ * the query string: seed, shiftLength, phoneLines, employees, durationMin, 
+ * durationMax, callProbability, eventDriven, compact, overflowSeconds, 
+ * batchLength, redialProbability, redialDelay and callbackProbability, the 
+ * comma separated lists callTypeMix, primarySkills and secondarySkills, 
+ * profile, a comma separated list of minute:rate periods of an 
+ * ArrivalProfile, and patience, a PatienceDistribution given as 
+ * fixed:seconds, uniform:minimum:maximum or exponential:mean. Any setting 
+ * not given keeps its default value, and the seed defaults to 0. 
+ * 
+ * As a run depends only on its settings and seed, the results of /simulate 
+ * are kept in a cache holding the results most recently used up to its 
+ * size. The cache is keyed by every setting which changes the results and 
+ * the seed; eventDriven and compact only change how the same results are 
+ * found. A request for a scenario already being simulated waits for that 
+ * simulation rather than running its own. A request which is badly formed, 
+ * or whose shift length, phone lines or employees exceed the limits of the 
+ * server, is answered with a 400 status and a JSON error. 
+ * 
+ * @author Brett Crawford
+ */
+public class WhatIfServer {
+	
+	/** The longest shift (in hours) which may be simulated, one week **/
+	private static final int MAX_SHIFT_LENGTH = 7 * 24;
+	
+	/** The most phone lines which may be simulated **/
+	private static final int MAX_PHONE_LINES = 10000;
+	
+	/** The most employees which may be simulated **/
+	private static final int MAX_EMPLOYEES = 10000;
+	
+	private HttpServer server;
+	private ExecutorService executor;
+	private Map<String, FutureTask<String>> cache;
+	private long cacheHits;
+	private long cacheMisses;
+	
+	/**
+	 * Starts a server on the port given as an argument and answers requests 
+	 * until the JVM is stopped. The size of the cache and number of threads 
+	 * may also be given.
+	 * 
+	 * @param args
+	 *            the port, the number of results to cache and the number 
+	 *            of threads, all optional
+	 */
+	public static void main(String args[]) {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		int cacheSize = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		
+		new WhatIfServer(port, cacheSize, threads).start();
+		System.out.println("Answering what-if requests on port " + port);
+	}
+	
+	/**
+	 * Creates a WhatIfServer object with the specified parameters. The 
+	 * server does not answer requests until it is started.
+	 * 
+	 * @param thePort
+	 *            the loopback port to listen on, or 0 for any free port
+	 * @param theCacheSize
+	 *            the number of results to cache
+	 * @param theNumberOfThreads
+	 *            the number of threads to answer requests on
+	 */
+	public WhatIfServer(int thePort, final int theCacheSize, int theNumberOfThreads) {
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), thePort), 0);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to listen on port " + thePort, e);
+		}
+		executor = Executors.newFixedThreadPool(theNumberOfThreads);
+		server.setExecutor(executor);
+		server.createContext("/simulate", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				answer(exchange, true);
+			}
+		});
+		server.createContext("/estimate", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				answer(exchange, false);
+			}
+		});
+		
+		// Ordered by access, so the eldest entry is the one least recently used
+		cache = new LinkedHashMap<String, FutureTask<String>>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, FutureTask<String>> eldest) {
+				return size() > theCacheSize;
+			}
+		};
+		cacheHits = 0;
+		cacheMisses = 0;
+	}
+	
+	/**
+	 * Begins answering requests.
+	 */
+	public void start() {
+		server.start();
+	}
+	
+	/**
+	 * Stops answering requests and stops the threads used to answer them.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+	
+	/**
+	 * Returns the port the server listens on.
+	 * 
+	 * @return int
+	 *            the port of the server
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Returns the JSON results of a simulation of the scenario described by 
+	 * the given query string, from the cache if it has been run before. If 
+	 * the scenario is being simulated for another request, the results of 
+	 * that simulation are waited for.
+	 * 
+	 * @param theQuery
+	 *            the query string describing the scenario, or null
+	 * @return String
+	 *            the statistics of the simulation as JSON
+	 */
+	public String simulate(String theQuery) {
+		Map<String, String> query = parseQuery(theQuery);
+		final SimulationParameters parameters = getParameters(query);
+		final long seed = query.containsKey("seed") ? Long.parseLong(query.get("seed")) : 0;
+		String key = getKey(parameters, seed);
+		
+		FutureTask<String> result;
+		boolean running = false;
+		synchronized(cache) {
+			result = cache.get(key);
+			if(result != null) {
+				cacheHits++;
+			}
+			else {
+				cacheMisses++;
+				result = new FutureTask<String>(new Callable<String>() {
+					public String call() {
+						CallCenterSimulation simulation = new CallCenterSimulation(parameters, seed);
+						simulation.initializeSim();
+						simulation.run();
+						return toJson(simulation.getLog(), seed);
+					}
+				});
+				cache.put(key, result); // Found by any request for the scenario while it runs
+				running = true;
+			}
+		}
+		
+		if(running)
+			result.run();
+		try {
+			return result.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a simulation", e);
+		}
+		catch(ExecutionException e) {
+			synchronized(cache) { // A failed simulation is not kept
+				if(cache.get(key) == result)
+					cache.remove(key);
+			}
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("Simulation failed", e.getCause());
+		}
+	}
+	
+	/**
+	 * Returns the JSON estimates of the scenario described by the given 
+	 * query string.
+	 * 
+	 * @param theQuery
+	 *            the query string describing the scenario, or null
+	 * @return String
+	 *            the ErlangEstimator estimates as JSON
+	 */
+	public String estimate(String theQuery) {
+		SimulationParameters parameters = getParameters(parseQuery(theQuery));
+		if(parameters.getRedialProbability() > 0 || parameters.getCallbackProbability() > 0)
+			throw new IllegalArgumentException("Redials and callbacks cannot be estimated by the Erlang model");
+		ErlangEstimator estimator = new ErlangEstimator(parameters);
+		return "{\"busySignalProbability\":" + estimator.getBusySignalProbability() +
+				",\"waitProbability\":" + estimator.getWaitProbability() +
+				",\"hangUpProbability\":" + estimator.getHangUpProbability() +
+				",\"averageHoldTime\":" + estimator.getAverageHoldTime() +
+				",\"utilization\":" + estimator.getUtilization() + "}";
+	}
+	
+	/**
+	 * Returns the number of simulations answered from the cache, or by 
+	 * waiting for a simulation already running.
+	 * 
+	 * @return long
+	 *            the number of cache hits
+	 */
+	public long getCacheHits() {
+		synchronized(cache) {
+			return cacheHits;
+		}
+	}
+	
+	/**
+	 * Returns the number of simulations which had to be run.
+	 * 
+	 * @return long
+	 *            the number of cache misses
+	 */
+	public long getCacheMisses() {
+		synchronized(cache) {
+			return cacheMisses;
+		}
+	}
+	
+	/**
+	 * Answers a request with the results of a simulation or the estimates 
+	 * of the scenario it describes.
+	 * 
+	 * @param exchange
+	 *            the request and its response
+	 * @param simulated
+	 *            true to simulate the scenario, false to estimate it
+	 */
+	private void answer(HttpExchange exchange, boolean simulated) throws IOException {
+		int status = 200;
+		String body;
+		try {
+			if(!"GET".equals(exchange.getRequestMethod()))
+				throw new IllegalArgumentException("Only GET is supported");
+			String query = exchange.getRequestURI().getRawQuery();
+			body = simulated ? simulate(query) : estimate(query);
+		}
+		catch(IllegalArgumentException e) { // Includes badly formed numbers
+			status = 400;
+			body = "{\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}";
+		}
+		catch(RuntimeException e) {
+			status = 500;
+			body = "{\"error\":\"" + escape(String.valueOf(e.getMessage())) + "\"}";
+		}
+		
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+	
+	/**
+	 * Returns the settings given in a query string, by name.
+	 * 
+	 * @param theQuery
+	 *            the raw query string, or null
+	 * @return Map
+	 *            the value of each setting
+	 */
+	private static Map<String, String> parseQuery(String theQuery) {
+		Map<String, String> query = new HashMap<String, String>();
+		if(theQuery == null || theQuery.isEmpty())
+			return query;
+		try {
+			for(String pair : theQuery.split("&")) {
+				int equals = pair.indexOf('=');
+				if(equals < 0)
+					throw new IllegalArgumentException("Setting " + pair + " has no value");
+				query.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			}
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Unable to decode query " + theQuery, e);
+		}
+		return query;
+	}
+	
+	/**
+	 * Returns the parameters of the scenario described by the given 
+	 * settings, with the default value of any setting not given.
+	 * 
+	 * @param query
+	 *            the value of each setting
+	 * @return SimulationParameters
+	 *            the parameters of the scenario
+	 */
+	private static SimulationParameters getParameters(Map<String, String> query) {
+		SimulationParameters parameters = new SimulationParameters();
+		for(Map.Entry<String, String> setting : query.entrySet()) {
+			String name = setting.getKey();
+			String value = setting.getValue();
+			if(name.equals("seed"))
+				continue; // Not a parameter
+			else if(name.equals("shiftLength"))
+				parameters.setShiftLength(Integer.parseInt(value));
+			else if(name.equals("phoneLines"))
+				parameters.setNumberOfPhoneLines(Integer.parseInt(value));
+			else if(name.equals("employees"))
+				parameters.setNumberOfEmployees(Integer.parseInt(value));
+			else if(name.equals("durationMin"))
+				parameters.setExpectedDurationMin(Integer.parseInt(value));
+			else if(name.equals("durationMax"))
+				parameters.setExpectedDurationMax(Integer.parseInt(value));
+			else if(name.equals("callProbability"))
+				parameters.setCallProbability(Float.parseFloat(value));
+			else if(name.equals("eventDriven"))
+				parameters.setEventDriven(Boolean.parseBoolean(value));
+			else if(name.equals("compact"))
+				parameters.setCompact(Boolean.parseBoolean(value));
+			else if(name.equals("overflowSeconds"))
+				parameters.setOverflowSeconds(Integer.parseInt(value));
+			else if(name.equals("batchLength"))
+				parameters.setBatchLength(Integer.parseInt(value));
+			else if(name.equals("redialProbability"))
+				parameters.setRedialProbability(Float.parseFloat(value));
+			else if(name.equals("redialDelay"))
+				parameters.setRedialDelay(Integer.parseInt(value));
+			else if(name.equals("callbackProbability"))
+				parameters.setCallbackProbability(Float.parseFloat(value));
+			else if(name.equals("callTypeMix"))
+				parameters.setCallTypeMix(parseDoubles(value));
+			else if(name.equals("primarySkills"))
+				parameters.setPrimarySkills(parseLongs(value));
+			else if(name.equals("secondarySkills"))
+				parameters.setSecondarySkills(parseLongs(value));
+			else if(name.equals("profile"))
+				parameters.setArrivalProfile(parseProfile(value));
+			else if(name.equals("patience"))
+				parameters.setPatienceDistribution(parsePatience(value));
+			else
+				throw new IllegalArgumentException("Unknown setting " + name);
+		}
+		
+		if(parameters.getNumberOfPhoneLines() < 1 || parameters.getNumberOfEmployees() < 1)
+			throw new IllegalArgumentException("At least one phone line and one employee are required");
+		if(parameters.getShiftLength() < 1 || parameters.getExpectedDurationMin() < 1
+				|| parameters.getExpectedDurationMax() < parameters.getExpectedDurationMin())
+			throw new IllegalArgumentException("Shift length and call durations must be positive, and durationMin at most durationMax");
+		if(parameters.getShiftLength() > MAX_SHIFT_LENGTH || parameters.getNumberOfPhoneLines() > MAX_PHONE_LINES 
+				|| parameters.getNumberOfEmployees() > MAX_EMPLOYEES)
+			throw new IllegalArgumentException("At most a " + MAX_SHIFT_LENGTH + " hour shift, " + MAX_PHONE_LINES + 
+					" phone lines and " + MAX_EMPLOYEES + " employees may be simulated");
+		
+		// Checked here as well as by the simulation, since compact is not part of the cache key
+		if(parameters.isCompact() && (parameters.getPrimarySkills() != null 
+				|| parameters.getRedialProbability() > 0 || parameters.getCallbackProbability() > 0))
+			throw new IllegalArgumentException("A compact simulation cannot have skills, redials or callbacks");
+		return parameters;
+	}
+	
+	/**
+	 * Returns a key which is the same for two scenarios only if every 
+	 * setting which changes the results and the seed are the same. Whether 
+	 * the clock is event-driven and the call center compact are left out, 
+	 * as the results are the same either way.
+	 * 
+	 * @param parameters
+	 *            the parameters of the scenario
+	 * @param seed
+	 *            the seed of the run
+	 * @return String
+	 *            the key of the scenario
+	 */
+	private static String getKey(SimulationParameters parameters, long seed) {
+		ArrivalProfile profile = parameters.getArrivalProfile();
+		PatienceDistribution patience = parameters.getPatienceDistribution();
+		return seed + "|" + parameters.getShiftLength() + "|" + parameters.getNumberOfPhoneLines() + "|" + 
+				parameters.getNumberOfEmployees() + "|" + parameters.getExpectedDurationMin() + "|" + 
+				parameters.getExpectedDurationMax() + "|" + parameters.getCallProbability() + "|" + 
+				parameters.getOverflowSeconds() + "|" + parameters.getBatchLength() + "|" + 
+				Arrays.toString(parameters.getCallTypeMix()) + "|" + Arrays.toString(parameters.getPrimarySkills()) + "|" + 
+				Arrays.toString(parameters.getSecondarySkills()) + "|" + (profile == null ? "null" : profile.toString()) + "|" + 
+				(patience == null ? "null" : patience.toString()) + "|" + parameters.getRedialProbability() + "|" + 
+				parameters.getRedialDelay() + "|" + parameters.getCallbackProbability();
+	}
+	
+	/**
+	 * Returns the statistics of a completed simulation as JSON.
+	 * 
+	 * @param log
+	 *            the log of the simulation
+	 * @param seed
+	 *            the seed of the simulation
+	 * @return String
+	 *            the statistics as JSON
+	 */
+	private static String toJson(Log log, long seed) {
+		StatAccumulator holdTimes = log.getHoldTimes();
+		String json = "{\"seed\":" + seed +
+				",\"totalCustomers\":" + log.getTotalCustomers() +
+				",\"hangUps\":" + log.getHangUps() +
+				",\"busySignals\":" + log.getBusySignals() +
+				",\"redials\":" + log.getRedials() +
+				",\"callbacks\":" + log.getCallbacks() +
+				",\"successfulCalls\":" + log.getSuccessfulCalls() +
+				",\"callsOnHoldMax\":" + log.getCallsOnHoldMax() +
+				",\"averageHoldTime\":" + holdTimes.getMean() +
+				",\"maximumHoldTime\":" + (holdTimes.getCount() == 0 ? 0 : holdTimes.getMax()) +
+				",\"shiftLength\":" + log.getShiftLength() +
+				",\"averageEmployeeIdleTime\":" + log.getAverageEmployeeIdleTime();
+		BatchMeans batchMeans = log.getBatchMeans();
+		if(batchMeans != null) {
+			json += ",\"warmUpMinutes\":" + batchMeans.getWarmUpBatches() * batchMeans.getBatchLength() +
+					",\"steadyStateAverageHoldTime\":" + batchMeans.getAverageHoldTime().getMean() +
+					",\"steadyStateHangUpsPerHour\":" + batchMeans.getHangUpsPerHour().getMean() +
+					",\"steadyStateBusySignalsPerHour\":" + batchMeans.getBusySignalsPerHour().getMean();
+		}
+		return json + "}";
+	}
+	
+	/**
+	 * Returns the given text with the characters which cannot appear in a 
+	 * JSON string escaped.
+	 * 
+	 * @param text
+	 *            the text to escape
+	 * @return String
+	 *            the escaped text
+	 */
+	private static String escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '"' || c == '\\')
+				escaped.append('\\').append(c);
+			else if(c < ' ')
+				escaped.append(String.format("\\u%04x", (int) c));
+			else
+				escaped.append(c);
+		}
+		return escaped.toString();
+	}
+	
+	/**
+	 * Returns the numbers of a comma separated list.
+	 * 
+	 * @param list
+	 *            the comma separated list
+	 * @return double[]
+	 *            the numbers of the list
+	 */
+	private static double[] parseDoubles(String list) {
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			values[i] = Double.parseDouble(parts[i].trim());
+		return values;
+	}
+	
+	/**
+	 * Returns the numbers of a comma separated list of whole numbers.
+	 * 
+	 * @param list
+	 *            the comma separated list
+	 * @return long[]
+	 *            the numbers of the list
+	 */
+	private static long[] parseLongs(String list) {
+		String[] parts = list.split(",");
+		long[] values = new long[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			values[i] = Long.parseLong(parts[i].trim());
+		return values;
+	}
+	
+	/**
+	 * Returns the ArrivalProfile of a comma separated list of minute:rate 
+	 * periods.
+	 * 
+	 * @param list
+	 *            the comma separated list of periods
+	 * @return ArrivalProfile
+	 *            the profile of the periods
+	 */
+	private static ArrivalProfile parseProfile(String list) {
+		String[] parts = list.split(",");
+		int[] periodStarts = new int[parts.length];
+		double[] callsPerMinute = new double[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			String[] period = parts[i].split(":");
+			if(period.length != 2)
+				throw new IllegalArgumentException("Period " + parts[i] + " is not minute:rate");
+			periodStarts[i] = Integer.parseInt(period[0].trim());
+			callsPerMinute[i] = Double.parseDouble(period[1].trim());
+		}
+		return new ArrivalProfile(periodStarts, callsPerMinute);
+	}
+	
+	/**
+	 * Returns the PatienceDistribution of a kind followed by its values in 
+	 * seconds, separated by colons.
+	 * 
+	 * @param text
+	 *            the kind and values of the distribution
+	 * @return PatienceDistribution
+	 *            the distribution
+	 */
+	private static PatienceDistribution parsePatience(String text) {
+		String[] parts = text.split(":");
+		if(parts[0].equals("fixed") && parts.length == 2)
+			return PatienceDistribution.fixed(Integer.parseInt(parts[1].trim()));
+		if(parts[0].equals("uniform") && parts.length == 3)
+			return PatienceDistribution.uniform(Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim()));
+		if(parts[0].equals("exponential") && parts.length == 2)
+			return PatienceDistribution.exponential(Integer.parseInt(parts[1].trim()));
+		throw new IllegalArgumentException("Patience " + text + " is not fixed:seconds, uniform:minimum:maximum or exponential:mean");
+	}
+}